@@ -24,6 +24,7 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import java.io.IOException;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Utility that generates checksums for JCR paths.  The checksum is calculated using a depth first traversal
@@ -58,4 +59,20 @@ public interface ChecksumGenerator {
      */
     Map<String, String> generateChecksums(Session session, String path, ChecksumGeneratorOptions options)
             throws RepositoryException, IOException;
+
+    /**
+     * Like {@link #generateChecksums(Session, String, ChecksumGeneratorOptions)}, but passes each checksum to the
+     * consumer as soon as it is computed instead of collecting them in a map.
+     *
+     * @param session  the session
+     * @param path     the root path to generate checksums for
+     * @param options  the {@link ChecksumGeneratorOptions} that define the checksum generation
+     * @param consumer receives the absolute path and the checksum of each node system, in traversal order
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    default void generateChecksums(Session session, String path, ChecksumGeneratorOptions options,
+                                   BiConsumer<String, String> consumer) throws RepositoryException, IOException {
+        generateChecksums(session, path, options).forEach(consumer);
+    }
 }
\ No newline at end of file
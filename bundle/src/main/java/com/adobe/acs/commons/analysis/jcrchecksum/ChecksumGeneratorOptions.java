@@ -46,6 +46,8 @@ public interface ChecksumGeneratorOptions {
 
     String NODE_NAME_EXCLUDES = "excludeNodeNames";
 
+    String MERKLE = "merkle";
+
     /**
      * For a node to be checksumable, its primaryType must exists in getIncludedNodesTypes() and not exist in
      * getExcludedNodeTypes().
@@ -83,4 +85,12 @@ public interface ChecksumGeneratorOptions {
     default Set<String> getExcludedNodeNames() {
         return  Collections.EMPTY_SET;
     }
+
+    /**
+     * @return whether to compute the checksums of node systems as Merkle trees, hashing binaries in parallel and
+     * using the dam:sha1 of assets as the checksum of their original rendition
+     */
+    default boolean isMerkle() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.analysis.jcrchecksum.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.jackrabbit.api.JackrabbitValue;
+import org.apache.jackrabbit.commons.JcrUtils;
+
+import javax.jcr.Binary;
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checksums of binary values, which avoid reading the binary where its checksum is known already.
+ * <p>
+ * Checksums are cached by the content identity of the binary, which the repository derives from the content of
+ * binaries in the data store, so a binary is read once for as long as its checksum is cached, however many
+ * properties and comparisons share it. Optionally, the dam:sha1 of an asset's metadata is used as the checksum
+ * of its original rendition, which is the same SHA-1 as long as the metadata is up to date.
+ */
+@SuppressWarnings("squid:S2070") // SHA1 not used cryptographically
+final class BinaryChecksums {
+    static final String ORIGINAL_DATA = "/jcr:content/renditions/original/jcr:content/jcr:data";
+
+    static final String DAM_SHA1 = "dam:sha1";
+
+    private static final Cache<String, String> CHECKSUMS = CacheBuilder.newBuilder()
+            .maximumSize(50000)
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    private BinaryChecksums() {
+        // static util
+    }
+
+    /**
+     * @param property the property of the value
+     * @param value a binary value
+     * @param useAssetFingerprint whether to use the dam:sha1 of an asset as the checksum of its original rendition
+     * @return the checksum if it is known without reading the binary, otherwise null
+     */
+    static String getKnownChecksum(Property property, Value value, boolean useAssetFingerprint) throws RepositoryException {
+        if (useAssetFingerprint && !property.isMultiple() && property.getPath().endsWith(ORIGINAL_DATA)) {
+            // jcr:data < jcr:content < original < renditions < the asset's jcr:content
+            Node assetContent = property.getParent().getParent().getParent().getParent();
+            String sha1 = JcrUtils.getStringProperty(assetContent, "metadata/" + DAM_SHA1, null);
+            if (sha1 != null) {
+                return sha1;
+            }
+        }
+        String identity = getContentIdentity(value);
+        return identity != null ? CHECKSUMS.getIfPresent(identity) : null;
+    }
+
+    /**
+     * @param value a binary value
+     * @return the content identity of the value, null if the repository doesn't provide one
+     */
+    static String getContentIdentity(Value value) {
+        return value instanceof JackrabbitValue ? ((JackrabbitValue) value).getContentIdentity() : null;
+    }
+
+    /**
+     * Read the binary and compute its checksum. The binary must have been obtained on the thread of its session,
+     * reading its stream is safe on any thread.
+     *
+     * @param binary the binary
+     * @param identity the content identity of the binary, to cache the checksum, or null
+     * @return the SHA-1 of the binary
+     */
+    static String computeChecksum(Binary binary, String identity) throws RepositoryException, IOException {
+        String checksum;
+        try (InputStream stream = binary.getStream()) {
+            checksum = DigestUtils.sha1Hex(stream);
+        }
+        if (identity != null) {
+            CHECKSUMS.put(identity, checksum);
+        }
+        return checksum;
+    }
+
+    /**
+     * @param value a binary value
+     * @return the SHA-1 of the binary, from the cache if possible
+     */
+    static String getChecksum(Value value) throws RepositoryException, IOException {
+        String identity = getContentIdentity(value);
+        String checksum = identity != null ? CHECKSUMS.getIfPresent(identity) : null;
+        return checksum != null ? checksum : computeChecksum(value.getBinary(), identity);
+    }
+
+    static void clear() {
+        CHECKSUMS.invalidateAll();
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.jackrabbit.vault.util.Text;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
 import javax.jcr.Property;
@@ -38,16 +39,25 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.Value;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 /**
  * Utility that generates checksums for JCR paths.  The checksum is calculated using a depth first traversal
@@ -60,6 +70,10 @@ import java.util.TreeMap;
 public class ChecksumGeneratorImpl implements ChecksumGenerator {
     private static final Logger log = LoggerFactory.getLogger(ChecksumGeneratorImpl.class);
 
+    static final int MERKLE_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    static final int MERKLE_MAX_PENDING = 256;
+
     /**
      * Convenience method for  generateChecksums(session, path, new DefaultChecksumGeneratorOptions()).
      *
@@ -89,37 +103,62 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
     public Map<String, String> generateChecksums(Session session, String path, ChecksumGeneratorOptions options)
             throws RepositoryException, IOException {
 
+        final Map<String, String> checksums = new LinkedHashMap<>();
+        generateChecksums(session, path, options, checksums::put);
+        return checksums;
+    }
+
+    /**
+     * Traverses the content tree whose root is defined by the path param, respecting the {@link
+     * ChecksumGeneratorOptions}, and passes each checksum to the consumer as soon as it is computed.
+     *
+     * @param session the session
+     * @param path the root path to generate checksums for
+     * @param options the {@link ChecksumGeneratorOptions} that define the checksum generation
+     * @param consumer receives the absolute path and the checksum of each node system, in traversal order
+     * @throws RepositoryException
+     * @throws IOException
+     */
+    @Override
+    public void generateChecksums(Session session, String path, ChecksumGeneratorOptions options,
+                                  BiConsumer<String, String> consumer) throws RepositoryException, IOException {
+
         Node node = session.getNode(path);
 
         if (node == null) {
             log.warn("Path [ {} ] not found while generating checksums", path);
-            return new LinkedHashMap<>();
+            return;
         }
 
-        return traverseTree(node, options);
+        if (options.isMerkle()) {
+            try (MerkleTraversal traversal = new MerkleTraversal(options, consumer)) {
+                traversal.traverseTree(node);
+                traversal.finish();
+            }
+        } else {
+            traverseTree(node, options, consumer);
+        }
     }
 
     /**
      * Traverse the tree for candidate aggregate nodes.
      * @param node the current node being traversed
      * @param options the checksum generator options
-     * @return a map of paths and checksums
+     * @param consumer receives the paths and checksums
      * @throws RepositoryException
      * @throws IOException
      */
-    private Map<String, String> traverseTree(Node node, ChecksumGeneratorOptions options) throws
+    private void traverseTree(Node node, ChecksumGeneratorOptions options, BiConsumer<String, String> consumer) throws
             RepositoryException,
             IOException {
 
-        final Map<String, String> checksums = new LinkedHashMap<>();
-
         if (isExcludedSubTree(node, options)) {
-            return checksums;
+            return;
         } else if (isChecksumable(node, options) && !isExcludedNodeName(node, options)) {
             // Tree-traversal has found a node to checksum (checksum will include all valid sub-tree nodes)
             final String checksum = generatedNodeChecksum(node.getPath(), node, options);
             if (checksum != null) {
-                checksums.put(node.getPath(), checksum);
+                consumer.accept(node.getPath(), checksum);
                 log.debug("Top Level Node: {} ~> {}", node.getPath(), checksum);
             }
         } else {
@@ -129,11 +168,9 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
             while (children.hasNext()) {
                 // Check each child with recursive logic; if child is checksum-able the call into traverseTree will
                 // handle this case
-                checksums.putAll(traverseTree(children.nextNode(), options));
+                traverseTree(children.nextNode(), options, consumer);
             }
         }
-
-        return checksums;
     }
 
 
@@ -329,16 +366,7 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
      * @throws IOException
      */
     protected String getBinaryChecksum(final Value value) throws RepositoryException, IOException {
-        InputStream stream = null;
-
-        try {
-            stream = value.getBinary().getStream();
-            return DigestUtils.sha1Hex(stream);
-        } finally {
-            if (stream != null) {
-                stream.close();
-            }
-        }
+        return BinaryChecksums.getChecksum(value);
     }
 
     /**
@@ -442,4 +470,167 @@ public class ChecksumGeneratorImpl implements ChecksumGenerator {
 
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Computes the same checksums as {@link #generatedNodeChecksum(String, Node, ChecksumGeneratorOptions)} as a
+     * Merkle tree: the checksum of each node is derived from the checksums of its properties and child nodes,
+     * which complete independently.
+     * <p>
+     * The tree is read on the calling thread, as JCR sessions must not be shared between threads. Reading and
+     * hashing binaries, which is what makes checksums of DAM trees expensive, is forked to a pool, and so is
+     * the aggregation of the checksums up the tree once they complete. Binaries are not read at all where their
+     * checksum is known, see {@link BinaryChecksums}.
+     * <p>
+     * Several aggregate nodes are computed at the same time, the checksums are passed on in traversal order.
+     */
+    private final class MerkleTraversal implements AutoCloseable {
+        private final ChecksumGeneratorOptions options;
+        private final BiConsumer<String, String> consumer;
+        private final ForkJoinPool pool = new ForkJoinPool(MERKLE_PARALLELISM);
+        private final Deque<Map.Entry<String, CompletableFuture<String>>> pending = new ArrayDeque<>();
+
+        MerkleTraversal(ChecksumGeneratorOptions options, BiConsumer<String, String> consumer) {
+            this.options = options;
+            this.consumer = consumer;
+        }
+
+        void traverseTree(Node node) throws RepositoryException, IOException {
+            if (isExcludedSubTree(node, options)) {
+                return;
+            } else if (isChecksumable(node, options) && !isExcludedNodeName(node, options)) {
+                pending.add(new AbstractMap.SimpleImmutableEntry<>(node.getPath(), nodeChecksum(node.getPath(), node)));
+                // bound the number of trees held in memory
+                while (pending.size() > MERKLE_MAX_PENDING) {
+                    emit();
+                }
+            } else {
+                NodeIterator children = node.getNodes();
+                while (children.hasNext()) {
+                    traverseTree(children.nextNode());
+                }
+            }
+        }
+
+        void finish() throws RepositoryException, IOException {
+            while (!pending.isEmpty()) {
+                emit();
+            }
+        }
+
+        private void emit() throws RepositoryException, IOException {
+            Map.Entry<String, CompletableFuture<String>> entry = pending.poll();
+            String checksum;
+            try {
+                checksum = entry.getValue().join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                if (cause instanceof RepositoryException) {
+                    throw (RepositoryException) cause;
+                }
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+            if (checksum != null) {
+                consumer.accept(entry.getKey(), checksum);
+                log.debug("Top Level Node: {} ~> {}", entry.getKey(), checksum);
+            }
+        }
+
+        private CompletableFuture<String> nodeChecksum(String aggregateNodePath, Node node) throws RepositoryException {
+            if (isExcludedSubTree(node, options)) {
+                return CompletableFuture.completedFuture("");
+            }
+
+            final Map<String, CompletableFuture<String>> checksums = new LinkedHashMap<>();
+            if (!isExcludedNodeName(node, options)) {
+                checksums.put(getChecksumKey(aggregateNodePath, node.getPath()), propertyChecksums(aggregateNodePath, node));
+            }
+
+            final Map<String, CompletableFuture<String>> lexicographicallySortedChecksums = new TreeMap<>();
+            final boolean hasOrderedChildren = hasOrderedChildren(node);
+            final NodeIterator children = node.getNodes();
+            while (children.hasNext()) {
+                final Node child = children.nextNode();
+                if (!isExcludedSubTree(child, options) && !isExcludedNodeType(child, options)) {
+                    (hasOrderedChildren ? checksums : lexicographicallySortedChecksums)
+                            .put(getChecksumKey(aggregateNodePath, child.getPath()), nodeChecksum(aggregateNodePath, child));
+                }
+            }
+            checksums.putAll(lexicographicallySortedChecksums);
+
+            return aggregate(checksums);
+        }
+
+        private CompletableFuture<String> propertyChecksums(String aggregateNodePath, Node node) throws RepositoryException {
+            final Map<String, CompletableFuture<String>> propertyChecksums = new TreeMap<>();
+            final PropertyIterator properties = node.getProperties();
+
+            while (properties.hasNext()) {
+                final Property property = properties.nextProperty();
+                if (options.getExcludedProperties().contains(property.getName())) {
+                    continue;
+                }
+
+                final List<CompletableFuture<String>> checksums = new ArrayList<>();
+                for (final Value value : getPropertyValues(property)) {
+                    if (value.getType() == PropertyType.BINARY) {
+                        checksums.add(binaryChecksum(property, value));
+                    } else {
+                        checksums.add(CompletableFuture.completedFuture(getStringChecksum(value)));
+                    }
+                }
+                final boolean sort = !options.getSortedProperties().contains(property.getName());
+                propertyChecksums.put(getChecksumKey(aggregateNodePath, property.getPath()),
+                        allOf(checksums).thenApply(v -> {
+                            List<String> values = checksums.stream().map(CompletableFuture::join).collect(Collectors.toList());
+                            if (sort) {
+                                Collections.sort(values);
+                            }
+                            return StringUtils.join(values, ",");
+                        }));
+            }
+
+            return aggregate(propertyChecksums);
+        }
+
+        private CompletableFuture<String> binaryChecksum(Property property, Value value) throws RepositoryException {
+            String known = BinaryChecksums.getKnownChecksum(property, value, true);
+            if (known != null) {
+                return CompletableFuture.completedFuture(known);
+            }
+            // obtain the binary on the session's thread, only its stream is read by the pool
+            final Binary binary = value.getBinary();
+            final String identity = BinaryChecksums.getContentIdentity(value);
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return BinaryChecksums.computeChecksum(binary, identity);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (RepositoryException e) {
+                    throw new UncheckedIOException(new IOException(e));
+                }
+            }, pool);
+        }
+
+        private CompletableFuture<String> aggregate(Map<String, CompletableFuture<String>> futures) {
+            return allOf(futures.values()).thenApplyAsync(v -> {
+                final Map<String, String> checksums = new LinkedHashMap<>();
+                for (Map.Entry<String, CompletableFuture<String>> entry : futures.entrySet()) {
+                    String checksum = entry.getValue().join();
+                    if (checksum != null) {
+                        checksums.put(entry.getKey(), checksum);
+                    }
+                }
+                return aggregateChecksums(checksums);
+            }, pool);
+        }
+
+        private CompletableFuture<Void> allOf(Collection<CompletableFuture<String>> futures) {
+            return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        }
+
+        @Override
+        public void close() {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -24,7 +24,6 @@ import com.adobe.acs.commons.analysis.jcrchecksum.ChecksumGeneratorOptions;
 import com.adobe.acs.commons.analysis.jcrchecksum.impl.options.DefaultChecksumGeneratorOptions;
 import com.google.gson.stream.JsonWriter;
 
-import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -95,6 +94,8 @@ public final class JSONGenerator {
                 out.value("Unable to read path: " + e.getMessage());
             } finally {
                 out.endObject();
+                // send the json of each path as soon as it's complete
+                out.flush();
             }
         }
 
@@ -209,10 +210,7 @@ public final class JSONGenerator {
                 if (type == PropertyType.BINARY) {
                     if (isSortedValues) {
                         try {
-                            java.io.InputStream stream =
-                                    v.getBinary().getStream();
-                            String ckSum = DigestUtils.sha1Hex(stream);
-                            stream.close();
+                            String ckSum = BinaryChecksums.getChecksum(v);
                             sortedValueMap.put(ckSum, v);
                         } catch (IOException e) {
                             sortedValueMap.put("ERROR: generating hash for binary of "
@@ -297,10 +295,7 @@ public final class JSONGenerator {
             out.value(value.getString());
         } else if (value.getType() == PropertyType.BINARY) {
             try {
-                java.io.InputStream stream = value.getBinary().getStream();
-                String ckSum = DigestUtils.sha1Hex(stream);
-                stream.close();
-                out.value(ckSum);
+                out.value(BinaryChecksums.getChecksum(value));
             } catch (IOException e) {
                 out.value("ERROR: calculating hash for binary of " + property.getPath() + " : " + e.getMessage());
             }
@@ -45,6 +45,8 @@ public abstract class AbstractChecksumGeneratorOptions implements ChecksumGenera
 
     protected Set<String> excludedSubTrees = new HashSet<String>();
 
+    protected boolean merkle = false;
+
 
     public void addIncludedNodeTypes(String... data) {
         if (data != null) {
@@ -107,6 +109,15 @@ public abstract class AbstractChecksumGeneratorOptions implements ChecksumGenera
         }
     }
 
+    @Override
+    public boolean isMerkle() {
+        return this.merkle;
+    }
+
+    public void setMerkle(boolean merkle) {
+        this.merkle = merkle;
+    }
+
     public String toString() {
         InfoWriter iw = new InfoWriter();
 
@@ -117,6 +128,7 @@ public abstract class AbstractChecksumGeneratorOptions implements ChecksumGenera
         iw.message("Node Name Excludes: {}", this.getExcludedNodeNames());
         iw.message("Sub Tree Excludes: {}", this.getExcludedSubTrees());
         iw.message("Sorted Properties: {}", this.getSortedProperties());
+        iw.message("Merkle: {}", this.isMerkle());
 
         return iw.toString();
     }
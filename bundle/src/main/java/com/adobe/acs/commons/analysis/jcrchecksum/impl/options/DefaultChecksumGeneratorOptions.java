@@ -61,6 +61,7 @@ public class DefaultChecksumGeneratorOptions extends AbstractChecksumGeneratorOp
 
     public DefaultChecksumGeneratorOptions(SlingHttpServletRequest request) {
         this();
+        this.setMerkle(Boolean.parseBoolean(request.getParameter(MERKLE)));
     }
 
 }
\ No newline at end of file
@@ -38,8 +38,9 @@ import javax.jcr.Session;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.Map;
+import java.io.PrintWriter;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SuppressWarnings("serial")
 @Component
@@ -107,18 +108,21 @@ public class ChecksumGeneratorServlet extends BaseChecksumServlet {
         }
 
         final Session session = request.getResourceResolver().adaptTo(Session.class);
+        final PrintWriter writer = response.getWriter();
 
         for (final String path : paths) {
             log.debug("Generating checksum for path [ {} ]", path);
 
-            Map<String, String> checksums = checksumGenerator.generateChecksums(session, path, options);
+            final AtomicInteger count = new AtomicInteger();
+            // write each checksum as it is computed instead of collecting the whole tree first
+            checksumGenerator.generateChecksums(session, path, options, (checksumPath, checksum) -> {
+                log.trace("Checksum [ {} ~> {} ]", checksumPath, checksum);
+                writer.println(checksumPath + "\t" + checksum);
+                count.incrementAndGet();
+            });
+            writer.flush();
 
-            log.debug("Collected [ {} ] checksum entries under [ {} ]", checksums.size(), path);
-
-            for(final Map.Entry<String, String> entry : checksums.entrySet()) {
-                log.trace("Checksum [ {} ~> {} ]", entry.getKey(), entry.getValue());
-                response.getWriter().println(entry.getKey() + "\t" + entry.getValue());
-            }
+            log.debug("Collected [ {} ] checksum entries under [ {} ]", count.get(), path);
         }
     }
 }
\ No newline at end of file
@@ -21,10 +21,10 @@ package com.adobe.acs.commons.ccvar.filter;
 import com.adobe.acs.commons.ccvar.PropertyAggregatorService;
 import com.adobe.acs.commons.ccvar.PropertyConfigService;
 import com.adobe.acs.commons.ccvar.util.ContentVariableReplacementUtil;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
@@ -48,9 +48,8 @@ import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -74,6 +73,8 @@ public class ContentVariableJsonFilter implements Filter {
 
     private static final Logger LOG = LoggerFactory.getLogger(ContentVariableJsonFilter.class);
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     @Reference
     private PropertyAggregatorService propertyAggregatorService;
 
@@ -101,11 +102,8 @@ public class ContentVariableJsonFilter implements Filter {
             String toReturn = currentResponse;
             try {
                 Map<String, Object> contentVariableReplacements = propertyAggregatorService.getProperties(slingHttpServletRequest);
-                if (contentVariableReplacements.size() > 0) {
-                    ObjectMapper objectMapper = new ObjectMapper();
-                    JsonNode currentTree = objectMapper.readTree(currentResponse);
-                    replaceInElements(currentTree, contentVariableReplacements);
-                    toReturn = currentTree.toString();
+                if (contentVariableReplacements.size() > 0 && currentResponse.contains("((")) {
+                    toReturn = replaceInJson(currentResponse, contentVariableReplacements);
                 }
             } catch (Exception e) {
                 LOG.error("Exception during JSON property replacement", e);
@@ -154,64 +152,28 @@ public class ContentVariableJsonFilter implements Filter {
     }
 
     /**
-     * Delegate replacement to different object types.
-     *
-     * @param node Input JSON node
-     * @param contentVariableReplacements current map of content variables
-     */
-    private void replaceInElements(JsonNode node, Map<String, Object> contentVariableReplacements) {
-        if (node.isArray()) {
-            replaceInArray(node, contentVariableReplacements);
-        } else if (node.isObject()) {
-            replaceInObject(node, contentVariableReplacements);
-        }
-    }
-
-    /**
-     * Iterates through array items and replaces any placeholders found.
-     *
-     * @param node Array node
-     * @param contentVariableReplacements current map of content variables
-     */
-    private void replaceInArray(JsonNode node, Map<String, Object> contentVariableReplacements) {
-        if (node.get(0) != null && node.get(0).isTextual()) {
-            List<String> updated = new LinkedList<>();
-            for (JsonNode arrayItem : node) {
-                String current = arrayItem.asText();
-                updated.add(replaceInString(current, contentVariableReplacements));
-            }
-            ((ArrayNode) node).removeAll();
-            for (int i = 0; i < updated.size(); i++) {
-                ((ArrayNode) node).insert(i, updated.get(i));
-            }
-        } else if (node.get(0) != null && node.get(0).isContainerNode()) {
-            for (JsonNode arrayItem : node) {
-                replaceInElements(arrayItem, contentVariableReplacements);
-            }
-        }
-    }
-
-    /**
-     * Iterates over keys to replace any placeholders in the values.
+     * Copies the JSON token by token, replacing the placeholders in string values. The result is only returned once
+     * the whole JSON was copied, so that invalid JSON is left as is.
      *
-     * @param node Object node
+     * @param json Input JSON
      * @param contentVariableReplacements current map of content variables
+     * @return The replaced JSON
+     * @throws IOException if the input is not valid JSON
      */
-    private void replaceInObject(JsonNode node, Map<String, Object> contentVariableReplacements) {
-        Iterator<String> fieldNames = node.fieldNames();
-        while (fieldNames.hasNext()) {
-            String name = fieldNames.next();
-            JsonNode nodeValue = node.get(name);
-            if (nodeValue.isContainerNode()) {
-                replaceInElements(nodeValue, contentVariableReplacements);
-            } else if (nodeValue.isTextual()) {
-                String current = nodeValue.asText();
-                String replaced = replaceInString(current, contentVariableReplacements);
-                if (!StringUtils.equals(current, replaced)) {
-                    ((ObjectNode) node).put(name, replaced);
+    private String replaceInJson(String json, Map<String, Object> contentVariableReplacements) throws IOException {
+        StringWriter output = new StringWriter(json.length());
+        try (JsonParser parser = JSON_FACTORY.createParser(json);
+             JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING) {
+                    generator.writeString(replaceInString(parser.getText(), contentVariableReplacements));
+                } else {
+                    generator.copyCurrentEvent(parser);
                 }
             }
         }
+        return output.toString();
     }
 
     /**
@@ -222,15 +184,8 @@ public class ContentVariableJsonFilter implements Filter {
      * @return The replaced or original String
      */
     private String replaceInString(String input, Map<String, Object> contentVariableReplacements) {
-        final List<String> keys = ContentVariableReplacementUtil.getKeys(input);
-        for (String key : keys) {
-            // If the placeholder key is in the map then replace it
-            if (ContentVariableReplacementUtil.hasKey(contentVariableReplacements, key)) {
-                String replaceValue = (String) ContentVariableReplacementUtil.getValue(contentVariableReplacements, key);
-                input = ContentVariableReplacementUtil.doReplacement(input, key, replaceValue, propertyConfigService.getAction(key));
-            }
-        }
-        return input;
+        return ContentVariableReplacementUtil.replaceAll(input, contentVariableReplacements,
+                propertyConfigService::getAction);
     }
 
     @Override
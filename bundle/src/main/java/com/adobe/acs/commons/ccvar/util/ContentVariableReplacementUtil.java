@@ -21,9 +21,9 @@ import com.adobe.acs.commons.ccvar.TransformAction;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,7 +35,6 @@ import static com.adobe.acs.commons.ccvar.impl.PropertyConfigServiceImpl.PARSER_
 public class ContentVariableReplacementUtil {
 
     private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\(\\(([a-zA-Z0-9_:\\-]+\\.[a-zA-Z0-9_:\\-]+(![a-zA-Z0-9_:\\-]*)?)\\)\\)");
-    private static final Map<String, String> REQUIRED_ESCAPE = escapeMap();
     private static final String PLACEHOLDER_BEGIN = "((";
     private static final String PLACEHOLDER_END = "))";
 
@@ -124,31 +123,154 @@ public class ContentVariableReplacementUtil {
     }
 
     /**
-     * Applies the base level escaping unless otherwise overridden.
+     * Replaces all placeholders found in the map in a single pass over the input, which matches the placeholders like
+     * {@link #getKeys(String)} does. Replaced values are escaped like {@link #doReplacement(String, String, String,
+     * TransformAction)} does and are not scanned for placeholders again.
      *
-     * @param input String to escape
-     * @return Escaped string
+     * @param ch The characters containing the placeholders
+     * @param start The start of the input in the characters
+     * @param length The length of the input
+     * @param contentVariableReplacements Current map of content variable keys and values
+     * @param actions Returns the action found in a placeholder key, or null
+     * @return The replaced input, null if it doesn't contain any placeholder found in the map
      */
-    private static String baseEscaping(String input) {
-        for (Map.Entry<String, String> entry : REQUIRED_ESCAPE.entrySet()) {
-            if (input.contains(entry.getKey())) {
-                input = input.replace(entry.getKey(), entry.getValue());
+    public static StringBuilder replaceAll(char[] ch, int start, int length,
+                                           Map<String, Object> contentVariableReplacements,
+                                           Function<String, TransformAction> actions) {
+        final int end = start + length;
+        StringBuilder output = null;
+        int copied = start;
+        int i = start;
+        while (i < end - 1) {
+            if (ch[i] != '(' || ch[i + 1] != '(') {
+                i++;
+                continue;
+            }
+            final int keyEnd = scanKey(ch, i + 2, end);
+            if (keyEnd < 0) {
+                i++;
+                continue;
+            }
+            final String key = new String(ch, i + 2, keyEnd - i - 2);
+            if (hasKey(contentVariableReplacements, key)) {
+                if (output == null) {
+                    output = new StringBuilder(length + 16);
+                }
+                output.append(ch, copied, i - copied);
+                appendReplacement(output, String.valueOf(getValue(contentVariableReplacements, key)),
+                        actions.apply(key));
+                copied = keyEnd + PLACEHOLDER_END.length();
+            }
+            i = keyEnd + PLACEHOLDER_END.length();
+        }
+        if (output != null) {
+            output.append(ch, copied, end - copied);
+        }
+        return output;
+    }
+
+    /**
+     * Replaces all placeholders found in the map in a single pass over the input.
+     *
+     * @param input The input string containing the placeholders
+     * @param contentVariableReplacements Current map of content variable keys and values
+     * @param actions Returns the action found in a placeholder key, or null
+     * @return The replaced input, the input itself if it doesn't contain any placeholder found in the map
+     * @see #replaceAll(char[], int, int, Map, Function)
+     */
+    public static String replaceAll(String input, Map<String, Object> contentVariableReplacements,
+                                    Function<String, TransformAction> actions) {
+        if (input == null || input.indexOf(PLACEHOLDER_BEGIN) < 0) {
+            return input;
+        }
+        final StringBuilder output = replaceAll(input.toCharArray(), 0, input.length(), contentVariableReplacements,
+                actions);
+        return output != null ? output.toString() : input;
+    }
+
+    /**
+     * Scans a placeholder key, matching the group of the {@link #PLACEHOLDER_PATTERN}.
+     *
+     * @return the index of the placeholder end following the key, -1 if there is no valid key
+     */
+    private static int scanKey(char[] ch, int from, int end) {
+        int i = scanKeyChars(ch, from, end);
+        if (i == from || i >= end || ch[i] != '.') {
+            return -1;
+        }
+        final int afterDot = i + 1;
+        i = scanKeyChars(ch, afterDot, end);
+        if (i == afterDot) {
+            return -1;
+        }
+        if (i < end && ch[i] == PARSER_SEPARATOR.charAt(0)) {
+            i = scanKeyChars(ch, i + 1, end);
+        }
+        if (i + 1 < end && ch[i] == ')' && ch[i + 1] == ')') {
+            return i;
+        }
+        return -1;
+    }
+
+    private static int scanKeyChars(char[] ch, int from, int end) {
+        int i = from;
+        while (i < end && isKeyChar(ch[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isKeyChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == ':' || c == '-';
+    }
+
+    private static void appendReplacement(StringBuilder output, String replacement, TransformAction action) {
+        if (action != null) {
+            if (action.disableEscaping()) {
+                output.append(action.execute(replacement));
+            } else {
+                appendEscaped(output, action.execute(replacement));
             }
+        } else {
+            appendEscaped(output, replacement);
         }
-        return input;
     }
 
     /**
-     * Generates the map of characters to automatically escape
+     * Appends the input with base level escaping applied.
+     */
+    private static void appendEscaped(StringBuilder output, String input) {
+        for (int i = 0; i < input.length(); i++) {
+            final char c = input.charAt(i);
+            switch (c) {
+                case '"':
+                    output.append("&quot;");
+                    break;
+                case '\'':
+                    output.append("&apos;");
+                    break;
+                case '<':
+                    output.append("&lt;");
+                    break;
+                case '>':
+                    output.append("&gt;");
+                    break;
+                default:
+                    output.append(c);
+            }
+        }
+    }
+
+    /**
+     * Applies the base level escaping unless otherwise overridden.
      *
-     * @return Map of escape keys/values
+     * @param input String to escape
+     * @return Escaped string
      */
-    private static Map<String, String> escapeMap() {
-        Map<String, String> escapes = new HashMap<>();
-        escapes.put("\"", "&quot;");
-        escapes.put("'", "&apos;");
-        escapes.put("<", "&lt;");
-        escapes.put(">", "&gt;");
-        return escapes;
+    private static String baseEscaping(String input) {
+        final StringBuilder output = new StringBuilder(input.length() + 16);
+        appendEscaped(output, input);
+        return output.toString();
     }
 }
@@ -32,7 +32,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
+import static com.adobe.acs.commons.contentsync.ContentSyncPipeline.SAVE_BATCH_SIZE;
 import static com.adobe.acs.commons.contentsync.RemoteInstance.CONNECT_TIMEOUT;
+import static com.adobe.acs.commons.contentsync.RemoteInstance.FETCH_THREADS;
 import static com.adobe.acs.commons.contentsync.RemoteInstance.SOCKET_TIMEOUT;
 import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
 import static org.apache.jackrabbit.JcrConstants.NT_UNSTRUCTURED;
@@ -48,6 +50,8 @@ public class ConfigurationUtils {
     public static final String SO_TIMEOUT_STRATEGY_KEY = "soTimeout";
     public static final String CONNECT_TIMEOUT_KEY = "connTimeout";
     public static final String DISABLE_CERT_CHECK_KEY = "disableCertCheck";
+    public static final String FETCH_THREADS_KEY = "fetchThreads";
+    public static final String SAVE_BATCH_SIZE_KEY = "saveBatchSize";
 
     private ConfigurationUtils(){
 
@@ -60,6 +64,8 @@ public class ConfigurationUtils {
         resourceProperties.put(EVENT_USER_DATA_KEY, "changedByPageManagerCopy");
         resourceProperties.put(SO_TIMEOUT_STRATEGY_KEY, SOCKET_TIMEOUT);
         resourceProperties.put(CONNECT_TIMEOUT_KEY, CONNECT_TIMEOUT);
+        resourceProperties.put(FETCH_THREADS_KEY, FETCH_THREADS);
+        resourceProperties.put(SAVE_BATCH_SIZE_KEY, SAVE_BATCH_SIZE);
         return ResourceUtil.getOrCreateResource(resourceResolver, SETTINGS_PATH, resourceProperties, NT_SLING_FOLDER, true);
     }
 
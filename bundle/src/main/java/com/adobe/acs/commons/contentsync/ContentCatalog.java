@@ -44,6 +44,8 @@ public class ContentCatalog {
 
     private RemoteInstance remoteInstance;
     private final String catalogServlet;
+    private long watermark;
+    private boolean incremental;
 
     public ContentCatalog(RemoteInstance remoteInstance, String catalogServlet) {
         this.remoteInstance = remoteInstance;
@@ -68,8 +70,26 @@ public class ContentCatalog {
      * @throws URISyntaxException if the URI syntax is incorrect
      */
     public URI getFetchURI(String path, String updateStrategy, boolean recursive) throws URISyntaxException {
+        return getFetchURI(path, updateStrategy, recursive, 0L);
+    }
+
+    /**
+     * Gets the URI to fetch the catalog of resources modified after the given time.
+     *
+     * @param path the path to fetch the catalog for
+     * @param updateStrategy the update strategy to use
+     * @param recursive whether to fetch recursively
+     * @param since the watermark of a previous catalog, 0 to fetch all resources
+     * @return the URI to fetch the catalog
+     * @throws URISyntaxException if the URI syntax is incorrect
+     */
+    public URI getFetchURI(String path, String updateStrategy, boolean recursive, long since) throws URISyntaxException {
+        if (since <= 0L) {
+            return remoteInstance.toURI(catalogServlet, "root", path, "strategy",
+                    updateStrategy, "recursive", String.valueOf(recursive));
+        }
         return remoteInstance.toURI(catalogServlet, "root", path, "strategy",
-                updateStrategy, "recursive", String.valueOf(recursive));
+                updateStrategy, "recursive", String.valueOf(recursive), "since", String.valueOf(since));
     }
 
     /**
@@ -91,7 +111,25 @@ public class ContentCatalog {
      * @throws URISyntaxException if the URI syntax is incorrect
      */
     public List<CatalogItem> fetch(String path, String updateStrategy, boolean recursive) throws IOException, URISyntaxException {
-        URI uri = getFetchURI(path, updateStrategy, recursive);
+        return fetch(path, updateStrategy, recursive, 0L);
+    }
+
+    /**
+     * Fetches the catalog items modified after the given time from the remote instance.
+     * <p>
+     * Update strategies which don't support incremental catalogs return all items.
+     *
+     * @param path the path to fetch the catalog for
+     * @param updateStrategy the update strategy to use
+     * @param recursive whether to fetch recursively
+     * @param since the watermark of a previous catalog, 0 to fetch all resources
+     * @return a list of catalog items
+     * @throws IOException if an I/O error occurs
+     * @throws URISyntaxException if the URI syntax is incorrect
+     * @see #getWatermark()
+     */
+    public List<CatalogItem> fetch(String path, String updateStrategy, boolean recursive, long since) throws IOException, URISyntaxException {
+        URI uri = getFetchURI(path, updateStrategy, recursive, since);
 
         String json = remoteInstance.getString(uri);
 
@@ -103,6 +141,8 @@ public class ContentCatalog {
             throw new IOException("Failed to fetch content catalog from " + uri + ", Response: " + json);
         }
         JsonArray catalog = response.getJsonArray("resources");
+        watermark = response.getJsonNumber("watermark") != null ? response.getJsonNumber("watermark").longValue() : 0L;
+        incremental = response.getBoolean("incremental", false);
 
         return catalog.stream()
                 .map(JsonValue::asJsonObject)
@@ -110,6 +150,23 @@ public class ContentCatalog {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * @return the watermark of the last fetched catalog, to fetch the changes after it next time.
+     * 0 if the remote instance doesn't provide it
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return true if the last fetched catalog lists only the resources modified since the requested watermark, so
+     * resources missing from it were not necessarily deleted. false if the update strategy ignored the watermark
+     * and listed all resources, or the remote instance doesn't tell
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
     /**
      * Gets the delta between the catalog items and the resources in the resource resolver.
      *
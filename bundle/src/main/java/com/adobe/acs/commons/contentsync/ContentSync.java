@@ -27,6 +27,7 @@ import com.day.cq.dam.api.Asset;
 import com.day.cq.dam.api.AssetManager;
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.PageManager;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.jackrabbit.commons.JcrUtils;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -48,13 +49,10 @@ import javax.jcr.version.VersionManager;
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonWriter;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
 import java.lang.invoke.MethodHandles;
 import java.net.URISyntaxException;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.apache.jackrabbit.JcrConstants.JCR_CONTENT;
@@ -278,12 +276,14 @@ public class ContentSync {
             nodeName = ResourceUtil.getName(path);
         }
 
-        StringWriter sw = new StringWriter();
-        try(JsonWriter writer = Json.createWriter(sw)){
+        // serialize straight to UTF-8 bytes and read them back from the same buffers, without a String in between
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try(JsonWriter writer = Json.createWriter(buffer)){
             writer.write(jsonObject);
         }
-        InputStream contentStream = new ByteArrayInputStream(sw.toString().getBytes(StandardCharsets.UTF_8));
-        importer.importContent(contentNode, nodeName + ".json", contentStream, importOptions, null);
+        try (InputStream contentStream = buffer.toInputStream()) {
+            importer.importContent(contentNode, nodeName + ".json", contentStream, importOptions, null);
+        }
     }
 
     @SuppressWarnings("squid:S112")
@@ -0,0 +1,288 @@
+/*-
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2013 - 2022 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.contentsync;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.json.JsonObject;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.apache.jackrabbit.JcrConstants.JCR_CONTENT;
+
+/**
+ * Imports a list of catalog items, fetching the JSON of the upcoming items concurrently while the current item is
+ * imported.
+ * <p>
+ * Only the HTTP requests run in parallel, up to the number of pooled connections of the remote instance. Everything
+ * that touches the JCR session (sanitizing, importing, copying binaries and saving) runs on the calling thread in
+ * catalog order, and the session is saved every {@code saveBatchSize} items instead of after each item.
+ * <p>
+ * If an item fails, the changes since the last save are discarded and the exception is re-thrown, so a batch is
+ * either persisted completely or not at all. Listeners which save the session themselves, e.g. by creating a version
+ * of the item, must request the pending items to be saved first with {@link Listener#isSaveRequired(CatalogItem)}.
+ */
+public class ContentSyncPipeline {
+    private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    static final int SAVE_BATCH_SIZE = 10;
+
+    /**
+     * The phases of the pipeline, in the order they run for each item.
+     */
+    public enum Phase {
+        FETCH, IMPORT, BINARIES, SAVE
+    }
+
+    /**
+     * Callbacks invoked on the calling thread, e.g. to report progress or create versions.
+     */
+    public interface Listener {
+        /**
+         * Invoked after the item was fetched and before {@link #beforeImport(CatalogItem, List)}.
+         *
+         * @param item the item to import
+         * @return true if the pending items must be saved before the item is imported, e.g. because a version of the
+         * item is created, which saves the session
+         */
+        default boolean isSaveRequired(CatalogItem item) throws Exception {
+            return false;
+        }
+
+        /**
+         * Invoked after the item was fetched and before it is imported.
+         *
+         * @param item the item to import
+         * @param binaryProperties the binary properties to copy, relative to the json root
+         */
+        default void beforeImport(CatalogItem item, List<String> binaryProperties) throws Exception {
+        }
+
+        /**
+         * Invoked after the item and its binaries were imported, it might not be saved yet.
+         *
+         * @param item the imported item
+         */
+        default void afterImport(CatalogItem item) throws Exception {
+        }
+
+        /**
+         * Invoked before the imported items are saved, changes made here are saved with them.
+         *
+         * @param items the items to save
+         */
+        default void beforeSave(List<CatalogItem> items) throws Exception {
+        }
+    }
+
+    private final RemoteInstance remoteInstance;
+    private final ContentSync contentSync;
+    private final ContentReader contentReader;
+    private final Session session;
+    private final int fetchThreads;
+    private final int saveBatchSize;
+    private final Statistics statistics = new Statistics();
+
+    public ContentSyncPipeline(RemoteInstance remoteInstance, ResourceResolver resourceResolver, ContentSync contentSync,
+                               ContentReader contentReader, int saveBatchSize) {
+        this.remoteInstance = remoteInstance;
+        this.contentSync = contentSync;
+        this.contentReader = contentReader;
+        this.session = resourceResolver.adaptTo(Session.class);
+        this.fetchThreads = remoteInstance.getMaxConnections();
+        this.saveBatchSize = Math.max(1, saveBatchSize);
+    }
+
+    /**
+     * Fetch and import the given items.
+     *
+     * @param items the items to import, in order
+     * @param listener the listener to notify
+     * @return the statistics of this pipeline
+     */
+    @SuppressWarnings("squid:S112")
+    public Statistics run(List<CatalogItem> items, Listener listener) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(fetchThreads);
+        // keep the pool busy while the current item is imported, but don't buffer more json than that
+        int window = fetchThreads * 2;
+        Deque<Future<Fetched>> pending = new ArrayDeque<>(window);
+        Iterator<CatalogItem> it = items.iterator();
+        List<CatalogItem> unsaved = new ArrayList<>(saveBatchSize);
+        try {
+            while (it.hasNext() || !pending.isEmpty()) {
+                while (it.hasNext() && pending.size() < window) {
+                    CatalogItem item = it.next();
+                    pending.add(executor.submit(() -> fetch(item)));
+                }
+                Fetched fetched = await(pending.poll());
+                if (!unsaved.isEmpty() && listener.isSaveRequired(fetched.item)) {
+                    save(unsaved, listener);
+                }
+                listener.beforeImport(fetched.item, fetched.binaryProperties);
+                importItem(fetched);
+                listener.afterImport(fetched.item);
+                unsaved.add(fetched.item);
+                if (unsaved.size() >= saveBatchSize) {
+                    save(unsaved, listener);
+                }
+            }
+            if (!unsaved.isEmpty()) {
+                save(unsaved, listener);
+            }
+        } catch (Exception e) {
+            log.error("content sync failed, discarding {} unsaved items", unsaved.size(), e);
+            pending.forEach(f -> f.cancel(true));
+            session.refresh(false);
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+        return statistics;
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    private Fetched fetch(CatalogItem item) throws IOException, URISyntaxException {
+        long t0 = System.nanoTime();
+        JsonObject json = remoteInstance.getJson(item.getContentUri());
+        List<String> binaryProperties = contentReader.collectBinaryProperties(json);
+        statistics.record(Phase.FETCH, t0);
+        return new Fetched(item, json, binaryProperties);
+    }
+
+    private static Fetched await(Future<Fetched> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private void importItem(Fetched fetched) throws RepositoryException, IOException, URISyntaxException {
+        long t0 = System.nanoTime();
+        contentSync.importData(fetched.item, contentReader.sanitize(fetched.json));
+        statistics.record(Phase.IMPORT, t0);
+
+        if (!fetched.binaryProperties.isEmpty()) {
+            t0 = System.nanoTime();
+            String path = fetched.item.getPath();
+            String basePath = path + (fetched.item.hasContentResource() ? "/" + JCR_CONTENT : "");
+            List<String> propertyPaths = fetched.binaryProperties.stream().map(p -> basePath + p).collect(Collectors.toList());
+            contentSync.copyBinaries(propertyPaths);
+            statistics.record(Phase.BINARIES, t0);
+        }
+    }
+
+    @SuppressWarnings("squid:S112")
+    private void save(List<CatalogItem> unsaved, Listener listener) throws Exception {
+        listener.beforeSave(unsaved);
+        long t0 = System.nanoTime();
+        session.save();
+        statistics.record(Phase.SAVE, t0);
+        unsaved.clear();
+    }
+
+    private static final class Fetched {
+        private final CatalogItem item;
+        private final JsonObject json;
+        private final List<String> binaryProperties;
+
+        Fetched(CatalogItem item, JsonObject json, List<String> binaryProperties) {
+            this.item = item;
+            this.json = json;
+            this.binaryProperties = binaryProperties;
+        }
+    }
+
+    /**
+     * Number of operations and time spent per phase. Fetches run concurrently, so their time is the sum over all
+     * fetch threads.
+     */
+    public static final class Statistics {
+        private final Map<Phase, AtomicInteger> counts = new EnumMap<>(Phase.class);
+        private final Map<Phase, AtomicLong> nanos = new EnumMap<>(Phase.class);
+
+        Statistics() {
+            for (Phase phase : Phase.values()) {
+                counts.put(phase, new AtomicInteger());
+                nanos.put(phase, new AtomicLong());
+            }
+        }
+
+        void record(Phase phase, long startNanos) {
+            nanos.get(phase).addAndGet(System.nanoTime() - startNanos);
+            counts.get(phase).incrementAndGet();
+        }
+
+        public int getCount(Phase phase) {
+            return counts.get(phase).get();
+        }
+
+        public long getTimeMillis(Phase phase) {
+            return TimeUnit.NANOSECONDS.toMillis(nanos.get(phase).get());
+        }
+
+        /**
+         * @return the operations per second of a single thread in the given phase
+         */
+        public double getThroughput(Phase phase) {
+            long millis = getTimeMillis(phase);
+            return millis == 0 ? 0 : getCount(phase) * 1000.0 / millis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (Phase phase : Phase.values()) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(phase.name().toLowerCase(Locale.ROOT)).append(": ").append(getCount(phase))
+                        .append(" in ").append(getTimeMillis(phase)).append(" ms")
+                        .append(String.format(" (%.1f/s)", getThroughput(phase)));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -57,6 +57,7 @@ import java.util.stream.Collectors;
 
 import static com.adobe.acs.commons.contentsync.ConfigurationUtils.CONNECT_TIMEOUT_KEY;
 import static com.adobe.acs.commons.contentsync.ConfigurationUtils.DISABLE_CERT_CHECK_KEY;
+import static com.adobe.acs.commons.contentsync.ConfigurationUtils.FETCH_THREADS_KEY;
 import static com.adobe.acs.commons.contentsync.ConfigurationUtils.SO_TIMEOUT_STRATEGY_KEY;
 import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
 
@@ -66,15 +67,25 @@ import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
 public class RemoteInstance implements Closeable {
     static final int CONNECT_TIMEOUT = 5000;
     static final int SOCKET_TIMEOUT = 300000;
+    static final int FETCH_THREADS = 4;
 
     private final CloseableHttpClient httpClient;
     private final SyncHostConfiguration hostConfiguration;
+    private final int maxConnections;
 
     public RemoteInstance(SyncHostConfiguration hostConfiguration, ValueMap generalSettings) throws GeneralSecurityException{
         this.hostConfiguration = hostConfiguration;
+        this.maxConnections = Math.max(1, generalSettings.get(FETCH_THREADS_KEY, FETCH_THREADS));
         this.httpClient = createHttpClient(hostConfiguration, generalSettings);
     }
 
+    /**
+     * @return the number of pooled connections to the remote instance, i.e. how many requests can be made concurrently
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
     private CloseableHttpClient createHttpClient(SyncHostConfiguration hostConfiguration, ValueMap generalSettings)
             throws GeneralSecurityException{
         BasicCredentialsProvider provider = new BasicCredentialsProvider();
@@ -90,8 +101,11 @@ public class RemoteInstance implements Closeable {
                 .setSocketTimeout(soTimeout)
                 .setCookieSpec(CookieSpecs.STANDARD).build();
         HttpClientBuilder builder = HttpClients.custom();
+        // all requests go to the same host, so the pool is sized per route
         builder.setDefaultRequestConfig(requestConfig)
-                .setDefaultCredentialsProvider(provider);
+                .setDefaultCredentialsProvider(provider)
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections);
         if (disableCertCheck) {
             // Disable hostname verification and allow self-signed certificates
             SSLContextBuilder sslbuilder = new SSLContextBuilder();
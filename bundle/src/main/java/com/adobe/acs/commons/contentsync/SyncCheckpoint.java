@@ -0,0 +1,160 @@
+/*-
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2013 - 2022 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.contentsync;
+
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
+import static org.apache.jackrabbit.JcrConstants.NT_UNSTRUCTURED;
+
+/**
+ * Progress of the syncs of a path from a remote host, persisted so that the next sync fetches only what changed
+ * since the last completed one, and an interrupted sync resumes where it stopped.
+ * <p>
+ * The paths of finished items are stored in one child resource per saved batch, so that each save only adds
+ * to the checkpoint instead of rewriting it. They are written through the resource resolver of the sync, so they
+ * are saved together with the imported content.
+ * <pre>
+ * /var/acs-commons/contentsync/checkpoints/{uuid}
+ *   host, root
+ *   watermark = watermark of the last completed sync
+ *   pendingWatermark = watermark of the sync in progress
+ *   batch-{uuid} { paths = [...] }
+ *   ...
+ * </pre>
+ */
+public class SyncCheckpoint {
+    public static final String CHECKPOINTS_PATH = ConfigurationUtils.CONFIG_PATH + "/checkpoints";
+
+    static final String WATERMARK = "watermark";
+    static final String PENDING_WATERMARK = "pendingWatermark";
+    static final String PATHS = "paths";
+    static final String BATCH_PREFIX = "batch-";
+
+    private final Resource resource;
+
+    private SyncCheckpoint(Resource resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * Get the checkpoint of a path synced from a host, created if missing.
+     *
+     * @param resourceResolver the resource resolver of the sync
+     * @param host the remote host
+     * @param root the synced path
+     * @return the checkpoint
+     */
+    public static SyncCheckpoint getOrCreate(ResourceResolver resourceResolver, String host, String root) throws PersistenceException {
+        String name = UUID.nameUUIDFromBytes((host + root).getBytes(StandardCharsets.UTF_8)).toString();
+        Map<String, Object> props = new HashMap<>();
+        props.put(JCR_PRIMARYTYPE, NT_UNSTRUCTURED);
+        props.put("host", host);
+        props.put("root", root);
+        Resource resource = ResourceUtil.getOrCreateResource(resourceResolver, CHECKPOINTS_PATH + "/" + name, props, NT_UNSTRUCTURED, true);
+        return new SyncCheckpoint(resource);
+    }
+
+    /**
+     * @return the watermark to fetch the changes since the last completed sync, 0 if there is none
+     */
+    public long getWatermark() {
+        return resource.getValueMap().get(WATERMARK, 0L);
+    }
+
+    /**
+     * @return whether a previous sync was interrupted and this one resumes it
+     */
+    public boolean isResuming() {
+        return resource.getValueMap().containsKey(PENDING_WATERMARK);
+    }
+
+    /**
+     * Start a sync. If a sync is resumed, the watermark of the interrupted sync is kept, so that the changes made
+     * while it was interrupted are fetched by the next sync.
+     *
+     * @param watermark the watermark of the fetched catalog
+     */
+    public void start(long watermark) throws PersistenceException {
+        if (!isResuming()) {
+            resource.adaptTo(ModifiableValueMap.class).put(PENDING_WATERMARK, watermark);
+            resource.getResourceResolver().commit();
+        }
+    }
+
+    /**
+     * @return the paths of the items imported by the interrupted sync
+     */
+    public Set<String> getFinishedPaths() {
+        if (!isResuming()) {
+            return Collections.emptySet();
+        }
+        Set<String> paths = new HashSet<>();
+        for (Resource batch : resource.getChildren()) {
+            Collections.addAll(paths, batch.getValueMap().get(PATHS, new String[0]));
+        }
+        return paths;
+    }
+
+    /**
+     * Record finished items, saved with the next commit of the resource resolver.
+     *
+     * @param paths the paths of the finished items
+     */
+    public void addFinished(Collection<String> paths) throws PersistenceException {
+        if (paths.isEmpty()) {
+            return;
+        }
+        Map<String, Object> props = new HashMap<>();
+        props.put(JCR_PRIMARYTYPE, NT_UNSTRUCTURED);
+        props.put(PATHS, paths.toArray(new String[0]));
+        resource.getResourceResolver().create(resource, BATCH_PREFIX + UUID.randomUUID(), props);
+    }
+
+    /**
+     * Complete the sync: the next sync fetches the changes since its watermark.
+     */
+    public void complete() throws PersistenceException {
+        ResourceResolver resourceResolver = resource.getResourceResolver();
+        for (Resource batch : resource.getChildren()) {
+            resourceResolver.delete(batch);
+        }
+        ModifiableValueMap props = resource.adaptTo(ModifiableValueMap.class);
+        Long pending = props.get(PENDING_WATERMARK, Long.class);
+        if (pending != null) {
+            props.put(WATERMARK, pending);
+            props.remove(PENDING_WATERMARK);
+        }
+        resourceResolver.commit();
+    }
+}
@@ -34,6 +34,18 @@ public interface UpdateStrategy {
      */
     List<CatalogItem> getItems(SlingHttpServletRequest request);
 
+    /**
+     * This method is called on the remote instance after {@link #getItems(SlingHttpServletRequest)}, to tell Content
+     * Sync whether the catalog lists only the resources modified since a previous sync, in which case resources
+     * missing from the catalog must not be deleted.
+     *
+     * @param request   the request from the Content Sync UI
+     * @return  true if the items are limited to the resources modified since the "since" request parameter
+     */
+    default boolean isIncremental(SlingHttpServletRequest request) {
+        return false;
+    }
+
 
     /**
      * Compare local and remote resources and decided whether the resource was modified and need to be sync-ed
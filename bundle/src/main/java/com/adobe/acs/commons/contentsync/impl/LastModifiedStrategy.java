@@ -23,6 +23,8 @@ import com.adobe.acs.commons.contentsync.CatalogItem;
 import com.adobe.acs.commons.contentsync.UpdateStrategy;
 import com.adobe.granite.security.user.util.AuthorizableUtil;
 import com.day.cq.commons.PathInfo;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.jackrabbit.util.ISO8601;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.request.RequestPathInfo;
 import org.apache.sling.api.resource.AbstractResourceVisitor;
@@ -33,6 +35,7 @@ import org.apache.sling.api.wrappers.SlingHttpServletRequestWrapper;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
+import javax.jcr.query.Query;
 import javax.json.Json;
 import javax.json.JsonObjectBuilder;
 import javax.servlet.GenericServlet;
@@ -40,8 +43,12 @@ import javax.servlet.Servlet;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static org.apache.jackrabbit.JcrConstants.JCR_CONTENT;
 import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
@@ -50,6 +57,7 @@ import static org.apache.jackrabbit.JcrConstants.JCR_PRIMARYTYPE;
 public class LastModifiedStrategy implements UpdateStrategy {
     public static final String DEFAULT_GET_SERVLET = "org.apache.sling.servlets.get.DefaultGetServlet";
     public static final String REDIRECT_SERVLET = "org.apache.sling.servlets.get.impl.RedirectServlet";
+    public static final String SINCE_PARAMETER = "since";
 
     @Reference
     private ServletResolver servletResolver;
@@ -71,7 +79,17 @@ public class LastModifiedStrategy implements UpdateStrategy {
             return Collections.emptyList();
         }
         List<CatalogItem> items = new ArrayList<>();
-        if (nonRecursive) {
+        String since = request.getParameter(SINCE_PARAMETER);
+        if (since != null && !nonRecursive) {
+            for (String path : getModifiedPaths(root, NumberUtils.toLong(since, 0))) {
+                Resource res = request.getResourceResolver().getResource(path);
+                if (res != null && accepts(res)) {
+                    JsonObjectBuilder json = Json.createObjectBuilder();
+                    writeMetadata(json, res, request);
+                    items.add(new CatalogItem(json.build()));
+                }
+            }
+        } else if (nonRecursive) {
             JsonObjectBuilder json = Json.createObjectBuilder();
             writeMetadata(json, root, request);
             items.add(new CatalogItem(json.build()));
@@ -91,6 +109,45 @@ public class LastModifiedStrategy implements UpdateStrategy {
         return items;
     }
 
+    @Override
+    public boolean isIncremental(SlingHttpServletRequest request) {
+        return request.getParameter(SINCE_PARAMETER) != null && !"false".equals(request.getParameter("recursive"));
+    }
+
+    /**
+     * Find the resources modified after the given time with a query on cq:lastModified and jcr:lastModified, so that
+     * the indexes on these properties are used instead of traversing the tree.
+     *
+     * @param root the root of the tree to search
+     * @param since the time in milliseconds
+     * @return the paths of the modified resources in tree order
+     */
+    Collection<String> getModifiedPaths(Resource root, long since) {
+        Calendar c = Calendar.getInstance();
+        c.setTimeInMillis(since);
+        String date = ISO8601.format(c);
+        String query = "SELECT * FROM [nt:base] AS s WHERE ISDESCENDANTNODE(s, '" + root.getPath().replace("'", "''") + "')"
+                + " AND (s.[cq:lastModified] > CAST('" + date + "' AS DATE) OR s.[jcr:lastModified] > CAST('" + date + "' AS DATE))";
+        Set<String> paths = new TreeSet<>();
+        for (Iterator<Resource> it = root.getResourceResolver().findResources(query, Query.JCR_SQL2); it.hasNext(); ) {
+            paths.add(getItemPath(it.next().getPath()));
+        }
+        return paths;
+    }
+
+    /**
+     * @param path the path of a modified node
+     * @return the path of the catalog item containing the node, e.g. the page for a node in its jcr:content
+     */
+    static String getItemPath(String path) {
+        int idx = path.indexOf("/" + JCR_CONTENT);
+        while (idx != -1 && idx + JCR_CONTENT.length() + 1 < path.length() && path.charAt(idx + JCR_CONTENT.length() + 1) != '/') {
+            // a node name starting with jcr:content, look further
+            idx = path.indexOf("/" + JCR_CONTENT, idx + 1);
+        }
+        return idx == -1 ? path : path.substring(0, idx);
+    }
+
     /**
      * Checks if the remote resource is modified compared to the local resource.
      *
@@ -39,6 +39,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
@@ -50,6 +51,12 @@ import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 })
 public class ContentCatalogServlet extends SlingSafeMethodsServlet {
 
+    /**
+     * Changes saved shortly before the catalog was built might not be visible to queries yet, e.g. because of
+     * asynchronous indexes, so the watermark for the next incremental sync overlaps with this one.
+     */
+    static final long WATERMARK_OVERLAP = TimeUnit.MINUTES.toMillis(1);
+
     private final transient Map<String, UpdateStrategy> updateStrategies = Collections.synchronizedMap(new LinkedHashMap<>());
 
     @Reference(service = UpdateStrategy.class,
@@ -72,6 +79,7 @@ public class ContentCatalogServlet extends SlingSafeMethodsServlet {
         response.setContentType("application/json");
 
         JsonObjectBuilder result = Json.createObjectBuilder();
+        long watermark = System.currentTimeMillis() - WATERMARK_OVERLAP;
         try {
             JsonArrayBuilder resources = Json.createArrayBuilder();
             String pid = request.getParameter("strategy");
@@ -82,6 +90,10 @@ public class ContentCatalogServlet extends SlingSafeMethodsServlet {
                 resources.add(item.getJsonObject());
             }
             result.add("resources", resources);
+            // pass as the "since" parameter of the next sync to fetch what changed after this catalog
+            result.add("watermark", watermark);
+            // resources missing from an incremental catalog were not modified, rather than deleted
+            result.add("incremental", updateStrategy.isIncremental(request));
         } catch (Exception e){
             result.add("error", e.getMessage());
             response.setStatus(SC_INTERNAL_SERVER_ERROR);
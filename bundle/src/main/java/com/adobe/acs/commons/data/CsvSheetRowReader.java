@@ -0,0 +1,88 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.io.input.BOMInputStream;
+
+import com.day.text.csv.Csv;
+
+/**
+ * Reads UTF-8 encoded CSV files, which avoids the overhead of a workbook altogether. The file is copied to a temporary
+ * file first, so rows can still be read once the stream it came from, e.g. an upload, is gone.
+ */
+final class CsvSheetRowReader extends SheetRowReader {
+
+    private final Csv csv = new Csv();
+    private final File file;
+    private final Iterator<String[]> lines;
+    private int rowNum;
+
+    CsvSheetRowReader(InputStream inputStream) throws IOException {
+        file = File.createTempFile("spreadsheet-", ".csv");
+        try {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Reader reader = new InputStreamReader(new BOMInputStream(Files.newInputStream(file.toPath())),
+                    StandardCharsets.UTF_8);
+            lines = csv.read(reader);
+        } catch (IOException | RuntimeException e) {
+            deleteFile();
+            throw e;
+        }
+    }
+
+    @Override
+    protected SheetRow readNextRow() {
+        if (!lines.hasNext()) {
+            return null;
+        }
+        String[] line = lines.next();
+        List<Variant> cells = new ArrayList<>(line.length);
+        for (String value : line) {
+            Variant val = new Variant(value != null ? value.trim() : null);
+            cells.add(val.isEmpty() ? null : val);
+        }
+        return new SheetRow(rowNum++, cells);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            csv.close();
+        } finally {
+            deleteFile();
+        }
+    }
+
+    private void deleteFile() {
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+}
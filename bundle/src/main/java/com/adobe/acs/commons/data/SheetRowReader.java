@@ -0,0 +1,164 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.data;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the rows of the first sheet of a file one at a time, as opposed to loading the whole workbook.
+ */
+abstract class SheetRowReader implements Iterator<SheetRowReader.SheetRow>, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SheetRowReader.class);
+
+    private static final byte[] ZIP_SIGNATURE = {0x50, 0x4B, 0x03, 0x04};
+
+    /** Extensions of files read as CSV, files without extension are read as CSV if they look like text */
+    private static final Collection<String> CSV_EXTENSIONS = Arrays.asList("csv", "txt");
+
+    /** Number of leading bytes checked for binary content */
+    private static final int SNIFF_LENGTH = 512;
+
+    private SheetRow nextRow;
+
+    /**
+     * Open a reader for Excel (xlsx) or CSV files. Excel files are recognized by their zip signature, any other file
+     * is read as CSV if it has a CSV extension, or no extension and no binary content.
+     *
+     * @param inputStream the file
+     * @param fileName the name of the file, used to tell its format
+     * @param locale the locale used for numeric and date/time conversions
+     * @return the reader, to be closed by the caller
+     * @throws IOException if the file couldn't be read or is of an unsupported format
+     */
+    static SheetRowReader open(InputStream inputStream, String fileName, Locale locale) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(inputStream);
+        if (isZip(in)) {
+            return new XlsxSheetRowReader(in, locale);
+        }
+        String extension = StringUtils.lowerCase(FilenameUtils.getExtension(fileName));
+        if (StringUtils.isEmpty(extension) ? isText(in) : CSV_EXTENSIONS.contains(extension)) {
+            return new CsvSheetRowReader(in);
+        }
+        throw new IOException("Unsupported format of " + fileName + ", expected an Excel (xlsx) or CSV file");
+    }
+
+    private static boolean isZip(BufferedInputStream in) throws IOException {
+        in.mark(ZIP_SIGNATURE.length);
+        try {
+            for (byte b : ZIP_SIGNATURE) {
+                if (in.read() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static boolean isText(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_LENGTH);
+        try {
+            for (int i = 0; i < SNIFF_LENGTH; i++) {
+                int b = in.read();
+                if (b == -1) {
+                    break;
+                }
+                if (b < 0x20 && b != '\t' && b != '\n' && b != '\r' && b != '\f') {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+
+    /**
+     * @return the next row, null if there are no more rows
+     * @throws IOException if the file couldn't be read
+     */
+    protected abstract SheetRow readNextRow() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (nextRow == null) {
+            try {
+                nextRow = readNextRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return nextRow != null;
+    }
+
+    @Override
+    public SheetRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SheetRow row = nextRow;
+        nextRow = null;
+        return row;
+    }
+
+    void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close spreadsheet", e);
+        }
+    }
+
+    /**
+     * A row with its zero-based row number and its cell values by column index, empty cells are null.
+     */
+    static final class SheetRow {
+        private final int rowNum;
+        private final List<Variant> cells;
+
+        SheetRow(int rowNum, List<Variant> cells) {
+            this.rowNum = rowNum;
+            this.cells = cells;
+        }
+
+        int getRowNum() {
+            return rowNum;
+        }
+
+        List<Variant> getCells() {
+            return cells;
+        }
+    }
+}
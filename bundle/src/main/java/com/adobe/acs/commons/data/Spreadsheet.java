@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -153,20 +154,11 @@ public class Spreadsheet {
         final Iterator<Row> rows = sheet.rowIterator();
 
         Row firstRow = rows.next();
-        headerRow = readRow(firstRow, locale).stream()
-                .map(v -> v != null ? convertHeaderName(v.toString()) : null)
-                .collect(Collectors.toList());
-        headerTypes = readRow(firstRow, locale).stream()
-                .map(Variant::toString)
-                .collect(Collectors.toMap(
-                        this::convertHeaderName,
-                        this::detectTypeFromName,
-                        this::upgradeToArray
-                ));
+        readHeader(readRow(firstRow, locale));
 
         Iterable<Row> remainingRows = () -> rows;
         dataRows = StreamSupport.stream(remainingRows.spliterator(), false)
-                .map(row -> buildRow(row, locale))
+                .map(row -> buildRow(row.getRowNum(), readRow(row, locale)))
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .collect(Collectors.toList());
@@ -174,6 +166,66 @@ public class Spreadsheet {
         return this;
     }
 
+    /**
+     * Parse the header row and stream the data rows as the input file is read, instead of loading the whole file
+     * and all rows first. This overload will implicitly use the default JVM locale for numeric and date/time
+     * conversions.
+     *
+     * @return the data rows, to be closed once consumed
+     * @throws IOException if the file couldn't be read
+     * @see #streamDataRows(Locale)
+     */
+    public Stream<Map<String, CompositeVariant>> streamDataRows() throws IOException {
+        return streamDataRows(Locale.getDefault());
+    }
+
+    /**
+     * Parse the header row and stream the data rows as the input file is read, instead of loading the whole file
+     * and all rows first. Excel (xlsx) files are read with the XSSF event API, CSV files are read as UTF-8 encoded
+     * text and files of any other format are rejected. The rows are not retained, so they can be consumed only once and are not part of
+     * {@link #getDataRowsAsCompositeVariants()}. Reading errors surface as {@link java.io.UncheckedIOException}
+     * while consuming the stream, which should be closed to release the file.
+     *
+     * @param locale The locale to be used for numeric and date/time conversions.
+     * @return the data rows, to be closed once consumed
+     * @throws IOException if the file or its header row couldn't be read, or the file is of an unsupported format
+     */
+    public Stream<Map<String, CompositeVariant>> streamDataRows(Locale locale) throws IOException {
+        SheetRowReader reader = SheetRowReader.open(this.inputStream, fileName, locale);
+        try {
+            if (!reader.hasNext()) {
+                throw new IOException("Missing header row in " + fileName);
+            }
+            readHeader(reader.next().getCells());
+        } catch (IOException | RuntimeException e) {
+            reader.closeQuietly();
+            throw e;
+        }
+
+        Iterable<SheetRowReader.SheetRow> remainingRows = () -> reader;
+        return StreamSupport.stream(remainingRows.spliterator(), false)
+                .map(row -> {
+                    rowCount = row.getRowNum();
+                    return buildRow(row.getRowNum(), row.getCells());
+                })
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .onClose(reader::closeQuietly);
+    }
+
+    private void readHeader(List<Variant> firstRow) {
+        headerRow = firstRow.stream()
+                .map(v -> v != null ? convertHeaderName(v.toString()) : null)
+                .collect(Collectors.toList());
+        headerTypes = firstRow.stream()
+                .map(Variant::toString)
+                .collect(Collectors.toMap(
+                        this::convertHeaderName,
+                        this::detectTypeFromName,
+                        this::upgradeToArray
+                ));
+    }
+
     private List<Variant> readRow(Row row, Locale locale) {
         Iterator<Cell> iterator = row.cellIterator();
         List<Variant> rowOut = new ArrayList<>();
@@ -189,10 +241,9 @@ public class Spreadsheet {
     }
 
     @SuppressWarnings("squid:S3776")
-    private Optional<Map<String, CompositeVariant>> buildRow(Row row, Locale locale) {
+    private Optional<Map<String, CompositeVariant>> buildRow(int rowNum, List<Variant> data) {
         Map<String, CompositeVariant> out = new LinkedHashMap<>();
-        out.put(ROW_NUMBER, new CompositeVariant(row.getRowNum()));
-        List<Variant> data = readRow(row, locale);
+        out.put(ROW_NUMBER, new CompositeVariant(rowNum));
         boolean empty = true;
         for (int i = 0; i < data.size() && i < getHeaderRow().size(); i++) {
             String colName = getHeaderRow().get(i);
@@ -0,0 +1,262 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+
+/**
+ * Reads the first sheet of an Excel (xlsx) file with the XSSF event API and a StAX parser, so that only the current row
+ * and the shared strings are held in memory. Cell values are converted like {@link Variant#Variant(org.apache.poi.ss.usermodel.Cell, Locale)}
+ * does, except that formulas are represented by their cached result.
+ */
+final class XlsxSheetRowReader extends SheetRowReader {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final File file;
+    private final OPCPackage pkg;
+    private final InputStream sheetData;
+    private final XMLStreamReader sheet;
+    private final List<String> sharedStrings;
+    private final StylesTable styles;
+    private final DataFormatter dataFormatter;
+    private int lastRowNum = -1;
+
+    XlsxSheetRowReader(InputStream inputStream, Locale locale) throws IOException {
+        // a package opened from a stream is unpacked into memory, from a file it is read on demand
+        file = File.createTempFile("spreadsheet-", ".xlsx");
+        OPCPackage opened = null;
+        InputStream openedSheetData = null;
+        try {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            opened = OPCPackage.open(file, PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(opened);
+            sharedStrings = readSharedStrings(reader);
+            styles = reader.getStylesTable();
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IOException("Workbook does not contain any sheet");
+            }
+            openedSheetData = sheets.next();
+            sheet = XML_INPUT_FACTORY.createXMLStreamReader(openedSheetData);
+        } catch (OpenXML4JException | XMLStreamException | RuntimeException e) {
+            close(openedSheetData, opened);
+            throw new IOException("Unable to read workbook", e);
+        } catch (IOException e) {
+            close(openedSheetData, opened);
+            throw e;
+        }
+        pkg = opened;
+        sheetData = openedSheetData;
+        dataFormatter = new DataFormatter(locale);
+    }
+
+    private static List<String> readSharedStrings(XSSFReader reader) throws IOException, OpenXML4JException, XMLStreamException {
+        List<String> strings = new ArrayList<>();
+        InputStream data;
+        try {
+            data = reader.getSharedStringsData();
+        } catch (OpenXML4JException | RuntimeException e) {
+            // workbooks without any text don't need a shared strings part
+            return strings;
+        }
+        try {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(data);
+            StringBuilder text = null;
+            int phonetic = 0;
+            while (xml.hasNext()) {
+                int event = xml.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("si".equals(name)) {
+                        text = new StringBuilder();
+                    } else if ("rPh".equals(name)) {
+                        phonetic++;
+                    } else if ("t".equals(name) && text != null && phonetic == 0) {
+                        text.append(xml.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = xml.getLocalName();
+                    if ("si".equals(name) && text != null) {
+                        strings.add(text.toString());
+                        text = null;
+                    } else if ("rPh".equals(name)) {
+                        phonetic--;
+                    }
+                }
+            }
+            xml.close();
+        } finally {
+            IOUtils.closeQuietly(data);
+        }
+        return strings;
+    }
+
+    @Override
+    protected SheetRow readNextRow() throws IOException {
+        try {
+            while (sheet.hasNext()) {
+                if (sheet.next() == XMLStreamConstants.START_ELEMENT && "row".equals(sheet.getLocalName())) {
+                    String r = sheet.getAttributeValue(null, "r");
+                    lastRowNum = r != null ? Integer.parseInt(r) - 1 : lastRowNum + 1;
+                    return new SheetRow(lastRowNum, readCells());
+                }
+            }
+            return null;
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException("Unable to read row after row " + lastRowNum, e);
+        }
+    }
+
+    private List<Variant> readCells() throws XMLStreamException {
+        List<Variant> cells = new ArrayList<>();
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "row".equals(sheet.getLocalName())) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT && "c".equals(sheet.getLocalName())) {
+                String ref = sheet.getAttributeValue(null, "r");
+                int column = ref != null ? CellReference.convertColStringToIndex(StringUtils.stripEnd(ref, "0123456789"))
+                        : cells.size();
+                Variant val = readCell(sheet.getAttributeValue(null, "t"), sheet.getAttributeValue(null, "s"));
+                while (column > cells.size()) {
+                    cells.add(null);
+                }
+                cells.add(val.isEmpty() ? null : val);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Read the value of the current cell element, up to its end element.
+     */
+    private Variant readCell(String type, String style) throws XMLStreamException {
+        String value = null;
+        StringBuilder inlineString = null;
+        while (sheet.hasNext()) {
+            int event = sheet.next();
+            if (event == XMLStreamConstants.END_ELEMENT && "c".equals(sheet.getLocalName())) {
+                break;
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String name = sheet.getLocalName();
+                if ("v".equals(name)) {
+                    value = sheet.getElementText();
+                } else if ("is".equals(name)) {
+                    inlineString = new StringBuilder();
+                } else if ("t".equals(name) && inlineString != null) {
+                    inlineString.append(sheet.getElementText());
+                }
+            }
+        }
+
+        Variant variant = new Variant();
+        if ("inlineStr".equals(type)) {
+            variant.setValue(inlineString != null ? inlineString.toString().trim() : null);
+        } else if (value == null || "e".equals(type)) {
+            // blank or error
+            variant.clear();
+        } else if ("s".equals(type)) {
+            variant.setValue(sharedStrings.get(Integer.parseInt(value)).trim());
+        } else if ("str".equals(type)) {
+            variant.setValue(value.trim());
+        } else if ("b".equals(type)) {
+            variant.setValue("1".equals(value));
+        } else {
+            setNumericValue(variant, Double.parseDouble(value), style);
+        }
+        return variant;
+    }
+
+    private void setNumericValue(Variant variant, double number, String style) {
+        if (Math.floor(number) == number) {
+            variant.setValue((long) number);
+        } else {
+            variant.setValue(number);
+        }
+        int formatIndex = 0;
+        String formatString = null;
+        if (style != null && styles != null) {
+            XSSFCellStyle cellStyle = styles.getStyleAt(Integer.parseInt(style));
+            if (cellStyle != null) {
+                formatIndex = cellStyle.getDataFormat();
+                formatString = cellStyle.getDataFormatString();
+            }
+        }
+        if (formatString == null) {
+            formatString = "General";
+        }
+        if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(number)) {
+            variant.setValue(DateUtil.getJavaDate(number));
+        }
+        variant.setValue(dataFormatter.formatRawCellContents(number, formatIndex, formatString));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheet.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            close(sheetData, pkg);
+        }
+    }
+
+    private void close(InputStream data, OPCPackage opened) {
+        IOUtils.closeQuietly(data);
+        if (opened != null) {
+            opened.revert();
+        }
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+}
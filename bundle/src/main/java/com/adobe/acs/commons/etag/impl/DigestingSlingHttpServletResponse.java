@@ -0,0 +1,255 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.etag.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+import javax.servlet.ServletOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.wrappers.SlingHttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adobe.acs.commons.util.BufferedServletOutput.ResponseWriteMethod;
+import com.adobe.acs.commons.util.ServletOutputStreamWrapper;
+
+/**
+ * Response wrapper feeding a {@link MessageDigest} with the response body while it is being written.
+ * <p>
+ * The body is held back until this wrapper is closed, so that the ETag header can still be set once the digest is known.
+ * Up to the spool threshold it is kept in memory, beyond that in a temp file, which allows calculating digests of large
+ * binary responses without buffering them on the heap.
+ */
+final class DigestingSlingHttpServletResponse extends SlingHttpServletResponseWrapper implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(DigestingSlingHttpServletResponse.class);
+
+    private final MessageDigest messageDigest;
+    private final SpoolOutputStream spool;
+    private final DigestOutputStream digestOutputStream;
+    private ServletOutputStream servletOutputStream;
+    private PrintWriter printWriter;
+    private Charset writerCharset;
+    private ResponseWriteMethod writeMethod;
+    private boolean flushWrappedBuffer;
+
+    DigestingSlingHttpServletResponse(SlingHttpServletResponse wrappedResponse, MessageDigest messageDigest, long spoolThreshold) {
+        super(wrappedResponse);
+        this.messageDigest = messageDigest;
+        this.spool = new SpoolOutputStream(spoolThreshold);
+        this.digestOutputStream = new DigestOutputStream(spool, messageDigest);
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (ResponseWriteMethod.WRITER.equals(writeMethod)) {
+            throw new IllegalStateException("Cannot invoke getOutputStream() once getWriter() has been called.");
+        }
+        writeMethod = ResponseWriteMethod.OUTPUTSTREAM;
+        if (servletOutputStream == null) {
+            servletOutputStream = new ServletOutputStreamWrapper(digestOutputStream);
+        }
+        return servletOutputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (ResponseWriteMethod.OUTPUTSTREAM.equals(writeMethod)) {
+            throw new IllegalStateException("Cannot invoke getWriter() once getOutputStream() has been called.");
+        }
+        writeMethod = ResponseWriteMethod.WRITER;
+        if (printWriter == null) {
+            // same fallback as for the buffered digest calculation
+            writerCharset = getCharacterEncoding() != null ? Charset.forName(getCharacterEncoding()) : StandardCharsets.ISO_8859_1;
+            printWriter = new PrintWriter(new OutputStreamWriter(digestOutputStream, writerCharset));
+        }
+        return printWriter;
+    }
+
+    /**
+     * @return how the body has been written, {@code null} if it has not been written at all
+     */
+    ResponseWriteMethod getWriteMethod() {
+        return writeMethod;
+    }
+
+    /**
+     * Complete the digest of the body. Output written afterwards is still delivered, but not digested.
+     *
+     * @return the digest, to be completed with the headers
+     */
+    MessageDigest finishBodyDigest() {
+        if (printWriter != null) {
+            printWriter.flush();
+        }
+        digestOutputStream.on(false);
+        return messageDigest;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        // committing is deferred until the ETag header has been set
+        flushWrappedBuffer = true;
+    }
+
+    @Override
+    public void resetBuffer() {
+        resetBody();
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        resetBody();
+        super.reset();
+    }
+
+    private void resetBody() {
+        if (printWriter != null) {
+            printWriter.flush();
+        }
+        spool.reset();
+        messageDigest.reset();
+    }
+
+    /**
+     * Deliver the body to the wrapped response and remove the temp file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (printWriter != null) {
+                printWriter.flush();
+            }
+            if (spool.size() > 0) {
+                try (InputStream body = spool.openInputStream()) {
+                    writeToWrappedResponse(body);
+                }
+            }
+            if (flushWrappedBuffer) {
+                getResponse().flushBuffer();
+            }
+        } finally {
+            spool.close();
+        }
+    }
+
+    private void writeToWrappedResponse(InputStream body) throws IOException {
+        OutputStream out;
+        try {
+            out = getResponse().getOutputStream();
+        } catch (IllegalStateException e) {
+            // the writer of the wrapped response is in use already
+            IOUtils.copy(new InputStreamReader(body, writerCharset != null ? writerCharset : StandardCharsets.ISO_8859_1),
+                    getResponse().getWriter());
+            return;
+        }
+        IOUtils.copy(body, out);
+    }
+
+    /**
+     * Keeps written bytes in memory up to a threshold and continues in a temp file beyond.
+     */
+    private static final class SpoolOutputStream extends OutputStream {
+        private final long threshold;
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private OutputStream target = memory;
+        private File file;
+        private long size;
+
+        SpoolOutputStream(long threshold) {
+            this.threshold = threshold;
+        }
+
+        long size() {
+            return size;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            spoolIfNeeded(1);
+            target.write(b);
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            spoolIfNeeded(len);
+            target.write(b, off, len);
+            size += len;
+        }
+
+        private void spoolIfNeeded(int len) throws IOException {
+            if (target == memory && size + len > threshold) {
+                file = File.createTempFile("etag-", ".tmp");
+                target = new BufferedOutputStream(new FileOutputStream(file));
+                memory.writeTo(target);
+                memory.reset();
+            }
+        }
+
+        InputStream openInputStream() throws IOException {
+            target.flush();
+            if (file != null) {
+                return new FileInputStream(file);
+            }
+            return new ByteArrayInputStream(memory.toByteArray());
+        }
+
+        void reset() {
+            memory.reset();
+            deleteFile();
+            target = memory;
+            size = 0;
+        }
+
+        @Override
+        public void close() {
+            deleteFile();
+        }
+
+        private void deleteFile() {
+            if (file == null) {
+                return;
+            }
+            IOUtils.closeQuietly(target);
+            if (!file.delete() && file.exists()) {
+                log.warn("Could not delete spooled response {}", file);
+            }
+            file = null;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.servlet.Filter;
@@ -56,6 +57,8 @@ import org.slf4j.LoggerFactory;
 import com.adobe.acs.commons.etag.impl.EtagMessageDigestServletFilter.Config;
 import com.adobe.acs.commons.util.BufferedServletOutput.ResponseWriteMethod;
 import com.adobe.acs.commons.util.BufferedSlingHttpServletResponse;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.BaseEncoding;
 
 /** Generates the ETag response header from a message digest of the response. This header is supposed to be cached also on the
@@ -98,16 +101,38 @@ public class EtagMessageDigestServletFilter implements Filter {
 
         @AttributeDefinition(name = "Add as HTML comment", description = "If set to 'true' this filter will also emit a HTML comment at the very end of each HTML document exposing the ETag. This may be helpful to debug issues with stale HTML cache entries in case the ETag header is not properly propagated.")
         boolean addAsHtmlComment() default false;
+
+        @AttributeDefinition(name = "Streaming digest", description = "If set to 'true' the message digest is calculated while the response is being written instead of from the fully buffered response. The response body is still held back until the ETag is known, but only up to the spool threshold in memory and in a temporary file beyond. Recommended when enabling the filter for output streams.")
+        boolean streamingDigest() default false;
+
+        @AttributeDefinition(name = "Spool threshold", description = "Number of bytes of a response kept in memory with streaming digests before continuing in a temporary file.")
+        int spoolThreshold() default 1048576;
+
+        @AttributeDefinition(name = "Digest cache size", description = "Maximum number of ETags remembered per request URL and last modification date of the requested resource. Conditional requests matching a remembered ETag are answered with a 304 without rendering the response at all. Only enable this if the responses depend on nothing but the requested resource, as changes elsewhere go unnoticed. 0 disables the cache.")
+        int digestCacheSize() default 0;
+
+        @AttributeDefinition(name = "Digest cache TTL", description = "Time in seconds after which remembered ETags expire.")
+        long digestCacheTtl() default 3600;
     }
 
     private static final Logger log = LoggerFactory.getLogger(EtagMessageDigestServletFilter.class);
 
     private Config configuration;
     private Collection<String> ignoredHeaderNames;
+    /** ETags by request URL and last modification date of the resource, null if disabled */
+    private Cache<String, String> digestCache;
 
     @Activate
     public void activate(Config configuration) {
         this.configuration = configuration;
+        if (configuration.digestCacheSize() > 0) {
+            digestCache = CacheBuilder.newBuilder()
+                    .maximumSize(configuration.digestCacheSize())
+                    .expireAfterWrite(configuration.digestCacheTtl(), TimeUnit.SECONDS)
+                    .build();
+        } else {
+            digestCache = null;
+        }
         if (configuration.ignoredResponseHeaders() != null && configuration.ignoredResponseHeaders().length > 0) {
             // turn to lower case
             ignoredHeaderNames = Arrays.asList(configuration.ignoredResponseHeaders()).stream().map(String::toLowerCase)
@@ -150,50 +175,116 @@ public class EtagMessageDigestServletFilter implements Filter {
     }
 
     private void doFilterWithMessageDigest(SlingHttpServletRequest slingHttpServletRequest, SlingHttpServletResponse slingHttpServletResponse,  FilterChain chain) throws IOException, ServletException {
+        String digestCacheKey = getDigestCacheKey(slingHttpServletRequest);
+        if (digestCacheKey != null) {
+            String digest = digestCache.getIfPresent(digestCacheKey);
+            if (digest != null && isUnmodified(slingHttpServletRequest.getHeaders(HttpHeaders.IF_NONE_MATCH), digest)) {
+                log.debug("Remembered ETag {} is equal to one of the given ETags in the If-None-Match request header, returning a 304 without rendering", digest);
+                slingHttpServletRequest.getRequestProgressTracker().log("ETag remembered for unmodified resource: {0}", digest);
+                slingHttpServletResponse.setHeader(HttpConstants.HEADER_ETAG, "\"" + digest + "\"");
+                slingHttpServletResponse.setStatus(HttpStatus.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        if (configuration.streamingDigest()) {
+            doFilterWithStreamingDigest(slingHttpServletRequest, slingHttpServletResponse, chain, digestCacheKey);
+            return;
+        }
         ByteArrayOutputStream outputStream = configuration.enabledForOutputStream() ? new ByteArrayOutputStream() : null;
         try (BufferedSlingHttpServletResponse bufferedResponse = new BufferedSlingHttpServletResponse(slingHttpServletResponse,
                 new StringWriter(), outputStream)) {
             chain.doFilter(slingHttpServletRequest, bufferedResponse);
-            if (!configuration.overwrite() && slingHttpServletResponse.containsHeader(HttpConstants.HEADER_ETAG)) {
-                log.debug("Do not overwrite existing ETag header with value '{}'",
-                        slingHttpServletResponse.getHeader(HttpConstants.HEADER_ETAG));
+            ResponseWriteMethod writeMethod = bufferedResponse.getBufferedServletOutput().getWriteMethod();
+            if (!canSetDigest(slingHttpServletResponse, writeMethod)) {
                 return;
             }
-            // was the response buffered?
-            if (!configuration.enabledForOutputStream()
-                    && bufferedResponse.getBufferedServletOutput().getWriteMethod() == ResponseWriteMethod.OUTPUTSTREAM) {
-                log.debug("Can not calculate message digest as response was written via output stream which was not buffered.");
-                return;
-            }
-            if (slingHttpServletResponse.isCommitted()) {
-                log.warn("Can not send ETag header because response is already committed, try to give this filter a higher ranking!");
-                return;
-            }
-
             try {
                 String digest = calculateDigestFromResponse(bufferedResponse);
-                slingHttpServletRequest.getRequestProgressTracker().log("ETag from digest calculated with {0}: {1}",
-                        configuration.messageDigestAlgorithm(), digest);
-                slingHttpServletResponse.setHeader(HttpConstants.HEADER_ETAG, "\"" + digest + "\"");
-                if (isUnmodified(slingHttpServletRequest.getHeaders(HttpHeaders.IF_NONE_MATCH), digest)) {
-                    log.debug(
-                            "Digest is equal to one of the given ETags in the If-None-Match request header, returning empty response with a 304");
-                    bufferedResponse.resetBuffer();
-                    slingHttpServletResponse.setStatus(HttpStatus.SC_NOT_MODIFIED);
-                    return;
-                }
-                if (configuration.addAsHtmlComment()
-                        && bufferedResponse.getBufferedServletOutput().getWriteMethod() == ResponseWriteMethod.WRITER
-                        && slingHttpServletResponse.getContentType() != null
-                        && slingHttpServletResponse.getContentType().startsWith("text/html")) {
-                    bufferedResponse.getWriter().println(String.format("%n<!-- ETag: %s -->", digest));
-                }
+                setDigest(slingHttpServletRequest, slingHttpServletResponse, bufferedResponse, writeMethod, digest, digestCacheKey);
             } catch (NoSuchAlgorithmException e) {
                 log.error("The algorithm configured for this servlet filter is invalid: " + configuration.messageDigestAlgorithm(), e);
             }
         }
     }
 
+    private void doFilterWithStreamingDigest(SlingHttpServletRequest slingHttpServletRequest, SlingHttpServletResponse slingHttpServletResponse,
+            FilterChain chain, String digestCacheKey) throws IOException, ServletException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(configuration.messageDigestAlgorithm());
+        } catch (NoSuchAlgorithmException e) {
+            log.error("The algorithm configured for this servlet filter is invalid: " + configuration.messageDigestAlgorithm(), e);
+            chain.doFilter(slingHttpServletRequest, slingHttpServletResponse);
+            return;
+        }
+        try (DigestingSlingHttpServletResponse digestingResponse = new DigestingSlingHttpServletResponse(slingHttpServletResponse,
+                messageDigest, configuration.spoolThreshold())) {
+            chain.doFilter(slingHttpServletRequest, digestingResponse);
+            ResponseWriteMethod writeMethod = digestingResponse.getWriteMethod();
+            if (!canSetDigest(slingHttpServletResponse, writeMethod)) {
+                return;
+            }
+            String digest = finishDigest(digestingResponse.finishBodyDigest(), digestingResponse);
+            setDigest(slingHttpServletRequest, slingHttpServletResponse, digestingResponse, writeMethod, digest, digestCacheKey);
+        }
+    }
+
+    private boolean canSetDigest(SlingHttpServletResponse slingHttpServletResponse, ResponseWriteMethod writeMethod) {
+        if (!configuration.overwrite() && slingHttpServletResponse.containsHeader(HttpConstants.HEADER_ETAG)) {
+            log.debug("Do not overwrite existing ETag header with value '{}'",
+                    slingHttpServletResponse.getHeader(HttpConstants.HEADER_ETAG));
+            return false;
+        }
+        // was the response buffered?
+        if (!configuration.enabledForOutputStream() && writeMethod == ResponseWriteMethod.OUTPUTSTREAM) {
+            log.debug("Can not calculate message digest as response was written via output stream which was not buffered.");
+            return false;
+        }
+        if (slingHttpServletResponse.isCommitted()) {
+            log.warn("Can not send ETag header because response is already committed, try to give this filter a higher ranking!");
+            return false;
+        }
+        return true;
+    }
+
+    private void setDigest(SlingHttpServletRequest slingHttpServletRequest, SlingHttpServletResponse slingHttpServletResponse,
+            SlingHttpServletResponse bodyResponse, ResponseWriteMethod writeMethod, String digest, String digestCacheKey) throws IOException {
+        slingHttpServletRequest.getRequestProgressTracker().log("ETag from digest calculated with {0}: {1}",
+                configuration.messageDigestAlgorithm(), digest);
+        slingHttpServletResponse.setHeader(HttpConstants.HEADER_ETAG, "\"" + digest + "\"");
+        if (digestCacheKey != null && slingHttpServletResponse.getStatus() == HttpStatus.SC_OK) {
+            digestCache.put(digestCacheKey, digest);
+        }
+        if (isUnmodified(slingHttpServletRequest.getHeaders(HttpHeaders.IF_NONE_MATCH), digest)) {
+            log.debug(
+                    "Digest is equal to one of the given ETags in the If-None-Match request header, returning empty response with a 304");
+            bodyResponse.resetBuffer();
+            slingHttpServletResponse.setStatus(HttpStatus.SC_NOT_MODIFIED);
+            return;
+        }
+        if (configuration.addAsHtmlComment()
+                && writeMethod == ResponseWriteMethod.WRITER
+                && slingHttpServletResponse.getContentType() != null
+                && slingHttpServletResponse.getContentType().startsWith("text/html")) {
+            bodyResponse.getWriter().println(String.format("%n<!-- ETag: %s -->", digest));
+        }
+    }
+
+    /**
+     * @return the key of the ETag in the digest cache, null if the cache is disabled or the modification date of the resource is unknown
+     */
+    private String getDigestCacheKey(SlingHttpServletRequest slingHttpServletRequest) {
+        if (digestCache == null || slingHttpServletRequest.getResource() == null) {
+            return null;
+        }
+        long lastModified = slingHttpServletRequest.getResource().getResourceMetadata().getModificationTime();
+        if (lastModified <= 0) {
+            return null;
+        }
+        String queryString = slingHttpServletRequest.getQueryString();
+        return slingHttpServletRequest.getRequestURI() + (queryString != null ? "?" + queryString : "") + "@" + lastModified;
+    }
+
     /** Handles conditional requests like outlined in RFC7232.
      * 
      * @param slingHttpServletRequest
@@ -240,13 +331,21 @@ public class EtagMessageDigestServletFilter implements Filter {
             }
             messageDigest.update(bufferedResponse.getBufferedServletOutput().getBufferedString().getBytes(charsetName));
         }
+        return finishDigest(messageDigest, bufferedResponse);
+    }
 
+    /**
+     * Completes the digest of the response body with the response headers and the salt.
+     *
+     * @return the hex-encoded digest
+     */
+    String finishDigest(MessageDigest messageDigest, SlingHttpServletResponse response) {
         // consider header values as well?
         if (configuration.considerResponseHeaders()) {
-            for (String name : bufferedResponse.getHeaderNames()) {
+            for (String name : response.getHeaderNames()) {
                 String lowerCaseName = name.toLowerCase();
                 if (!ignoredHeaderNames.contains(lowerCaseName)) {
-                    String header = lowerCaseName + ":" + StringUtils.join(bufferedResponse.getHeaders(name), ',');
+                    String header = lowerCaseName + ":" + StringUtils.join(response.getHeaders(name), ',');
                     messageDigest.update(header.getBytes(StandardCharsets.US_ASCII));
                     log.debug("Considering header {} for the digest calculation", header);
                 }
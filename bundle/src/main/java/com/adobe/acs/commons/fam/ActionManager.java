@@ -23,6 +23,7 @@ import javax.jcr.RepositoryException;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.OpenDataException;
 
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
 import com.adobe.acs.commons.functions.CheckedBiConsumer;
@@ -51,6 +52,24 @@ public interface ActionManager {
      */
     int withQueryResults(final String queryStatement, final String language, final CheckedBiConsumer<ResourceResolver, String> callback, final CheckedBiFunction<ResourceResolver, String, Boolean>... filters) throws RepositoryException, PersistenceException, Exception;
 
+    /**
+     * Schedule an activity to occur for every node found by a given query, like
+     * {@link #withQueryResults(String, String, CheckedBiConsumer, CheckedBiFunction...)},
+     * but reading the query results only as fast as they are processed.
+     * The results are processed in tasks of up to batchSize results, and only a
+     * few of these tasks are queued at any time, so that the memory used does not
+     * depend on the number of results.  Results are read and processed after this
+     * method returned.
+     * @param queryStatement Query string
+     * @param language Query language to use
+     * @param batchSize Number of query results processed by one task
+     * @param callback Callback action to perform for every query result
+     * @param filters Optional filters return true if action should be taken
+     * @throws RepositoryException if the query cannot be executed
+     * @throws LoginException if no resolver can be obtained for reading the results
+     */
+    void streamQueryResults(final String queryStatement, final String language, final int batchSize, final CheckedBiConsumer<ResourceResolver, String> callback, final CheckedBiFunction<ResourceResolver, String, Boolean>... filters) throws RepositoryException, LoginException;
+
     /**
      * Perform action at some later time using a provided pooled resolver
      * @param action Action to perform
@@ -158,4 +177,42 @@ public interface ActionManager {
      * @return The number of items of work that have been added but have not yet been processed.
      */
     int getRemainingCount();
+
+    /**
+     * Let the number of items of work committed at once adapt to the observed
+     * commit latency and conflicts, between one and the given maximum.
+     * If a batch fails to commit, its items are run again in smaller batches to
+     * isolate the failing items, so they must be safe to run more than once.
+     * @param maxSaveInterval The largest number of items to commit at once
+     */
+    void setAdaptiveSaveInterval(int maxSaveInterval);
+
+    /**
+     * Run a task once the changes made by the current action have been committed,
+     * or right away if the action made no changes. Actions use this for reporting,
+     * so that actions run again after a failed batch commit report only once, and
+     * items which cannot be committed are not reported as done.
+     * @param task The task to run, usually updating a report
+     */
+    void afterCommit(Runnable task);
+
+    /**
+     * @return The number of items of work currently committed at once.
+     */
+    int getSaveInterval();
+
+    /**
+     * @return The number of successful commits.
+     */
+    long getCommitCount();
+
+    /**
+     * @return The number of failed commits.
+     */
+    long getFailedCommitCount();
+
+    /**
+     * @return The time spent committing in milliseconds.
+     */
+    long getCommitTime();
 }
\ No newline at end of file
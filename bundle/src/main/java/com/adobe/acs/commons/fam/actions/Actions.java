@@ -67,6 +67,21 @@ public final class Actions {
         }
     }
 
+    /**
+     * Run a task once the changes of the current action have been committed.
+     * Runs the task right away if there is no current action manager.
+     * @param task The task to run
+     * @see ActionManager#afterCommit(Runnable)
+     */
+    public static void afterCommit(Runnable task) {
+        ActionManager manager = getCurrentActionManager();
+        if (manager != null) {
+            manager.afterCommit(task);
+        } else {
+            task.run();
+        }
+    }
+
     //-- Query Result consumers (for using withQueryResults)
     /**
      * Retry provided action a given number of times before giving up and
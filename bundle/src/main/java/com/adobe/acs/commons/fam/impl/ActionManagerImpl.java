@@ -75,11 +75,13 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
     private final AtomicInteger tasksFilteredOut = new AtomicInteger();
     private final AtomicInteger tasksSuccessful = new AtomicInteger();
     private final AtomicInteger tasksError = new AtomicInteger();
+    private final AtomicInteger queryProducers = new AtomicInteger();
     private final String name;
     private final AtomicLong started = new AtomicLong(0);
     private long finished;
     private int saveInterval;
     private int priority;
+    private final transient AdaptiveSaveInterval adaptiveSaveInterval;
 
     private final transient ResourceResolver baseResolver;
     private final transient List<ReusableResolver> resolvers = Collections.synchronizedList(new ArrayList<>());
@@ -100,6 +102,7 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         this.name = name;
         this.taskRunner = taskRunner;
         this.saveInterval = saveInterval;
+        this.adaptiveSaveInterval = new AdaptiveSaveInterval(saveInterval);
         baseResolver = resolver.clone(null);
         currentPath = new ThreadLocal<>();
         failures = new ArrayList<>();
@@ -136,6 +139,31 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         return getAddedCount() - (getSuccessCount() + tasksError.get());
     }
 
+    @Override
+    public void setAdaptiveSaveInterval(int maxSaveInterval) {
+        adaptiveSaveInterval.setMaxInterval(maxSaveInterval);
+    }
+
+    @Override
+    public int getSaveInterval() {
+        return adaptiveSaveInterval.getInterval();
+    }
+
+    @Override
+    public long getCommitCount() {
+        return adaptiveSaveInterval.getCommitCount();
+    }
+
+    @Override
+    public long getFailedCommitCount() {
+        return adaptiveSaveInterval.getFailedCommitCount();
+    }
+
+    @Override
+    public long getCommitTime() {
+        return adaptiveSaveInterval.getCommitTime();
+    }
+
     @Override
     public List<Failure> getFailureList() {
         return Collections.unmodifiableList(failures);
@@ -194,15 +222,18 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         Actions.setCurrentActionManager(this);
         ReusableResolver resolver = getResourceResolver();
         resolver.setCurrentItem(currentPath.get());
+        resolver.setCurrentAction(action);
         try {
             action.accept(resolver.getResolver());
         } catch (Throwable ex) {
             throw ex;
         } finally {
             try {
+                // the action might have noted the item it worked on
+                resolver.setCurrentItem(currentPath.get());
                 resolver.free();
             } catch (PersistenceException ex) {
-                logPersistenceException(resolver.getPendingItems(), ex);
+                logPersistenceException(resolver.getFailures(), ex);
                 throw ex;
             }
             Actions.setCurrentActionManager(null);
@@ -227,18 +258,7 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
                 for (NodeIterator nodeIterator = results.getNodes(); nodeIterator.hasNext();) {
                     final String nodePath = nodeIterator.nextNode().getPath();
                     LOG.info("Processing found result {}", nodePath);
-                    deferredWithResolver((ResourceResolver r) -> {
-                        currentPath.set(nodePath);
-                        if (filters != null) {
-                            for (CheckedBiFunction<ResourceResolver, String, Boolean> filter : filters) {
-                                if (!filter.apply(r, nodePath)) {
-                                    logFilteredOutItem(nodePath);
-                                    return;
-                                }
-                            }
-                        }
-                        callback.accept(r, nodePath);
-                    });
+                    deferredWithResolver(queryResultAction(nodePath, callback, filters));
                 }
             } catch (RepositoryException ex) {
                 LOG.error("Repository exception processing query '{}'", queryStatement, ex);
@@ -248,6 +268,136 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         return tasksAdded.get();
     }
 
+    @Override
+    public void streamQueryResults(
+            final String queryStatement,
+            final String language,
+            final int batchSize,
+            final CheckedBiConsumer<ResourceResolver, String> callback,
+            final CheckedBiFunction<ResourceResolver, String, Boolean>... filters
+    ) throws RepositoryException, LoginException {
+        // the query keeps its own resolver, which is closed along with the others
+        ReusableResolver queryResolver = new ReusableResolver(baseResolver.clone(null), adaptiveSaveInterval);
+        resolvers.add(queryResolver);
+        Session session = queryResolver.getResolver().adaptTo(Session.class);
+        QueryManager queryManager = session.getWorkspace().getQueryManager();
+        NodeIterator nodes = queryManager.createQuery(queryStatement, language).execute().getNodes();
+        queryProducers.incrementAndGet();
+        new QueryResultProducer(queryStatement, nodes, Math.max(1, batchSize), callback, filters).resume();
+    }
+
+    private CheckedConsumer<ResourceResolver> queryResultAction(
+            final String nodePath,
+            final CheckedBiConsumer<ResourceResolver, String> callback,
+            final CheckedBiFunction<ResourceResolver, String, Boolean>... filters) {
+        return (ResourceResolver r) -> {
+            currentPath.set(nodePath);
+            if (filters != null) {
+                for (CheckedBiFunction<ResourceResolver, String, Boolean> filter : filters) {
+                    if (!filter.apply(r, nodePath)) {
+                        logFilteredOutItem(nodePath);
+                        return;
+                    }
+                }
+            }
+            callback.accept(r, nodePath);
+        };
+    }
+
+    /**
+     * Reads query results only as fast as they are processed. Results are handed
+     * out in batch tasks, and reading pauses while the maximum number of batches is
+     * queued or running, to be resumed by the next batch which completes.
+     */
+    private class QueryResultProducer {
+        private final String queryStatement;
+        private final NodeIterator nodes;
+        private final int batchSize;
+        private final int maxBatchesInFlight;
+        private final CheckedBiConsumer<ResourceResolver, String> callback;
+        private final CheckedBiFunction<ResourceResolver, String, Boolean>[] filters;
+        private final AtomicInteger batchesInFlight = new AtomicInteger();
+        private final AtomicBoolean producing = new AtomicBoolean(false);
+        private final AtomicBoolean exhausted = new AtomicBoolean(false);
+
+        QueryResultProducer(String queryStatement, NodeIterator nodes, int batchSize,
+                CheckedBiConsumer<ResourceResolver, String> callback,
+                CheckedBiFunction<ResourceResolver, String, Boolean>[] filters) {
+            this.queryStatement = queryStatement;
+            this.nodes = nodes;
+            this.batchSize = batchSize;
+            // enough batches to keep every thread busy, plus one waiting for each
+            this.maxBatchesInFlight = Math.max(2, taskRunner.getMaxThreads() * 2);
+            this.callback = callback;
+            this.filters = filters;
+        }
+
+        void resume() {
+            if (!exhausted.get() && batchesInFlight.get() < maxBatchesInFlight && producing.compareAndSet(false, true)) {
+                taskRunner.scheduleWork(this::produce, ActionManagerImpl.this, priority);
+            }
+        }
+
+        @SuppressWarnings("squid:S1181")
+        private void produce() {
+            boolean done = false;
+            try {
+                while (!done && batchesInFlight.get() < maxBatchesInFlight) {
+                    List<String> paths = nextBatch();
+                    done = paths.size() < batchSize || isCancelled();
+                    if (!paths.isEmpty()) {
+                        batchesInFlight.incrementAndGet();
+                        schedule(paths);
+                    }
+                }
+            } catch (RepositoryException | RuntimeException ex) {
+                LOG.error("Repository exception processing query '{}'", queryStatement, ex);
+                done = true;
+            } finally {
+                producing.set(false);
+            }
+            if (done) {
+                finish();
+            } else {
+                // a batch might have completed while this one was still reading
+                resume();
+            }
+        }
+
+        private List<String> nextBatch() throws RepositoryException {
+            List<String> paths = new ArrayList<>(batchSize);
+            while (paths.size() < batchSize && nodes.hasNext()) {
+                paths.add(nodes.nextNode().getPath());
+            }
+            return paths;
+        }
+
+        private void schedule(List<String> paths) {
+            tasksAdded.addAndGet(paths.size());
+            taskRunner.scheduleWork(() -> {
+                try {
+                    for (String path : paths) {
+                        LOG.debug("Processing found result {}", path);
+                        runActionAndLogErrors(queryResultAction(path, callback, filters), false);
+                    }
+                } finally {
+                    batchesInFlight.decrementAndGet();
+                    resume();
+                }
+            }, ActionManagerImpl.this, priority);
+        }
+
+        private void finish() {
+            if (exhausted.compareAndSet(false, true)) {
+                queryProducers.decrementAndGet();
+                if (isComplete()) {
+                    finished = System.currentTimeMillis();
+                    performAutomaticCleanup();
+                }
+            }
+        }
+    }
+
     @Override
     public void cancel(boolean useForce) {
         super.cancel(useForce);
@@ -316,21 +466,25 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
                         logError(ex);
                     }
                 }
-                runCompletionTasks();
+                // commit the last batches before following steps build on them
                 savePendingChanges();
+                runCompletionTasks();
                 closeAllResolvers();
             }, priority);
         }
     }
     
     private void savePendingChanges() {
+      // failed batches run their actions again, which expect to find their action manager
+      Actions.setCurrentActionManager(this);
       for (ReusableResolver resolver : resolvers) {
         try {
           resolver.commit();
         } catch (PersistenceException e) {
-          logPersistenceException(resolver.getPendingItems(), e);
+          logPersistenceException(resolver.getFailures(), e);
         }
       }
+      Actions.setCurrentActionManager(null);
     }
 
     @Override
@@ -338,10 +492,17 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         currentPath.set(item);
     }
 
+    @Override
+    public void afterCommit(Runnable task) {
+        if (!ReusableResolver.deferUntilCommit(task)) {
+            task.run();
+        }
+    }
+
     private ReusableResolver getResourceResolver() throws LoginException {
         ReusableResolver resolver = currentResolver.get();
         if (resolver == null || !resolver.getResolver().isLive()) {
-            resolver = new ReusableResolver(baseResolver.clone(null), saveInterval);
+            resolver = new ReusableResolver(baseResolver.clone(null), adaptiveSaveInterval);
             currentResolver.set(resolver);
             resolvers.add(resolver);
         }
@@ -371,13 +532,10 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         }
     }
 
-    private void logPersistenceException(List<String> items, PersistenceException ex) {
+    private void logPersistenceException(List<Failure> failedItems, PersistenceException ex) {
         StringBuilder itemList = new StringBuilder();
-        for (String item : items) {
-            itemList.append(item).append("; ");
-            Failure fail = new Failure();
-            fail.setNodePath(item);
-            fail.setException(ex);
+        for (Failure fail : failedItems) {
+            itemList.append(fail.getNodePath()).append("; ");
             failures.add(fail);
             tasksError.incrementAndGet();
             tasksSuccessful.decrementAndGet();
@@ -407,13 +565,13 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
     @Override
     @SuppressWarnings("squid:S2142")
     public boolean isComplete() {
-        if (tasksCompleted.get() == tasksAdded.get()) {
+        if (tasksCompleted.get() == tasksAdded.get() && queryProducers.get() == 0) {
             try {
                 Thread.sleep(HESITATION_DELAY);
             } catch (InterruptedException ex) {
                 // no-op
             }
-            return tasksCompleted.get() == tasksAdded.get();
+            return tasksCompleted.get() == tasksAdded.get() && queryProducers.get() == 0;
         } else {
             return false;
         }
@@ -430,7 +588,10 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
                     tasksFilteredOut.get(),
                     tasksSuccessful.get(),
                     tasksError.get(),
-                    getRuntime()
+                    getRuntime(),
+                    getCommitCount(),
+                    getCommitTime(),
+                    getSaveInterval()
                 }
         );
     }
@@ -478,15 +639,15 @@ class ActionManagerImpl extends CancelHandler implements ActionManager, Serializ
         try {
             statsItemNames =
                     new String[] { "_taskName", "priority", "started", "completed", "filtered", "successful",
-                            "errors", "runtime" };
+                            "errors", "runtime", "commits", "commitTime", "saveInterval" };
             statsCompositeType = new CompositeType(
                     "Statics Row",
                     "Single row of statistics",
                     statsItemNames,
                             new String[] { "Name", "Priority", "Started", "Completed", "Filtered", "Successful",
-                                    "Errors", "Runtime" }, new OpenType[] { SimpleType.STRING, SimpleType.INTEGER,
+                                    "Errors", "Runtime", "Commits", "Commit time", "Save interval" }, new OpenType[] { SimpleType.STRING, SimpleType.INTEGER,
                                     SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.INTEGER,
-                                    SimpleType.INTEGER, SimpleType.LONG });
+                                    SimpleType.INTEGER, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG, SimpleType.INTEGER });
             statsTabularType = new TabularType("Statistics", "Collected statistics", statsCompositeType, new String[]{"_taskName"});
 
             failureItemNames = new String[]{"_taskName", "_count", "item", "error"};
@@ -0,0 +1,115 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.fam.impl;
+
+/**
+ * Additive-increase/multiplicative-decrease limit on the number of tasks running at once.
+ * <p>
+ * Task latencies are sampled in rounds of as many tasks as the current limit. At the end of each round the limit
+ * is lowered if a resource was found overloaded or if the tasks took noticeably longer than in the fastest rounds
+ * seen so far, and raised by one otherwise, up to the configured maximum.
+ */
+final class AdaptiveConcurrencyLimit {
+
+    /** Factor applied to the limit on overload */
+    static final double BACKOFF_RATIO = 0.75;
+    /** Round latency relative to the baseline latency considered as congestion */
+    static final double LATENCY_TOLERANCE = 2.0;
+    /** Latency increase in milliseconds below which a round is never considered congested */
+    static final long MIN_LATENCY_INCREASE = 10;
+    /** Weight of a round's latency when the baseline follows a slower task mix */
+    private static final double BASELINE_DRIFT = 0.1;
+
+    private final int maxLimit;
+    private int limit;
+    private int samples;
+    private long totalLatency;
+    private double baselineLatency = -1;
+    private String reason = "Initial limit";
+
+    AdaptiveConcurrencyLimit(int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = this.maxLimit;
+    }
+
+    int getMaxLimit() {
+        return maxLimit;
+    }
+
+    synchronized int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return why the limit last changed
+     */
+    synchronized String getReason() {
+        return reason;
+    }
+
+    /**
+     * Record the latency of a completed task.
+     *
+     * @param latency processing time in milliseconds
+     * @return true once a full round has been sampled and the limit is due to be adjusted
+     */
+    synchronized boolean sample(long latency) {
+        samples++;
+        totalLatency += latency;
+        return samples >= limit;
+    }
+
+    /**
+     * Adjust the limit at the end of a round.
+     *
+     * @param overload description of the resource found overloaded, null if there is none
+     * @return true if the limit has changed
+     */
+    synchronized boolean adjust(String overload) {
+        if (samples == 0) {
+            // adjusted by another thread completing the same round
+            return false;
+        }
+        double latency = (double) totalLatency / samples;
+        samples = 0;
+        totalLatency = 0;
+
+        int previous = limit;
+        if (overload != null) {
+            decrease(overload);
+        } else if (baselineLatency >= 0 && latency > baselineLatency * LATENCY_TOLERANCE
+                && latency - baselineLatency > MIN_LATENCY_INCREASE) {
+            decrease(String.format("Task latency %.0fms above baseline of %.0fms", latency, baselineLatency));
+        } else if (limit < maxLimit) {
+            limit++;
+            reason = String.format("Task latency %.0fms within baseline of %.0fms", latency, Math.max(0, baselineLatency));
+        }
+
+        if (baselineLatency < 0 || latency < baselineLatency) {
+            baselineLatency = latency;
+        } else {
+            baselineLatency += (latency - baselineLatency) * BASELINE_DRIFT;
+        }
+        return limit != previous;
+    }
+
+    private void decrease(String why) {
+        limit = Math.max(1, Math.min(limit - 1, (int) (limit * BACKOFF_RATIO)));
+        reason = why;
+    }
+}
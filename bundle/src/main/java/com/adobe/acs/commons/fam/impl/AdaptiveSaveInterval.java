@@ -0,0 +1,107 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.fam.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Number of changed items after which the resolvers of an action manager commit, along with statistics about
+ * the commits.
+ * <p>
+ * The interval stays fixed unless a maximum above one is set. Then it doubles after every full batch committed faster
+ * than {@link #FAST_COMMIT_MILLIS}, and halves after every commit slower than {@link #SLOW_COMMIT_MILLIS} or failing,
+ * for example because of a conflict.
+ */
+final class AdaptiveSaveInterval {
+
+    /** Commits of full batches completing faster than this grow the interval */
+    static final long FAST_COMMIT_MILLIS = 250;
+    /** Commits taking longer than this shrink the interval */
+    static final long SLOW_COMMIT_MILLIS = 1000;
+
+    private int interval;
+    private int maxInterval;
+    private boolean adaptive = false;
+    private long commitCount;
+    private long failedCommitCount;
+    private long commitNanos;
+
+    AdaptiveSaveInterval(int interval) {
+        this.interval = Math.max(1, interval);
+        this.maxInterval = this.interval;
+    }
+
+    /**
+     * Let the interval adapt between one and the given maximum.
+     *
+     * @param max the maximum interval, a value of one or less turns adaptation off
+     */
+    synchronized void setMaxInterval(int max) {
+        maxInterval = Math.max(1, max);
+        interval = Math.min(interval, maxInterval);
+        adaptive = maxInterval > 1;
+    }
+
+    synchronized boolean isAdaptive() {
+        return adaptive;
+    }
+
+    synchronized int getInterval() {
+        return interval;
+    }
+
+    synchronized void committed(int batchSize, long nanos) {
+        commitCount++;
+        commitNanos += nanos;
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (!adaptive) {
+            return;
+        } else if (millis > SLOW_COMMIT_MILLIS) {
+            shrink();
+        } else if (millis < FAST_COMMIT_MILLIS && batchSize >= interval) {
+            interval = Math.min(maxInterval, interval * 2);
+        }
+    }
+
+    synchronized void failed(long nanos) {
+        failedCommitCount++;
+        commitNanos += nanos;
+        if (adaptive) {
+            shrink();
+        }
+    }
+
+    private void shrink() {
+        interval = Math.max(1, interval / 2);
+    }
+
+    synchronized long getCommitCount() {
+        return commitCount;
+    }
+
+    synchronized long getFailedCommitCount() {
+        return failedCommitCount;
+    }
+
+    /**
+     * @return the milliseconds spent committing, including failed commits
+     */
+    synchronized long getCommitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(commitNanos);
+    }
+}
@@ -22,23 +22,49 @@ import java.util.Collections;
 import java.util.List;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adobe.acs.commons.fam.Failure;
+import com.adobe.acs.commons.functions.CheckedConsumer;
 
 /**
- * Encapsulates details about a pooled resource resolver
+ * Encapsulates details about a pooled resource resolver.
+ * If the save interval is adaptive and a commit of several items fails, the
+ * changes are discarded and the actions are run again in halves until the
+ * failing items are isolated, so actions of adaptive action managers must be
+ * safe to run more than once. Tasks deferred by an action with
+ * {@link #deferUntilCommit(Runnable)} run only once the changes of that action
+ * have been committed, so they run once even if the action is run again.
  */
 public class ReusableResolver {
-    
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReusableResolver.class);
+    private static final ThreadLocal<ReusableResolver> ACTIVE = new ThreadLocal<>();
+
     private final ResourceResolver resolver;
     private int changeCount;
-    private final int saveInterval;
+    private final AdaptiveSaveInterval saveInterval;
     private final List<String> pendingItems;
+    private final List<CheckedConsumer<ResourceResolver>> pendingActions;
+    private final List<List<Runnable>> pendingTasks;
+    private final List<Failure> failures;
     private String currentItem;
+    private CheckedConsumer<ResourceResolver> currentAction;
+    private List<Runnable> currentTasks;
 
     public ReusableResolver(ResourceResolver res, int save) {
+        this(res, new AdaptiveSaveInterval(save));
+    }
+
+    ReusableResolver(ResourceResolver res, AdaptiveSaveInterval save) {
         resolver = res;
         changeCount = 0;
         saveInterval = save;
         pendingItems = new ArrayList<>();
+        pendingActions = new ArrayList<>();
+        pendingTasks = new ArrayList<>();
+        failures = new ArrayList<>();
     }
 
     public void setCurrentItem(String current) {
@@ -49,11 +75,37 @@ public class ReusableResolver {
         return currentItem;
     }
 
+    void setCurrentAction(CheckedConsumer<ResourceResolver> action) {
+        currentAction = action;
+        currentTasks = new ArrayList<>();
+        ACTIVE.set(this);
+    }
+
+    /**
+     * Defer a task until the changes of the action currently running on this
+     * thread have been committed.
+     * @param task The task to run after the commit
+     * @return false if no action is running on this thread, in which case the task was not deferred
+     */
+    static boolean deferUntilCommit(Runnable task) {
+        ReusableResolver active = ACTIVE.get();
+        if (active == null || active.currentTasks == null) {
+            return false;
+        }
+        active.currentTasks.add(task);
+        return true;
+    }
+
     public void free() throws PersistenceException {
+        List<Runnable> tasks = endAction();
         if (getResolver().isLive()) {
             if (getResolver().hasChanges()) {
                 setChangeCount(getChangeCount() + 1);
                 pendingItems.add(getCurrentItem());
+                pendingActions.add(currentAction);
+                pendingTasks.add(tasks);
+            } else {
+                runTasks(tasks);
             }
             if (getChangeCount() >= getSaveInterval()) {
                 commit();
@@ -63,19 +115,109 @@ public class ReusableResolver {
 
     public void commit() throws PersistenceException {
         setChangeCount(0);
-        if (getResolver().isLive() && getResolver().hasChanges()) {
+        failures.clear();
+        List<String> items = new ArrayList<>(pendingItems);
+        List<CheckedConsumer<ResourceResolver>> actions = new ArrayList<>(pendingActions);
+        List<List<Runnable>> tasks = new ArrayList<>(pendingTasks);
+        pendingItems.clear();
+        pendingActions.clear();
+        pendingTasks.clear();
+        if (getResolver().isLive()) {
             try {
-                getResolver().commit();
+                if (getResolver().hasChanges()) {
+                    timedCommit(items.size());
+                }
+                tasks.forEach(this::runTasks);
             } catch (PersistenceException e) {
-                getResolver().revert();
-                getResolver().refresh();
-                throw e;
-            } finally {
-                pendingItems.clear();
+                discardChanges();
+                if (items.size() > 1 && saveInterval.isAdaptive() && !actions.contains(null)) {
+                    int half = items.size() / 2;
+                    retry(items.subList(0, half), actions.subList(0, half));
+                    retry(items.subList(half, items.size()), actions.subList(half, actions.size()));
+                } else {
+                    items.forEach(item -> addFailure(item, e));
+                }
+                if (!failures.isEmpty()) {
+                    throw e;
+                }
             }
         }
     }
 
+    /**
+     * Run the actions of a failed batch again and commit them, splitting them up
+     * further as long as they fail. Tasks deferred by the actions run only after
+     * their part of the batch has been committed.
+     */
+    @SuppressWarnings("squid:S2221")
+    private void retry(List<String> items, List<CheckedConsumer<ResourceResolver>> actions) {
+        List<Runnable> tasks = new ArrayList<>();
+        try {
+            for (CheckedConsumer<ResourceResolver> action : actions) {
+                currentTasks = new ArrayList<>();
+                ACTIVE.set(this);
+                try {
+                    action.accept(getResolver());
+                } finally {
+                    tasks.addAll(endAction());
+                }
+            }
+            if (getResolver().hasChanges()) {
+                timedCommit(items.size());
+            }
+            runTasks(tasks);
+        } catch (Exception ex) {
+            discardChanges();
+            if (items.size() == 1) {
+                addFailure(items.get(0), ex);
+            } else {
+                int half = items.size() / 2;
+                retry(items.subList(0, half), actions.subList(0, half));
+                retry(items.subList(half, items.size()), actions.subList(half, actions.size()));
+            }
+        }
+    }
+
+    private void timedCommit(int batchSize) throws PersistenceException {
+        long start = System.nanoTime();
+        try {
+            getResolver().commit();
+        } catch (PersistenceException | RuntimeException e) {
+            saveInterval.failed(System.nanoTime() - start);
+            throw e;
+        }
+        saveInterval.committed(batchSize, System.nanoTime() - start);
+    }
+
+    private List<Runnable> endAction() {
+        ACTIVE.remove();
+        List<Runnable> tasks = currentTasks == null ? Collections.emptyList() : currentTasks;
+        currentTasks = null;
+        return tasks;
+    }
+
+    private void runTasks(List<Runnable> tasks) {
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                LOG.error("Error running task after commit", ex);
+            }
+        }
+    }
+
+    private void discardChanges() {
+        getResolver().revert();
+        getResolver().refresh();
+    }
+
+    private void addFailure(String item, Exception ex) {
+        Failure fail = new Failure();
+        fail.setNodePath(item);
+        fail.setException(ex);
+        failures.add(fail);
+    }
+
     public int getChangeCount() {
         return changeCount;
     }
@@ -92,11 +234,18 @@ public class ReusableResolver {
     }
 
     public int getSaveInterval() {
-        return saveInterval;
+        return saveInterval.getInterval();
     }
 
     public List<String> getPendingItems() {
         return Collections.unmodifiableList(pendingItems);
     }
+
+    /**
+     * @return the items which could not be committed by the last commit, with their errors
+     */
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
     
 }
@@ -44,12 +44,15 @@ import javax.management.ReflectionException;
 import javax.management.openmbean.CompositeData;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.TabularDataSupport;
+import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.util.Dictionary;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 @Component(metatype = true,
@@ -60,6 +63,8 @@ import java.util.concurrent.TimeUnit;
     @Property(name = "max.threads", label = "Max threads", description = "Default is 4, recommended not to exceed the number of CPU cores",value = "4"),
     @Property(name = "max.cpu", label = "Max cpu %", description = "Range is 0..1; -1 means disable this check", doubleValue = 0.75),
     @Property(name = "max.heap", label = "Max heap %", description = "Range is 0..1; -1 means disable this check", doubleValue = 0.85),
+    @Property(name = "max.gc", label = "Max GC time %", description = "Share of time spent in garbage collection, range is 0..1; -1 means disable this check. Only used with adaptive concurrency", doubleValue = 0.1),
+    @Property(name = "adaptive.concurrency", label = "Adaptive concurrency", description = "Adapt the number of threads running at once, up to max threads, to task latency, cpu, heap and GC time instead of pausing all threads while cpu or heap are above their maximum", boolValue = false),
     @Property(name = "cooldown.wait.time", label = "Cooldown time", description="Time to wait for cpu/mem cooldown between checks", value = "100")
 })
 public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements ThrottledTaskRunner, ThrottledTaskRunnerStats {
@@ -70,13 +75,25 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
     private int maxThreads;
     private double maxCpu;
     private double maxHeap;
+    private double maxGc;
+    private boolean adaptiveConcurrency;
+    private volatile AdaptiveConcurrencyLimit concurrencyLimit;
     private volatile boolean isPaused;
     private final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
     private ObjectName osBeanName;
     private ObjectName memBeanName;
     private PriorityThreadPoolExecutor workerPool;
+    /** Max threads the worker pool has been created for */
+    private int workerPoolMaxThreads;
     private BlockingQueue<Runnable> workQueue;
 
+    /** Marks the threads of the worker pool */
+    private static final ThreadLocal<Boolean> WORKER_THREAD = ThreadLocal.withInitial(() -> false);
+    private static final ThreadFactory WORKER_THREAD_FACTORY = runnable -> Executors.defaultThreadFactory().newThread(() -> {
+        WORKER_THREAD.set(true);
+        runnable.run();
+    });
+
     public ThrottledTaskRunnerImpl() throws NotCompliantMBeanException {
         super(ThrottledTaskRunnerMBean.class);
     }
@@ -120,6 +137,74 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
         waitTime.log(started - created);
         throttleTime.log(executed - started);
         processingTime.log(finished - executed);
+        if (adaptiveConcurrency && executed >= 0 && finished >= executed) {
+            adaptConcurrency(finished - executed);
+        }
+    }
+
+    private void adaptConcurrency(long latency) {
+        AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        if (limit != null && limit.sample(latency) && limit.adjust(findOverload())) {
+            resizeWorkerPool(limit.getLimit());
+            LOG.debug("Concurrency limit changed to {}: {}", limit.getLimit(), limit.getReason());
+        }
+    }
+
+    /**
+     * @return description of the resource above its configured maximum, null if there is none
+     */
+    private String findOverload() {
+        try {
+            double heapUsage = maxHeap > 0 ? getMemoryUsage() : -1;
+            if (maxHeap > 0 && heapUsage >= maxHeap) {
+                return String.format("Heap usage %.0f%% above %.0f%%", heapUsage * 100, maxHeap * 100);
+            }
+            double cpuLevel = maxCpu > 0 ? getCpuLevel() : -1;
+            if (maxCpu > 0 && cpuLevel >= maxCpu) {
+                return String.format("CPU %.0f%% above %.0f%%", cpuLevel * 100, maxCpu * 100);
+            }
+        } catch (InstanceNotFoundException ex) {
+            LOG.error("OS MBean Instance not found (should not ever happen)", ex);
+        } catch (ReflectionException ex) {
+            LOG.error("OS MBean Instance reflection error (should not ever happen)", ex);
+        }
+        double gcLoad = maxGc > 0 ? getGcLoad() : -1;
+        if (maxGc > 0 && gcLoad >= maxGc) {
+            return String.format("GC time %.0f%% above %.0f%%", gcLoad * 100, maxGc * 100);
+        }
+        return null;
+    }
+
+    private long lastGcTime = -1;
+    private long lastGcCheck = -1;
+
+    /**
+     * @return the share of time spent in garbage collection since the last call
+     */
+    private synchronized double getGcLoad() {
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcTime += Math.max(0, gc.getCollectionTime());
+        }
+        long now = System.currentTimeMillis();
+        double gcLoad = lastGcCheck > 0 && now > lastGcCheck ? (double) (gcTime - lastGcTime) / (now - lastGcCheck) : 0;
+        lastGcTime = gcTime;
+        lastGcCheck = now;
+        return gcLoad;
+    }
+
+    private synchronized void resizeWorkerPool(int size) {
+        if (workerPool == null) {
+            return;
+        }
+        // the core size may never exceed the maximum size
+        if (size > workerPool.getMaximumPoolSize()) {
+            workerPool.setMaximumPoolSize(size);
+            workerPool.setCorePoolSize(size);
+        } else {
+            workerPool.setCorePoolSize(size);
+            workerPool.setMaximumPoolSize(size);
+        }
     }
 
     @Override
@@ -199,6 +284,18 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
         return maxThreads;
     }
 
+    @Override
+    public int getConcurrencyLimit() {
+        AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        return adaptiveConcurrency && limit != null ? limit.getLimit() : maxThreads;
+    }
+
+    @Override
+    public String getConcurrencyLimitReason() {
+        AdaptiveConcurrencyLimit limit = concurrencyLimit;
+        return adaptiveConcurrency && limit != null ? limit.getReason() : "Adaptive concurrency disabled";
+    }
+
     private final Semaphore pollingLock = new Semaphore(1);
     private long lastCheck = -1;
     private boolean wasRecentlyBusy = false;
@@ -236,6 +333,10 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
 
     @Override
     public void waitForLowCpuAndLowMemory() throws InterruptedException {
+        if (adaptiveConcurrency && WORKER_THREAD.get()) {
+            // the concurrency limit keeps the load of the worker pool in check
+            return;
+        }
         while (isTooBusy()) {
             Thread.sleep(cooldownWaitTime);
         }
@@ -290,9 +391,12 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
         if (workQueue == null) {
             workQueue = new PriorityBlockingQueue<>();
         }
+        if (concurrencyLimit == null || concurrencyLimit.getMaxLimit() != maxThreads) {
+            concurrencyLimit = new AdaptiveConcurrencyLimit(maxThreads);
+        }
 
         // Terminate pool if the thread size has changed
-        if (workerPool != null && workerPool.getMaximumPoolSize() != maxThreads) {
+        if (workerPool != null && workerPoolMaxThreads != maxThreads) {
             try {
                 workerPool.shutdown();
                 // #2660 - Remove configurable timeout/watchdog as this can result in repository corruption.
@@ -309,7 +413,10 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
             // #2660 - Remove configurable timeout/watchdog as this can result in repository corruption.
             // Never thread termination
             // https://docs.oracle.com/en/java/javase/11/docs/api/java.base/java/util/concurrent/ThreadPoolExecutor.html#%3Cinit%3E(int,int,long,java.util.concurrent.TimeUnit,java.util.concurrent.BlockingQueue)
-            workerPool = new PriorityThreadPoolExecutor(maxThreads, maxThreads, taskTimeout, TimeUnit.MILLISECONDS, workQueue);
+            int poolSize = adaptiveConcurrency ? concurrencyLimit.getLimit() : maxThreads;
+            workerPool = new PriorityThreadPoolExecutor(poolSize, poolSize, taskTimeout, TimeUnit.MILLISECONDS, workQueue,
+                    WORKER_THREAD_FACTORY);
+            workerPoolMaxThreads = maxThreads;
         }
     }
 
@@ -319,6 +426,8 @@ public class ThrottledTaskRunnerImpl extends AnnotatedStandardMBean implements T
 
         maxCpu = PropertiesUtil.toDouble(properties.get("max.cpu"), 0.75);
         maxHeap = PropertiesUtil.toDouble(properties.get("max.heap"), 0.85);
+        maxGc = PropertiesUtil.toDouble(properties.get("max.gc"), 0.1);
+        adaptiveConcurrency = PropertiesUtil.toBoolean(properties.get("adaptive.concurrency"), false);
         maxThreads = PropertiesUtil.toInteger(properties.get("max.threads"), defaultThreadCount);
         cooldownWaitTime = PropertiesUtil.toInteger(properties.get("cooldown.wait.time"), 100);
 
@@ -52,4 +52,14 @@ public interface ThrottledTaskRunnerStats {
      * @return the max number of threads ThrottledTaskRunner will use to execute the work.
      */
     int getMaxThreads();
+
+    /**
+     * @return the number of threads currently allowed to execute work at once, at most {@link #getMaxThreads()}.
+     */
+    int getConcurrencyLimit();
+
+    /**
+     * @return why the concurrency limit was last adjusted.
+     */
+    String getConcurrencyLimitReason();
 }
\ No newline at end of file
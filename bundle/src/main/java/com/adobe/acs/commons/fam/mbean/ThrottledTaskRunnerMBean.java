@@ -56,6 +56,12 @@ public interface ThrottledTaskRunnerMBean {
     @Description("Reset job processing statistics")
     public void clearProcessingStatistics();
     
+    @Description("Number of threads currently allowed to run at once")
+    public int getConcurrencyLimit();
+
+    @Description("Reason the concurrency limit was last adjusted")
+    public String getConcurrencyLimitReason();
+
     @Description("Change thread pool size (preserves running queue)")
     public void setThreadPoolSize(@Name("New size") @Description("4 is the suggested default.") int size);
     
@@ -195,4 +195,16 @@ public interface HttpCacheConfig {
     default long getExpiryForUpdate() {
         return -1L;
     }
+
+    /**
+     * Gets the soft expiry for entries produced by this config in miliseconds.
+     * Entries older than the soft expiry are still served, while a single request renders a fresh one
+     * (stale-while-revalidate). The entry is only removed once the regular (hard) expiry is reached.
+     * 0 or lower means entries are never served stale.
+     *
+     * @return the soft expiry time
+     */
+    default long getSoftExpiry() {
+        return 0L;
+    }
 }
@@ -42,6 +42,8 @@ import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestPathInfo;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +51,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -250,9 +253,20 @@ public class HttpCacheConfigImpl implements HttpCacheConfig {
     static final String PROP_EXPIRY_ON_UPDATE = "httpcache.config.expiry.on.update";
     static final long DEFAULT_EXPIRY_ON_UPDATE = 0L;
     private long expiryOnUpdate;
+
+
+    @Property(label = "Soft expiry",
+        description = "Specifies a soft expiry in milliseconds, lower than the expiry on create or the TTL of the cache store. "
+                + "Entries older than this are still served while a single request renders a fresh entry. 0 disables serving stale entries.")
+    static final String PROP_SOFT_EXPIRY = "httpcache.config.expiry.soft";
+    static final long DEFAULT_SOFT_EXPIRY = 0L;
+    private long softExpiry;
     private String cacheConfigExtensionTarget;
     private String cacheKeyFactoryTarget;
 
+    /** Request attribute holding the cache keys built for the request by config */
+    private static final String ATTR_CACHE_KEYS = HttpCacheConfigImpl.class.getName() + ".cacheKeys";
+
     @Activate
     protected void activate(Map<String, Object> configs) {
 
@@ -283,6 +297,7 @@ public class HttpCacheConfigImpl implements HttpCacheConfig {
         expiryOnCreate = PropertiesUtil.toLong(configs.get(PROP_EXPIRY_ON_CREATE), DEFAULT_EXPIRY_ON_CREATE);
         expiryOnAccess = PropertiesUtil.toLong(configs.get(PROP_EXPIRY_ON_ACCESS), DEFAULT_EXPIRY_ON_ACCESS);
         expiryOnUpdate = PropertiesUtil.toLong(configs.get(PROP_EXPIRY_ON_UPDATE), DEFAULT_EXPIRY_ON_UPDATE);
+        softExpiry = PropertiesUtil.toLong(configs.get(PROP_SOFT_EXPIRY), DEFAULT_SOFT_EXPIRY);
 
         // Cache invalidation paths.
         List<String> cacheInvalidationPathPatterns = Arrays.asList(PropertiesUtil.toStringArray(configs
@@ -398,7 +413,22 @@ public class HttpCacheConfigImpl implements HttpCacheConfig {
 
     @Override
     public CacheKey buildCacheKey(SlingHttpServletRequest request) throws HttpCacheKeyCreationException {
-        return this.cacheKeyFactory.build(request, this);
+        // The engine asks for the key several times per request, build it once per config and processed resource.
+        @SuppressWarnings("unchecked")
+        Map<HttpCacheConfig, MemoizedCacheKey> memoizedKeys =
+                (Map<HttpCacheConfig, MemoizedCacheKey>) request.getAttribute(ATTR_CACHE_KEYS);
+        MemoizedCacheKey memoized = memoizedKeys == null ? null : memoizedKeys.get(this);
+        if (memoized != null && memoized.isFor(request)) {
+            return memoized.cacheKey;
+        }
+
+        CacheKey cacheKey = this.cacheKeyFactory.build(request, this);
+        if (memoizedKeys == null) {
+            memoizedKeys = new IdentityHashMap<>(4);
+            request.setAttribute(ATTR_CACHE_KEYS, memoizedKeys);
+        }
+        memoizedKeys.put(this, new MemoizedCacheKey(request, cacheKey));
+        return cacheKey;
     }
 
     @Override
@@ -456,6 +486,11 @@ public class HttpCacheConfigImpl implements HttpCacheConfig {
         return expiryOnUpdate;
     }
 
+    @Override
+    public long getSoftExpiry() {
+        return softExpiry;
+    }
+
     @Override
     public int getOrder() {
         return this.order;
@@ -480,4 +515,24 @@ public class HttpCacheConfigImpl implements HttpCacheConfig {
     public List<String> getExcludedCookieKeys() {
         return Collections.unmodifiableList(excludedCookieKeys);
     }
+
+    /**
+     * Cache key built for a request. Includes processed within the same request see another resource or request path
+     * info and get their own key.
+     */
+    private static final class MemoizedCacheKey {
+        private final Resource resource;
+        private final RequestPathInfo requestPathInfo;
+        private final CacheKey cacheKey;
+
+        MemoizedCacheKey(SlingHttpServletRequest request, CacheKey cacheKey) {
+            this.resource = request.getResource();
+            this.requestPathInfo = request.getRequestPathInfo();
+            this.cacheKey = cacheKey;
+        }
+
+        boolean isFor(SlingHttpServletRequest request) {
+            return resource == request.getResource() && requestPathInfo == request.getRequestPathInfo();
+        }
+    }
 }
@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -45,6 +46,11 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
     private static final Logger log = LoggerFactory.getLogger(CombinedCacheKey.class);
 
     private LinkedList<CacheKey> cacheKeys;
+    /**
+     * Precomputed, the key is looked up and compared on every request. Same value as before, as the JCR cache store
+     * buckets its entries by it.
+     */
+    private transient int hashCode;
 
     public CombinedCacheKey(SlingHttpServletRequest request, HttpCacheConfig cacheConfig, List<CacheKeyFactory> cacheKeyFactories) {
         super(request, cacheConfig);
@@ -54,6 +60,7 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
                 .map((factory) -> createCacheKey(request, cacheConfig, factory))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toCollection(LinkedList::new));
+        this.hashCode = computeHashCode();
     }
 
     public CombinedCacheKey(String uri, HttpCacheConfig cacheConfig, List<CacheKeyFactory> cacheKeyFactories) {
@@ -64,6 +71,7 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
                 .map((factory) -> createCacheKey(uri, cacheConfig, factory))
                 .filter(Objects::nonNull)
                 .collect(Collectors.toCollection(LinkedList::new));
+        this.hashCode = computeHashCode();
     }
 
     @Override
@@ -77,15 +85,13 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
 
         CombinedCacheKey other = (CombinedCacheKey) o;
 
-        if (other == null) {
+        if (other == null || hashCode != other.hashCode || cacheKeys.size() != other.cacheKeys.size()) {
             return false;
         }
 
-        for (int i = 0; i < cacheKeys.size(); i++) {
-            CacheKey otherDelegate = other.getDelegate(i);
-            CacheKey ownDelegate = this.getDelegate(i);
-
-            if (!otherDelegate.equals(ownDelegate)) {
+        Iterator<CacheKey> otherDelegates = other.cacheKeys.iterator();
+        for (CacheKey ownDelegate : cacheKeys) {
+            if (!otherDelegates.next().equals(ownDelegate)) {
                 return false;
             }
         }
@@ -95,6 +101,10 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
         return new HashCodeBuilder(17, 37)
                 .append(getUri())
                 .append(getAuthenticationRequirement()).toHashCode();
@@ -118,10 +128,6 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
         return null;
     }
 
-    private CacheKey getDelegate(int position) {
-        return cacheKeys.get(position);
-    }
-
     @Override
     public String toString() {
         return this.resourcePath + "[CombinedCacheKey]" + this.cacheKeys.stream().map(CacheKey::toString).collect(Collectors.joining(";")).replaceAll(this.resourcePath, "");
@@ -143,5 +149,6 @@ public class CombinedCacheKey extends AbstractCacheKey implements CacheKey, Seri
 
         parentReadObject(o);
         cacheKeys = (LinkedList<CacheKey>) o.readObject();
+        hashCode = computeHashCode();
     }
 }
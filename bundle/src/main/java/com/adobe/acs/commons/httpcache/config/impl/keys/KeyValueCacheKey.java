@@ -41,6 +41,11 @@ public class KeyValueCacheKey extends AbstractCacheKey implements CacheKey, Seri
     private String cacheKeyId;
     private ImmutableMap<String, String> actualKeyValues;
     private ImmutableMap<String, String[]> allowedKeyValues;
+    /**
+     * Precomputed, the key is looked up and compared on every request. Same value as before, as the JCR cache store
+     * buckets its entries by it.
+     */
+    private transient int hashCode;
 
     public KeyValueCacheKey(final SlingHttpServletRequest request, final HttpCacheConfig cacheConfig,
                             final String cacheKeyId, final Map<String, String[]> allowedKeyValues, Map<String, String> actualKeyValues) {
@@ -48,6 +53,7 @@ public class KeyValueCacheKey extends AbstractCacheKey implements CacheKey, Seri
         this.cacheKeyId = cacheKeyId;
         this.allowedKeyValues = ImmutableMap.copyOf(allowedKeyValues);
         this.actualKeyValues = ImmutableMap.copyOf(actualKeyValues);
+        this.hashCode = computeHashCode();
     }
 
     public KeyValueCacheKey(final String uri, final HttpCacheConfig cacheConfig, final String cacheKeyId,
@@ -56,6 +62,7 @@ public class KeyValueCacheKey extends AbstractCacheKey implements CacheKey, Seri
         this.cacheKeyId = cacheKeyId;
         this.allowedKeyValues = ImmutableMap.copyOf(allowedKeyValues);
         this.actualKeyValues = ImmutableMap.copyOf(Collections.emptyMap());
+        this.hashCode = computeHashCode();
     }
     
     Map<String, String> getActualKeyValues() {
@@ -78,7 +85,7 @@ public class KeyValueCacheKey extends AbstractCacheKey implements CacheKey, Seri
 
         KeyValueCacheKey that = (KeyValueCacheKey) o;
 
-        if (that == null) {
+        if (that == null || hashCode != that.hashCode) {
             return false;
         }
 
@@ -125,6 +132,10 @@ public class KeyValueCacheKey extends AbstractCacheKey implements CacheKey, Seri
 
     @Override
     public int hashCode() {
+        return hashCode;
+    }
+
+    private int computeHashCode() {
         return new HashCodeBuilder(17, 37)
                 .append(getUri())
                 .append(cacheKeyId)
@@ -175,6 +186,7 @@ public class KeyValueCacheKey extends AbstractCacheKey implements CacheKey, Seri
         cacheKeyId = o.readUTF();
         allowedKeyValues = ImmutableMap.copyOf((Map<String, String[]>) o.readObject());
         actualKeyValues = ImmutableMap.copyOf(((Map<String,String>) o.readObject()));
+        hashCode = computeHashCode();
     }
 
 }
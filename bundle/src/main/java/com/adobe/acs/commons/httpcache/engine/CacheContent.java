@@ -21,18 +21,23 @@ import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
 import com.adobe.acs.commons.httpcache.store.TempSink;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Represents response content to be cached.
  */
 public class CacheContent {
 
+    /** Content encoding of gzip compressed content */
+    public static final String CONTENT_ENCODING_GZIP = "gzip";
+
     /** Response status **/
     private int status;
     /** Response character encoding */
@@ -48,6 +53,14 @@ public class CacheContent {
 
     private HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod;
 
+    /** Served past the soft expiry of its cache key */
+    private boolean stale;
+
+    /** Content encoding of the encoded data stream */
+    private String contentEncoding;
+    /** Response content as encoded input stream */
+    private InputStream encodedDataInputStream;
+
     /**
      * Construct <code>CacheContent</code> using parameters. Prefer constructing an instance using <code>build</code>
      * method.
@@ -194,9 +207,49 @@ public class CacheContent {
      * @return
      */
     public InputStream getInputDataStream() {
+        if (null == dataInputStream && null != encodedDataInputStream) {
+            // Decode on demand, clients accepting the content encoding are served the encoded stream as is.
+            try {
+                dataInputStream = new GZIPInputStream(encodedDataInputStream);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to decode the cached content", e);
+            }
+        }
         return dataInputStream;
     }
 
+    /**
+     * Get the content encoding of the encoded input stream.
+     *
+     * @return the content encoding or null if the content is not available encoded
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Get the encoded input stream of response content.
+     *
+     * @return the encoded stream or null if the content is not available encoded
+     */
+    public InputStream getEncodedInputDataStream() {
+        return encodedDataInputStream;
+    }
+
+    /**
+     * Set the response content as encoded stream. Unless set explicitly, the input stream is decoded from it.
+     *
+     * @param contentEncoding the content encoding, only {@value #CONTENT_ENCODING_GZIP} is supported
+     * @param encodedDataInputStream
+     */
+    public void setEncodedInputDataStream(String contentEncoding, InputStream encodedDataInputStream) {
+        if (!CONTENT_ENCODING_GZIP.equals(contentEncoding)) {
+            throw new IllegalArgumentException("Unsupported content encoding " + contentEncoding);
+        }
+        this.contentEncoding = contentEncoding;
+        this.encodedDataInputStream = encodedDataInputStream;
+    }
+
     /**
      * Get the temp size attached to this cache content.
      * @return
@@ -208,4 +261,22 @@ public class CacheContent {
     public HttpCacheServletResponseWrapper.ResponseWriteMethod getWriteMethod() {
         return writeMethod;
     }
+
+    /**
+     * Check if this content is past the soft expiry of its cache key and should be replaced by a fresh one.
+     *
+     * @return true if stale
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    /**
+     * Mark this content as past the soft expiry of its cache key. Set by the cache stores on lookup.
+     *
+     * @param stale
+     */
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
 }
@@ -127,6 +127,21 @@ public interface HttpCacheEngine {
             cacheConfig) throws HttpCacheKeyCreationException, HttpCacheDataStreamException,
             HttpCachePersistenceException;
 
+    /**
+     * Discard a response wrapped by {@link #wrapResponse(SlingHttpServletRequest, SlingHttpServletResponse,
+     * HttpCacheConfig)} that is not going to be cached, i.e. because rendering it failed.
+     *
+     * @param request
+     * @param response
+     * @param cacheConfig
+     */
+    default void discardResponse(SlingHttpServletRequest request, SlingHttpServletResponse response,
+                                 HttpCacheConfig cacheConfig) {
+        if (response instanceof HttpCacheServletResponseWrapper) {
+            ((HttpCacheServletResponseWrapper) response).getTempSink().discard();
+        }
+    }
+
     /**
      * Check if the supplied JCR repository path has the potential to invalidate cache. This can be identified based on
      * the {@link HttpCacheConfig}.
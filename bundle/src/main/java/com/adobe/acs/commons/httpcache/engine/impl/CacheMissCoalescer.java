@@ -0,0 +1,149 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.engine.impl;
+
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import org.apache.sling.api.SlingHttpServletRequest;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent cache misses for the same {@link CacheKey} (single-flight).
+ * <p>
+ * The first request missing a key becomes its leader and renders the response, while the following ones wait a
+ * bounded time for the leader to put the response into the cache store. Stale entries are revalidated the same way,
+ * except that the other requests do not wait but get the stale entry. A leader that has not released its key within
+ * the wait timeout is considered abandoned and the next request takes over, so a failed render never blocks a key for
+ * longer than that.
+ */
+final class CacheMissCoalescer {
+
+    /** Request attribute holding the keys led by a request. Includes share the request, hence a map. */
+    private static final String ATTR_LEADS = CacheMissCoalescer.class.getName() + ".leads";
+
+    private final ConcurrentMap<CacheKey, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final long timeoutInMillis;
+
+    CacheMissCoalescer(long timeoutInMillis) {
+        this.timeoutInMillis = timeoutInMillis;
+    }
+
+    /**
+     * Try to lead the flight of the given key without waiting, i.e. to revalidate a stale entry.
+     *
+     * @return true if the caller is the leader and has to render the response
+     */
+    boolean lead(SlingHttpServletRequest request, CacheKey key) {
+        return compete(request, key) == null;
+    }
+
+    /**
+     * Join the flight of the given key.
+     *
+     * @return true if the caller is the leader and has to render the response, false if it waited for another leader
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean join(SlingHttpServletRequest request, CacheKey key) throws InterruptedException {
+        final InFlight current = compete(request, key);
+        if (current == null) {
+            return true;
+        }
+        current.latch.await(timeoutInMillis, TimeUnit.MILLISECONDS);
+        return false;
+    }
+
+    /**
+     * Take over the lead of the given key from the request, to be released once the response is in the cache store.
+     *
+     * @return the flight or null if the request does not lead the key
+     */
+    InFlight takeLead(SlingHttpServletRequest request, CacheKey key) {
+        @SuppressWarnings("unchecked")
+        Map<CacheKey, InFlight> leads = (Map<CacheKey, InFlight>) request.getAttribute(ATTR_LEADS);
+        return leads != null ? leads.remove(key) : null;
+    }
+
+    /**
+     * Release the lead of the given key if held by the request.
+     */
+    void release(SlingHttpServletRequest request, CacheKey key) {
+        final InFlight lead = takeLead(request, key);
+        if (lead != null) {
+            lead.release();
+        }
+    }
+
+    /**
+     * @return null if the caller became the leader, the flight of the current leader otherwise
+     */
+    private InFlight compete(SlingHttpServletRequest request, CacheKey key) {
+        final InFlight candidate = new InFlight(key);
+        final InFlight current = inFlight.compute(key, (k, existing) ->
+                existing == null || existing.isAbandoned(timeoutInMillis) ? candidate : existing);
+
+        if (current == candidate) {
+            getLeads(request).put(key, candidate);
+            return null;
+        }
+        return current;
+    }
+
+    int size() {
+        return inFlight.size();
+    }
+
+    private Map<CacheKey, InFlight> getLeads(SlingHttpServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<CacheKey, InFlight> leads = (Map<CacheKey, InFlight>) request.getAttribute(ATTR_LEADS);
+        if (leads == null) {
+            leads = new HashMap<>();
+            request.setAttribute(ATTR_LEADS, leads);
+        }
+        return leads;
+    }
+
+    /**
+     * A key being rendered by a leader.
+     */
+    final class InFlight {
+        private final CacheKey key;
+        private final long startTime = System.currentTimeMillis();
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private InFlight(CacheKey key) {
+            this.key = key;
+        }
+
+        private boolean isAbandoned(long timeout) {
+            return System.currentTimeMillis() - startTime > timeout;
+        }
+
+        /**
+         * Wake up the waiting requests and let the next miss lead again.
+         */
+        void release() {
+            inFlight.remove(key, this);
+            latch.countDown();
+        }
+    }
+}
@@ -62,8 +62,11 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.openmbean.OpenDataException;
 import javax.management.openmbean.TabularData;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -149,6 +152,26 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
     static final String PROP_GLOBAL_RESPONSE_COOKIE_EXCLUSIONS = "httpcache.engine.excluded.response.cookies.global";
     private List<String> globalCookieExclusions;
 
+    @Property(label = "Single-flight wait timeout",
+            description = "Time in milliseconds concurrent requests missing the same cache entry wait for the first "
+                    + "one to render and cache it, instead of rendering it themselves. 0 disables request coalescing.",
+            longValue = HttpCacheEngineImpl.DEFAULT_SINGLE_FLIGHT_TIMEOUT)
+    static final String PROP_SINGLE_FLIGHT_TIMEOUT = "httpcache.engine.single-flight.timeout";
+    private static final long DEFAULT_SINGLE_FLIGHT_TIMEOUT = 0L;
+    private boolean singleFlight;
+
+    /** Time after which a request revalidating a stale entry is considered gone, if single-flight is disabled */
+    private static final long DEFAULT_REVALIDATION_TIMEOUT = 30000L;
+    private CacheMissCoalescer cacheMissCoalescer;
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CONTENT_LENGTH = "Content-Length";
+    private static final String HEADER_VARY = "Vary";
+
+    /** Request attribute holding the content looked up by isCacheHit, for deliverCacheContent */
+    private static final String ATTR_CACHE_CONTENT = HttpCacheEngineImpl.class.getName() + ".cacheContent";
+
     // formatter:on
 
     @Reference
@@ -168,6 +191,10 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         globalHeaderExclusions = ParameterUtil.toPatterns(PropertiesUtil.toStringArray(configs.get(PROP_GLOBAL_RESPONSE_HEADER_EXCLUSIONS), new String[]{}));
         globalCookieExclusions = Arrays.asList(PropertiesUtil.toStringArray(configs.get(PROP_GLOBAL_RESPONSE_COOKIE_EXCLUSIONS), new String[]{}));
 
+        long singleFlightTimeout = PropertiesUtil.toLong(configs.get(PROP_SINGLE_FLIGHT_TIMEOUT), DEFAULT_SINGLE_FLIGHT_TIMEOUT);
+        singleFlight = singleFlightTimeout > 0;
+        cacheMissCoalescer = new CacheMissCoalescer(singleFlight ? singleFlightTimeout : DEFAULT_REVALIDATION_TIMEOUT);
+
         ListIterator<String> listIterator = globalCacheHandlingRulesPid.listIterator();
         while (listIterator.hasNext()) {
             String value = listIterator.next();
@@ -250,23 +277,131 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
             HttpCacheKeyCreationException, HttpCachePersistenceException {
 
         // Build a cache key and do a lookup in the configured cache store.
-        return getCacheStore(cacheConfig).contains(cacheConfig.buildCacheKey(request));
+        final HttpCacheStore cacheStore = getCacheStore(cacheConfig);
+        final CacheKey cacheKey = cacheConfig.buildCacheKey(request);
+        if (cacheConfig.getSoftExpiry() > 0) {
+            final CacheContent cacheContent = cacheStore.getIfPresent(cacheKey);
+            if (cacheContent != null) {
+                if (cacheContent.isStale() && cacheMissCoalescer.lead(request, cacheKey)) {
+                    // This request renders a fresh entry, concurrent ones keep getting the stale one meanwhile.
+                    IOUtils.closeQuietly(cacheContent.getInputDataStream());
+                    log.debug("Revalidating stale cache entry for the url [ {} ]", request.getRequestURI());
+                    return false;
+                }
+                // Keep the lookup for the delivery.
+                request.setAttribute(ATTR_CACHE_CONTENT, cacheContent);
+                return true;
+            }
+        } else if (cacheStore.contains(cacheKey)) {
+            return true;
+        }
+        if (!singleFlight) {
+            return false;
+        }
+
+        // Let a single request render the response, the others wait for it to be cached.
+        try {
+            if (!cacheMissCoalescer.join(request, cacheKey)) {
+                return cacheStore.contains(cacheKey);
+            }
+            boolean cached = true;
+            try {
+                cached = cacheStore.contains(cacheKey);
+            } finally {
+                // Cached by the previous leader in the meantime, or the lookup failed and nothing gets rendered.
+                if (cached) {
+                    cacheMissCoalescer.release(request, cacheKey);
+                }
+            }
+            return cached;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     @Override
     public boolean deliverCacheContent(SlingHttpServletRequest request, SlingHttpServletResponse response,
                                        HttpCacheConfig cacheConfig) throws HttpCacheKeyCreationException,
             HttpCacheDataStreamException, HttpCachePersistenceException {
-        // Get the cached content from cache
-        CacheContent cacheContent = getCacheStore(cacheConfig).getIfPresent(cacheConfig.buildCacheKey(request));
+        // Get the cached content from cache, unless already looked up.
+        CacheContent cacheContent = (CacheContent) request.getAttribute(ATTR_CACHE_CONTENT);
+        if (cacheContent != null) {
+            request.removeAttribute(ATTR_CACHE_CONTENT);
+        } else {
+            cacheContent = getCacheStore(cacheConfig).getIfPresent(cacheConfig.buildCacheKey(request));
+        }
         if (!isRequestDeliverableFromCacheAccordingToHandlingRules(request, response, cacheConfig, cacheContent)){
+            if (cacheContent != null) {
+                // The content is not going to be read, release what its stream holds on to.
+                try (InputStream unused = cacheContent.getInputDataStream()) {
+                    log.debug("Cached content for the url [ {} ] not delivered", request.getRequestURI());
+                } catch (IOException e) {
+                    log.debug("Unable to close cached content for the url [ {} ]", request.getRequestURI(), e);
+                }
+            }
             return false;
         }
 
-        prepareCachedResponse(response, cacheContent);
+        // Encoded content goes out as it is to clients accepting the encoding, others get it decoded.
+        OutputStream encodedOutputStream = null;
+        if (cacheContent.getContentEncoding() != null && acceptsEncoding(request, cacheContent.getContentEncoding())) {
+            try {
+                encodedOutputStream = response.getOutputStream();
+            } catch (IllegalStateException ex) {
+                // the writer has already been obtained, deliver decoded
+                log.debug("Unable to deliver encoded content for the url [ {} ]", request.getRequestURI());
+            }
+        }
+
+        prepareCachedResponse(response, cacheContent, encodedOutputStream != null);
+        if (encodedOutputStream != null) {
+            return executeEncodedCacheContentDeliver(request, encodedOutputStream, cacheContent);
+        }
         return executeCacheContentDeliver(request, response, cacheContent);
     }
 
+    /**
+     * Check if the request accepts the given content encoding as per its <code>Accept-Encoding</code> headers.
+     */
+    static boolean acceptsEncoding(SlingHttpServletRequest request, String contentEncoding) {
+        Enumeration<String> headers = request.getHeaders(HEADER_ACCEPT_ENCODING);
+        if (headers == null) {
+            return false;
+        }
+        boolean accepted = false;
+        while (headers.hasMoreElements()) {
+            for (String coding : StringUtils.split(headers.nextElement(), ',')) {
+                String[] parts = StringUtils.split(coding, ';');
+                if (parts.length == 0) {
+                    continue;
+                }
+                String name = parts[0].trim();
+                if (name.equalsIgnoreCase(contentEncoding)) {
+                    // an explicit entry for the encoding wins over the wildcard
+                    return hasPositiveQuality(parts);
+                } else if ("*".equals(name)) {
+                    accepted = hasPositiveQuality(parts);
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private static boolean hasPositiveQuality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String param = parts[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Float.parseFloat(param.substring(2).trim()) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
 
 
     @Override
@@ -292,28 +427,62 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         } else {
             throw new AssertionError("Programming error.");
         }
-        final Map<String, List<String>> extractedHeaders = CacheUtils.extractHeaders(globalHeaderExclusions, globalCookieExclusions,responseWrapper, cacheConfig);
-        final int status = responseWrapper.getStatus();
-        final String charEncoding = responseWrapper.getCharacterEncoding();
-        final String contentType = responseWrapper.getContentType();
-        
+
         // Construct the cache content.
+        CacheMissCoalescer.InFlight inFlight = null;
+        CacheContent cacheContent = null;
+        boolean scheduled = false;
         try {
             final CacheKey cacheKey = cacheConfig.buildCacheKey(request);
-            final CacheContent cacheContent = new CacheContent().build(responseWrapper, status, charEncoding, contentType, extractedHeaders);
+            // Taken first, so that it is released whatever fails below.
+            inFlight = cacheMissCoalescer.takeLead(request, cacheKey);
+            final Map<String, List<String>> extractedHeaders = CacheUtils.extractHeaders(globalHeaderExclusions, globalCookieExclusions,responseWrapper, cacheConfig);
+            final int status = responseWrapper.getStatus();
+            final String charEncoding = responseWrapper.getCharacterEncoding();
+            final String contentType = responseWrapper.getContentType();
+            cacheContent = new CacheContent().build(responseWrapper, status, charEncoding, contentType, extractedHeaders);
         
             // Persist in cache.
             if (isRequestCachableAccordingToHandlingRules(request, response, cacheConfig, cacheContent)) {
-                throttledTaskRunner.scheduleWork(putToStore(cacheConfig, cacheKey, cacheContent));
+                throttledTaskRunner.scheduleWork(putToStore(cacheConfig, cacheKey, cacheContent, inFlight));
+                // Released by the task once stored.
+                inFlight = null;
+                scheduled = true;
                 log.debug("Response for the URI cached - {}", request.getRequestURI());
             }
         } catch (HttpCacheException e) {
             log.error("Error creating http cache content", e);
+        } finally {
+            if (!scheduled) {
+                // Nothing is stored, release the temp sink.
+                if (cacheContent != null) {
+                    IOUtils.closeQuietly(cacheContent.getInputDataStream());
+                }
+                responseWrapper.getTempSink().discard();
+            }
+            if (inFlight != null) {
+                inFlight.release();
+            }
         }
 
     }
 
 
+    @Override
+    public void discardResponse(SlingHttpServletRequest request, SlingHttpServletResponse response,
+                                HttpCacheConfig cacheConfig) {
+        try {
+            HttpCacheEngine.super.discardResponse(request, response, cacheConfig);
+        } finally {
+            // Let the next miss lead instead of waiting for a response that never gets cached.
+            try {
+                cacheMissCoalescer.release(request, cacheConfig.buildCacheKey(request));
+            } catch (HttpCacheKeyCreationException e) {
+                log.debug("Unable to release the cache key for the url [ {} ]", request.getRequestURI(), e);
+            }
+        }
+    }
+
     @Override
     public boolean isPathPotentialToInvalidate(String path) {
 
@@ -338,7 +507,8 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         }
     }
 
-    private Runnable putToStore(final HttpCacheConfig cacheConfig, final CacheKey cacheKey, final CacheContent cacheContent) {
+    private Runnable putToStore(final HttpCacheConfig cacheConfig, final CacheKey cacheKey, final CacheContent cacheContent,
+                                final CacheMissCoalescer.InFlight inFlight) {
         return () -> {
             try {
                 getCacheStore(cacheConfig).put(cacheKey, cacheContent);
@@ -349,6 +519,10 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
                 if (null != cacheContent) {
                     IOUtils.closeQuietly(cacheContent.getInputDataStream());
                 }
+                // Wake up the requests waiting for this entry.
+                if (null != inFlight) {
+                    inFlight.release();
+                }
             }
         };
     }
@@ -478,14 +652,25 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
         return true;
     }
 
-    private void prepareCachedResponse(SlingHttpServletResponse response, CacheContent cacheContent) {
+    private void prepareCachedResponse(SlingHttpServletResponse response, CacheContent cacheContent, boolean encoded) {
         response.setStatus(cacheContent.getStatus());
         // Spool header info into the servlet response.
         for (String headerName : cacheContent.getHeaders().keySet()) {
+            if (encoded && HEADER_CONTENT_LENGTH.equalsIgnoreCase(headerName)) {
+                // the length of the decoded content
+                continue;
+            }
             for (String headerValue : cacheContent.getHeaders().get(headerName)) {
                 response.setHeader(headerName, headerValue);
             }
         }
+        if (cacheContent.getContentEncoding() != null) {
+            // Encoded or not depends on the request from here on.
+            response.addHeader(HEADER_VARY, HEADER_ACCEPT_ENCODING);
+            if (encoded) {
+                response.setHeader(HEADER_CONTENT_ENCODING, cacheContent.getContentEncoding());
+            }
+        }
 
         // Spool other attributes to the servlet response.
         response.setContentType(cacheContent.getContentType());
@@ -504,6 +689,23 @@ public class HttpCacheEngineImpl extends AnnotatedStandardMBean implements HttpC
             return true;
         } catch (IOException e) {
             throw new HttpCacheDataStreamException("Unable to copy from cached data to the servlet output stream.");
+        } finally {
+            // Releases the inflater of decoded content.
+            IOUtils.closeQuietly(cacheContent.getInputDataStream());
+        }
+    }
+
+    private boolean executeEncodedCacheContentDeliver(SlingHttpServletRequest request, OutputStream outputStream,
+                                                      CacheContent cacheContent) throws HttpCacheDataStreamException {
+        try {
+            IOUtils.copy(cacheContent.getEncodedInputDataStream(), outputStream);
+
+            if (log.isDebugEnabled()) {
+                log.debug("Encoded response delivered from cache for the url [ {} ]", request.getRequestURI());
+            }
+            return true;
+        } catch (IOException e) {
+            throw new HttpCacheDataStreamException("Unable to copy from cached data to the servlet output stream.");
         }
     }
 
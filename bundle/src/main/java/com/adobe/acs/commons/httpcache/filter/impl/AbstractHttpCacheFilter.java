@@ -52,6 +52,7 @@ public abstract class AbstractHttpCacheFilter implements Filter {
         SlingHttpServletResponse slingResponse = (SlingHttpServletResponse) response;
 
         HttpCacheConfig cacheConfig = null;
+        boolean isCacheMiss = false;
         boolean isResponseCacheable = false;
 
         try {
@@ -72,22 +73,32 @@ public abstract class AbstractHttpCacheFilter implements Filter {
                         return;
                     }
                 } else {
-                    // Mark the request as cacheable once processed.
-                    isResponseCacheable = true;
+                    // This request might lead the rendering of the missing entry from now on.
+                    isCacheMiss = true;
                     // Wrap the response
                     slingResponse = cacheEngine.wrapResponse(slingRequest, slingResponse, cacheConfig);
+                    // Mark the request as cacheable once processed.
+                    isResponseCacheable = true;
                 }
             }
         } catch (HttpCacheException e) {
             log.error("HttpCache exception while dealing with request. Passed on the control to filter chain.", e);
+        } catch (RuntimeException e) {
+            if (isCacheMiss) {
+                cacheEngine.discardResponse(slingRequest, slingResponse, cacheConfig);
+            }
+            throw e;
         }
 
         // Pass on the request to filter chain.
-        chain.doFilter(request, slingResponse);
-
+        boolean handedOver = false;
         try {
+            chain.doFilter(request, slingResponse);
+
             // If the request has the attribute marked, cache the response.
             if (isResponseCacheable) {
+                // The cache engine releases the lead once the response is cached, or failed to be.
+                handedOver = true;
                 cacheEngine.cacheResponse(slingRequest, slingResponse, cacheConfig);
             }
 
@@ -97,6 +108,12 @@ public abstract class AbstractHttpCacheFilter implements Filter {
             }
         } catch (HttpCacheException e) {
             log.error("HttpCache exception while dealing with response. Returned the filter chain response", e);
+        } finally {
+            // A failed request is not cached, release what has been set up for caching it, so that requests
+            // waiting for this one to render the entry don't wait until they time out.
+            if (isCacheMiss && !handedOver) {
+                cacheEngine.discardResponse(slingRequest, slingResponse, cacheConfig);
+            }
         }
     }
 
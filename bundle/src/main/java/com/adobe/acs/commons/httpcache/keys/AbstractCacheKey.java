@@ -39,6 +39,7 @@ public abstract class AbstractCacheKey implements Serializable{
     protected long customExpiryTime;
     protected long expiryForAccessTime;
     protected long expiryForUpdateTime;
+    protected long softExpiryTime;
 
     public AbstractCacheKey(){
 
@@ -53,6 +54,7 @@ public abstract class AbstractCacheKey implements Serializable{
         this.expiryForAccessTime = cacheConfig.getExpiryOnCreate();
         this.expiryForUpdateTime = cacheConfig.getExpiryForUpdate();
         this.expiryForAccessTime = cacheConfig.getExpiryForAccess();
+        this.softExpiryTime = cacheConfig.getSoftExpiry();
     }
 
     public AbstractCacheKey(String uri, HttpCacheConfig cacheConfig) {
@@ -63,6 +65,7 @@ public abstract class AbstractCacheKey implements Serializable{
         this.customExpiryTime = cacheConfig.getExpiryOnCreate();
         this.expiryForUpdateTime = cacheConfig.getExpiryForUpdate();
         this.expiryForAccessTime = cacheConfig.getExpiryForAccess();
+        this.softExpiryTime = cacheConfig.getSoftExpiry();
     }
 
     protected void parentWriteObject(ObjectOutputStream o) throws IOException
@@ -134,6 +137,10 @@ public abstract class AbstractCacheKey implements Serializable{
         return expiryForUpdateTime;
     }
 
+    public long getSoftExpiry(){
+        return softExpiryTime;
+    }
+
     protected String makeHierarchyResourcePath(String resourcePath) {
         return StringUtils.substringBefore(resourcePath,"/" + JcrConstants.JCR_CONTENT);
     }
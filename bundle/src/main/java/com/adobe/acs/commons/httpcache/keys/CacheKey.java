@@ -69,6 +69,17 @@ public interface CacheKey extends Serializable
         return -1L;
     }
 
+    /**
+     * Gets the soft expiry time for the cache entry.
+     * If set, entries older than this are served stale until a fresh entry replaces them.
+     * Value is in miliseconds, 0 or lower means entries are never served stale.
+     * @return the soft expiry time
+     * @see com.adobe.acs.commons.httpcache.config.HttpCacheConfig#getSoftExpiry()
+     */
+    default long getSoftExpiry(){
+        return 0L;
+    }
+
     /**
      * Determines if the @{param cacheKey} will invalidate this cache key entry.
      *
@@ -16,6 +16,6 @@
  * limitations under the License.
  */
 
-@org.osgi.annotation.versioning.Version("3.15.0")
+@org.osgi.annotation.versioning.Version("3.16.0")
 package com.adobe.acs.commons.httpcache.keys;
 
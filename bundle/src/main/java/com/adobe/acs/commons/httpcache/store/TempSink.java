@@ -48,4 +48,12 @@ public interface TempSink {
      * @return Length of sink in bytes or -1 if unknown.
      */
     long length();
+
+    /**
+     * Release the resources held by the sink when its content is not going to be read.
+     * Streams already obtained through {@link #createInputStream()} are to be closed by their consumers.
+     */
+    default void discard() {
+        // nothing to release for in-memory sinks
+    }
 }
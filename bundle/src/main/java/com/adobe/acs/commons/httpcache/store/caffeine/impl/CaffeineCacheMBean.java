@@ -25,6 +25,9 @@ public interface CaffeineCacheMBean extends CacheMBean {
 
     @Description("Cache TTL in Seconds. -1 value represent no TTL.")
     long getTtl();
+
+    @Description("Number of cache hits served past their soft expiry.")
+    long getStaleHitCount();
 }
 
 
@@ -24,6 +24,7 @@ import com.adobe.acs.commons.httpcache.exception.HttpCacheKeyCreationException;
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
 import com.adobe.acs.commons.httpcache.store.TempSink;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyPathIndex;
 import com.adobe.acs.commons.httpcache.store.mem.impl.MemCachePersistenceObject;
 import com.adobe.acs.commons.httpcache.store.mem.impl.MemTempSinkImpl;
 import com.adobe.acs.commons.util.impl.AbstractCacheMBean;
@@ -52,6 +53,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * In-memory cache store implementation. Uses Caffeine Cache.
@@ -100,6 +102,14 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     private static final String PROP_MAX_SIZE_IN_MB = "httpcache.cachestore.caffeine.maxsize";
     private long maxSizeInMb;
 
+    private static final boolean DEFAULT_COMPRESS = false;
+    @Property(label = "Compress entries",
+            description = "Store entries gzip compressed. Compressed entries are delivered as they are to clients "
+                    + "accepting gzip and decompressed for others. Default to false.",
+            boolValue = DEFAULT_COMPRESS)
+    private static final String PROP_COMPRESS = "httpcache.cachestore.caffeine.compress";
+    private boolean compress;
+
 
     /** Megabyte to byte */
     private static final long MEGABYTE = 1024L * 1024L;
@@ -110,11 +120,18 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     private Cache<CacheKey, MemCachePersistenceObject> cache;
     private Expiry<CacheKey, MemCachePersistenceObject> expiryPolicy;
 
+    /** Number of entries served past their soft expiry */
+    private final AtomicLong staleHitCount = new AtomicLong();
+
+    /** Keys by hierarchy resource path, for invalidation */
+    private final CacheKeyPathIndex pathIndex = new CacheKeyPathIndex(key -> cache.asMap().containsKey(key));
+
     @Activate
     protected void activate(Map<String, Object> config) {
         // Read config and populate values.
         ttl = PropertiesUtil.toLong(config.get(PROP_TTL), DEFAULT_TTL);
         maxSizeInMb = PropertiesUtil.toLong(config.get(PROP_MAX_SIZE_IN_MB), DEFAULT_MAX_SIZE_IN_MB);
+        compress = PropertiesUtil.toBoolean(config.get(PROP_COMPRESS), DEFAULT_COMPRESS);
         expiryPolicy = new CacheExpiryPolicy(ttl);
 
         // Initializing the cache.
@@ -151,6 +168,11 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
         super(CaffeineCacheMBean.class);
     }
 
+    @Override
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
     @Override
     public long getTtl() {
         return ttl;
@@ -176,9 +198,7 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     @Override
     protected String toString(MemCachePersistenceObject cacheObj) throws CacheMBeanException {
         try {
-            return IOUtils.toString(
-                    new ByteArrayInputStream(cacheObj.getBytes()),
-                    cacheObj.getCharEncoding());
+            return IOUtils.toString(cacheObj.getInputStream(), cacheObj.getCharEncoding());
         } catch (IOException e) {
             throw new CacheMBeanException("Error getting the content from the cacheObject", e);
         }
@@ -198,12 +218,14 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     }
 
     /**
-     * Removal listener for cache entry items.
+     * Removal listener for cache entry items. Keeps the path index in sync.
      */
-    private static class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
+    private class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
         @Override
         public void onRemoval(CacheKey cacheKey, MemCachePersistenceObject memCachePersistenceObject, RemovalCause removalCause) {
-            //do nothing as of now
+            if (cacheKey != null) {
+                pathIndex.remove(cacheKey);
+            }
         }
     }
 
@@ -223,8 +245,9 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
     @Override
     public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
         cache.put(key, new MemCachePersistenceObject().buildForCaching(content.getStatus(), content.getCharEncoding(),
-                content.getContentType(), content.getHeaders(), content.getInputDataStream(), content.getWriteMethod()));
-
+                content.getContentType(), content.getHeaders(), content.getInputDataStream(), content.getWriteMethod(),
+                compress));
+        pathIndex.add(key);
     }
 
     @Override
@@ -245,8 +268,21 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
         // Increment hit count
         value.incrementHitCount();
 
-        return new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(), new
-                ByteArrayInputStream(value.getBytes()));
+        CacheContent content;
+        if (null == value.getContentEncoding()) {
+            content = new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(), new
+                    ByteArrayInputStream(value.getBytes()));
+        } else {
+            // Compressed entries are handed out encoded and only decoded for clients not accepting the encoding.
+            content = new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(),
+                    null);
+            content.setEncodedInputDataStream(value.getContentEncoding(), new ByteArrayInputStream(value.getBytes()));
+        }
+        if (value.isStale(key)) {
+            content.setStale(true);
+            staleHitCount.incrementAndGet();
+        }
+        return content;
     }
 
     @Override
@@ -256,13 +292,7 @@ public class CaffeineMemHttpCacheStoreImpl extends AbstractCaffeineCacheMBean<Ca
 
     @Override
     public void invalidate(CacheKey invalidationKey) {
-        final ConcurrentMap<CacheKey, MemCachePersistenceObject> cacheAsMap = cache.asMap();
-
-        for (CacheKey key : cacheAsMap.keySet()) {
-            if (key.isInvalidatedBy(invalidationKey)) {
-                cache.invalidate(key);
-            }
-        }
+        cache.invalidateAll(pathIndex.getInvalidatedKeys(invalidationKey));
     }
 
     @Override
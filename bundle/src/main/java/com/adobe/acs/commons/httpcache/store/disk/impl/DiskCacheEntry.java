@@ -0,0 +1,151 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index entry of the disk cache store. Holds the response metadata on the heap and points to the body
+ * in a {@link DiskCacheSegment}.
+ */
+public class DiskCacheEntry {
+    /** Response status **/
+    private final int status;
+    /** Response character encoding */
+    private final String charEncoding;
+    /** Response content type */
+    private final String contentType;
+    /** Response headers */
+    private final Map<String, List<String>> headers;
+    private final HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod;
+
+    private final DiskCacheSegment segment;
+    private final long offset;
+    private final long length;
+    /** Creation time in milliseconds */
+    private final long createdTime = System.currentTimeMillis();
+
+    private final AtomicInteger count = new AtomicInteger(0);
+
+    DiskCacheEntry(int status, String charEncoding, String contentType, Map<String, List<String>> headers,
+                   HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod,
+                   DiskCacheSegment segment, long offset, long length) {
+        this.status = status;
+        this.charEncoding = charEncoding;
+        this.contentType = contentType;
+        this.writeMethod = writeMethod;
+        this.segment = segment;
+        this.offset = offset;
+        this.length = length;
+
+        // Take a copy of the headers.
+        this.headers = new HashMap<>();
+        if (headers != null) {
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (!"Sling-Tracer-Protocol-Version".equals(entry.getKey()) && !"Sling-Tracer-Request-Id".equals(entry.getKey())) {
+                    // Do NOT cache Sling Tracer headers as this makes debugging difficult and confusing!
+                    this.headers.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+                }
+            }
+        }
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getCharEncoding() {
+        return charEncoding;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return a copy of the headers
+     */
+    public Map<String, List<String>> getHeaders() {
+        Map<String, List<String>> copy = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    public HttpCacheServletResponseWrapper.ResponseWriteMethod getWriteMethod() {
+        return writeMethod;
+    }
+
+    /**
+     * @return the length of the body in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    DiskCacheSegment getSegment() {
+        return segment;
+    }
+
+    /**
+     * @return a stream over the body or null if the segment is gone
+     */
+    InputStream openStream() {
+        return segment.openStream(offset, length);
+    }
+
+    /**
+     * Increments the hit for this cache entry.
+     */
+    public void incrementHitCount() {
+        count.incrementAndGet();
+    }
+
+    /**
+     * @return the number of times this cache entry has been requested
+     */
+    public int getHitCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the time this cache entry was created in milliseconds
+     */
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * Check if this cache entry is past the soft expiry of the given key.
+     *
+     * @param key the key of this entry
+     * @return true if the entry should be served stale
+     */
+    public boolean isStale(CacheKey key) {
+        return key.getSoftExpiry() > 0 && System.currentTimeMillis() - createdTime > key.getSoftExpiry();
+    }
+}
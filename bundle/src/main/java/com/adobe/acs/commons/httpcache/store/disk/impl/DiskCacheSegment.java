@@ -0,0 +1,254 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only segment file holding the bodies of disk cache entries.
+ * <p>
+ * Bodies are appended by a single writer and read through positional reads on a shared {@link FileChannel},
+ * so concurrent readers neither block each other nor copy the body onto the heap.
+ * A segment is deleted once it has been retired and no reader holds on to it anymore.
+ */
+final class DiskCacheSegment {
+    private static final Logger log = LoggerFactory.getLogger(DiskCacheSegment.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long id;
+    private final File file;
+    private final FileChannel channel;
+
+    /** Position the next body is appended at. Only modified by the writer. */
+    private volatile long writePosition;
+    /** Bytes referenced by cache entries. */
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    private int readers;
+    private boolean retired;
+    private boolean unlinked;
+    private boolean closed;
+
+    DiskCacheSegment(long id, File file) throws IOException {
+        this.id = id;
+        this.file = file;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    long getWritePosition() {
+        return writePosition;
+    }
+
+    long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Append the stream to the end of this segment.
+     * File streams are transferred channel to channel without passing through the heap.
+     *
+     * @return the number of bytes appended
+     */
+    long append(InputStream in) throws IOException {
+        final long offset = writePosition;
+        long written = 0;
+        try {
+            if (in instanceof FileInputStream) {
+                FileChannel source = ((FileInputStream) in).getChannel();
+                long remaining = source.size() - source.position();
+                while (written < remaining) {
+                    long transferred = channel.transferFrom(source, offset + written, remaining - written);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+            } else {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    ByteBuffer src = ByteBuffer.wrap(buffer, 0, read);
+                    while (src.hasRemaining()) {
+                        written += channel.write(src, offset + written);
+                    }
+                }
+            }
+        } finally {
+            // even a failed write occupies space, the bytes are simply never referenced
+            writePosition = offset + written;
+        }
+        liveBytes.addAndGet(written);
+        return written;
+    }
+
+    /**
+     * Open a stream over a region of this segment.
+     *
+     * @return the stream or null if the segment has been deleted in the meantime
+     */
+    InputStream openStream(long offset, long length) {
+        synchronized (this) {
+            if (closed || unlinked) {
+                return null;
+            }
+            readers++;
+        }
+        return new SegmentInputStream(offset, length);
+    }
+
+    /**
+     * Release bytes of an entry that has been removed from the cache.
+     */
+    void releaseBytes(long length) {
+        if (liveBytes.addAndGet(-length) <= 0) {
+            synchronized (this) {
+                closeIfUnused();
+            }
+        }
+    }
+
+    /**
+     * Mark this segment as no longer written to. It is deleted as soon as it holds no live bytes.
+     */
+    synchronized void retire() {
+        retired = true;
+        closeIfUnused();
+    }
+
+    /**
+     * Delete this segment regardless of live bytes. No new streams are opened on it anymore,
+     * while streams already open keep reading until the last one is released and closes the channel.
+     */
+    synchronized void delete() {
+        retired = true;
+        unlinked = true;
+        liveBytes.set(0);
+        if (readers > 0) {
+            // the file is removed from the directory right away where the platform allows it,
+            // otherwise closeIfUnused deletes it once the last reader is done
+            if (!file.delete()) {
+                log.debug("Deferring deletion of disk cache segment {} until its readers are done", file);
+            }
+        }
+        closeIfUnused();
+    }
+
+    private void release() {
+        synchronized (this) {
+            readers--;
+            closeIfUnused();
+        }
+    }
+
+    private void closeIfUnused() {
+        if (closed || !retired || readers > 0 || liveBytes.get() > 0) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Could not close disk cache segment {}", file, e);
+        }
+        if (!file.delete() && file.exists()) {
+            log.warn("Could not delete disk cache segment {}", file);
+        }
+    }
+
+    /**
+     * Reads a region of the segment. Releases the segment when closed or once fully read,
+     * as callers copying the stream into a response do not necessarily close it.
+     */
+    private final class SegmentInputStream extends InputStream {
+        private long position;
+        private final long end;
+        private boolean released;
+
+        SegmentInputStream(long offset, long length) {
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long remaining = end - position;
+            if (remaining <= 0 || released) {
+                close();
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, remaining));
+            int read = channel.read(buffer, position);
+            if (read == -1) {
+                close();
+                return -1;
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release();
+            }
+        }
+    }
+}
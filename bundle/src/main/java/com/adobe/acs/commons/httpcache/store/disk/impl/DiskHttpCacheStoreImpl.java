@@ -20,65 +20,357 @@ package com.adobe.acs.commons.httpcache.store.disk.impl;
 import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
 import com.adobe.acs.commons.httpcache.engine.CacheContent;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheKeyCreationException;
 import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.adobe.acs.commons.httpcache.store.HttpCacheStore;
 import com.adobe.acs.commons.httpcache.store.TempSink;
-import org.apache.commons.lang3.NotImplementedException;
+import com.adobe.acs.commons.httpcache.store.mem.impl.CacheKeyPathIndex;
+import com.adobe.acs.commons.util.impl.AbstractGuavaCacheMBean;
+import com.adobe.acs.commons.util.impl.exception.CacheMBeanException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.ConfigurationPolicy;
+import org.apache.felix.scr.annotations.Deactivate;
+import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.NotCompliantMBeanException;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Dictionary;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ACS AEM Commons - HTTP Cache - Disk based cache store implementation.
+ * <p>
+ * Response bodies are appended to segment files on disk and streamed back through positional reads,
+ * while the cache keys and response metadata are kept in an in-heap LRU index bounded by the size of the bodies.
+ * Segments are deleted once none of their entries is cached anymore. If removed entries leave too much
+ * unreclaimed space behind, the oldest segment is dropped together with its remaining entries.
+ * <p>
+ * The index is not persisted, so the store starts empty after a restart.
  */
+@Component(label = "ACS AEM Commons - HTTP Cache - Disk cache store",
+           description = "Cache data store implementation for storage in segment files on the local file system.",
+           metatype = true,
+           policy = ConfigurationPolicy.REQUIRE)
+@Properties({
+        @Property(name = HttpCacheStore.KEY_CACHE_STORE_TYPE,
+                    value = HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE,
+                    propertyPrivate = true),
+        @Property(name = "jmx.objectname",
+                    value = "com.adobe.acs.commons.httpcache:type=HTTP Cache - Disk Cache Store",
+                    propertyPrivate = true),
+        @Property(name = "webconsole.configurationFactory.nameHint",
+                    value = "TTL: {httpcache.cachestore.diskcache.ttl}, "
+                            + "Max size in MB: {httpcache.cachestore.diskcache.maxsize}",
+                    propertyPrivate = true)
+})
+@Service(HttpCacheStore.class)
+public class DiskHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, DiskCacheEntry> implements HttpCacheStore, DiskCacheMBean {
+    private static final Logger log = LoggerFactory.getLogger(DiskHttpCacheStoreImpl.class);
 
-// TODO - Placeholder component. To be implemented.
-/*
-@Component
-@Service
-@Property(name = HttpCacheStore.KEY_CACHE_STORE_TYPE,
-          value = HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE,
-          propertyPrivate = true)
-*/
-public class DiskHttpCacheStoreImpl implements HttpCacheStore {
+    /** Megabyte to byte */
+    private static final long MEGABYTE = 1024L * 1024L;
+    /** Kilobyte to byte */
+    private static final long KILOBYTE = 1024L;
+
+    @Property(label = "TTL",
+              description = "TTL for all entries in this cache in seconds. Default to -1 meaning no TTL.",
+              longValue = DiskHttpCacheStoreImpl.DEFAULT_TTL)
+    private static final String PROP_TTL = "httpcache.cachestore.diskcache.ttl";
+    private static final long DEFAULT_TTL = -1L; // Defaults to -1 meaning no TTL.
+    private long ttl;
+
+    @Property(label = "Maximum size of this store in MB",
+              description = "Default to 1024MB. If the size of the cached response bodies goes beyond this size, "
+                      + "least used entry will be evicted from the cache",
+              longValue = DiskHttpCacheStoreImpl.DEFAULT_MAX_SIZE_IN_MB)
+    private static final String PROP_MAX_SIZE_IN_MB = "httpcache.cachestore.diskcache.maxsize";
+    private static final long DEFAULT_MAX_SIZE_IN_MB = 1024L; // Defaults to 1GB.
+    private long maxSizeInBytes;
+
+    @Property(label = "Segment size in MB",
+              description = "Size of the segment files the response bodies are appended to. Default to 64MB.",
+              longValue = DiskHttpCacheStoreImpl.DEFAULT_SEGMENT_SIZE_IN_MB)
+    private static final String PROP_SEGMENT_SIZE_IN_MB = "httpcache.cachestore.diskcache.segmentsize";
+    private static final long DEFAULT_SEGMENT_SIZE_IN_MB = 64L;
+    private long segmentSizeInBytes;
+
+    @Property(label = "Temp sink spill threshold in KB",
+              description = "Responses larger than this are buffered in a temp file instead of memory while "
+                      + "being rendered. Default to 256KB.",
+              longValue = DiskHttpCacheStoreImpl.DEFAULT_SPILL_THRESHOLD_IN_KB)
+    private static final String PROP_SPILL_THRESHOLD_IN_KB = "httpcache.cachestore.diskcache.spillthreshold";
+    private static final long DEFAULT_SPILL_THRESHOLD_IN_KB = 256L;
+    private long spillThresholdInBytes;
+
+    @Property(label = "Directory",
+              description = "Directory holding the cache files. This directory is cleared on activation. "
+                      + "Defaults to the data area of the bundle.",
+              value = "")
+    private static final String PROP_DIRECTORY = "httpcache.cachestore.diskcache.directory";
+    private static final String DEFAULT_DIRECTORY_NAME = "httpcache-disk";
+
+    private File segmentsDirectory;
+    private File tempDirectory;
+
+    /** Cache index - Uses Google Guava's cache */
+    private Cache<CacheKey, DiskCacheEntry> cache;
+
+    /** Number of entries served past their soft expiry */
+    private final AtomicLong staleHitCount = new AtomicLong();
+
+    /** Keys by hierarchy resource path, for invalidation */
+    private final CacheKeyPathIndex pathIndex = new CacheKeyPathIndex(key -> cache.asMap().containsKey(key));
+
+    /** Segment files by id, oldest first */
+    private final ConcurrentNavigableMap<Long, DiskCacheSegment> segments = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+    private DiskCacheSegment activeSegment;
+    private long nextSegmentId;
+
+    @Activate
+    protected void activate(ComponentContext context) throws IOException {
+        Dictionary<?, ?> properties = context.getProperties();
+        ttl = PropertiesUtil.toLong(properties.get(PROP_TTL), DEFAULT_TTL);
+        maxSizeInBytes = PropertiesUtil.toLong(properties.get(PROP_MAX_SIZE_IN_MB), DEFAULT_MAX_SIZE_IN_MB) * MEGABYTE;
+        segmentSizeInBytes = PropertiesUtil.toLong(properties.get(PROP_SEGMENT_SIZE_IN_MB), DEFAULT_SEGMENT_SIZE_IN_MB) * MEGABYTE;
+        spillThresholdInBytes = PropertiesUtil.toLong(properties.get(PROP_SPILL_THRESHOLD_IN_KB), DEFAULT_SPILL_THRESHOLD_IN_KB) * KILOBYTE;
+
+        String directoryPath = PropertiesUtil.toString(properties.get(PROP_DIRECTORY), "");
+        File directory = StringUtils.isBlank(directoryPath)
+                ? context.getBundleContext().getDataFile(DEFAULT_DIRECTORY_NAME) : new File(directoryPath);
+        if (directory == null) {
+            // framework without file system support
+            directory = new File(FileUtils.getTempDirectory(), DEFAULT_DIRECTORY_NAME);
+        }
+
+        // If cache is present, invalidate all and reinitialize the cache.
+        clear();
+
+        // Leftovers of a previous run are not indexed and therefore of no use.
+        segmentsDirectory = new File(directory, "segments");
+        tempDirectory = new File(directory, "tmp");
+        FileUtils.deleteDirectory(segmentsDirectory);
+        FileUtils.deleteDirectory(tempDirectory);
+        FileUtils.forceMkdir(segmentsDirectory);
+        FileUtils.forceMkdir(tempDirectory);
+
+        // Recording cache usage stats enabled.
+        CacheBuilder<CacheKey, DiskCacheEntry> builder = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .weigher(new DiskCacheEntryWeigher())
+                .removalListener(new DiskCacheEntryRemovalListener())
+                .recordStats();
+        if (ttl != DEFAULT_TTL) {
+            // If ttl is present, attach it to guava cache configuration.
+            builder.expireAfterWrite(ttl, TimeUnit.SECONDS);
+        }
+        cache = builder.build();
+
+        log.info("DiskHttpCacheStoreImpl activated / modified, storing in {}.", directory);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        clear();
+        FileUtils.deleteQuietly(tempDirectory);
+        log.info("DiskHttpCacheStoreImpl deactivated.");
+    }
+
+    private void clear() {
+        if (null != cache) {
+            cache.invalidateAll();
+        }
+        synchronized (writeLock) {
+            for (DiskCacheSegment segment : segments.values()) {
+                segment.delete();
+            }
+            segments.clear();
+            activeSegment = null;
+        }
+    }
+
+    /**
+     * Removal listener for cache entry items. Releases the space of the entry in its segment
+     * and keeps the path index in sync.
+     */
+    private class DiskCacheEntryRemovalListener implements RemovalListener<CacheKey, DiskCacheEntry> {
+        @Override
+        public void onRemoval(RemovalNotification<CacheKey, DiskCacheEntry> removalNotification) {
+            pathIndex.remove(removalNotification.getKey());
+            DiskCacheEntry entry = removalNotification.getValue();
+            if (entry != null) {
+                entry.getSegment().releaseBytes(entry.getLength());
+            }
+            log.debug("Disk cache entry for uri {} removed due to {}", removalNotification.getKey(),
+                    removalNotification.getCause().name());
+        }
+    }
+
+    /**
+     * Weigher for the cache entry.
+     */
+    private static class DiskCacheEntryWeigher implements Weigher<CacheKey, DiskCacheEntry> {
+
+        @Override
+        public int weigh(CacheKey key, DiskCacheEntry entry) {
+            // Size of the body on disk.
+            return (int) Math.min(Integer.MAX_VALUE, entry.getLength());
+        }
+    }
+
+    /**
+     * Get the segment to append to, rolling over to a new one when the current one is full.
+     * Must be called holding the write lock.
+     */
+    private DiskCacheSegment getWritableSegment() throws IOException {
+        if (activeSegment == null || activeSegment.getWritePosition() >= segmentSizeInBytes) {
+            if (activeSegment != null) {
+                activeSegment.retire();
+            }
+            reclaimDiskSpace();
+            long id = nextSegmentId++;
+            activeSegment = new DiskCacheSegment(id, new File(segmentsDirectory, String.format("%016x.seg", id)));
+            segments.put(id, activeSegment);
+        }
+        return activeSegment;
+    }
+
+    /**
+     * Drop the oldest segments together with their remaining entries while the segment files take up
+     * more space than the configured maximum size. Must be called holding the write lock.
+     */
+    private void reclaimDiskSpace() {
+        segments.values().removeIf(DiskCacheSegment::isClosed);
+        long usage = getDiskUsageInBytes();
+        while (usage > maxSizeInBytes && !segments.isEmpty()) {
+            Map.Entry<Long, DiskCacheSegment> oldest = segments.pollFirstEntry();
+            DiskCacheSegment segment = oldest.getValue();
+            cache.asMap().values().removeIf(entry -> entry.getSegment() == segment);
+            usage -= segment.getWritePosition();
+            segment.delete();
+            log.debug("Dropped disk cache segment {} to reclaim disk space", segment.getId());
+        }
+    }
+
+    private long getDiskUsageInBytes() {
+        long usage = 0;
+        for (DiskCacheSegment segment : segments.values()) {
+            usage += segment.getWritePosition();
+        }
+        return usage;
+    }
+
+    //-------------------------<CacheStore interface specific implementation>
     @Override
     public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
-        throw new NotImplementedException();
+        final DiskCacheEntry entry;
+        synchronized (writeLock) {
+            try {
+                DiskCacheSegment segment = getWritableSegment();
+                long offset = segment.getWritePosition();
+                long length = segment.append(content.getInputDataStream());
+                entry = new DiskCacheEntry(content.getStatus(), content.getCharEncoding(), content.getContentType(),
+                        content.getHeaders(), content.getWriteMethod(), segment, offset, length);
+            } catch (IOException e) {
+                throw new HttpCacheDataStreamException("Unable to write cache entry to disk", e);
+            }
+        }
+        cache.put(key, entry);
+        pathIndex.add(key);
     }
 
     @Override
     public boolean contains(CacheKey key) {
-        throw new NotImplementedException();
+        return null != cache.getIfPresent(key);
     }
 
     @Override
     public CacheContent getIfPresent(CacheKey key) {
-        throw new NotImplementedException();
+        DiskCacheEntry value = cache.getIfPresent(key);
+        if (null == value) {
+            return null;
+        }
+
+        InputStream dataInputStream = value.openStream();
+        if (null == dataInputStream) {
+            // segment dropped in the meantime
+            cache.asMap().remove(key, value);
+            return null;
+        }
+
+        // Increment hit count
+        value.incrementHitCount();
+
+        CacheContent content = new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(),
+                value.getHeaders(), dataInputStream, value.getWriteMethod());
+        if (value.isStale(key)) {
+            content.setStale(true);
+            staleHitCount.incrementAndGet();
+        }
+        return content;
     }
 
     @Override
     public long size() {
-        throw new NotImplementedException();
+        return cache.size();
     }
 
     @Override
-    public void invalidate(CacheKey key) {
-        throw new NotImplementedException();
+    public void invalidate(CacheKey invalidationKey) {
+        cache.invalidateAll(pathIndex.getInvalidatedKeys(invalidationKey));
     }
 
     @Override
     public void invalidate(HttpCacheConfig cacheConfig) {
-        throw new NotImplementedException();
+        ConcurrentMap<CacheKey, DiskCacheEntry> cacheAsMap = cache.asMap();
+        for (CacheKey key : cacheAsMap.keySet()) {
+            // Match the cache key with cache config.
+            try {
+                if (cacheConfig.knows(key)) {
+                    // If matches, invalidate that particular key.
+                    cache.invalidate(key);
+                }
+            } catch (HttpCacheKeyCreationException e) {
+                log.error("Could not invalidate HTTP cache. Falling back to full cache invalidation.", e);
+                this.invalidateAll();
+            }
+        }
     }
 
     @Override
     public void invalidateAll() {
-        throw new NotImplementedException();
+        cache.invalidateAll();
     }
 
     @Override
     public TempSink createTempSink() {
-        throw new NotImplementedException();
+        return new DiskTempSinkImpl(tempDirectory, spillThresholdInBytes);
     }
 
     @Override
@@ -86,5 +378,77 @@ public class DiskHttpCacheStoreImpl implements HttpCacheStore {
         return HttpCacheStore.VALUE_DISK_CACHE_STORE_TYPE;
     }
 
+    //-------------------------<Mbean specific implementation>
+
+    public DiskHttpCacheStoreImpl() throws NotCompliantMBeanException {
+        super(DiskCacheMBean.class);
+    }
+
+    @Override
+    public long getTtl() {
+        return this.ttl;
+    }
 
+    @Override
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
+    @Override
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public String getDiskUsage() {
+        return FileUtils.byteCountToDisplaySize(getDiskUsageInBytes());
+    }
+
+    @Override
+    protected Cache<CacheKey, DiskCacheEntry> getCache() {
+        return cache;
+    }
+
+    @Override
+    protected long getBytesLength(DiskCacheEntry cacheObj) {
+        return cacheObj.getLength();
+    }
+
+    @Override
+    @SuppressWarnings("squid:S1192")
+    protected void addCacheData(Map<String, Object> data, DiskCacheEntry cacheObj) {
+        int hitCount = cacheObj.getHitCount();
+        long size = cacheObj.getLength();
+        data.put(JMX_PN_STATUS, cacheObj.getStatus());
+        data.put(JMX_PN_SIZE, FileUtils.byteCountToDisplaySize(size));
+        data.put(JMX_PN_CONTENTTYPE, cacheObj.getContentType());
+        data.put(JMX_PN_CHARENCODING, cacheObj.getCharEncoding());
+        data.put(JMX_PN_HITS, hitCount);
+        data.put(JMX_PN_TOTALSIZESERVED, FileUtils.byteCountToDisplaySize(hitCount * size));
+    }
+
+    @Override
+    protected String toString(DiskCacheEntry cacheObj) throws CacheMBeanException {
+        InputStream in = cacheObj.openStream();
+        if (null == in) {
+            return "";
+        }
+        try {
+            return IOUtils.toString(in, cacheObj.getCharEncoding());
+        } catch (IOException e) {
+            throw new CacheMBeanException("Error getting the content from the cacheObject", e);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("squid:S1192")
+    protected CompositeType getCacheEntryType() throws OpenDataException {
+       return new CompositeType(JMX_PN_CACHEENTRY, JMX_PN_CACHEENTRY,
+                new String[] { JMX_PN_CACHEKEY, JMX_PN_STATUS, JMX_PN_SIZE, JMX_PN_CONTENTTYPE, JMX_PN_CHARENCODING, JMX_PN_HITS, JMX_PN_TOTALSIZESERVED },
+                new String[] { JMX_PN_CACHEKEY, JMX_PN_STATUS, JMX_PN_SIZE, JMX_PN_CONTENTTYPE, JMX_PN_CHARENCODING, JMX_PN_HITS, JMX_PN_TOTALSIZESERVED },
+                new OpenType[] { SimpleType.STRING, SimpleType.INTEGER, SimpleType.STRING, SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER, SimpleType.STRING });
+
+    }
 }
@@ -0,0 +1,178 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.store.TempSink;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Temp sink keeping small responses in memory and spilling larger ones to a temp file.
+ * The temp file is deleted once the stream returned by {@link #createInputStream()} is closed,
+ * or by {@link #discard()} if the sink is never read.
+ */
+public class DiskTempSinkImpl implements TempSink {
+    private static final Logger log = LoggerFactory.getLogger(DiskTempSinkImpl.class);
+
+    private final File tempDirectory;
+    private final long spillThreshold;
+
+    private SpillingOutputStream outputStream;
+    private File file;
+    private byte[] sink;
+    private boolean read;
+
+    public DiskTempSinkImpl(File tempDirectory, long spillThreshold) {
+        this.tempDirectory = tempDirectory;
+        this.spillThreshold = spillThreshold;
+    }
+
+    @Override
+    public OutputStream createOutputStream() throws HttpCacheDataStreamException {
+        if (null == outputStream) {
+            outputStream = new SpillingOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public InputStream createInputStream() throws HttpCacheDataStreamException {
+        if (null == outputStream) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        try {
+            outputStream.close();
+            if (null != file) {
+                read = true;
+                return new DeleteOnCloseFileInputStream(file);
+            }
+        } catch (IOException e) {
+            throw new HttpCacheDataStreamException("Unable to read temp sink " + file, e);
+        }
+        if (null == sink) {
+            sink = outputStream.memory.toByteArray();
+        }
+        return new ByteArrayInputStream(sink);
+    }
+
+    @Override
+    public void discard() {
+        if (null == outputStream || read) {
+            return;
+        }
+        IOUtils.closeQuietly(outputStream);
+        if (null != file && !file.delete() && file.exists()) {
+            log.warn("Could not delete temp sink {}", file);
+        }
+    }
+
+    @Override
+    public long length() {
+        if (null == outputStream) {
+            return -1;
+        }
+        return outputStream.count;
+    }
+
+    /**
+     * Writes to memory until the spill threshold is reached and continues in a temp file afterwards.
+     */
+    private class SpillingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        private OutputStream target = memory;
+        private long count;
+        private boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (closed) {
+                // like the in-memory sink, content written after the sink has been read is not cached
+                return;
+            }
+            spillIfNeeded(1);
+            target.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                return;
+            }
+            spillIfNeeded(len);
+            target.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!closed) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                target.close();
+            }
+        }
+
+        private void spillIfNeeded(int len) throws IOException {
+            if (target == memory && count + len > spillThreshold) {
+                file = File.createTempFile("sink-", ".tmp", tempDirectory);
+                target = new BufferedOutputStream(new FileOutputStream(file));
+                memory.writeTo(target);
+                memory.reset();
+            }
+        }
+    }
+
+    private static class DeleteOnCloseFileInputStream extends FileInputStream {
+        private final File file;
+
+        DeleteOnCloseFileInputStream(File file) throws IOException {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (!file.delete() && file.exists()) {
+                    log.warn("Could not delete temp sink {}", file);
+                }
+            }
+        }
+    }
+}
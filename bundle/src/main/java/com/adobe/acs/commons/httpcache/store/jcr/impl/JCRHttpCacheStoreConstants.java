@@ -30,6 +30,7 @@ public class JCRHttpCacheStoreConstants
     public static final String PN_ISBUCKETNODE = "isBucketNode";
 
     public static final String PN_EXPIRES_ON = "expiresOn";
+    public static final String PN_CREATED_ON = "createdOn";
     public static final String PN_STATUS = "status";
     public static final String PN_CHAR_ENCODING = "char-encoding";
     public static final String PN_CONTENT_TYPE = "content-type";
@@ -277,10 +277,16 @@ public class JCRHttpCacheStoreImpl extends AbstractJCRCacheMBean<CacheKey, Cache
                 final Node entryNode = createBucketNodeHandler(bucketNode).getEntryIfExists(key);
                 if (entryNode != null) {
 
-                    final CacheContent content = new EntryNodeToCacheContentHandler(entryNode).get();
+                    final EntryNodeToCacheContentHandler handler = new EntryNodeToCacheContentHandler(entryNode);
+                    final CacheContent content = handler.get();
                     if (content != null) {
                         incrementTotalLookupTime(clock.instant().toEpochMilli() - currentTime);
                         incrementHitCount();
+                        if (key.getSoftExpiry() > 0 && handler.getCreatedTime() > 0
+                                && currentTime - handler.getCreatedTime() > key.getSoftExpiry()) {
+                            content.setStale(true);
+                            incrementStaleHitCount();
+                        }
                         return content;
                     }
                 }
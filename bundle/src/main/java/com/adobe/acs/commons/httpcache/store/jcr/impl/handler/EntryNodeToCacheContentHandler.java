@@ -44,6 +44,7 @@ public class EntryNodeToCacheContentHandler
     private String contentType;
     private String charEncoding;
     private int status;
+    private long createdTime;
     private InputStream inputStream;
     private final Map<String, List<String>> headers = new HashMap<String, List<String>>();
     private Binary binary;
@@ -84,6 +85,9 @@ public class EntryNodeToCacheContentHandler
             else if(propName.equals(JCRHttpCacheStoreConstants.PN_WRITEMETHOD)){
                 writeMethod = HttpCacheServletResponseWrapper.ResponseWriteMethod.valueOf(value.getString());
             }
+            else if(propName.equals(JCRHttpCacheStoreConstants.PN_CREATED_ON)){
+                createdTime = value.getLong();
+            }
         }
     }
 
@@ -99,6 +103,13 @@ public class EntryNodeToCacheContentHandler
         );
     }
 
+    /**
+     * @return the creation time of the entry in milliseconds, 0 for entries written without it
+     */
+    public long getCreatedTime(){
+        return createdTime;
+    }
+
     public Binary getBinary(){
         return binary;
     }
@@ -92,6 +92,7 @@ public class EntryNodeWriter
         entryNode.setProperty(JCRHttpCacheStoreConstants.PN_CHAR_ENCODING, cacheContent.getCharEncoding());
         entryNode.setProperty(JCRHttpCacheStoreConstants.PN_CONTENT_TYPE, cacheContent.getContentType());
         entryNode.setProperty(JCRHttpCacheStoreConstants.PN_WRITEMETHOD, cacheContent.getWriteMethod().name());
+        entryNode.setProperty(JCRHttpCacheStoreConstants.PN_CREATED_ON, clock.instant().toEpochMilli());
     }
 
     /**
@@ -0,0 +1,147 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.store.mem.impl;
+
+import com.adobe.acs.commons.httpcache.keys.AbstractCacheKey;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Secondary index of the keys of a cache store by hierarchy resource path, used to find the keys affected by an
+ * invalidation without scanning the whole cache.
+ * <p>
+ * Only keys relying on the path based invalidation of {@link AbstractCacheKey} are indexed by path. All other keys
+ * are kept in a separate set which is always evaluated, as their {@link CacheKey#isInvalidatedBy(CacheKey)} cannot be
+ * predicted.
+ * <p>
+ * Keys are added after they have been put into the cache and removed by the removal listener of the cache. A key is
+ * only dropped from the index if the cache no longer contains it, so that a removal notification racing with a new
+ * put of the same key cannot leave a cached entry unindexed.
+ */
+public class CacheKeyPathIndex {
+
+    private static final ClassValue<Boolean> PATH_INVALIDATED = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (!AbstractCacheKey.class.isAssignableFrom(type)) {
+                return false;
+            }
+            try {
+                return type.getMethod("isInvalidatedBy", CacheKey.class).getDeclaringClass() == AbstractCacheKey.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    private final ConcurrentMap<String, Set<CacheKey>> keysByPath = new ConcurrentHashMap<>();
+    private final ConcurrentMap<CacheKey, Boolean> unindexedKeys = new ConcurrentHashMap<>();
+    private final Predicate<CacheKey> isCached;
+
+    /**
+     * @param isCached tells if the cache still holds an entry for a key
+     */
+    public CacheKeyPathIndex(Predicate<CacheKey> isCached) {
+        this.isCached = isCached;
+    }
+
+    /**
+     * Index a key that has just been put into the cache.
+     */
+    public void add(CacheKey key) {
+        String path = getIndexPath(key);
+        if (path == null) {
+            unindexedKeys.put(key, Boolean.TRUE);
+            return;
+        }
+        keysByPath.compute(path, (p, keys) -> {
+            Set<CacheKey> bucket = keys != null ? keys : ConcurrentHashMap.newKeySet();
+            bucket.add(key);
+            return bucket;
+        });
+    }
+
+    /**
+     * Drop a key from the index unless the cache holds an entry for it again.
+     */
+    public void remove(CacheKey key) {
+        String path = getIndexPath(key);
+        if (path == null) {
+            unindexedKeys.computeIfPresent(key, (k, present) -> isCached.test(k) ? present : null);
+            return;
+        }
+        keysByPath.computeIfPresent(path, (p, keys) -> {
+            if (!isCached.test(key)) {
+                keys.remove(key);
+            }
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * Collect the keys invalidated by the given invalidation key.
+     *
+     * @param invalidationKey the key built for the changed path
+     * @return the keys for which {@link CacheKey#isInvalidatedBy(CacheKey)} holds
+     */
+    public Collection<CacheKey> getInvalidatedKeys(CacheKey invalidationKey) {
+        List<CacheKey> invalidated = new ArrayList<>();
+        String path = invalidationKey.getHierarchyResourcePath();
+        if (path != null) {
+            Set<CacheKey> keys = keysByPath.get(path);
+            if (keys != null) {
+                for (CacheKey key : keys) {
+                    if (key.isInvalidatedBy(invalidationKey)) {
+                        invalidated.add(key);
+                    }
+                }
+            }
+        }
+        for (CacheKey key : unindexedKeys.keySet()) {
+            if (key.isInvalidatedBy(invalidationKey)) {
+                invalidated.add(key);
+            }
+        }
+        return invalidated;
+    }
+
+    /**
+     * @return the number of keys in the index
+     */
+    public long size() {
+        long size = unindexedKeys.size();
+        for (Set<CacheKey> keys : keysByPath.values()) {
+            size += keys.size();
+        }
+        return size;
+    }
+
+    private static String getIndexPath(CacheKey key) {
+        if (!PATH_INVALIDATED.get(key.getClass())) {
+            return null;
+        }
+        return key.getHierarchyResourcePath();
+    }
+}
@@ -17,13 +17,17 @@
  */
 package com.adobe.acs.commons.httpcache.store.mem.impl;
 
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
 import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
 import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import org.apache.commons.io.IOUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -35,6 +39,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Value for cache item in mem store.
@@ -48,9 +54,13 @@ public class MemCachePersistenceObject implements Serializable {
     private String contentType;
     /** Response headers */
     transient Multimap<String, String> headers;
-    /** Byte array to hold the data from the stream */
+    /** Byte array to hold the data from the stream, encoded with the content encoding if set */
     private byte[] bytes;
+    /** Content encoding of the byte array, null if the bytes are not encoded */
+    private String contentEncoding;
     private HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod;
+    /** Creation time in milliseconds */
+    private long createdTime;
 
     AtomicInteger count = new AtomicInteger(0);
 
@@ -78,6 +88,7 @@ public class MemCachePersistenceObject implements Serializable {
         this.charEncoding = charEncoding;
         this.contentType = contentType;
         this.writeMethod = writeMethod;
+        this.createdTime = System.currentTimeMillis();
 
         // Iterate headers and take a copy.
         this.headers = HashMultimap.create();
@@ -100,6 +111,42 @@ public class MemCachePersistenceObject implements Serializable {
         return this;
     }
 
+    /**
+     * Construct a Mem cache value suitable for caching and compress the data with gzip, unless the response is
+     * encoded already or does not get any smaller.
+     *
+     * @param charEncoding
+     * @param contentType
+     * @param headers
+     * @param dataInputStream
+     * @param compress true to store the data gzip compressed
+     * @throws HttpCacheDataStreamException
+     */
+    public MemCachePersistenceObject buildForCaching(int status, String charEncoding, String contentType, Map<String,
+            List<String>> headers, InputStream dataInputStream, HttpCacheServletResponseWrapper.ResponseWriteMethod writeMethod,
+            boolean compress) throws HttpCacheDataStreamException {
+        buildForCaching(status, charEncoding, contentType, headers, dataInputStream, writeMethod);
+        if (!compress || this.bytes.length == 0 || isEncoded(headers)) {
+            return this;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(this.bytes.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(this.bytes);
+        } catch (IOException e) {
+            throw new HttpCacheDataStreamException("Unable to compress the data", e);
+        }
+        if (compressed.size() < this.bytes.length) {
+            this.bytes = compressed.toByteArray();
+            this.contentEncoding = CacheContent.CONTENT_ENCODING_GZIP;
+        }
+        return this;
+    }
+
+    private static boolean isEncoded(Map<String, List<String>> headers) {
+        return headers.keySet().stream().anyMatch("Content-Encoding"::equalsIgnoreCase);
+    }
+
     /**
      * Get response status
      * @return the status code
@@ -145,7 +192,7 @@ public class MemCachePersistenceObject implements Serializable {
     }
 
     /**
-     * Get the data byte array
+     * Get the data byte array, as stored. Encoded with {@link #getContentEncoding()} if set.
      *
      * @return
      */
@@ -155,6 +202,25 @@ public class MemCachePersistenceObject implements Serializable {
                 .orElse(new byte[0]);
     }
 
+    /**
+     * Get the content encoding of the data byte array.
+     *
+     * @return the content encoding, null if the data is not encoded
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Get the data as a decoded stream.
+     *
+     * @return
+     * @throws IOException
+     */
+    public InputStream getInputStream() throws IOException {
+        InputStream in = new ByteArrayInputStream(getBytes());
+        return contentEncoding == null ? in : new GZIPInputStream(in);
+    }
 
     /**
      * Increments the hit for this cache entry.
@@ -173,4 +239,21 @@ public class MemCachePersistenceObject implements Serializable {
     public HttpCacheServletResponseWrapper.ResponseWriteMethod getWriteMethod() {
         return writeMethod;
     }
+
+    /**
+     * @return the time this cache entry was created in milliseconds
+     */
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * Check if this cache entry is past the soft expiry of the given key.
+     *
+     * @param key the key of this entry
+     * @return true if the entry should be served stale
+     */
+    public boolean isStale(CacheKey key) {
+        return key.getSoftExpiry() > 0 && System.currentTimeMillis() - createdTime > key.getSoftExpiry();
+    }
 }
@@ -53,6 +53,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -94,14 +95,29 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     private static final String PROP_MAX_SIZE_IN_MB = "httpcache.cachestore.memcache.maxsize";
     private static final long DEFAULT_MAX_SIZE_IN_MB = 10L; // Defaults to 10MB.
 
+    @Property(label = "Compress entries",
+              description = "Store entries gzip compressed. Compressed entries are delivered as they are to clients "
+                      + "accepting gzip and decompressed for others. Default to false.",
+              boolValue = MemHttpCacheStoreImpl.DEFAULT_COMPRESS)
+    private static final String PROP_COMPRESS = "httpcache.cachestore.memcache.compress";
+    private static final boolean DEFAULT_COMPRESS = false;
+    private boolean compress;
+
     /** Cache - Uses Google Guava's cache */
     private Cache<CacheKey, MemCachePersistenceObject> cache;
 
+    /** Number of entries served past their soft expiry */
+    private final AtomicLong staleHitCount = new AtomicLong();
+
+    /** Keys by hierarchy resource path, for invalidation */
+    private final CacheKeyPathIndex pathIndex = new CacheKeyPathIndex(key -> cache.asMap().containsKey(key));
+
     @Activate
     protected void activate(Map<String, Object> configs) {
         // Read config and populate values.
         ttl = PropertiesUtil.toLong(configs.get(PROP_TTL), DEFAULT_TTL);
         long maxSizeInMb = PropertiesUtil.toLong(configs.get(PROP_MAX_SIZE_IN_MB), DEFAULT_MAX_SIZE_IN_MB);
+        compress = PropertiesUtil.toBoolean(configs.get(PROP_COMPRESS), DEFAULT_COMPRESS);
 
         // Initializing the cache.
         // If cache is present, invalidate all and reinitailize the cache.
@@ -139,13 +155,12 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     }
 
     /**
-     * Removal listener for cache entry items.
+     * Removal listener for cache entry items. Keeps the path index in sync.
      */
-    private static class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
-        private static final Logger log = LoggerFactory.getLogger(MemCacheEntryRemovalListener.class);
-
+    private class MemCacheEntryRemovalListener implements RemovalListener<CacheKey, MemCachePersistenceObject> {
         @Override
         public void onRemoval(RemovalNotification<CacheKey, MemCachePersistenceObject> removalNotification) {
+            pathIndex.remove(removalNotification.getKey());
             log.debug("Mem cache entry for uri {} removed due to {}", removalNotification.getKey(),
                     removalNotification.getCause().name());
         }
@@ -167,7 +182,9 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     @Override
     public void put(CacheKey key, CacheContent content) throws HttpCacheDataStreamException {
         cache.put(key, new MemCachePersistenceObject().buildForCaching(content.getStatus(), content.getCharEncoding(),
-                content.getContentType(), content.getHeaders(), content.getInputDataStream(), content.getWriteMethod()));
+                content.getContentType(), content.getHeaders(), content.getInputDataStream(), content.getWriteMethod(),
+                compress));
+        pathIndex.add(key);
     }
 
     @Override
@@ -188,8 +205,21 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
         // Increment hit count
         value.incrementHitCount();
 
-        return new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(), new
-                ByteArrayInputStream(value.getBytes()), value.getWriteMethod());
+        CacheContent content;
+        if (null == value.getContentEncoding()) {
+            content = new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(), new
+                    ByteArrayInputStream(value.getBytes()), value.getWriteMethod());
+        } else {
+            // Compressed entries are handed out encoded and only decoded for clients not accepting the encoding.
+            content = new CacheContent(value.getStatus(), value.getCharEncoding(), value.getContentType(), value.getHeaders(),
+                    null, value.getWriteMethod());
+            content.setEncodedInputDataStream(value.getContentEncoding(), new ByteArrayInputStream(value.getBytes()));
+        }
+        if (value.isStale(key)) {
+            content.setStale(true);
+            staleHitCount.incrementAndGet();
+        }
+        return content;
     }
 
     @Override
@@ -199,13 +229,7 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
 
     @Override
     public void invalidate(CacheKey invalidationKey) {
-        final ConcurrentMap<CacheKey, MemCachePersistenceObject> cacheAsMap = cache.asMap();
-
-        for (CacheKey key : cacheAsMap.keySet()) {
-            if (key.isInvalidatedBy(invalidationKey)) {
-                cache.invalidate(key);
-            }
-        }
+        cache.invalidateAll(pathIndex.getInvalidatedKeys(invalidationKey));
     }
 
     @Override
@@ -246,6 +270,11 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
         super(MemCacheMBean.class);
     }
 
+    @Override
+    public long getStaleHitCount() {
+        return staleHitCount.get();
+    }
+
     @Override
     public long getTtl() {
         return this.ttl;
@@ -278,9 +307,7 @@ public class MemHttpCacheStoreImpl extends AbstractGuavaCacheMBean<CacheKey, Mem
     @Override
     protected String toString(MemCachePersistenceObject cacheObj) throws CacheMBeanException{
         try {
-            return IOUtils.toString(
-                    new ByteArrayInputStream(cacheObj.getBytes()),
-                    cacheObj.getCharEncoding());
+            return IOUtils.toString(cacheObj.getInputStream(), cacheObj.getCharEncoding());
         } catch (IOException e) {
             throw new CacheMBeanException("Error getting the content from the cacheObject", e);
         }
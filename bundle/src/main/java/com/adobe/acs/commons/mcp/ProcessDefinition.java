@@ -43,4 +43,16 @@ public abstract class ProcessDefinition implements FormProcessor {
     public abstract void buildProcess(ProcessInstance instance, ResourceResolver rr) throws LoginException, RepositoryException;
 
     public abstract void storeReport(ProcessInstance instance, ResourceResolver rr) throws RepositoryException, PersistenceException;
+
+    /**
+     * Processes whose actions are safe to run more than once can commit their
+     * changes in batches, see {@link com.adobe.acs.commons.fam.ActionManager#setAdaptiveSaveInterval(int)}.
+     * Single actions can still be configured on the action manager returned
+     * when defining them.
+     *
+     * @return the largest number of changed items to commit at once, 1 commits every item on its own
+     */
+    public int getMaxSaveInterval() {
+        return 1;
+    }
 }
@@ -17,12 +17,13 @@
  */
 package com.adobe.acs.commons.mcp.form;
 
+import org.apache.commons.lang3.StringUtils;
 import org.osgi.annotation.versioning.ProviderType;
 
 import java.util.Optional;
 
 /**
- * File upload component
+ * File upload component. The mimeTypes option takes a comma separated list of accepted mime types.
  */
 @ProviderType
 public final class FileUploadComponent extends FieldComponent {
@@ -36,7 +37,8 @@ public final class FileUploadComponent extends FieldComponent {
         getProperties().put("autoStart", false);
 
         if (hasOption(OPTION_MIME_TYPES)) {
-            getOption(OPTION_MIME_TYPES).ifPresent(s -> getProperties().put(OPTION_MIME_TYPES, s));
+            getOption(OPTION_MIME_TYPES).ifPresent(s -> getProperties().put(OPTION_MIME_TYPES,
+                    StringUtils.stripAll(StringUtils.split(s, ','))));
         }
     }
 }
@@ -32,6 +32,8 @@ import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFColor;
 import org.apache.poi.xssf.usermodel.XSSFFont;
@@ -47,16 +49,22 @@ import org.slf4j.LoggerFactory;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
- * Export a generic report as an excel spreadsheet
+ * Export a generic report as an excel spreadsheet. The rows are streamed into
+ * the workbook, which only keeps a window of rows in memory and flushes the
+ * others to a temporary file.
  */
 @SlingServlet(resourceTypes = { GenericReport.GENERIC_REPORT_RESOURCE_TYPE,
         GenericBlobReport.BLOB_REPORT_RESOURCE_TYPE }, extensions = { "xlsx", "xls" })
 public class GenericReportExcelServlet extends SlingSafeMethodsServlet {
     private static final org.slf4j.Logger LOG = LoggerFactory.getLogger(GenericReportExcelServlet.class);
 
+    private static final int ROW_ACCESS_WINDOW_SIZE = 100;
+
     @Override
     protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response) throws ServletException, IOException {
         AbstractReport report = getReport(request.getResource());
@@ -64,7 +72,7 @@ public class GenericReportExcelServlet extends SlingSafeMethodsServlet {
             String title = report.getName();
             String fileName = JcrUtil.createValidName(title) + ".xlsx";
 
-            Workbook workbook = createSpreadsheet(report);
+            SXSSFWorkbook workbook = createSpreadsheet(report);
             response.setContentType("application/vnd.ms-excel");
             response.setHeader("Expires", "0");
             response.setHeader("Cache-Control", "must-revalidate, post-check=0, pre-check=0");
@@ -76,6 +84,8 @@ public class GenericReportExcelServlet extends SlingSafeMethodsServlet {
             } catch (Exception ex) {
                 LOG.error("Error generating excel export for "+request.getResource().getPath(), ex);
                 throw ex;
+            } finally {
+                workbook.dispose();
             }
         } else {
             String msg = String.format("Unable to process report stored at %s", request.getResource().getPath());
@@ -84,14 +94,17 @@ public class GenericReportExcelServlet extends SlingSafeMethodsServlet {
     }
 
     @SuppressWarnings("squid:S3776")
-    private Workbook createSpreadsheet(AbstractReport report) {
-        Workbook wb = new XSSFWorkbook();
+    private SXSSFWorkbook createSpreadsheet(AbstractReport report) {
+        SXSSFWorkbook wb = new SXSSFWorkbook(new XSSFWorkbook(), ROW_ACCESS_WINDOW_SIZE);
+        wb.setCompressTempFiles(true);
 
         String name = report.getName();
         for (char ch : new char[]{'\\','/','*','[',']',':','?'}) {
             name = StringUtils.remove(name, ch);
         }
-        Sheet sheet = wb.createSheet(name);
+        SXSSFSheet sheet = wb.createSheet(name);
+        // column widths are measured while the rows are flushed
+        sheet.trackAllColumnsForAutoSizing();
         sheet.createFreezePane(0, 1, 0, 1);
 
         Row headerRow = sheet.createRow(0);
@@ -102,38 +115,44 @@ public class GenericReportExcelServlet extends SlingSafeMethodsServlet {
             headerCell.setCellStyle(headerStyle);
         }
 
-        List<ValueMap> rows = report.getRows();
-        //make rows, don't forget the header row
-        for (int r = 0; r < rows.size(); r++) {
-            Row row = sheet.createRow(r+1);
-
-            //make columns
-            for (int c = 0; c < report.getColumns().size(); c++) {
-                String col = report.getColumns().get(c);
-                Cell cell = row.createCell(c);
-
-                if (rows.get(r).containsKey(col)) {
-                    Object val = rows.get(r).get(col);
-                    if (val instanceof Number) {
-                        Number n = (Number) val;
-                        cell.setCellValue(n.doubleValue());
-                    } else {
-                        String sval = String.valueOf(val);
-                        if (sval.startsWith("=")) {
-                            cell.setCellFormula(sval.substring(1));
-                        } else {
-                            cell.setCellValue(sval);
-                        }
-                    }
-                }
+        List<String> columns = report.getColumns();
+        int rowCount = 0;
+        try (Stream<ValueMap> rows = report.streamRows()) {
+            //make rows, don't forget the header row
+            for (Iterator<ValueMap> it = rows.iterator(); it.hasNext(); ) {
+                rowCount++;
+                createRow(sheet.createRow(rowCount), columns, it.next());
             }
         }
         int lastColumnIndex = report.getColumnNames().size();
         autosize(sheet, lastColumnIndex);
-        sheet.setAutoFilter(new CellRangeAddress(0, 1 + rows.size(),0, lastColumnIndex - 1));
+        sheet.setAutoFilter(new CellRangeAddress(0, 1 + rowCount, 0, lastColumnIndex - 1));
         return wb;
     }
 
+    private void createRow(Row row, List<String> columns, ValueMap values) {
+        //make columns
+        for (int c = 0; c < columns.size(); c++) {
+            String col = columns.get(c);
+            Cell cell = row.createCell(c);
+
+            if (values.containsKey(col)) {
+                Object val = values.get(col);
+                if (val instanceof Number) {
+                    Number n = (Number) val;
+                    cell.setCellValue(n.doubleValue());
+                } else {
+                    String sval = String.valueOf(val);
+                    if (sval.startsWith("=")) {
+                        cell.setCellFormula(sval.substring(1));
+                    } else {
+                        cell.setCellValue(sval);
+                    }
+                }
+            }
+        }
+    }
+
     CellStyle createHeaderStyle(Workbook wb){
         XSSFCellStyle xstyle = (XSSFCellStyle)wb.createCellStyle();
         XSSFColor header = new XSSFColor(new Color(79, 129, 189), new DefaultIndexedColorMap());
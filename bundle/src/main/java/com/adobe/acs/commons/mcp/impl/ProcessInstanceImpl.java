@@ -103,6 +103,8 @@ public class ProcessInstanceImpl implements ProcessInstance, Serializable {
                 Math.max(infoBean.getResult().getTasksCompleted(), countCompleted)
         );
         infoBean.setReportedErrors(actions.stream().flatMap(a -> a.manager.getFailureList().stream()).map(ArchivedProcessFailure::adapt).collect(Collectors.toList()));
+        infoBean.getResult().setCommitCount(actions.stream().mapToLong(a -> a.manager.getCommitCount()).sum());
+        infoBean.getResult().setCommitTime(actions.stream().mapToLong(a -> a.manager.getCommitTime()).sum());
 
         return progress;
     }
@@ -183,6 +185,9 @@ public class ProcessInstanceImpl implements ProcessInstance, Serializable {
         activityDefinition.builder = builder;
         activityDefinition.name = name;
         activityDefinition.manager = getActionManagerFactory().createTaskManager(getName() + ": " + name, rr, 1);
+        if (definition.getMaxSaveInterval() > 1) {
+            activityDefinition.manager.setAdaptiveSaveInterval(definition.getMaxSaveInterval());
+        }
         activityDefinition.critical = isCritical;
         actions.add(activityDefinition);
         return activityDefinition.manager;
@@ -359,7 +364,9 @@ public class ProcessInstanceImpl implements ProcessInstance, Serializable {
                         actions.stream().map(a -> a.manager.getSuccessCount()).collect(Collectors.summingInt(Integer::intValue)),
                         actions.stream().map(a -> a.manager.getErrorCount()).collect(Collectors.summingInt(Integer::intValue)),
                         getRuntime(),
-                        updateProgress()
+                        updateProgress(),
+                        actions.stream().mapToLong(a -> a.manager.getCommitCount()).sum(),
+                        actions.stream().mapToLong(a -> a.manager.getCommitTime()).sum()
                     }
             );
         } catch (OpenDataException ex) {
@@ -374,13 +381,13 @@ public class ProcessInstanceImpl implements ProcessInstance, Serializable {
 
     static {
         try {
-            statsItemNames = new String[]{"_id", "_taskName", "started", "completed", "successful", "errors", "runtime", "pct_complete"};
+            statsItemNames = new String[]{"_id", "_taskName", "started", "completed", "successful", "errors", "runtime", "pct_complete", "commits", "commitTime"};
             statsCompositeType = new CompositeType(
                     "Statics Row",
                     "Single row of statistics",
                     statsItemNames,
-                    new String[]{"ID", "Name", "Started", "Completed", "Successful", "Errors", "Runtime", "Percent complete"},
-                    new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER, SimpleType.LONG, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.LONG, SimpleType.DOUBLE});
+                    new String[]{"ID", "Name", "Started", "Completed", "Successful", "Errors", "Runtime", "Percent complete", "Commits", "Commit time"},
+                    new OpenType[]{SimpleType.STRING, SimpleType.STRING, SimpleType.INTEGER, SimpleType.LONG, SimpleType.INTEGER, SimpleType.INTEGER, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.LONG, SimpleType.LONG});
             statsTabularType = new TabularType("Statistics", "Collected statistics", statsCompositeType, new String[]{"_id"});
         } catch (OpenDataException ex) {
             LOG.error("Unable to build MBean composite types", ex);
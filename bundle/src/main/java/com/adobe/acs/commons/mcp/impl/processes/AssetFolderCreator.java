@@ -65,6 +65,8 @@ public class AssetFolderCreator extends ProcessDefinition implements Serializabl
 
     public static final String NAME = "Asset Folder Creator";
 
+    private static final int MAX_SAVE_INTERVAL = 100;
+
     protected transient Map<String, ResourceDefinitionBuilder> resourceDefinitionBuilders;
 
     public enum AssetFolderBuilder {
@@ -222,6 +224,7 @@ public class AssetFolderCreator extends ProcessDefinition implements Serializabl
     public void createAssetFolders(ActionManager manager) {
         assetFolderDefinitions.values().stream().forEach(assetFolderDefinition -> {
             try {
+                manager.setCurrentItem(assetFolderDefinition.getPath());
                 manager.withResolver(rr -> {
                     createAssetFolder(assetFolderDefinition, rr);
                 });
@@ -342,6 +345,11 @@ public class AssetFolderCreator extends ProcessDefinition implements Serializabl
         reportRows.add(row);
     }
 
+    @Override
+    public int getMaxSaveInterval() {
+        return MAX_SAVE_INTERVAL;
+    }
+
     @Override
     public void storeReport(ProcessInstance instance, ResourceResolver rr) throws RepositoryException, PersistenceException {
         report.setRows(reportRows, ReportColumns.class);
@@ -20,6 +20,7 @@ package com.adobe.acs.commons.mcp.impl.processes;
 import com.adobe.acs.commons.data.CompositeVariant;
 import com.adobe.acs.commons.data.Spreadsheet;
 import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.actions.Actions;
 import com.adobe.acs.commons.mcp.ProcessDefinition;
 import com.adobe.acs.commons.mcp.ProcessInstance;
 import com.adobe.acs.commons.mcp.form.CheckboxComponent;
@@ -31,11 +32,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
@@ -68,6 +72,7 @@ public class DataImporter extends ProcessDefinition {
     private static final Logger LOG = LoggerFactory.getLogger(DataImporter.class);
     private static final String PATH = "path";
     private static final String SLASH = "/";
+    private static final int MAX_SAVE_INTERVAL = 100;
 
     public enum MergeMode {
         CREATE_NODES_AND_OVERWRITE_PROPERTIES(true, true, true, false),
@@ -94,9 +99,9 @@ public class DataImporter extends ProcessDefinition {
 
     @FormField(
             name = "Excel File",
-            description = "Provide the .xlsx file that defines the nodes being imported",
+            description = "Provide the .xlsx or UTF-8 encoded .csv file that defines the nodes being imported",
             component = FileUploadComponent.class,
-            options = {"mimeTypes=application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "required"}
+            options = {"mimeTypes=application/vnd.openxmlformats-officedocument.spreadsheetml.sheet,text/csv", "required"}
     )
     private transient RequestParameter importFile;
 
@@ -161,7 +166,8 @@ public class DataImporter extends ProcessDefinition {
 
     @FormField(
             name = "Import in sorted order",
-            description = "If checked, nodes will be imported in the order determined by their paths",
+            description = "If checked, nodes will be imported in the order determined by their paths. "
+                    + "Sorting reads all rows into memory before the import starts, uncheck it for very large files",
             component = CheckboxComponent.class,
             options = "checked"
     )
@@ -183,6 +189,8 @@ public class DataImporter extends ProcessDefinition {
     }
 
     Spreadsheet data;
+    /** Rows streamed from the import file, read as they are imported */
+    private transient Stream<Map<String, CompositeVariant>> dataRows;
     private List<EnumMap<ReportColumns, Object>> reportRows;
 
     protected synchronized EnumMap<ReportColumns, Object> trackActivity(String item, String action, Integer count) {
@@ -204,6 +212,19 @@ public class DataImporter extends ProcessDefinition {
         }
     }
 
+    /**
+     * Report the outcome for a row once its changes have been committed, so rows
+     * are reported once even if the action manager runs them again.
+     */
+    private void report(EnumMap<ReportColumns, Object> counter, String path, String action) {
+        Actions.afterCommit(() -> {
+            incrementCount(counter, 1);
+            if (detailedReport) {
+                trackActivity(path, action, null);
+            }
+        });
+    }
+
     @Override
     public void init() throws RepositoryException {
         // Nothing to do here
@@ -213,13 +234,18 @@ public class DataImporter extends ProcessDefinition {
     public void buildProcess(ProcessInstance instance, ResourceResolver rr) throws LoginException, RepositoryException {
         if (data == null && importFile != null) {
             try {
-                data = new Spreadsheet(enableHeaderNameConversion, importFile, PATH).buildSpreadsheet();
+                // the header is parsed right away, the data rows as they are imported
+                data = new Spreadsheet(enableHeaderNameConversion, importFile, PATH);
+                dataRows = data.streamDataRows();
                 if (presortData) {
-                    data.sortRows(PATH);
+                    // same order as Spreadsheet.sortRows; sorting has to hold all rows in memory, only the
+                    // unsorted import streams them
+                    LOG.info("Sorting the rows of {} in memory before importing them", data.getFileName());
+                    dataRows = dataRows.sorted(Comparator.comparing(DataImporter::getPath).reversed());
                 }
-                instance.getInfo().setDescription("Import " + data.getFileName() + " (" + data.getRowCount() + " rows)");
+                instance.getInfo().setDescription("Import " + data.getFileName());
             } catch (IOException ex) {
-                instance.getInfo().setDescription("Import " + data.getFileName() + " (failed)");
+                instance.getInfo().setDescription("Import " + importFile.getFileName() + " (failed)");
                 throw new RepositoryException("Unable to parse input file", ex);
             }
         }
@@ -228,28 +254,42 @@ public class DataImporter extends ProcessDefinition {
 
     private transient GenericBlobReport report = new GenericBlobReport();
 
+    @Override
+    public int getMaxSaveInterval() {
+        return MAX_SAVE_INTERVAL;
+    }
+
     @Override
     public synchronized void storeReport(ProcessInstance instance, ResourceResolver rr) throws RepositoryException, PersistenceException {
         report.setRows(reportRows, ReportColumns.class);
         report.persist(rr, instance.getPath() + "/jcr:content/report");
     }
 
+    private static String getPath(Map<String, CompositeVariant> row) {
+        return row.get(PATH) != null ? row.get(PATH).toString() : "";
+    }
+
     private void importData(ActionManager manager) {
-        data.getDataRowsAsCompositeVariants().forEach((row) -> {
-            manager.deferredWithResolver(rr -> {
-                String path = row.get(PATH).toString();
-                Resource r = rr.getResource(path);
-                if (r == null) {
-                    handleMissingNode(path, rr, row);
-                } else if (mergeMode.update) {
-                    updateMetadata(path, rr, row);
-                } else {
-                    incrementCount(skippedNodes, 1);
-                    if (detailedReport) {
-                        trackActivity(path, "Skipped", null);
-                    }
-                }
-            });
+        Stream<Map<String, CompositeVariant>> rows = dataRows != null ? dataRows
+                : data.getDataRowsAsCompositeVariants().stream();
+        dataRows = null;
+        try (Stream<Map<String, CompositeVariant>> closeable = rows) {
+            closeable.forEach(row -> importRow(manager, row));
+        }
+    }
+
+    private void importRow(ActionManager manager, Map<String, CompositeVariant> row) {
+        manager.deferredWithResolver(rr -> {
+            String path = row.get(PATH).toString();
+            Actions.setCurrentItem(path);
+            Resource r = rr.getResource(path);
+            if (r == null) {
+                handleMissingNode(path, rr, row);
+            } else if (mergeMode.update) {
+                updateMetadata(path, rr, row);
+            } else {
+                report(skippedNodes, path, "Skipped");
+            }
         });
     }
 
@@ -258,15 +298,9 @@ public class DataImporter extends ProcessDefinition {
             if (!dryRunMode) {
                 createMissingNode(path, rr, row);
             }
-            incrementCount(createdNodes, 1);
-            if (detailedReport) {
-                trackActivity(path, "Created", null);
-            }
+            report(createdNodes, path, "Created");
         } else {
-            incrementCount(skippedNodes, 1);
-            if (detailedReport) {
-                trackActivity(path, "Skipped missing", null);
-            }
+            report(skippedNodes, path, "Skipped missing");
         }
     }
 
@@ -329,7 +363,7 @@ public class DataImporter extends ProcessDefinition {
 
         Resource resource = rr.getResource(path);
 
-        populateMetadataFromRow(resource, createPropertyMap(nodeInfo));
+        boolean changed = populateMetadataFromRow(resource, createPropertyMap(nodeInfo));
 
         if (includeJcrContent) {
             Map<String, Object> jcrContentProps = createJcrContentPropertyMap(nodeInfo);
@@ -339,26 +373,23 @@ public class DataImporter extends ProcessDefinition {
                     jcrContentProps.put(JcrConstants.JCR_PRIMARYTYPE, defaultJcrContentType);
                 }
                 rr.create(resource, JcrConstants.JCR_CONTENT, jcrContentProps);
+                changed = true;
             } else {
-                populateMetadataFromRow(jcrContent, jcrContentProps);
+                changed |= populateMetadataFromRow(jcrContent, jcrContentProps);
             }
         }
 
-        if (rr.hasChanges()) {
-            incrementCount(updatedNodes, 1);
-            if (detailedReport) {
-                trackActivity(path, "Updated Properties", null);
+        // the resolver can still hold changes of other rows in the same batch,
+        // so only the values of this row tell whether it changed anything
+        if (changed) {
+            report(updatedNodes, path, "Updated Properties");
+            // changes are committed in batches by the action manager
+            if (dryRunMode) {
+                rr.revert();
             }
-            if (!dryRunMode) {
-                rr.commit();
-            }
-            rr.revert();
             rr.refresh();
         } else {
-            if (detailedReport) {
-                trackActivity(path, "No Change", null);
-            }
-            incrementCount(noChangeNodes, 1);
+            report(noChangeNodes, path, "No Change");
         }
 
         LOG.debug("End of updateMetadata");
@@ -382,16 +413,20 @@ public class DataImporter extends ProcessDefinition {
      *
      * @param resource Resource object of which the properties are to be modified.
      * @param nodeInfo Map of properties from the row.
+     * @return true if a property value was changed or a relative property resource was created
      */
-    private void populateMetadataFromRow(Resource resource, Map<String, Object> nodeInfo) throws RepositoryException {
+    private boolean populateMetadataFromRow(Resource resource, Map<String, Object> nodeInfo) throws RepositoryException {
         LOG.debug("Start of populateMetadataFromRow");
+        boolean changed = false;
 
         for (Map.Entry entry : nodeInfo.entrySet()) {
 
             final String key = (String) entry.getKey();
             final Object value = entry.getValue();
 
+            final boolean exists = resource.getResourceResolver().getResource(getRelativePropertyResourcePath(resource, key)) != null;
             final Resource resourceToUpdate = getOrCreateRelativePropertyResource(resource, key);
+            changed |= !exists && resourceToUpdate != null;
             final String propertyToUpdate = getRelativePropertyName(key);
 
             if (!mergeMode.create && resourceToUpdate == null) {
@@ -406,15 +441,18 @@ public class DataImporter extends ProcessDefinition {
             final Node node = resourceToUpdate.adaptTo(Node.class);
 
             if (propertyToUpdate != null && (mergeMode.overwriteProps || !resourceProperties.containsKey(propertyToUpdate))) {
+                final Object before = resourceProperties.get(propertyToUpdate);
                 if (node.hasProperty(propertyToUpdate) && node.getProperty(propertyToUpdate).isMultiple() && mergeMode.appendArrays) {
                     appendArray(resourceProperties, entry);
                 } else if (value != null) {
                     resourceProperties.put(propertyToUpdate, value);
                 }
+                changed |= !Objects.deepEquals(before, resourceProperties.get(propertyToUpdate));
             }
         }
 
         LOG.debug("End of populateMetadataFromRow");
+        return changed;
     }
 
     /**
@@ -435,8 +473,7 @@ public class DataImporter extends ProcessDefinition {
      * @return the resource the relative property resides son.
      */
     private Resource getOrCreateRelativePropertyResource(Resource resource, String relativePropertyPath) throws RepositoryException {
-        String relPropertyPathPrefix = StringUtils.contains(relativePropertyPath, "/") ? StringUtils.substringBeforeLast(relativePropertyPath, "/") : null;
-        String canonicalPath = com.day.text.Text.makeCanonicalPath(resource.getPath() + (relPropertyPathPrefix != null ? ("/" + relPropertyPathPrefix) : StringUtils.EMPTY));
+        String canonicalPath = getRelativePropertyResourcePath(resource, relativePropertyPath);
 
         if (mergeMode.create && resource.getResourceResolver().getResource(canonicalPath) == null) {
             // Create path relative property path
@@ -450,6 +487,18 @@ public class DataImporter extends ProcessDefinition {
         return resource.getResourceResolver().getResource(canonicalPath);
     }
 
+    /**
+     * Derives the path of the resource the relative property resides on.
+     *
+     * @param resource the resource the relativePropertyPath is relative to
+     * @param relativePropertyPath the relativePropertyPath
+     * @return the canonical path of the resource the relative property resides on
+     */
+    private String getRelativePropertyResourcePath(Resource resource, String relativePropertyPath) {
+        String relPropertyPathPrefix = StringUtils.contains(relativePropertyPath, "/") ? StringUtils.substringBeforeLast(relativePropertyPath, "/") : null;
+        return com.day.text.Text.makeCanonicalPath(resource.getPath() + (relPropertyPathPrefix != null ? ("/" + relPropertyPathPrefix) : StringUtils.EMPTY));
+    }
+
 
     /**
      * Create map of properties for node.
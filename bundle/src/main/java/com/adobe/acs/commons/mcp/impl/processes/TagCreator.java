@@ -18,6 +18,7 @@
 package com.adobe.acs.commons.mcp.impl.processes;
 
 import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.actions.Actions;
 import com.adobe.acs.commons.mcp.ProcessDefinition;
 import com.adobe.acs.commons.mcp.ProcessInstance;
 import com.adobe.acs.commons.mcp.form.FileUploadComponent;
@@ -63,6 +64,8 @@ public class TagCreator extends ProcessDefinition implements Serializable {
 
     public static final String NAME = "Tag Creator";
 
+    private static final int MAX_SAVE_INTERVAL = 100;
+
     private final transient Map<String, ResourceDefinitionBuilder> resourceDefinitionBuilders;
 
     public enum TagBuilder {
@@ -190,6 +193,7 @@ public class TagCreator extends ProcessDefinition implements Serializable {
     public void importTags(ActionManager manager) {
         tagDefinitions.values().stream().forEach(tagDefinition -> {
             try {
+                manager.setCurrentItem(tagDefinition.getId());
                 manager.withResolver(rr -> {
                     final TagManager tagManager = rr.adaptTo(TagManager.class);
                     ReportRowSatus status;
@@ -218,13 +222,19 @@ public class TagCreator extends ProcessDefinition implements Serializable {
                     false);
             if (tag != null) {
                 setTitles(tag, tagDefinition);
-                record(status, tag.getTagID(), tag.getPath(), tag.getTitle());
+                final ReportRowSatus createdStatus = status;
+                final String tagId = tag.getTagID();
+                final String tagPath = tag.getPath();
+                final String tagTitle = tag.getTitle();
+                // reported once committed, as the action can be run again if its batch fails
+                Actions.afterCommit(() -> record(createdStatus, tagId, tagPath, tagTitle));
                 log.debug("Created tag [ {} -> {} ]", tagDefinition.getId(), tagDefinition.getTitle());
             } else {
                 log.error("Tag [ {} ] is null", tagDefinition.getId());
             }
         } catch (Exception e) {
-            record(ReportRowSatus.FAILED_TO_CREATE, tagDefinition.getId(), tagDefinition.getPath(), tagDefinition.getTitle());
+            Actions.afterCommit(() -> record(ReportRowSatus.FAILED_TO_CREATE,
+                    tagDefinition.getId(), tagDefinition.getPath(), tagDefinition.getTitle()));
             log.error("Unable to create tag [ {} -> {} ]", tagDefinition.getId(), tagDefinition.getTitle());
         }
     }
@@ -310,6 +320,11 @@ public class TagCreator extends ProcessDefinition implements Serializable {
         reportRows.add(row);
     }
 
+    @Override
+    public int getMaxSaveInterval() {
+        return MAX_SAVE_INTERVAL;
+    }
+
     @Override
     public void storeReport(ProcessInstance instance, ResourceResolver rr) throws RepositoryException, PersistenceException {
         report.setRows(reportRows, ReportColumns.class);
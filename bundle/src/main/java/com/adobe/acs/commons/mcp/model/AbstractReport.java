@@ -135,6 +135,16 @@ public abstract class AbstractReport {
         return rowsData;
     }
 
+    /**
+     * Stream the rows, which allows implementations to read them one at a time
+     * instead of loading all of them. The stream should be closed after use.
+     *
+     * @return the rows
+     */
+    public Stream<ValueMap> streamRows() {
+        return getRows().stream();
+    }
+
     public String getName() {
         return nameData;
     }
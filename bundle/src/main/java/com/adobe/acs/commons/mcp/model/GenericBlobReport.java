@@ -19,25 +19,23 @@ package com.adobe.acs.commons.mcp.model;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.PostConstruct;
-import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.jackrabbit.commons.JcrUtils;
-import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
-import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.injectorspecific.ChildResource;
@@ -46,16 +44,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.adobe.acs.commons.mcp.ProcessInstance;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.adobe.acs.commons.mcp.model.impl.BlobReportWriter;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.collect.AbstractIterator;
 
 /**
  * Stores the reports into a single blob in the repository. This is more
  * efficient compared to the GenericReport, and should be used furtheron.
- * 
+ * The rows are only read from the blob when they are requested, use
+ * {@link #streamRows()} to read them one at a time.
  */
 
 @Model(adaptables = Resource.class)
@@ -72,6 +72,8 @@ public class GenericBlobReport extends AbstractReport {
 
     private static final Logger LOG = LoggerFactory.getLogger(GenericBlobReport.class);
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public static final String BLOB_REPORT_RESOURCE_TYPE = ProcessInstance.RESOURCE_TYPE + "/process-blob-report";
 
     public String getResourceType() {
@@ -80,67 +82,98 @@ public class GenericBlobReport extends AbstractReport {
 
     @PostConstruct
     public void init() {
-        // read all data from the blob and store it in the properties of the
-        // AbstractReport
+        // the rows stay in the blob until they are requested
         columnsData = columns;
         nameData = name;
-        ObjectMapper mapper = new ObjectMapper();
-        try (InputStream is = blobreport.adaptTo(InputStream.class)) {
-            JsonNode array = mapper.readTree(is);
-            if (!array.isArray()) {
+    }
+
+    @Override
+    public List<ValueMap> getRows() {
+        if (rowsData == null && blobreport != null) {
+            List<ValueMap> rows = new ArrayList<>();
+            try (Stream<ValueMap> stream = readRows()) {
+                stream.forEach(rows::add);
+            }
+            rowsData = rows;
+        }
+        return super.getRows();
+    }
+
+    @Override
+    public Stream<ValueMap> streamRows() {
+        if (rowsData == null && blobreport != null) {
+            return readRows();
+        }
+        return super.streamRows();
+    }
+
+    private Stream<ValueMap> readRows() {
+        InputStream is = blobreport.adaptTo(InputStream.class);
+        if (is == null) {
+            LOG.error("blobreport is not a file, not reading any data from {}", blobreport.getPath());
+            return Stream.empty();
+        }
+        JsonParser parser;
+        try {
+            parser = MAPPER.getFactory().createParser(is);
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
                 LOG.error("blobreport does not contain a JSON array, not reading any data from {}",
                         blobreport.getPath());
-            } else {
-                for (JsonNode ar : array) {
-                    Map<String, Object> map = new HashMap<>();
-                    for (String c : columns) {
-                        if (ar.has(c) && ar.get(c) != null) {
-                            map.put(c, ar.get(c).asText());
-                        }
-                    }
-                    getRows().add(new ValueMapDecorator(map));
-                }
+                parser.close();
+                return Stream.empty();
             }
         } catch (IOException e) {
             LOG.error("Problems during de-serialization of report (path={})", blobreport.getPath(), e);
+            IOUtils.closeQuietly(is);
+            return Stream.empty();
         }
+        RowIterator rows = new RowIterator(parser);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> IOUtils.closeQuietly(parser));
     }
 
     @Override
     public void persist(ResourceResolver rr, String path) throws PersistenceException, RepositoryException {
         // persist all data to the blob
-        ModifiableValueMap jcrContent = ResourceUtil.getOrCreateResource(rr, path, getResourceType(), null, false)
-                .adaptTo(ModifiableValueMap.class);
-        jcrContent.put("jcr:primaryType", "nt:unstructured");
-        jcrContent.put("columns", getColumns().toArray(new String[0]));
-        jcrContent.put("name", getName());
-        
-        ObjectMapper mapper = new ObjectMapper();
-        ArrayNode jsonRows = new ArrayNode(JsonNodeFactory.instance);
-        
-        for (Map<String, Object> row : rowsData) {
-            // First strip out null values
-            Map<String, Object> properties = row.entrySet().stream().filter(e -> e.getValue() != null)
-                    .collect(Collectors.toMap(Entry::getKey, Entry::getValue));
-            JsonNode elem = mapper.convertValue(properties, JsonNode.class);
-            jsonRows.add(elem);
+        try (BlobReportWriter writer = new BlobReportWriter(getName(), getColumns());
+                Stream<ValueMap> rows = streamRows()) {
+            for (ValueMap row : (Iterable<ValueMap>) rows::iterator) {
+                writer.appendRow(row);
+            }
+            writer.persist(rr, path);
+        } catch (IOException ioe) {
+            throw new PersistenceException("Cannot write report to " + path, ioe);
         }
-        Node parent = Optional.ofNullable(rr.getResource(path)).map(resource -> resource.adaptTo(Node.class)).orElse(null);
-        if (parent != null) {
-            try {
-                String jsonString = mapper.writeValueAsString(jsonRows);
-                try (InputStream is = IOUtils.toInputStream(jsonString, Charset.defaultCharset())) {
+    }
 
-                    JcrUtils.putFile(parent, "blobreport", "text/json", is);
-                    rr.commit();
+    /**
+     * Parses one row after the other from the JSON array.
+     */
+    private class RowIterator extends AbstractIterator<ValueMap> {
+        private final JsonParser parser;
+
+        RowIterator(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        protected ValueMap computeNext() {
+            try {
+                if (parser.nextToken() != JsonToken.START_OBJECT) {
+                    return endOfData();
+                }
+                JsonNode ar = MAPPER.readTree(parser);
+                Map<String, Object> map = new HashMap<>();
+                for (String c : getColumns()) {
+                    if (ar.has(c) && ar.get(c) != null) {
+                        map.put(c, ar.get(c).asText());
+                    }
                 }
-            } catch (JsonProcessingException ex) {
-                throw new PersistenceException("Cannot convert Json to String", ex);
-            } catch (IOException ioe) {
-                throw new PersistenceException("Cannot close inputstream for report", ioe);
+                return new ValueMapDecorator(map);
+            } catch (IOException e) {
+                LOG.error("Problems during de-serialization of report (path={})", blobreport.getPath(), e);
+                return endOfData();
             }
-        } else {
-            LOG.error("{} is not a JCR path, cannot persist report", path);
         }
     }
 }
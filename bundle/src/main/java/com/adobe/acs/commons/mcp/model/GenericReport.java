@@ -46,13 +46,17 @@ import com.day.cq.commons.jcr.JcrUtil;
 /**
  * Describes a very simple table, which is up to the process definition to
  * outline. This report type is not efficient with large number of resulting
- * rows, because it creates a JCR node for each row.
+ * rows, because it creates a JCR node for each row. The rows are committed in
+ * batches rather than one by one, which bounds both the number of commits and
+ * the size of the transient space.
  */
 @ProviderType
 @Model(adaptables = Resource.class, defaultInjectionStrategy = DefaultInjectionStrategy.OPTIONAL)
 public class GenericReport extends AbstractReport {
     public static final String GENERIC_REPORT_RESOURCE_TYPE = ProcessInstance.RESOURCE_TYPE + "/process-generic-report";
 
+    private static final int COMMIT_BATCH_SIZE = 1000;
+
     @ValueMapValue
     private List<String> columns;
 
@@ -85,7 +89,10 @@ public class GenericReport extends AbstractReport {
             // First strip out null values
             Map<String, Object> properties = row.entrySet().stream().filter(e -> e.getValue() != null).collect(Collectors.toMap(Entry::getKey, Entry::getValue));
             rowCounter++;
-            ResourceUtil.getOrCreateResource(rr, path + "/rows/row-" + rowCounter, properties, null, true);
+            ResourceUtil.getOrCreateResource(rr, path + "/rows/row-" + rowCounter, properties, null, false);
+            if (rowCounter % COMMIT_BATCH_SIZE == 0) {
+                rr.commit();
+            }
         }
         rr.commit();
         rr.refresh();
@@ -37,6 +37,10 @@ public class Result implements Serializable {
     private Long runtime;
     @Inject
     private transient Resource report;
+    @Inject
+    private long commitCount;
+    @Inject
+    private Long commitTime;
 
     /**
      * @return the runtime
@@ -79,4 +83,32 @@ public class Result implements Serializable {
     public void setTasksCompleted(int tasksCompleted) {
         this.tasksCompleted = tasksCompleted;
     }
+
+    /**
+     * @return the number of commits
+     */
+    public long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * @param commitCount the number of commits to set
+     */
+    public void setCommitCount(long commitCount) {
+        this.commitCount = commitCount;
+    }
+
+    /**
+     * @return the time spent committing in milliseconds
+     */
+    public Long getCommitTime() {
+        return commitTime;
+    }
+
+    /**
+     * @param commitTime the time spent committing in milliseconds to set
+     */
+    public void setCommitTime(Long commitTime) {
+        this.commitTime = commitTime;
+    }
 }
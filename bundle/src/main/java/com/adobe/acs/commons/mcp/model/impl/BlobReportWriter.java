@@ -0,0 +1,176 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.mcp.model.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.apache.jackrabbit.commons.JcrUtils;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adobe.acs.commons.mcp.model.GenericBlobReport;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Appends the rows of a blob report one at a time to a temporary file, which is
+ * then streamed into the repository, so that {@link GenericBlobReport} does not
+ * serialize all rows on the heap.
+ */
+public final class BlobReportWriter implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlobReportWriter.class);
+
+    // rows are flushed by the buffered stream, not after each value
+    private static final ObjectMapper MAPPER = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    private final String name;
+    private final List<String> columns;
+    private final File file;
+    private final JsonGenerator generator;
+    private int rowCount = 0;
+    private boolean finished = false;
+
+    /**
+     * @param name the name of the report
+     * @param columns the columns of the report
+     * @throws IOException if the temporary file cannot be created
+     */
+    public BlobReportWriter(String name, List<String> columns) throws IOException {
+        this.name = name;
+        this.columns = columns;
+        this.file = File.createTempFile("blobreport-", ".json");
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+            this.generator = MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+            generator.writeStartArray();
+        } catch (IOException e) {
+            if (out != null) {
+                out.close();
+            }
+            deleteFile();
+            throw e;
+        }
+    }
+
+    /**
+     * Append a row to the report, null values are left out.
+     *
+     * @param row the values of the row by column
+     * @throws IOException if the row cannot be written to the temporary file
+     */
+    public void appendRow(Map<String, ?> row) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Report has already been persisted");
+        }
+        generator.writeStartObject();
+        for (Map.Entry<String, ?> entry : row.entrySet()) {
+            if (entry.getValue() != null) {
+                generator.writeFieldName(entry.getKey());
+                generator.writeObject(entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+        rowCount++;
+    }
+
+    /**
+     * @return the number of rows appended so far
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Store the report with all rows appended so far. No more rows can be appended afterwards.
+     *
+     * @param rr the resource resolver to use
+     * @param path the path to store the report at
+     * @throws PersistenceException in case of problems
+     * @throws RepositoryException in case of problems
+     */
+    public void persist(ResourceResolver rr, String path) throws PersistenceException, RepositoryException {
+        ModifiableValueMap jcrContent = ResourceUtil.getOrCreateResource(rr, path, GenericBlobReport.BLOB_REPORT_RESOURCE_TYPE, null, false)
+                .adaptTo(ModifiableValueMap.class);
+        jcrContent.put("jcr:primaryType", "nt:unstructured");
+        jcrContent.put("columns", columns.toArray(new String[0]));
+        jcrContent.put("name", name);
+
+        Node parent = Optional.ofNullable(rr.getResource(path)).map(resource -> resource.adaptTo(Node.class)).orElse(null);
+        if (parent != null) {
+            try {
+                finish();
+                // the binary is streamed into the blob store, which keeps large reports out of the heap
+                try (InputStream is = Files.newInputStream(file.toPath())) {
+                    JcrUtils.putFile(parent, "blobreport", "text/json", is);
+                    rr.commit();
+                }
+            } catch (IOException ioe) {
+                throw new PersistenceException("Cannot write report to " + path, ioe);
+            }
+        } else {
+            LOG.error("{} is not a JCR path, cannot persist report", path);
+        }
+    }
+
+    private void finish() throws IOException {
+        if (!finished) {
+            finished = true;
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+
+    /**
+     * Delete the temporary file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finished = true;
+            generator.close();
+        } finally {
+            deleteFile();
+        }
+    }
+
+    private void deleteFile() {
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+}
@@ -15,7 +15,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-@Version("4.3.0")
+@Version("4.4.0")
 package com.adobe.acs.commons.mcp.model;
 
 import org.osgi.annotation.versioning.Version;
\ No newline at end of file
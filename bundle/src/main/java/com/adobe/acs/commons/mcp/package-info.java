@@ -18,7 +18,7 @@
 /**
  * Miscellaneous Utilities.
  */
-@Version("1.3.0")
+@Version("1.4.0")
 package com.adobe.acs.commons.mcp;
 
 import org.osgi.annotation.versioning.Version;
@@ -0,0 +1,254 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.redirects.models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled index over the regex rules of a {@link RedirectConfiguration}.
+ * <p>
+ * Every rule is keyed in a character trie by the literal prefix of its (optionally context-prefixed) pattern.
+ * A lookup walks the trie once along the path and returns the ordinals of the rules that can possibly match,
+ * so that only those need to be evaluated. Ordinals follow the order in which the rules were defined,
+ * which keeps first-match-wins semantics.
+ */
+final class PatternRuleIndex {
+
+    private static final String META_CHARS = ".[]()|*+?{}^$";
+    private static final String QUANTIFIERS = "*?{";
+
+    private final String contextPrefix;
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<RedirectRule> rules = new ArrayList<>();
+    private final PrefixTrie pathTrie = new PrefixTrie();
+    private final PrefixTrie uriTrie = new PrefixTrie();
+
+    /**
+     * @param patternRules  regex rules in definition order
+     * @param contextPrefix the context prefix the patterns are evaluated with, empty string if none
+     */
+    PatternRuleIndex(Map<Pattern, RedirectRule> patternRules, String contextPrefix) {
+        this.contextPrefix = contextPrefix;
+        for (Map.Entry<Pattern, RedirectRule> entry : patternRules.entrySet()) {
+            RedirectRule rule = entry.getValue();
+            Pattern pattern = withContextPrefix(entry.getKey(), contextPrefix, rule.isCaseInsensitive());
+            int ordinal = rules.size();
+            patterns.add(pattern);
+            rules.add(rule);
+            if (pattern != null) {
+                PrefixTrie trie = rule.getEvaluateURI() ? uriTrie : pathTrie;
+                boolean nc = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+                trie.add(literalPrefix(pattern), nc, ordinal);
+            }
+        }
+    }
+
+    String getContextPrefix() {
+        return contextPrefix;
+    }
+
+    int size() {
+        return rules.size();
+    }
+
+    /**
+     * @return the precompiled pattern of the rule at the given ordinal, or null if it could not be compiled
+     */
+    Pattern getPattern(int ordinal) {
+        return patterns.get(ordinal);
+    }
+
+    RedirectRule getRule(int ordinal) {
+        return rules.get(ordinal);
+    }
+
+    /**
+     * Collect the rules that may match the given paths.
+     *
+     * @param resourcePath the normalized resource path
+     * @param requestURI   the request URI, evaluated by rules with <code>evaluateURI=true</code>
+     * @return ordinals of the candidate rules, in definition order
+     */
+    BitSet candidates(String resourcePath, String requestURI) {
+        BitSet candidates = new BitSet(rules.size());
+        collect(pathTrie, resourcePath, candidates);
+        collect(uriTrie, requestURI, candidates);
+        return candidates;
+    }
+
+    private void collect(PrefixTrie trie, String path, BitSet candidates) {
+        trie.collect(path, candidates);
+        if (path != null && !contextPrefix.isEmpty()) {
+            // RedirectConfiguration retries a miss with the context prefix stripped or prepended
+            String alternatePath = path.startsWith(contextPrefix) ? path.replace(contextPrefix, "") : contextPrefix + path;
+            trie.collect(alternatePath, candidates);
+        }
+    }
+
+    /**
+     * Prepend the context prefix to the pattern unless it already starts with it,
+     * since a pattern might be too broad otherwise, i.e. "/(.*)" will match anything
+     */
+    static Pattern withContextPrefix(Pattern pattern, String contextPrefix, boolean nc) {
+        if ("".equals(contextPrefix) || pattern.toString().startsWith(contextPrefix)) {
+            return pattern;
+        }
+        return RedirectRule.toRegex(contextPrefix + pattern.toString(), nc);
+    }
+
+    /**
+     * Extract the literal text every match of the pattern must start with.
+     * The extraction is conservative: it stops at the first construct that is not a plain literal
+     * and returns an empty string if the pattern contains a top-level alternation or flags other than
+     * {@link Pattern#CASE_INSENSITIVE}.
+     */
+    static String literalPrefix(Pattern pattern) {
+        if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            return "";
+        }
+        String regex = pattern.pattern();
+        if (hasTopLevelAlternation(regex)) {
+            return "";
+        }
+        StringBuilder prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal;
+            int next;
+            if (c == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    // character classes, back references, anchors and quoting
+                    break;
+                }
+                literal = regex.charAt(i + 1);
+                next = i + 2;
+            } else if (META_CHARS.indexOf(c) != -1) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+            if (next < regex.length()) {
+                char q = regex.charAt(next);
+                if (QUANTIFIERS.indexOf(q) != -1) {
+                    // the literal is optional
+                    break;
+                } else if (q == '+') {
+                    // the literal occurs at least once
+                    prefix.append(literal);
+                    break;
+                }
+            }
+            prefix.append(literal);
+            i = next;
+        }
+        return prefix.toString();
+    }
+
+    static boolean hasTopLevelAlternation(String regex) {
+        int groupDepth = 0;
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                classDepth++;
+            } else if (c == ']' && classDepth > 0) {
+                classDepth--;
+            } else if (classDepth == 0) {
+                if (c == '(') {
+                    groupDepth++;
+                } else if (c == ')') {
+                    groupDepth--;
+                } else if (c == '|' && groupDepth == 0) {
+                    return true;
+                }
+            }
+        }
+        // unbalanced input: be conservative
+        return groupDepth != 0 || classDepth != 0;
+    }
+
+    /**
+     * Fold a character the way {@link Pattern#CASE_INSENSITIVE} does without {@link Pattern#UNICODE_CASE}
+     */
+    static char foldCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Character trie keyed by literal prefixes. Case-insensitive prefixes live in a separate branch
+     * and are stored and looked up in folded case.
+     */
+    private static final class PrefixTrie {
+        private final Node caseSensitive = new Node();
+        private final Node caseInsensitive = new Node();
+        private final BitSet all = new BitSet();
+
+        void add(String prefix, boolean nc, int ordinal) {
+            Node node = nc ? caseInsensitive : caseSensitive;
+            for (int i = 0; i < prefix.length(); i++) {
+                char c = prefix.charAt(i);
+                if (nc) {
+                    if (c > 0x7f) {
+                        // non-ASCII characters are not folded, stop here to stay on the safe side
+                        break;
+                    }
+                    c = foldCase(c);
+                }
+                node = node.children.computeIfAbsent(c, k -> new Node());
+            }
+            node.ordinals.set(ordinal);
+            all.set(ordinal);
+        }
+
+        void collect(String path, BitSet candidates) {
+            if (path == null) {
+                candidates.or(all);
+                return;
+            }
+            walk(caseSensitive, path, false, candidates);
+            walk(caseInsensitive, path, true, candidates);
+        }
+
+        private static void walk(Node root, String path, boolean nc, BitSet candidates) {
+            Node node = root;
+            int i = 0;
+            while (node != null) {
+                candidates.or(node.ordinals);
+                if (i == path.length() || node.children.isEmpty()) {
+                    break;
+                }
+                char c = path.charAt(i++);
+                node = node.children.get(nc ? foldCase(c) : c);
+            }
+        }
+    }
+
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final BitSet ordinals = new BitSet();
+    }
+}
@@ -18,13 +18,18 @@
 package com.adobe.acs.commons.redirects.models;
 
 import com.adobe.acs.commons.redirects.filter.RedirectFilter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
 
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,7 +38,17 @@ import java.util.regex.Pattern;
  */
 public class RedirectConfiguration {
 
+    /**
+     * maximum number of recent misses remembered per configuration
+     */
+    static final int MISS_CACHE_SIZE = 10000;
+
     private boolean nonRegexRequestURIRules = false;
+
+    /**
+     * whether any rule evaluates the request URI instead of the resource path
+     */
+    private boolean requestURIRules = false;
     /**
      * path rules keyed by source, e.g. path1 -> path2.
      * This makes lookup by path a O(1) operation
@@ -45,10 +60,28 @@ public class RedirectConfiguration {
      */
     private Map<String, RedirectRule> caseInsensitiveRules;
 
+    /**
+     * case-insensitive path rules keyed by their case-folded source.
+     * Same content as caseInsensitiveRules, but with O(1) lookups
+     */
+    private Map<String, RedirectRule> foldedCaseInsensitiveRules;
+
     /**
      * regex rules keyed by their regex pattern.
      */
     private Map<Pattern, RedirectRule> patternRules;
+
+    /**
+     * precompiled indexes over the regex rules keyed by context prefix.
+     * Built when the rules are loaded so that requests do not need to recompile context-prefixed patterns
+     */
+    private final Map<String, PatternRuleIndex> patternRuleIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * recent lookups that did not match any rule. Matching does not depend on the time of the request,
+     * so a miss stays a miss until the rules are reloaded and this configuration is replaced.
+     */
+    private final Cache<String, Boolean> misses = CacheBuilder.newBuilder().maximumSize(MISS_CACHE_SIZE).build();
     private String path;
     private String name;
 
@@ -56,29 +89,42 @@ public class RedirectConfiguration {
 
     private RedirectConfiguration(){
         pathRules = new LinkedHashMap<>();
+        foldedCaseInsensitiveRules = new HashMap<>();
         patternRules = new LinkedHashMap<>();
     }
 
     public RedirectConfiguration(Resource resource, String storageSuffix) {
         pathRules = new LinkedHashMap<>();
         caseInsensitiveRules = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        foldedCaseInsensitiveRules = new HashMap<>();
         patternRules = new LinkedHashMap<>();
         path = resource.getPath();
         name = path.replace("/" + storageSuffix, "");
         Collection<RedirectRule> rules = RedirectFilter.getRules(resource);
         for (RedirectRule rule : rules) {
+            requestURIRules |= rule.getEvaluateURI();
             if (rule.getRegex() != null) {
                 patternRules.put(rule.getRegex(), rule);
             } else {
                 Map<String, RedirectRule> map = rule.isCaseInsensitive() ? caseInsensitiveRules : pathRules;
+                String source;
                 if(rule.getEvaluateURI()){
                     nonRegexRequestURIRules = true;
-                    map.put(rule.getSource(), rule);
+                    source = rule.getSource();
                 } else {
-                    map.put(normalizePath(rule.getSource()), rule);
+                    source = normalizePath(rule.getSource());
+                }
+                map.put(source, rule);
+                if (rule.isCaseInsensitive()) {
+                    foldedCaseInsensitiveRules.put(foldCase(source), rule);
                 }
             }
         }
+        getPatternRuleIndex("");
+        String contextPrefix = resource.getValueMap().get(Redirects.CFG_PROP_CONTEXT_PREFIX, "");
+        if (!contextPrefix.isEmpty()) {
+            getPatternRuleIndex(contextPrefix);
+        }
     }
 
     /**
@@ -89,11 +135,49 @@ public class RedirectConfiguration {
         int sep = resourcePath.lastIndexOf('.');
         if (sep != -1 && !resourcePath.startsWith("/content/dam/")) {
             // strip off .html extension and query string if present
-            resourcePath = resourcePath.replaceAll("\\.html(\\?.*)?$", "");
+            if (containsLineTerminator(resourcePath)) {
+                // rare enough to not bother with the semantics of '$' and '.' in regular expressions
+                return resourcePath.replaceAll("\\.html(\\?.*)?$", "");
+            }
+            for (int idx = resourcePath.indexOf(".html"); idx != -1; idx = resourcePath.indexOf(".html", idx + 1)) {
+                int end = idx + ".html".length();
+                if (end == resourcePath.length() || resourcePath.charAt(end) == '?') {
+                    return resourcePath.substring(0, idx);
+                }
+            }
         }
         return resourcePath;
     }
 
+    private static boolean containsLineTerminator(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fold the case of a path the way {@link String#CASE_INSENSITIVE_ORDER} compares characters
+     * @return a string that is equal for all paths the comparator considers equal
+     */
+    static String foldCase(String path) {
+        StringBuilder folded = null;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            char f = Character.toLowerCase(Character.toUpperCase(c));
+            if (f != c && folded == null) {
+                folded = new StringBuilder(path.length()).append(path, 0, i);
+            }
+            if (folded != null) {
+                folded.append(f);
+            }
+        }
+        return folded == null ? path : folded.toString();
+    }
+
     static String determinePathToEvaluate(String path, boolean evaluateURI, SlingHttpServletRequest request) {
         return (evaluateURI && request != null) ? request.getRequestURI() : path;
     }
@@ -123,8 +207,10 @@ public class RedirectConfiguration {
      * Performs two tries:
      * <ol>
      *     <li>Match by exact path. This is O(1) lookup in a hashtable keyed by path</li>
-     *     <li>Match by a regular expression. This is O(N) linear lookup in a list of rules keyed by their regex patterns</li>
+     *     <li>Match by a regular expression. Candidate rules are selected from a trie keyed by the literal prefix
+     *     of their patterns and evaluated in the order they were defined</li>
      * </ol>
+     * Paths that matched no rule are remembered, so repeated misses are answered without evaluating the rules again.
      *
      * @param requestPath   the request to match
      * @return  match or null
@@ -139,8 +225,11 @@ public class RedirectConfiguration {
      * Performs two tries:
      * <ol>
      *     <li>Match by exact path. This is O(1) lookup in a hashtable keyed by path</li>
-     *     <li>Match by a regular expression. This is O(N) linear lookup in a list of rules keyed by their regex patterns</li>
+     *     <li>Match by a regular expression. Candidate rules are selected from a trie keyed by the literal prefix
+     *     of their patterns and evaluated in the order they were defined</li>
      * </ol>
+     * Paths that matched no rule are remembered per context prefix (and request URI if any rule evaluates it),
+     * so repeated misses are answered without evaluating the rules again.
      *
      * @param resourcePath   the request to match
      * @param contextPrefix the optional context prefix to take into account
@@ -149,6 +238,10 @@ public class RedirectConfiguration {
      */
     public RedirectMatch match(String resourcePath, String contextPrefix, SlingHttpServletRequest request) {
         String normalizedPath = normalizePath(resourcePath);
+        String missKey = getMissKey(normalizedPath, contextPrefix, request);
+        if (misses.getIfPresent(missKey) != null) {
+            return null;
+        }
         RedirectMatch match = null;
         RedirectRule rule = getPathRule(normalizedPath, contextPrefix);
         if(rule == null && hasNonRegexRequestURIRules()){
@@ -159,35 +252,67 @@ public class RedirectConfiguration {
         if (rule != null) {
             match = new RedirectMatch(rule, null);
         } else {
-            for (Map.Entry<Pattern, RedirectRule> entry : getPatternRules().entrySet()) {
-                boolean evaluateURI = entry.getValue().getEvaluateURI();
-                String pathToEvaluate = determinePathToEvaluate(normalizedPath, evaluateURI, request);
-                Matcher m = getRuleMatch(entry.getKey(), pathToEvaluate, contextPrefix, entry.getValue().isCaseInsensitive());
+            PatternRuleIndex index = getPatternRuleIndex(contextPrefix);
+            BitSet candidates = index.candidates(normalizedPath, determinePathToEvaluate(normalizedPath, true, request));
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                RedirectRule patternRule = index.getRule(i);
+                Pattern rulePattern = index.getPattern(i);
+                if (rulePattern == null) {
+                    continue;
+                }
+                String pathToEvaluate = determinePathToEvaluate(normalizedPath, patternRule.getEvaluateURI(), request);
+                Matcher m = getRuleMatch(rulePattern, pathToEvaluate, contextPrefix);
                 if (m.matches()) {
-                    match = new RedirectMatch(entry.getValue(), m);
+                    match = new RedirectMatch(patternRule, m);
                     break;
                 }
             }
         }
+        if (match == null) {
+            misses.put(missKey, Boolean.TRUE);
+        }
         return match;
     }
 
+    /**
+     * The key to remember a miss by. The request URI is only taken into account
+     * if there are rules that evaluate it.
+     */
+    private String getMissKey(String normalizedPath, String contextPrefix, SlingHttpServletRequest request) {
+        StringBuilder key = new StringBuilder(contextPrefix).append('\u0000').append(normalizedPath);
+        if (requestURIRules && request != null) {
+            key.append('\u0000').append(request.getRequestURI());
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the number of misses currently remembered
+     */
+    long getMissCount() {
+        return misses.size();
+    }
+
+    /**
+     * Get the precompiled index over the regex rules for the given context prefix
+     * @param contextPrefix the optional context prefix
+     * @return the index, built on first use for a context prefix
+     */
+    PatternRuleIndex getPatternRuleIndex(String contextPrefix) {
+        return patternRuleIndexes.computeIfAbsent(contextPrefix, prefix -> new PatternRuleIndex(patternRules, prefix));
+    }
+
     /**
      * Utility method that gets the pattern rule taking an optional context prefix into account
-     * @param rulePattern the regex pattern to match the path
+     * @param rulePattern the regex pattern to match the path, already prefixed with the context prefix
      * @param pathToEvaluate the path to evaluate for redirects
      * @param contextPrefix the optional context prefix
      * @return the matcher associated with the rule
      */
-    private Matcher getRuleMatch(Pattern rulePattern, String pathToEvaluate, String contextPrefix, boolean nc) {
+    private Matcher getRuleMatch(Pattern rulePattern, String pathToEvaluate, String contextPrefix) {
         if("".equals(contextPrefix)) {
             return rulePattern.matcher(pathToEvaluate);
         } else {
-            //we add the context prefix to the pattern since a pattern might be too broad otherwise,
-            //i.e. "/(.*)" will match anything
-            if(!rulePattern.toString().startsWith(contextPrefix)) {
-                rulePattern = RedirectRule.toRegex(contextPrefix + rulePattern.toString(), nc);
-            }
             Matcher matcher = rulePattern.matcher(pathToEvaluate);
             if(!matcher.matches()) {
                 if (pathToEvaluate.startsWith(contextPrefix)) {
@@ -224,8 +349,8 @@ public class RedirectConfiguration {
 
     private RedirectRule getPathRule(String normalizedPath) {
         RedirectRule rule = getPathRules().get(normalizedPath);
-        if(rule == null){
-            rule = getCaseInsensitivePathRules().get(normalizedPath);
+        if(rule == null && !foldedCaseInsensitiveRules.isEmpty()){
+            rule = foldedCaseInsensitiveRules.get(foldCase(normalizedPath));
         }
         return rule;
     }
@@ -0,0 +1,217 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.replication.dispatcher.impl;
+
+import com.adobe.acs.commons.replication.dispatcher.DispatcherFlushFilter;
+import com.adobe.acs.commons.replication.dispatcher.DispatcherFlusher;
+import com.day.cq.replication.ReplicationActionType;
+import com.day.cq.replication.ReplicationException;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the paths requested to be flushed during a short window and issues them as one flush request per
+ * Replication Action Type and agent filter, so each flush agent receives every path only once.
+ * <p>
+ * Duplicate paths are dropped. If enabled, so are the paths of hierarchical flushes below another path of the same
+ * batch, as the hierarchical flush of the ancestor invalidates them already; this only holds if the dispatcher
+ * statfileslevel is not deeper than the ancestor.
+ */
+final class DispatcherFlushAggregator {
+    private static final Logger log = LoggerFactory.getLogger(DispatcherFlushAggregator.class);
+
+    private final DispatcherFlusher dispatcherFlusher;
+    private final ResourceResolverFactory resourceResolverFactory;
+    private final Scheduler scheduler;
+    private final long window;
+    private final String name;
+    private final boolean coalesceAncestors;
+
+    private Map<ReplicationActionType, Map<DispatcherFlushFilter, Set<String>>> pending = new LinkedHashMap<>();
+    private boolean scheduled = false;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong issued = new AtomicLong();
+
+    DispatcherFlushAggregator(final DispatcherFlusher dispatcherFlusher,
+                              final ResourceResolverFactory resourceResolverFactory,
+                              final Scheduler scheduler,
+                              final long window,
+                              final String name,
+                              final boolean coalesceAncestors) {
+        this.dispatcherFlusher = dispatcherFlusher;
+        this.resourceResolverFactory = resourceResolverFactory;
+        this.scheduler = scheduler;
+        this.window = window;
+        this.name = name;
+        this.coalesceAncestors = coalesceAncestors;
+    }
+
+    /**
+     * Queue a path to be flushed with the next batch.
+     *
+     * @param actionType the Replication Action Type of the flush
+     * @param agentFilter the filter selecting the flush agents
+     * @param path the path to flush
+     */
+    void add(final ReplicationActionType actionType, final DispatcherFlushFilter agentFilter, final String path) {
+        requested.incrementAndGet();
+
+        final boolean schedule;
+        synchronized (this) {
+            pending.computeIfAbsent(actionType, t -> new LinkedHashMap<>())
+                    .computeIfAbsent(agentFilter, f -> new LinkedHashSet<>())
+                    .add(path);
+            schedule = !scheduled;
+            scheduled = true;
+        }
+
+        if (schedule) {
+            final ScheduleOptions options = scheduler.AT(new Date(System.currentTimeMillis() + window));
+            options.name(name);
+            options.canRunConcurrently(false);
+            if (!scheduler.schedule((Runnable) this::flush, options)) {
+                log.warn("Unable to schedule the aggregated dispatcher flush, flushing immediately");
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Unschedule the pending job and issue the flush requests for all queued paths right away.
+     */
+    void close() {
+        scheduler.unschedule(name);
+        flush();
+    }
+
+    /**
+     * Issue the flush requests for all queued paths.
+     */
+    void flush() {
+        final Map<ReplicationActionType, Map<DispatcherFlushFilter, Set<String>>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try (ResourceResolver resourceResolver =
+                     resourceResolverFactory.getServiceResourceResolver(DispatcherFlushRulesImpl.AUTH_INFO)) {
+            for (final Map.Entry<ReplicationActionType, Map<DispatcherFlushFilter, Set<String>>> byType
+                    : batch.entrySet()) {
+                for (final Map.Entry<DispatcherFlushFilter, Set<String>> byFilter : byType.getValue().entrySet()) {
+                    flush(resourceResolver, byType.getKey(), byFilter.getKey(), byFilter.getValue());
+                }
+            }
+        } catch (LoginException e) {
+            log.error("Error issuing aggregated dispatcher flush due to a repository login exception: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    private void flush(final ResourceResolver resourceResolver, final ReplicationActionType actionType,
+                       final DispatcherFlushFilter agentFilter, final Set<String> paths) {
+        final String[] flushPaths = coalesce(paths, coalesceAncestors
+                && DispatcherFlushFilter.FlushType.Hierarchical.equals(agentFilter.getFlushType()));
+        issued.addAndGet(flushPaths.length);
+
+        log.info("Issuing aggregated {} {} flush of {} paths to {} agents, {} paths covered by others, "
+                        + "{} of {} requested paths saved in total",
+                agentFilter.getFlushType(), actionType.name(), flushPaths.length,
+                dispatcherFlusher.getAgents(agentFilter).length, paths.size() - flushPaths.length,
+                getSavedCount(), getRequestedCount());
+
+        try {
+            dispatcherFlusher.flush(resourceResolver, actionType, false, agentFilter, flushPaths);
+        } catch (ReplicationException e) {
+            log.error("Error issuing aggregated dispatcher flush, some downstream replication exception occurred: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param paths the distinct paths to flush
+     * @param hierarchical true if the flush of a path covers its descendants
+     * @return the paths, without those having an ancestor in the paths if hierarchical
+     */
+    static String[] coalesce(final Set<String> paths, final boolean hierarchical) {
+        if (!hierarchical) {
+            return paths.toArray(new String[0]);
+        }
+        final List<String> coalesced = new ArrayList<>(paths.size());
+        for (final String path : paths) {
+            if (!hasAncestorIn(path, paths)) {
+                coalesced.add(path);
+            }
+        }
+        return coalesced.toArray(new String[0]);
+    }
+
+    private static boolean hasAncestorIn(final String path, final Set<String> paths) {
+        for (int i = path.lastIndexOf('/'); i > 0; i = path.lastIndexOf('/', i - 1)) {
+            if (paths.contains(path.substring(0, i))) {
+                return true;
+            }
+        }
+        return paths.contains("/") && !"/".equals(path);
+    }
+
+    /**
+     * @return the number of paths requested to be flushed
+     */
+    long getRequestedCount() {
+        return requested.get();
+    }
+
+    /**
+     * @return the number of paths requested but not sent to the flush agents, as they were duplicates or, if enabled,
+     * covered by the hierarchical flush of an ancestor; does not count the queued paths
+     */
+    long getSavedCount() {
+        return requested.get() - issued.get() - getPendingCount();
+    }
+
+    private synchronized long getPendingCount() {
+        long count = 0;
+        for (final Map<DispatcherFlushFilter, Set<String>> byFilter : pending.values()) {
+            for (final Set<String> paths : byFilter.values()) {
+                count += paths.size();
+            }
+        }
+        return count;
+    }
+}
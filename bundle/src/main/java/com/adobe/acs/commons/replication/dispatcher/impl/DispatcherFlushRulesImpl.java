@@ -45,12 +45,15 @@ import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.commons.osgi.PropertiesUtil;
+import org.apache.sling.commons.scheduler.Scheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -121,6 +124,27 @@ public class DispatcherFlushRulesImpl implements Preprocessor, DispatcherFlushRu
             value = { })
     private static final String PROP_RESOURCE_ONLY_FLUSH_RULES = "prop.rules.resource-only";
 
+    /* Flush Aggregation */
+    private static final long DEFAULT_AGGREGATION_WINDOW = 0L;
+
+    @Property(label = "Flush Aggregation Window",
+            description = "Milliseconds to collect the paths to flush before issuing them as one flush request "
+                    + "per agent, dropping duplicates. "
+                    + "Recommended for tree activations. 0 flushes every path immediately. [ Default: 0 ]",
+            longValue = DEFAULT_AGGREGATION_WINDOW)
+    private static final String PROP_AGGREGATION_WINDOW = "prop.aggregation.window";
+
+    private static final boolean DEFAULT_AGGREGATION_COALESCE_ANCESTORS = false;
+
+    @Property(label = "Flush Aggregation Coalesce Ancestors",
+            description = "If true, aggregated hierarchical flushes drop the paths below another path of the same "
+                    + "batch. Only safe if the dispatcher statfileslevel is not deeper than these ancestor paths, "
+                    + "as an invalidation touches the .stat files up to the level of the flushed path only, and "
+                    + "cached files below a deeper statfileslevel would stay stale. "
+                    + "Requires a Flush Aggregation Window. [ Default: false ]",
+            boolValue = DEFAULT_AGGREGATION_COALESCE_ANCESTORS)
+    private static final String PROP_AGGREGATION_COALESCE_ANCESTORS = "prop.aggregation.coalesce-ancestors";
+
     private static final String SERVICE_NAME = "dispatcher-flush";
     protected static final Map<String, Object> AUTH_INFO;
 
@@ -137,9 +161,13 @@ public class DispatcherFlushRulesImpl implements Preprocessor, DispatcherFlushRu
     @Reference
     private ResourceResolverFactory resourceResolverFactory;
 
+    @Reference
+    private Scheduler scheduler;
+
     private Map<Pattern, String[]> hierarchicalFlushRules = new LinkedHashMap<Pattern, String[]>();
     private Map<Pattern, String[]> resourceOnlyFlushRules = new LinkedHashMap<Pattern, String[]>();
     private ReplicationActionType replicationActionType = null;
+    private DispatcherFlushAggregator flushAggregator = null;
 
     /**
      * {@inheritDoc}
@@ -159,41 +187,41 @@ public class DispatcherFlushRulesImpl implements Preprocessor, DispatcherFlushRu
         final ReplicationActionType flushActionType =
                 replicationActionType == null ? replicationAction.getType() : replicationActionType;
 
+        final List<String> hierarchicalFlushPaths = getFlushPaths(this.hierarchicalFlushRules, path);
+        final List<String> resourceOnlyFlushPaths = getFlushPaths(this.resourceOnlyFlushRules, path);
+
+        final DispatcherFlushAggregator aggregator = this.flushAggregator;
+        if (aggregator != null) {
+            for (final String flushPath : hierarchicalFlushPaths) {
+                log.debug("Queueing hierarchical flush of associated path: {} ~> {}", path, flushPath);
+                aggregator.add(flushActionType, HIERARCHICAL_FILTER, flushPath);
+            }
+            for (final String flushPath : resourceOnlyFlushPaths) {
+                log.debug("Queueing ResourceOnly flush of associated path: {} ~> {}", path, flushPath);
+                aggregator.add(flushActionType, RESOURCE_ONLY_FILTER, flushPath);
+            }
+            return;
+        } else if (hierarchicalFlushPaths.isEmpty() && resourceOnlyFlushPaths.isEmpty()) {
+            return;
+        }
+
         try (ResourceResolver resourceResolver = resourceResolverFactory.getServiceResourceResolver(AUTH_INFO)){
 
             // Flush full content hierarchies
-            for (final Map.Entry<Pattern, String[]> entry : this.hierarchicalFlushRules.entrySet()) {
-                final Pattern pattern = entry.getKey();
-                final Matcher m = pattern.matcher(path);
-
-                if (m.matches()) {
-                    for (final String value : entry.getValue()) {
-                        final String flushPath = m.replaceAll(value);
-    
-                        log.debug("Requesting hierarchical flush of associated path: {} ~> {}", path,
-                                flushPath);
-                        dispatcherFlusher.flush(resourceResolver, flushActionType, false,
-                                HIERARCHICAL_FILTER,
-                                flushPath);
-                    }
-                }
+            for (final String flushPath : hierarchicalFlushPaths) {
+                log.debug("Requesting hierarchical flush of associated path: {} ~> {}", path,
+                        flushPath);
+                dispatcherFlusher.flush(resourceResolver, flushActionType, false,
+                        HIERARCHICAL_FILTER,
+                        flushPath);
             }
 
             // Flush explicit resources using the CQ-Action-Scope ResourceOnly header
-            for (final Map.Entry<Pattern, String[]> entry : this.resourceOnlyFlushRules.entrySet()) {
-                final Pattern pattern = entry.getKey();
-                final Matcher m = pattern.matcher(path);
-
-                if (m.matches()) {
-                    for (final String value : entry.getValue()) {
-                        final String flushPath = m.replaceAll(value);
-    
-                        log.debug("Requesting ResourceOnly flush of associated path: {} ~> {}", path, entry.getValue());
-                        dispatcherFlusher.flush(resourceResolver, flushActionType, false,
-                                RESOURCE_ONLY_FILTER,
-                                flushPath);
-                    }
-                }
+            for (final String flushPath : resourceOnlyFlushPaths) {
+                log.debug("Requesting ResourceOnly flush of associated path: {} ~> {}", path, flushPath);
+                dispatcherFlusher.flush(resourceResolver, flushActionType, false,
+                        RESOURCE_ONLY_FILTER,
+                        flushPath);
             }
 
         } catch (ReplicationException e) {
@@ -204,6 +232,27 @@ public class DispatcherFlushRulesImpl implements Preprocessor, DispatcherFlushRu
         }
     }
 
+    /**
+     * Apply the flush rules to the replicated path.
+     *
+     * @param flushRules the flush rules
+     * @param path the path being replicated
+     * @return the associated paths to flush, in the order of the rules
+     */
+    private List<String> getFlushPaths(final Map<Pattern, String[]> flushRules, final String path) {
+        final List<String> flushPaths = new ArrayList<String>();
+        for (final Map.Entry<Pattern, String[]> entry : flushRules.entrySet()) {
+            final Matcher m = entry.getKey().matcher(path);
+
+            if (m.matches()) {
+                for (final String value : entry.getValue()) {
+                    flushPaths.add(m.replaceAll(value));
+                }
+            }
+        }
+        return flushPaths;
+    }
+
     /**
      * Checks if this service should react to or ignore this replication action.
      *
@@ -261,6 +310,18 @@ public class DispatcherFlushRulesImpl implements Preprocessor, DispatcherFlushRu
                         DEFAULT_RESOURCE_ONLY_FLUSH_RULES), "="));
 
         log.debug("ResourceOnly flush rules: {}", this.resourceOnlyFlushRules);
+
+        /* Flush Aggregation */
+        final long aggregationWindow = PropertiesUtil.toLong(properties.get(PROP_AGGREGATION_WINDOW),
+                DEFAULT_AGGREGATION_WINDOW);
+        if (aggregationWindow > 0) {
+            final boolean coalesceAncestors = PropertiesUtil.toBoolean(
+                    properties.get(PROP_AGGREGATION_COALESCE_ANCESTORS), DEFAULT_AGGREGATION_COALESCE_ANCESTORS);
+            this.flushAggregator = new DispatcherFlushAggregator(dispatcherFlusher, resourceResolverFactory,
+                    scheduler, aggregationWindow, "acs-commons-dispatcher-flush-rules-" + System.identityHashCode(this),
+                    coalesceAncestors);
+            log.debug("Aggregating flushes within {} ms", aggregationWindow);
+        }
     }
 
     /**
@@ -302,6 +363,11 @@ public class DispatcherFlushRulesImpl implements Preprocessor, DispatcherFlushRu
 
     @Deactivate
     protected final void deactivate(final Map<String, String> properties) {
+        if (this.flushAggregator != null) {
+            // issue the queued flushes now instead of in the scheduled job
+            this.flushAggregator.close();
+            this.flushAggregator = null;
+        }
         this.hierarchicalFlushRules = new HashMap<Pattern, String[]>();
         this.resourceOnlyFlushRules = new HashMap<Pattern, String[]>();
         this.replicationActionType = null;
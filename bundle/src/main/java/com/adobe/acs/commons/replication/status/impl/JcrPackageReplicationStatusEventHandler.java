@@ -18,6 +18,7 @@
 
 package com.adobe.acs.commons.replication.status.impl;
 
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import com.adobe.acs.commons.packaging.PackageHelper;
 import com.adobe.acs.commons.replication.status.ReplicationStatusManager;
 import com.adobe.acs.commons.util.ClusterLeader;
@@ -35,6 +36,8 @@ import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.PropertyOption;
 import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.jackrabbit.vault.packaging.JcrPackage;
 import org.apache.jackrabbit.vault.packaging.JcrPackageDefinition;
@@ -58,7 +61,6 @@ import org.slf4j.LoggerFactory;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -67,7 +69,6 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Component(
         label = "ACS AEM Commons - Package Replication Status Updater",
@@ -163,6 +164,9 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
     @Reference
     private ClusterLeader clusterLeader;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC)
+    private volatile ThrottledTaskRunner throttledTaskRunner;
+
     // Previously "Package Replication"
     private static final String DEFAULT_REPLICATED_BY_OVERRIDE = "";
     private String replicatedByOverride = DEFAULT_REPLICATED_BY_OVERRIDE;
@@ -189,6 +193,22 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
             })
     public static final String PROP_REPLICATED_AT = "replicated-at";
 
+    private static final int DEFAULT_PARTITION_SIZE = 1000;
+    private int partitionSize = DEFAULT_PARTITION_SIZE;
+    @Property(label = "Partition Size",
+            description = "The number of package paths updated together. Packages with more paths record the finished "
+                    + "partitions, so that a restarted job continues with the remaining ones. [ Default: 1000 ]",
+            intValue = DEFAULT_PARTITION_SIZE)
+    public static final String PROP_PARTITION_SIZE = "partition-size";
+
+    private static final int DEFAULT_PARALLELISM = 1;
+    private int parallelism = DEFAULT_PARALLELISM;
+    @Property(label = "Parallelism",
+            description = "The number of partitions updated at the same time, each on its own session, through the "
+                    + "ACS AEM Commons Throttled Task Runner. [ Default: 1 ]",
+            intValue = DEFAULT_PARALLELISM)
+    public static final String PROP_PARALLELISM = "parallelism";
+
     private static final String SERVICE_NAME = "package-replication-status-event-listener";
     private static final Map<String, Object> AUTH_INFO;
 
@@ -243,7 +263,7 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
             }
             
             try {
-                setReplicationStatus(jcrPackage, agentIds, replicatedBy, resourceResolver);
+                setReplicationStatus(jcrPackage, path, job.getId(), agentIds, replicatedBy, resourceResolver);
             } finally {
                 // Close  package when we are done.
                 jcrPackage.close();
@@ -277,8 +297,7 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
     }
     
     
-    private void setReplicationStatus(JcrPackage jcrPackage, Collection<String> agentIds, String replicatedBy, ResourceResolver resourceResolver) throws RepositoryException {
-        final List<Resource> resources = new ArrayList<>();
+    private void setReplicationStatus(JcrPackage jcrPackage, String packagePath, String jobId, Collection<String> agentIds, String replicatedBy, ResourceResolver resourceResolver) throws RepositoryException {
         final String packageId;
         try {
             JcrPackageDefinition packageDefinition = jcrPackage.getDefinition();
@@ -291,34 +310,43 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
             throw new RepositoryException("Could not determine the ID for just replicated package (package invalid?).", e);
         } 
         
+        final List<String> paths;
         try {
-            for (final String packagePath : packageHelper.getContents(jcrPackage)) {
-                final Resource resource = resourceResolver.getResource(packagePath);
-                if (this.accept(resource)) {
-                    resources.add(resource);
-                }
-            }
+            paths = packageHelper.getContents(jcrPackage);
         } catch (RepositoryException|PackageException|IOException e) {
             throw new RepositoryException("Could not retrieve the Packages contents for package '" + packageId + "'", e);
         }
         try {
-            if (resources.size() > 0) {
-                replicationStatusManager.setReplicationStatus(resourceResolver,
-                        agentIds,
-                        replicatedBy,
-                        getJcrPackageLastModified(jcrPackage),
-                        ReplicationStatusManager.Status.ACTIVATED,
-                        resources.toArray(new Resource[resources.size()]));
-
-                log.info("Updated Replication Status for JCR Package: {}", packageId);
+            Calendar replicatedAt = getJcrPackageLastModified(jcrPackage);
+            int size = this.partitionSize;
+            ReplicationStatusCheckpoint checkpoint = null;
+            if (paths.size() > size && jobId != null) {
+                // only packages with several partitions are worth resuming
+                checkpoint = ReplicationStatusCheckpoint.getOrCreate(resourceResolver, jobId, packagePath, size, replicatedAt);
+                size = checkpoint.getPartitionSize();
+                replicatedAt = checkpoint.getReplicatedAt();
+                if (checkpoint.getFinishedPartitionCount() > 0) {
+                    log.info("Resuming Replication Status Update for JCR Package [ {} ] after [ {} ] finished partitions",
+                            packageId, checkpoint.getFinishedPartitionCount());
+                }
+            }
+
+            final PartitionedReplicationStatusWriter writer = new PartitionedReplicationStatusWriter(
+                    replicationStatusManager, this::accept, agentIds, replicatedBy, replicatedAt);
+            writer.write(resourceResolver, paths, size, checkpoint, parallelism, throttledTaskRunner);
+            if (checkpoint != null) {
+                checkpoint.delete(resourceResolver);
+            }
+
+            if (writer.getUpdatedCount() > 0 || writer.getCurrentCount() > 0) {
+                log.info("Updated Replication Status for JCR Package: {} ({} resources updated, {} up to date already)",
+                        packageId, writer.getUpdatedCount(), writer.getCurrentCount());
             } else {
                 log.info("Could not find any resources in JCR Package [ {} ] that are candidates to have their Replication Status updated",
                         packageId);
             }
         } catch (RepositoryException|IOException e) {
-            // enrich exception with path information (limited to 10 paths only)
-            String paths = resources.stream().map( r -> r.getPath() ).limit(10).collect( Collectors.joining( ", " ) );
-            throw new RepositoryException("Exception occurred updating replication status for contents of package '" + packageId + "' covering paths: '" + paths + ", ...'", e);
+            throw new RepositoryException("Exception occurred updating replication status for contents of package '" + packageId + "'", e);
         }
     }
 
@@ -475,6 +503,9 @@ public class JcrPackageReplicationStatusEventHandler implements JobConsumer, Eve
                                         PropertiesUtil.toString(config.get(LEGACY_PROP_REPLICATED_BY_OVERRIDE),
                                                 DEFAULT_REPLICATED_BY_OVERRIDE));
 
+        this.partitionSize = Math.max(1, PropertiesUtil.toInteger(config.get(PROP_PARTITION_SIZE), DEFAULT_PARTITION_SIZE));
+        this.parallelism = PropertiesUtil.toInteger(config.get(PROP_PARALLELISM), DEFAULT_PARALLELISM);
+
         String tmp = PropertiesUtil.toString(config.get(PROP_REPLICATED_AT), "");
         try {
             this.replicatedAt = ReplicatedAt.valueOf(tmp);
@@ -0,0 +1,270 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.replication.status.impl;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
+import com.adobe.acs.commons.replication.status.ReplicationStatusManager;
+import com.day.cq.replication.ReplicationStatus;
+
+/**
+ * Sets the replication status of the contents of a package partition by partition, optionally running several
+ * partitions at the same time, each on its own session.
+ * <p>
+ * The resources of a partition are handed to the {@link ReplicationStatusManager} in batches, each saved by a single
+ * commit. The batch size adapts to the time the commits take, so that large packages neither produce huge commits
+ * nor a commit per handful of resources. Resources whose replication status is current already are skipped.
+ */
+final class PartitionedReplicationStatusWriter {
+    private static final Logger log = LoggerFactory.getLogger(PartitionedReplicationStatusWriter.class);
+
+    static final int MIN_BATCH_SIZE = 32;
+    static final int INITIAL_BATCH_SIZE = 256;
+    /* ReplicationStatusManagerImpl saves every 1024 resources within a batch anyway */
+    static final int MAX_BATCH_SIZE = 1024;
+    static final long TARGET_COMMIT_MILLIS = 1000;
+
+    private static final String REP_STATUS_ACTIVATE = "Activate";
+
+    /**
+     * Decides which resources get their replication status updated.
+     */
+    interface ResourceFilter {
+        boolean accept(Resource resource) throws RepositoryException;
+    }
+
+    private final ReplicationStatusManager replicationStatusManager;
+    private final ResourceFilter resourceFilter;
+    private final Collection<String> agentIds;
+    private final String replicatedBy;
+    private final Calendar replicatedAt;
+
+    private final AtomicInteger batchSize = new AtomicInteger(INITIAL_BATCH_SIZE);
+    private final AtomicInteger updated = new AtomicInteger();
+    private final AtomicInteger current = new AtomicInteger();
+
+    PartitionedReplicationStatusWriter(ReplicationStatusManager replicationStatusManager, ResourceFilter resourceFilter,
+                                       Collection<String> agentIds, String replicatedBy, Calendar replicatedAt) {
+        this.replicationStatusManager = replicationStatusManager;
+        this.resourceFilter = resourceFilter;
+        this.agentIds = agentIds;
+        this.replicatedBy = replicatedBy;
+        this.replicatedAt = replicatedAt;
+    }
+
+    /**
+     * Update the replication status of the given paths.
+     *
+     * @param resourceResolver the resource resolver of the job
+     * @param paths the package contents
+     * @param partitionSize the number of paths per partition
+     * @param checkpoint the checkpoint recording the finished partitions, null to not record them
+     * @param parallelism the number of partitions updated at the same time
+     * @param taskRunner the runner of the partitions if the parallelism is greater than one, null to run them in turn
+     */
+    void write(ResourceResolver resourceResolver, List<String> paths, int partitionSize,
+               ReplicationStatusCheckpoint checkpoint, int parallelism, ThrottledTaskRunner taskRunner)
+            throws RepositoryException {
+        final int partitions = (paths.size() + partitionSize - 1) / partitionSize;
+        final Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final List<CompletableFuture<Void>> partitionsDone = new ArrayList<>();
+
+        for (int i = 0; i < partitions && failure.get() == null; i++) {
+            if (checkpoint != null && checkpoint.isFinished(i)) {
+                log.debug("Skipping partition [ {} ] updated by a previous attempt", i);
+                continue;
+            }
+            final int partition = i;
+            final List<String> partitionPaths =
+                    paths.subList(i * partitionSize, Math.min(paths.size(), (i + 1) * partitionSize));
+
+            if (parallelism <= 1 || taskRunner == null) {
+                writePartition(resourceResolver, partition, partitionPaths, checkpoint);
+                continue;
+            }
+
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RepositoryException("Interrupted while updating replication status", e);
+            }
+            final CompletableFuture<Void> partitionDone = new CompletableFuture<>();
+            partitionsDone.add(partitionDone);
+            taskRunner.scheduleWork(() -> {
+                try (ResourceResolver partitionResolver = resourceResolver.clone(null)) {
+                    writePartition(partitionResolver, partition, partitionPaths, checkpoint);
+                } catch (LoginException | RepositoryException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    permits.release();
+                    partitionDone.complete(null);
+                }
+            });
+        }
+
+        try {
+            CompletableFuture.allOf(partitionsDone.toArray(new CompletableFuture[0])).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while updating replication status", e);
+        } catch (ExecutionException e) {
+            // the futures are only ever completed normally
+            failure.compareAndSet(null, e);
+        }
+
+        final Exception e = failure.get();
+        if (e instanceof RepositoryException) {
+            throw (RepositoryException) e;
+        } else if (e != null) {
+            throw new RepositoryException("Could not update the replication status of a partition", e);
+        }
+    }
+
+    private void writePartition(ResourceResolver resourceResolver, int partition, List<String> paths,
+                                ReplicationStatusCheckpoint checkpoint) throws RepositoryException {
+        final List<Resource> batch = new ArrayList<>();
+        for (final String path : paths) {
+            final Resource resource = resourceResolver.getResource(path);
+            if (!resourceFilter.accept(resource)) {
+                continue;
+            }
+            if (isCurrent(resource)) {
+                current.incrementAndGet();
+                continue;
+            }
+            batch.add(resource);
+            if (batch.size() >= batchSize.get()) {
+                commit(resourceResolver, batch);
+            }
+        }
+
+        try {
+            if (checkpoint != null) {
+                checkpoint.markFinished(resourceResolver, partition);
+            }
+            if (!batch.isEmpty()) {
+                commit(resourceResolver, batch);
+            } else if (checkpoint != null) {
+                resourceResolver.commit();
+            }
+        } catch (PersistenceException e) {
+            throw new RepositoryException("Could not record the update of partition " + partition, e);
+        }
+        log.debug("Updated replication status of partition [ {} ] with [ {} ] paths", partition, paths.size());
+    }
+
+    /**
+     * Update and save a batch, and adapt the size of the next batches to the time it took.
+     */
+    private void commit(ResourceResolver resourceResolver, List<Resource> batch) throws RepositoryException {
+        final long start = System.currentTimeMillis();
+        try {
+            replicationStatusManager.setReplicationStatus(resourceResolver, agentIds, replicatedBy, replicatedAt,
+                    ReplicationStatusManager.Status.ACTIVATED, batch.toArray(new Resource[0]));
+        } catch (RepositoryException | PersistenceException e) {
+            // enrich exception with path information (limited to 10 paths only)
+            String paths = batch.stream().map(Resource::getPath).limit(10).collect(Collectors.joining(", "));
+            throw new RepositoryException("Exception occurred updating replication status covering paths: '"
+                    + paths + ", ...'", e);
+        }
+        final long duration = System.currentTimeMillis() - start;
+        updated.addAndGet(batch.size());
+
+        final int size = batchSize.get();
+        if (duration > TARGET_COMMIT_MILLIS) {
+            batchSize.compareAndSet(size, Math.max(MIN_BATCH_SIZE, size / 2));
+        } else if (duration < TARGET_COMMIT_MILLIS / 2 && batch.size() >= size) {
+            batchSize.compareAndSet(size, Math.min(MAX_BATCH_SIZE, size * 2));
+        }
+        log.trace("Saved replication status of [ {} ] resources in [ {} ] ms, next batch size [ {} ]",
+                batch.size(), duration, batchSize.get());
+        batch.clear();
+    }
+
+    /**
+     * @return true if the resource has the replication status to set already, e.g. as a previous attempt of the job
+     * set it
+     */
+    private boolean isCurrent(Resource resource) throws RepositoryException {
+        if (replicatedAt == null) {
+            // the current time is set then
+            return false;
+        }
+        final Node node = resource.adaptTo(Node.class);
+        if (node == null || !node.isNodeType(ReplicationStatus.NODE_TYPE)) {
+            return false;
+        }
+        final String expectedReplicatedBy = StringUtils.defaultString(replicatedBy,
+                ReplicationStatusManagerImpl.DEFAULT_REPLICATED_BY);
+        final List<String> suffixes = new ArrayList<>();
+        suffixes.add("");
+        for (final String agentId : agentIds) {
+            suffixes.add("_" + agentId);
+        }
+        for (final String suffix : suffixes) {
+            final String lastReplicated = ReplicationStatus.NODE_PROPERTY_LAST_REPLICATED + suffix;
+            final String lastReplicatedBy = ReplicationStatus.NODE_PROPERTY_LAST_REPLICATED_BY + suffix;
+            final String lastReplicationAction = ReplicationStatus.NODE_PROPERTY_LAST_REPLICATION_ACTION + suffix;
+            if (!node.hasProperty(lastReplicated) || !node.hasProperty(lastReplicatedBy)
+                    || !node.hasProperty(lastReplicationAction)
+                    || node.getProperty(lastReplicated).getDate().getTimeInMillis() != replicatedAt.getTimeInMillis()
+                    || !expectedReplicatedBy.equals(node.getProperty(lastReplicatedBy).getString())
+                    || !REP_STATUS_ACTIVATE.equals(node.getProperty(lastReplicationAction).getString())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of resources whose replication status was updated
+     */
+    int getUpdatedCount() {
+        return updated.get();
+    }
+
+    /**
+     * @return the number of resources skipped as their replication status was current already
+     */
+    int getCurrentCount() {
+        return current.get();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.replication.status.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+
+import com.day.cq.commons.jcr.JcrConstants;
+
+/**
+ * Progress of a package replication status update job, persisted so that a restarted job skips the partitions of
+ * the package contents which were updated already, and sets the same replicated at date as before.
+ * <p>
+ * Each finished partition is marked by a child resource, created with the session that updated the partition and
+ * saved with its last batch.
+ * <pre>
+ * /var/acs-commons/replication-status/checkpoints/{uuid of the job id}
+ *   packagePath, partitionSize, replicatedAt
+ *   partition-0
+ *   ...
+ * </pre>
+ */
+final class ReplicationStatusCheckpoint {
+    static final String CHECKPOINTS_PATH = "/var/acs-commons/replication-status/checkpoints";
+
+    private static final String NT_SLING_FOLDER = "sling:Folder";
+    private static final String PROPERTY_PACKAGE_PATH = "packagePath";
+    private static final String PROPERTY_PARTITION_SIZE = "partitionSize";
+    private static final String PROPERTY_REPLICATED_AT = "replicatedAt";
+    private static final String PARTITION_PREFIX = "partition-";
+
+    private final String path;
+    private final int partitionSize;
+    private final Calendar replicatedAt;
+    private final Set<Integer> finishedPartitions;
+
+    private ReplicationStatusCheckpoint(String path, int partitionSize, Calendar replicatedAt,
+                                        Set<Integer> finishedPartitions) {
+        this.path = path;
+        this.partitionSize = partitionSize;
+        this.replicatedAt = replicatedAt;
+        this.finishedPartitions = finishedPartitions;
+    }
+
+    /**
+     * Get the checkpoint of a job, created if missing.
+     *
+     * @param resourceResolver the resource resolver of the job
+     * @param jobId the id of the job, which is kept when the job is restarted
+     * @param packagePath the path of the replicated package
+     * @param partitionSize the number of package paths per partition
+     * @param replicatedAt the replicated at date to set
+     * @return the checkpoint, with the partition size and replicated at date of the first attempt if it existed
+     */
+    static ReplicationStatusCheckpoint getOrCreate(ResourceResolver resourceResolver, String jobId, String packagePath,
+                                                   int partitionSize, Calendar replicatedAt) throws PersistenceException {
+        String path = CHECKPOINTS_PATH + "/" + UUID.nameUUIDFromBytes(jobId.getBytes(StandardCharsets.UTF_8));
+        Resource resource = resourceResolver.getResource(path);
+        if (resource != null) {
+            ValueMap properties = resource.getValueMap();
+            Set<Integer> finished = new HashSet<>();
+            for (Resource child : resource.getChildren()) {
+                String index = StringUtils.substringAfter(child.getName(), PARTITION_PREFIX);
+                if (StringUtils.isNumeric(index)) {
+                    finished.add(Integer.valueOf(index));
+                }
+            }
+            Calendar firstReplicatedAt = properties.get(PROPERTY_REPLICATED_AT, Calendar.class);
+            return new ReplicationStatusCheckpoint(path,
+                    properties.get(PROPERTY_PARTITION_SIZE, partitionSize),
+                    firstReplicatedAt != null ? firstReplicatedAt : replicatedAt,
+                    finished);
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(JcrConstants.JCR_PRIMARYTYPE, NT_SLING_FOLDER);
+        properties.put(PROPERTY_PACKAGE_PATH, packagePath);
+        properties.put(PROPERTY_PARTITION_SIZE, partitionSize);
+        if (replicatedAt != null) {
+            properties.put(PROPERTY_REPLICATED_AT, replicatedAt);
+        }
+        ResourceUtil.getOrCreateResource(resourceResolver, path, properties, NT_SLING_FOLDER, true);
+        return new ReplicationStatusCheckpoint(path, partitionSize, replicatedAt, new HashSet<>());
+    }
+
+    int getPartitionSize() {
+        return partitionSize;
+    }
+
+    Calendar getReplicatedAt() {
+        return replicatedAt;
+    }
+
+    int getFinishedPartitionCount() {
+        return finishedPartitions.size();
+    }
+
+    boolean isFinished(int partition) {
+        return finishedPartitions.contains(partition);
+    }
+
+    /**
+     * Mark a partition as finished, saved with the next save of the session of the given resource resolver.
+     *
+     * @param resourceResolver the resource resolver which updated the partition
+     * @param partition the index of the partition
+     */
+    void markFinished(ResourceResolver resourceResolver, int partition) throws PersistenceException {
+        Resource resource = resourceResolver.getResource(path);
+        if (resource != null) {
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(JcrConstants.JCR_PRIMARYTYPE, JcrConstants.NT_UNSTRUCTURED);
+            resourceResolver.create(resource, PARTITION_PREFIX + partition, properties);
+        }
+    }
+
+    /**
+     * Remove the checkpoint once the job completed.
+     *
+     * @param resourceResolver the resource resolver of the job
+     */
+    void delete(ResourceResolver resourceResolver) throws PersistenceException {
+        // pick up the partitions marked by the sessions of the partitions
+        resourceResolver.refresh();
+        Resource resource = resourceResolver.getResource(path);
+        if (resource != null) {
+            resourceResolver.delete(resource);
+            resourceResolver.commit();
+        }
+    }
+}
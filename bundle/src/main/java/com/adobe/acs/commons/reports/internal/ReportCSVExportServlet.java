@@ -17,24 +17,41 @@
  */
 package com.adobe.acs.commons.reports.internal;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.builder.Builders;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
-import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.SlingAllMethodsServlet;
 import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.jetbrains.annotations.NotNull;
 import org.osgi.service.component.annotations.Component;
@@ -42,30 +59,50 @@ import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.ActionManagerFactory;
 import com.adobe.acs.commons.reports.api.ReportCellCSVExporter;
 import com.adobe.acs.commons.reports.api.ReportException;
 import com.adobe.acs.commons.reports.api.ReportExecutor;
 import com.adobe.acs.commons.reports.api.ResultsPage;
 import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.commons.jcr.JcrUtil;
+import com.day.cq.dam.api.AssetManager;
 import com.day.text.csv.Csv;
+import com.google.gson.JsonObject;
 
 /**
  * Servlet for exporting the results of the report to CSV.
+ * <p>
+ * A GET streams the CSV to the client. A POST exports the report in the background to a CSV asset below
+ * {@value #EXPORT_FOLDER} with the permissions of the current user, which is meant for reports too large to be
+ * downloaded within a request.
  */
 @Component(service = { Servlet.class }, property = {
     "sling.servlet.resourceTypes=acs-commons/components/utilities/report-builder/report-page",
-    "sling.servlet.selectors=report", "sling.servlet.extensions=csv", "sling.servlet.methods=GET" })
-public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
+    "sling.servlet.selectors=report", "sling.servlet.extensions=csv", "sling.servlet.methods=GET",
+    "sling.servlet.methods=POST" })
+public class ReportCSVExportServlet extends SlingAllMethodsServlet {
 
   private static final long serialVersionUID = 2794836639686938093L;
   private static final Logger log = LoggerFactory.getLogger(ReportCSVExportServlet.class);
 
+  static final String EXPORT_FOLDER = "/content/dam/acs-commons/reports";
+
+  /**
+   * Number of rows after which the writer is flushed, rather than after every row.
+   */
+  private static final int FLUSH_INTERVAL = 500;
+
   @Reference
   private transient DynamicClassLoaderManager dynamicClassLoaderManager;
 
   @Reference
   private DelimiterConfiguration delimiterConfiguration;
 
+  @Reference
+  private transient ActionManagerFactory actionManagerFactory;
+
   @Override
   protected void doGet(@NotNull SlingHttpServletRequest request, @NotNull SlingHttpServletResponse response)
       throws ServletException, IOException {
@@ -81,7 +118,73 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
     Writer writer = null;
     try {
       writer = response.getWriter();
+      writeReport(request, writer);
+    } finally {
+      IOUtils.closeQuietly(writer);
+    }
+  }
+
+  @Override
+  protected void doPost(@NotNull SlingHttpServletRequest request, @NotNull SlingHttpServletResponse response)
+      throws ServletException, IOException {
+    Resource report = request.getResource();
+    if (report.getChild("config") == null) {
+      response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No configurations found for " + report);
+      return;
+    }
+    String reportPath = report.getPath();
+    String assetPath = EXPORT_FOLDER + "/"
+        + JcrUtil.createValidName(report.getValueMap().get(JcrConstants.JCR_TITLE, "report"))
+        + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv";
+    Map<String, String[]> parameters = new HashMap<>(request.getParameterMap());
+
+    ActionManager manager;
+    try {
+      actionManagerFactory.purgeCompletedTasks();
+      manager = actionManagerFactory.createTaskManager("Report export @ " + reportPath, request.getResourceResolver(), 1);
+    } catch (LoginException e) {
+      throw new ServletException("Unable to start report export", e);
+    }
+    manager.deferredWithResolver(rr -> exportToAsset(rr, reportPath, parameters, assetPath));
+    log.info("Started export of report {} to {}", reportPath, assetPath);
 
+    JsonObject json = new JsonObject();
+    json.addProperty("path", assetPath);
+    response.setStatus(HttpServletResponse.SC_ACCEPTED);
+    response.setContentType("application/json;charset=utf-8");
+    response.getWriter().write(json.toString());
+  }
+
+  private void exportToAsset(ResourceResolver resolver, String reportPath, Map<String, String[]> parameters,
+      String assetPath) throws IOException, ReportException {
+    Resource report = Optional.ofNullable(resolver.getResource(reportPath))
+        .orElseThrow(() -> new ReportException("Report not found at " + reportPath));
+    SlingHttpServletRequest exportRequest = Builders.newRequestBuilder(report)
+        .withRequestMethod("GET")
+        .withSelectors("report")
+        .withExtension("csv")
+        .withParameters(parameters)
+        .build();
+
+    // spool to a temp file, the asset is created from the complete CSV
+    File file = File.createTempFile("report-", ".csv");
+    try {
+      try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+        writeReport(exportRequest, writer);
+      }
+      AssetManager assetManager = Optional.ofNullable(resolver.adaptTo(AssetManager.class))
+          .orElseThrow(() -> new PersistenceException("Failed to get AssetManager"));
+      try (InputStream is = new FileInputStream(file)) {
+        assetManager.createAsset(assetPath, is, "text/csv", true);
+      }
+      log.info("Exported report {} to {}", reportPath, assetPath);
+    } finally {
+      Files.deleteIfExists(file.toPath());
+    }
+  }
+
+  private void writeReport(SlingHttpServletRequest request, Writer writer) throws IOException, ServletException {
+    try {
       // write the BOM to indicate this is a UTF-8 file
       writer.write("\uFEFF");
 
@@ -112,8 +215,6 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
       }
     } catch (ReportException e) {
       throw new ServletException("Exception extracting report to CSV", e);
-    } finally {
-      IOUtils.closeQuietly(writer);
     }
   }
 
@@ -160,6 +261,8 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
     Stream<? extends Object> results = queryResult.getResults();
     log.debug("Retrieved {} results", queryResult.getResultSize());
 
+    // the results are streamed, so each row is written as soon as it is produced and not retained
+    AtomicLong rows = new AtomicLong();
     results.forEach(r -> {
       List<String> row = new ArrayList<>();
       try {
@@ -167,13 +270,15 @@ public class ReportCSVExportServlet extends SlingSafeMethodsServlet {
           row.add(exporter.getValue(r));
         }
         csv.writeRow(row.toArray(new String[row.size()]));
-        writer.flush();
+        if (rows.incrementAndGet() % FLUSH_INTERVAL == 0) {
+          writer.flush();
+        }
       } catch (Exception e) {
         log.warn("Exception writing row: " + row, e);
       }
     });
 
-    log.debug("Results written successfully");
+    log.debug("{} results written successfully", rows.get());
 
   }
 }
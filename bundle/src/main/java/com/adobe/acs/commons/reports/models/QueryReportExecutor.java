@@ -22,6 +22,7 @@ import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,7 @@ import com.adobe.acs.commons.util.ParameterUtil;
 import com.adobe.acs.commons.util.impl.QueryHelperImpl;
 import com.day.cq.search.PredicateGroup;
 import com.day.cq.search.QueryBuilder;
+import com.day.cq.search.result.Hit;
 import com.day.cq.search.result.SearchResult;
 import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
@@ -114,10 +116,18 @@ public class QueryReportExecutor implements ReportExecutor {
     }
 
     private com.day.cq.search.Query prepareQueryBuilderQuery() throws ReportException {
+        return prepareQueryBuilderQuery(false);
+    }
+
+    private com.day.cq.search.Query prepareQueryBuilderQuery(boolean guessTotal) throws ReportException {
 
         Session session = getSession();
         final Map<String, String> params = ParameterUtil.toMap(prepareStatement().split("\n\n?"), "=", false, null,
                 true);
+        if (guessTotal) {
+            // the total is not needed, so do not count all results for every window
+            params.putIfAbsent("p.guessTotal", "true");
+        }
 
         return queryBuilder.createQuery(PredicateGroup.create(params),
                 session);
@@ -141,17 +151,25 @@ public class QueryReportExecutor implements ReportExecutor {
             count = result.getHits().size();
         }
         ResourceResolver resolver = this.request.getResourceResolver();
-        return ImmutablePair.of(result.getHits().stream().map(h -> {
-            try {
-                return resolver.getResource(h.getPath());
-            } catch (RepositoryException e) {
-                log.warn("Could not get node behind search result hit", e);
-                return null;
-            }
-        }), count);
+        return ImmutablePair.of(result.getHits().stream().map(h -> getResource(h, resolver)), count);
 
     }
 
+    /**
+     * Executes the query builder query once and lazily iterates over the resources of its results, so that neither
+     * all hits nor all resources are held at a time and no page of the results is queried twice.
+     */
+    private Stream<Resource> getAllResultsFromQueryBuilder() throws ReportException {
+        com.day.cq.search.Query query = prepareQueryBuilderQuery(true);
+        // no paging, the result is iterated lazily
+        query.setHitsPerPage(0);
+        log.debug("Fetching all results");
+
+        Iterator<Resource> resources = query.getResult().getResources();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(resources,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     private Pair<Stream<Resource>, Long> getResultsFromQuery(int limit, int offset)
             throws RepositoryException, ReportException {
         String statement = prepareStatement();
@@ -180,6 +198,10 @@ public class QueryReportExecutor implements ReportExecutor {
 
     @Override
     public ResultsPage getAllResults() throws ReportException {
+        if (isQueryBuilder()) {
+            return new ResultsPage(getAllResultsFromQueryBuilder(), config.getPageSize(), page, -1);
+        }
+        // the node iterator of JCR queries is lazy already
         return fetchResults(Integer.MAX_VALUE, 0);
     }
 
@@ -252,6 +274,15 @@ public class QueryReportExecutor implements ReportExecutor {
         return StringUtils.join(params, "&");
     }
 
+    private Resource getResource(Hit hit, ResourceResolver resolver) {
+        try {
+            return resolver.getResource(hit.getPath());
+        } catch (RepositoryException e) {
+            log.warn("Could not get node behind search result hit", e);
+            return null;
+        }
+    }
+
     private Resource getResource(Node node, ResourceResolver resolver) {
         try {
             return resolver.getResource(node.getPath());
@@ -31,7 +31,6 @@ import org.xml.sax.helpers.AttributesImpl;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -62,50 +61,42 @@ public class ContentVariableTransformer extends ContentHandlerBasedTransformer {
 
     public void startElement(String uri, String localName, String quaName, Attributes atts) throws SAXException {
         if (shouldRun()) {
-            AttributesImpl newAttrs = new AttributesImpl(atts);
-            for (int i = 0; i < newAttrs.getLength(); i++) {
-                String currentAttribute = newAttrs.getValue(i);
+            AttributesImpl newAttrs = null;
+            for (int i = 0; i < atts.getLength(); i++) {
+                String currentAttribute = atts.getValue(i);
                 if (StringUtils.isBlank(currentAttribute)) {
                     continue;
                 }
-                final List<String> keys = ContentVariableReplacementUtil.getKeys(currentAttribute);
-                for (String key : keys) {
-                    // If the placeholder key is in the map then replace it
-                    if (ContentVariableReplacementUtil.hasKey(contentVariableReplacements, key)) {
-                        String replaceValue =
-                                (String) ContentVariableReplacementUtil.getValue(contentVariableReplacements, key);
-                        String newAttrValue = ContentVariableReplacementUtil.doReplacement(currentAttribute, key,
-                                replaceValue, propertyConfigService.getAction(key));
-                        currentAttribute = newAttrValue;
-                        newAttrs.setValue(i, newAttrValue);
+                String newAttrValue = ContentVariableReplacementUtil.replaceAll(currentAttribute,
+                        contentVariableReplacements, propertyConfigService::getAction);
+                // the attribute itself is returned if there was nothing to replace
+                if (newAttrValue != currentAttribute) {
+                    if (newAttrs == null) {
+                        newAttrs = new AttributesImpl(atts);
                     }
+                    newAttrs.setValue(i, newAttrValue);
                 }
             }
-            getContentHandler().startElement(uri, localName, quaName, newAttrs);
+            getContentHandler().startElement(uri, localName, quaName, newAttrs != null ? newAttrs : atts);
         } else {
             getContentHandler().startElement(uri, localName, quaName, atts);
         }
     }
 
     public void characters(char[] ch, int start, int length) throws SAXException {
-        String currentString = new String(ch, start, length);
-
         if (shouldRun()) {
-
-            // Get the current placeholders in the string
-            final List<String> keys = ContentVariableReplacementUtil.getKeys(currentString);
-            for (String key : keys) {
-                // If the placeholder key is in the map then replace it
-                if (ContentVariableReplacementUtil.hasKey(contentVariableReplacements, key)) {
-                    final String placeholderReplacement =
-                            String.valueOf(ContentVariableReplacementUtil.getValue(contentVariableReplacements, key));
-                    currentString = ContentVariableReplacementUtil.doReplacement(currentString, key,
-                            placeholderReplacement, propertyConfigService.getAction(key));
-                }
+            // Replace the placeholders in a single pass, the characters are passed on as is if there are none
+            final StringBuilder replaced = ContentVariableReplacementUtil.replaceAll(ch, start, length,
+                    contentVariableReplacements, propertyConfigService::getAction);
+            if (replaced != null) {
+                final char[] replacedChars = new char[replaced.length()];
+                replaced.getChars(0, replaced.length(), replacedChars, 0);
+                getContentHandler().characters(replacedChars, 0, replacedChars.length);
+                return;
             }
         }
 
-        getContentHandler().characters(currentString.toCharArray(), 0, currentString.length());
+        getContentHandler().characters(ch, start, length);
     }
 
     private boolean shouldRun() {
@@ -148,7 +148,7 @@ public class RequestThrottler implements Filter {
 
     private static final Logger LOG = LoggerFactory.getLogger(RequestThrottler.class);
 
-    ThrottlingState state;
+    SlidingWindowThrottlingState state;
     private Config config;
 
     CpuLoadEstimator loadEstimator;
@@ -165,7 +165,7 @@ public class RequestThrottler implements Filter {
                 c.start_throttling_percentage());
         loadEstimator = new CpuLoadEstimator(tc);
         clock = Clock.systemUTC();
-        this.state = new ThrottlingState(clock, loadEstimator);
+        this.state = new SlidingWindowThrottlingState(clock, loadEstimator);
 
         // precompile all patterns
         filteredPaths = Arrays.asList(config.filtered_paths()).stream().map(s -> Pattern.compile(s))
@@ -0,0 +1,136 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.throttling;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Lock-free variant of the ThrottlingState, making the same decisions with a
+ * resolution of one second.
+ *
+ * The minute is divided into buckets of one second, each counting the requests
+ * which passed during that second. A request passes if the requests counted in
+ * the buckets of the last minute stay within the limit of the LoadEstimator.
+ *
+ * Each bucket is a single long holding the second it counts for in the upper
+ * and the count in the lower 32 bits, so that a bucket is reused for a new
+ * second and counted up with a single compare-and-set, and changes of the limit
+ * need no resizing at all.
+ *
+ * A request first takes its slot and gives it back if the limit turns out to be
+ * exceeded, so concurrent requests never let more requests pass than permitted.
+ * Requests racing for the last free slots might both be throttled, though.
+ */
+class SlidingWindowThrottlingState {
+
+    static final int BUCKETS = 60;
+
+    private static final long BUCKET_MILLIS = 1000;
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final Clock clock;
+
+    private final LoadEstimator loadEstimator;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    SlidingWindowThrottlingState(Clock clock, LoadEstimator le) {
+        this.clock = clock;
+        this.loadEstimator = le;
+    }
+
+    ThrottlingDecision evaluateThrottling() {
+        long now = clock.instant().toEpochMilli();
+        long second = now / BUCKET_MILLIS;
+        int limit = loadEstimator.getMaxRequestPerMinute();
+
+        if (limit > 0) {
+            int index = (int) (second % BUCKETS);
+            increment(index, second);
+            if (countWindow(second) <= limit) {
+                return new ThrottlingDecision(ThrottlingDecision.State.NOTHROTTLE);
+            }
+            decrement(index, second);
+        }
+
+        long diff = getDelay(now, second);
+        return new ThrottlingDecision(ThrottlingDecision.State.THROTTLE).withDelay(diff)
+                .withMessage("throttling required (at least " + diff + " ms)");
+    }
+
+    private void increment(int index, long second) {
+        long bucket;
+        long updated;
+        do {
+            bucket = buckets.get(index);
+            // a bucket of an earlier minute is reused for the current second
+            updated = secondOf(bucket) == second ? bucket + 1 : (second << 32) | 1;
+        } while (!buckets.compareAndSet(index, bucket, updated));
+    }
+
+    private void decrement(int index, long second) {
+        long bucket;
+        do {
+            bucket = buckets.get(index);
+            if (secondOf(bucket) != second || countOf(bucket) == 0) {
+                // the bucket moved on already
+                return;
+            }
+        } while (!buckets.compareAndSet(index, bucket, bucket - 1));
+    }
+
+    /**
+     * @return the number of requests which passed within the minute up to the given second
+     */
+    private long countWindow(long second) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = buckets.get(i);
+            if (second - secondOf(bucket) < BUCKETS) {
+                count += countOf(bucket);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the milliseconds until the oldest request within the last minute expires
+     */
+    private long getDelay(long now, long second) {
+        long oldest = second;
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = buckets.get(i);
+            long bucketSecond = secondOf(bucket);
+            if (second - bucketSecond < BUCKETS && countOf(bucket) > 0 && bucketSecond < oldest) {
+                oldest = bucketSecond;
+            }
+        }
+        return Math.max(0, (oldest + BUCKETS) * BUCKET_MILLIS - now);
+    }
+
+    private static long secondOf(long bucket) {
+        return bucket >>> 32;
+    }
+
+    private static long countOf(long bucket) {
+        return bucket & COUNT_MASK;
+    }
+
+}
@@ -39,6 +39,7 @@ public abstract class AbstractJCRCacheMBean<K,V> extends AbstractCacheMBean<K,V>
     private final AtomicLong    loadExceptionCount = new AtomicLong();
     private final AtomicLong    hitCount           = new AtomicLong();
     private final AtomicLong    missCount          = new AtomicLong();
+    private final AtomicLong    staleHitCount      = new AtomicLong();
     private final AtomicLong    requestCount       = new AtomicLong();
     private final AtomicLong    evictionCount      = new AtomicLong();
     private final AtomicLong    totalLookupTime    = new AtomicLong();
@@ -86,6 +87,10 @@ public abstract class AbstractJCRCacheMBean<K,V> extends AbstractCacheMBean<K,V>
         row.put(JMX_PN_VALUE, String.valueOf(getHitRate()));
         tabularData.put(new CompositeDataSupport(cacheEntryType, row));
 
+        row.put(JMX_PN_STAT, "Stale Hit Count");
+        row.put(JMX_PN_VALUE, String.valueOf(staleHitCount.get()));
+        tabularData.put(new CompositeDataSupport(cacheEntryType, row));
+
         row.put(JMX_PN_STAT, "Miss Count");
         row.put(JMX_PN_VALUE, String.valueOf(missCount.get()));
         tabularData.put(new CompositeDataSupport(cacheEntryType, row));
@@ -137,6 +142,7 @@ public abstract class AbstractJCRCacheMBean<K,V> extends AbstractCacheMBean<K,V>
         loadExceptionCount.getAndSet(0);
         hitCount.getAndSet(0);
         missCount.getAndSet(0);
+        staleHitCount.getAndSet(0);
         requestCount.getAndSet(0);
         evictionCount.getAndSet(0);
         totalLookupTime.getAndSet(0);
@@ -193,6 +199,10 @@ public abstract class AbstractJCRCacheMBean<K,V> extends AbstractCacheMBean<K,V>
         missCount.incrementAndGet();
     }
 
+    protected final void incrementStaleHitCount(){
+        staleHitCount.incrementAndGet();
+    }
+
     protected final void incrementRequestCount(){
         requestCount.incrementAndGet();
     }
@@ -0,0 +1,291 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.wcm.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.time.FastDateFormat;
+
+/**
+ * In-memory site map of one root page, kept as the rendered url entry of each page and asset ordered by path.
+ *
+ * Changed pages and assets are only marked dirty and rendered again on the next request, the whole site map is rendered
+ * from scratch when the root page changed, too many entries are dirty or it is older than the max age. The entries are
+ * split into gzipped shards of at most shard size entries, which get a new last modified date only when their content
+ * changed, and more than one shard are linked from a site map index.
+ */
+final class SiteMapCache {
+
+    private static final String NS = "http://www.sitemaps.org/schemas/sitemap/0.9";
+
+    private static final FastDateFormat INDEX_DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd'T'HH:mm:ssZZ");
+
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final String root;
+
+    private final int shardSize;
+
+    private final long maxAge;
+
+    private final boolean deepUpdates;
+
+    private final String encoding;
+
+    private final TreeMap<String, byte[]> entries = new TreeMap<>();
+
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    private volatile Collection<String> scopes = Collections.emptyList();
+
+    private volatile boolean stale = true;
+
+    private long built;
+
+    private List<Document> shards = Collections.emptyList();
+
+    private List<Document> documents;
+
+    /**
+     * @param root the path of the root page
+     * @param shardSize the maximum number of entries per shard
+     * @param maxAge the milliseconds after which the site map is rendered from scratch
+     * @param deepUpdates true if the entries of the descendants depend on a page, so that they are rendered again
+     *                    together with it
+     * @param encoding the character encoding of the documents
+     */
+    SiteMapCache(String root, int shardSize, long maxAge, boolean deepUpdates, String encoding) {
+        this.root = root;
+        this.shardSize = shardSize;
+        this.maxAge = maxAge;
+        this.deepUpdates = deepUpdates;
+        this.encoding = encoding;
+    }
+
+    /**
+     * Mark the page or asset at the given path as changed.
+     *
+     * @param path the path of the page or asset, without its jcr:content
+     */
+    void invalidate(String path) {
+        if (path.equals(root) || root.startsWith(path + "/")) {
+            stale = true;
+            return;
+        }
+        for (String scope : scopes) {
+            if (path.equals(scope) || path.startsWith(scope + "/")) {
+                dirty.add(path);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Bring the site map up to date.
+     *
+     * @param renderer renders the entries of the site map
+     * @return the document served for the site map itself, either the index or the only shard, followed by the shards
+     * @throws IOException if the site map could not be rendered
+     */
+    synchronized List<Document> refresh(Renderer renderer) throws IOException {
+        long now = System.currentTimeMillis();
+        if (stale || now - built > maxAge || dirty.size() > shardSize) {
+            // reset first, changes while rendering are picked up by the next request
+            stale = false;
+            dirty.clear();
+            entries.clear();
+            scopes = renderer.getScopes();
+            renderer.renderAll(entries::put);
+            built = now;
+        } else if (!dirty.isEmpty()) {
+            List<String> paths = new ArrayList<>(dirty);
+            dirty.removeAll(paths);
+            Collections.sort(paths);
+            for (String path : paths) {
+                update(renderer, path);
+            }
+        } else if (documents != null) {
+            return documents;
+        }
+        documents = buildDocuments(renderer, now);
+        return documents;
+    }
+
+    private void update(Renderer renderer, String path) throws IOException {
+        boolean exists = renderer.exists(path);
+        // new pages and folders bring their descendants along
+        boolean deep = !exists || deepUpdates || !entries.containsKey(path);
+        if (deep) {
+            entries.subMap(path + "/", path + "0").clear();
+        }
+        entries.remove(path);
+        if (exists) {
+            renderer.render(path, deep, entries::put);
+        }
+    }
+
+    private List<Document> buildDocuments(Renderer renderer, long now) throws IOException {
+        int count = Math.max(1, (entries.size() + shardSize - 1) / shardSize);
+        List<Document> updated = new ArrayList<>(count);
+        Iterator<byte[]> values = entries.values().iterator();
+        for (int i = 0; i < count; i++) {
+            List<byte[]> fragments = new ArrayList<>();
+            MessageDigest digest = DigestUtils.getMd5Digest();
+            while (fragments.size() < shardSize && values.hasNext()) {
+                byte[] fragment = values.next();
+                digest.update(fragment);
+                fragments.add(fragment);
+            }
+            byte[] checksum = digest.digest();
+            Document previous = i < shards.size() ? shards.get(i) : null;
+            if (previous != null && Arrays.equals(previous.checksum, checksum)) {
+                updated.add(previous);
+            } else {
+                updated.add(new Document(writeShard(fragments), now, checksum));
+            }
+        }
+        shards = updated;
+
+        List<Document> result = new ArrayList<>(count + 1);
+        result.add(count == 1 ? shards.get(0) : new Document(writeIndex(renderer), getLastModified(shards), null));
+        result.addAll(shards);
+        return Collections.unmodifiableList(result);
+    }
+
+    private byte[] writeShard(List<byte[]> fragments) throws IOException {
+        Charset charset = Charset.forName(encoding);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(("<?xml version=\"1.0\" encoding=\"" + encoding + "\"?><urlset xmlns=\"" + NS + "\">").getBytes(charset));
+            for (byte[] fragment : fragments) {
+                out.write(fragment);
+            }
+            out.write("</urlset>".getBytes(charset));
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] writeIndex(Renderer renderer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            XMLStreamWriter stream = OUTPUT_FACTORY.createXMLStreamWriter(out, encoding);
+            stream.writeStartDocument(encoding, "1.0");
+            stream.writeStartElement("", "sitemapindex", NS);
+            stream.writeNamespace("", NS);
+            for (int i = 0; i < shards.size(); i++) {
+                stream.writeStartElement(NS, "sitemap");
+                stream.writeStartElement(NS, "loc");
+                stream.writeCharacters(renderer.getShardLocation(i + 1));
+                stream.writeEndElement();
+                stream.writeStartElement(NS, "lastmod");
+                stream.writeCharacters(INDEX_DATE_FORMAT.format(shards.get(i).getLastModified()));
+                stream.writeEndElement();
+                stream.writeEndElement();
+            }
+            stream.writeEndElement();
+            stream.writeEndDocument();
+            stream.flush();
+            stream.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static long getLastModified(List<Document> documents) {
+        long lastModified = 0;
+        for (Document document : documents) {
+            lastModified = Math.max(lastModified, document.getLastModified());
+        }
+        return lastModified;
+    }
+
+    /**
+     * A gzipped site map or site map index.
+     */
+    static final class Document {
+        private final byte[] content;
+        private final long lastModified;
+        private final byte[] checksum;
+
+        Document(byte[] content, long lastModified, byte[] checksum) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Renders the url entries of the site map, keyed by the path of their page or asset.
+     */
+    interface Renderer {
+
+        /**
+         * @return the root page path and the paths of the asset folders included in the site map
+         */
+        Collection<String> getScopes();
+
+        void renderAll(BiConsumer<String, byte[]> entries) throws IOException;
+
+        /**
+         * Render the entry of a page or asset.
+         *
+         * @param path the path of the page or asset
+         * @param deep true if the entries of its descendants are rendered as well
+         * @param entries receives the entries
+         * @throws IOException if rendering failed
+         */
+        void render(String path, boolean deep, BiConsumer<String, byte[]> entries) throws IOException;
+
+        boolean exists(String path);
+
+        /**
+         * @param shard the one-based shard number
+         * @return the external URL of the shard
+         */
+        String getShardLocation(int shard);
+    }
+}
@@ -19,7 +19,10 @@ package com.adobe.acs.commons.wcm.impl;
 
 import com.adobe.acs.commons.util.ParameterUtil;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -28,13 +31,22 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPInputStream;
 
+import javax.servlet.Servlet;
 import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.time.FastDateFormat;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -49,6 +61,8 @@ import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.slf4j.Logger;
@@ -65,15 +79,16 @@ import com.day.cq.wcm.api.PageFilter;
 import com.day.cq.wcm.api.PageManager;
 
 @Component(metatype = true, label = "ACS AEM Commons - Site Map Servlet", description = "Page and Asset Site Map Servlet", configurationFactory = true, policy = ConfigurationPolicy.REQUIRE)
-@Service
+@Service(value = { Servlet.class, ResourceChangeListener.class })
 @SuppressWarnings("serial")
 @Properties({
         @Property(name = "sling.servlet.resourceTypes", unbounded = PropertyUnbounded.ARRAY, label = "Sling Resource Type", description = "Sling Resource Type for the Home Page component or components."),
         @Property(name = "sling.servlet.selectors", value = "sitemap", propertyPrivate = true),
         @Property(name = "sling.servlet.extensions", value = "xml", propertyPrivate = true),
         @Property(name = "sling.servlet.methods", value = "GET", propertyPrivate = true),
+        @Property(name = ResourceChangeListener.PATHS, value = "/content", unbounded = PropertyUnbounded.ARRAY, label = "Cache Invalidation Paths", description = "Paths of the pages and assets whose changes update the cached site maps."),
         @Property(name = "webconsole.configurationFactory.nameHint", value = "Site Map for: {externalizer.domain}, on resource types: [{sling.servlet.resourceTypes}]") })
-public final class SiteMapServlet extends SlingSafeMethodsServlet {
+public final class SiteMapServlet extends SlingSafeMethodsServlet implements ResourceChangeListener {
 
     private static final Logger log = LoggerFactory.getLogger(SiteMapServlet.class);
 
@@ -91,6 +106,14 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
 
     private static final boolean DEFAULT_USE_VANITY_URL = true;
 
+    private static final boolean DEFAULT_CACHE_ENABLED = false;
+
+    private static final int DEFAULT_CACHE_SHARD_SIZE = 50000;
+
+    private static final int DEFAULT_CACHE_MAX_AGE = 3600;
+
+    private static final PageFilter PAGE_FILTER = new PageFilter(false, true);
+
     @Property(value = DEFAULT_EXTERNALIZER_DOMAIN, label = "Externalizer Domain", description = "Must correspond to a configuration of the Externalizer component. If blank the externalization will prepend the current request's scheme combined with the current request's host header.")
     private static final String PROP_EXTERNALIZER_DOMAIN = "externalizer.domain";
 
@@ -133,6 +156,15 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
     @Property(boolValue = DEFAULT_USE_VANITY_URL, label = "Use Vanity URLs", description = "Use the Vanity URL for generating the Page URL")
     private static final String USE_VANITY_URL = "use.vanity";
 
+    @Property(boolValue = DEFAULT_CACHE_ENABLED, label = "Cache Site Map", description = "If true, the site map is kept in memory and served gzipped with a Last-Modified header. Changed pages and assets are rendered again on the next request only. Requires an Externalizer Domain. Only anonymous requests are served from the cache, authenticated requests are rendered with the permissions of their user.")
+    private static final String PROP_CACHE_ENABLED = "cache.enabled";
+
+    @Property(intValue = DEFAULT_CACHE_SHARD_SIZE, label = "Cache Shard Size", description = "Maximum number of URLs per cached site map. Larger site maps are split into <page>.sitemap.<n>.xml files listed by a site map index.")
+    private static final String PROP_CACHE_SHARD_SIZE = "cache.shard.size";
+
+    @Property(intValue = DEFAULT_CACHE_MAX_AGE, label = "Cache Max Age", description = "Seconds after which the cached site map is rendered from scratch, e.g. to pick up on and off times.")
+    private static final String PROP_CACHE_MAX_AGE = "cache.max.age";
+
     private static final String NS = "http://www.sitemaps.org/schemas/sitemap/0.9";
 
     @Reference
@@ -166,6 +198,14 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
 
     private boolean useVanityUrl;
 
+    private boolean cacheEnabled;
+
+    private int cacheShardSize;
+
+    private long cacheMaxAge;
+
+    private final transient ConcurrentMap<String, SiteMapCache> caches = new ConcurrentHashMap<>();
+
     @Activate
     protected void activate(Map<String, Object> properties) {
         this.externalizerDomain = PropertiesUtil.toString(properties.get(PROP_EXTERNALIZER_DOMAIN),
@@ -190,19 +230,45 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
                 DEFAULT_REMOVE_TRAILING_SLASH);
         this.excludedPageTemplates = Arrays.asList(PropertiesUtil.toStringArray(properties.get(TEMPLATE_EXCLUDE_FROM_SITEMAP_PROPERTY),new String[0]));
         this.useVanityUrl =  PropertiesUtil.toBoolean(properties.get(USE_VANITY_URL), DEFAULT_USE_VANITY_URL);
+        this.cacheEnabled = PropertiesUtil.toBoolean(properties.get(PROP_CACHE_ENABLED), DEFAULT_CACHE_ENABLED);
+        this.cacheShardSize = Math.max(1, PropertiesUtil.toInteger(properties.get(PROP_CACHE_SHARD_SIZE), DEFAULT_CACHE_SHARD_SIZE));
+        this.cacheMaxAge = TimeUnit.SECONDS.toMillis(PropertiesUtil.toInteger(properties.get(PROP_CACHE_MAX_AGE), DEFAULT_CACHE_MAX_AGE));
+        this.caches.clear();
+    }
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        if (caches.isEmpty()) {
+            return;
+        }
+        for (ResourceChange change : changes) {
+            // changes of the content are changes of its page or asset
+            String path = StringUtils.substringBefore(change.getPath(), "/" + JcrConstants.JCR_CONTENT);
+            for (SiteMapCache cache : caches.values()) {
+                cache.invalidate(path);
+            }
+        }
     }
 
     @Override
     protected void doGet(SlingHttpServletRequest request, SlingHttpServletResponse response)
             throws ServletException, IOException {
         response.setContentType(request.getResponseContentType());
-        if (StringUtils.isNotEmpty(this.characterEncoding)) {
-            response.setCharacterEncoding(characterEncoding);
-        }
         ResourceResolver resourceResolver = request.getResourceResolver();
         PageManager pageManager = resourceResolver.adaptTo(PageManager.class);
         Page page = pageManager.getContainingPage(request.getResource());
 
+        // the cached site map must not depend on the host of the request, nor on the permissions of its user,
+        // as it is rendered with the resolver of the request which refreshes it
+        if (cacheEnabled && StringUtils.isNotBlank(externalizerDomain) && request.getAuthType() == null) {
+            writeCached(page, request, response);
+            return;
+        }
+
+        if (StringUtils.isNotEmpty(this.characterEncoding)) {
+            response.setCharacterEncoding(characterEncoding);
+        }
+
         XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
         XMLStreamWriter stream = null;
         try {
@@ -215,7 +281,7 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
             // first do the current page
             write(page, stream, request);
 
-            for (Iterator<Page> children = page.listChildren(new PageFilter(false, true), true); children.hasNext();) {
+            for (Iterator<Page> children = page.listChildren(PAGE_FILTER, true); children.hasNext();) {
                 write(children.next(), stream, request);
             }
 
@@ -244,6 +310,54 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
         }
     }
 
+    private void writeCached(Page page, SlingHttpServletRequest request, SlingHttpServletResponse response)
+            throws IOException {
+        String encoding = StringUtils.defaultIfEmpty(characterEncoding, "UTF-8");
+        SiteMapCache cache = caches.computeIfAbsent(page.getPath(),
+                path -> new SiteMapCache(path, cacheShardSize, cacheMaxAge, includeInheritValue, encoding));
+        List<SiteMapCache.Document> documents = cache.refresh(new CacheRenderer(page, request, encoding));
+
+        int shard = getShard(request);
+        if (shard < 0 || shard >= documents.size()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        SiteMapCache.Document document = documents.get(shard);
+
+        // HTTP dates have a resolution of seconds
+        long lastModified = document.getLastModified() / 1000 * 1000;
+        response.setHeader("Vary", "Accept-Encoding");
+        if (request.getDateHeader("If-Modified-Since") >= lastModified) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setCharacterEncoding(encoding);
+
+        byte[] content = document.getContent();
+        if (StringUtils.contains(request.getHeader("Accept-Encoding"), "gzip")) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setContentLength(content.length);
+            response.getOutputStream().write(content);
+        } else {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content))) {
+                IOUtils.copy(in, response.getOutputStream());
+            }
+        }
+    }
+
+    /**
+     * @return the one-based shard of the request, 0 for the site map itself and -1 for an invalid shard
+     */
+    private int getShard(SlingHttpServletRequest request) {
+        String[] selectors = request.getRequestPathInfo().getSelectors();
+        if (selectors.length < 2) {
+            return 0;
+        }
+        int shard = NumberUtils.toInt(selectors[1], -1);
+        return shard > 0 ? shard : -1;
+    }
+
     private Collection<Resource> getAssetFolders(Page page, ResourceResolver resolver) {
         List<Resource> allAssetFolders = new ArrayList<Resource>();
         ValueMap properties = page.getProperties();
@@ -433,4 +547,134 @@ public final class SiteMapServlet extends SlingSafeMethodsServlet {
         stream.writeEndElement();
     }
 
+    @FunctionalInterface
+    private interface Entry {
+        void write(XMLStreamWriter stream) throws XMLStreamException;
+    }
+
+    /**
+     * Renders the url entries of a cached site map with the same rules as the uncached site map, each into its own
+     * fragment.
+     */
+    private final class CacheRenderer implements SiteMapCache.Renderer {
+
+        private final Page page;
+
+        private final SlingHttpServletRequest request;
+
+        private final ResourceResolver resourceResolver;
+
+        private final String encoding;
+
+        private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        private final boolean includeAssets = !damAssetTypes.isEmpty() && !damAssetProperty.isEmpty();
+
+        CacheRenderer(Page page, SlingHttpServletRequest request, String encoding) {
+            this.page = page;
+            this.request = request;
+            this.resourceResolver = request.getResourceResolver();
+            this.encoding = encoding;
+        }
+
+        @Override
+        public Collection<String> getScopes() {
+            List<String> scopes = new ArrayList<>();
+            scopes.add(page.getPath());
+            if (includeAssets) {
+                for (Resource assetFolder : getAssetFolders(page, resourceResolver)) {
+                    scopes.add(assetFolder.getPath());
+                }
+            }
+            return scopes;
+        }
+
+        @Override
+        public void renderAll(BiConsumer<String, byte[]> entries) throws IOException {
+            renderPage(page, entries);
+            for (Iterator<Page> children = page.listChildren(PAGE_FILTER, true); children.hasNext();) {
+                renderPage(children.next(), entries);
+            }
+            if (includeAssets) {
+                for (Resource assetFolder : getAssetFolders(page, resourceResolver)) {
+                    renderAssets(assetFolder, entries);
+                }
+            }
+        }
+
+        @Override
+        public void render(String path, boolean deep, BiConsumer<String, byte[]> entries) throws IOException {
+            Resource resource = resourceResolver.getResource(path);
+            if (resource == null) {
+                return;
+            }
+            Page child = resource.adaptTo(Page.class);
+            if (child != null) {
+                if (PAGE_FILTER.includes(child)) {
+                    renderPage(child, entries);
+                }
+                if (deep) {
+                    for (Iterator<Page> children = child.listChildren(PAGE_FILTER, true); children.hasNext();) {
+                        renderPage(children.next(), entries);
+                    }
+                }
+            } else if (includeAssets && resource.isResourceType(DamConstants.NT_DAM_ASSET)) {
+                renderAsset(resource, entries);
+            } else if (includeAssets && deep) {
+                renderAssets(resource, entries);
+            }
+        }
+
+        @Override
+        public boolean exists(String path) {
+            return resourceResolver.getResource(path) != null;
+        }
+
+        @Override
+        public String getShardLocation(int shard) {
+            return applyUrlRewrites(externalizeUri(request, String.format("%s.sitemap.%d.xml", page.getPath(), shard)));
+        }
+
+        private void renderPage(Page child, BiConsumer<String, byte[]> entries) throws IOException {
+            render(child.getPath(), stream -> write(child, stream, request), entries);
+        }
+
+        private void renderAssets(Resource assetFolder, BiConsumer<String, byte[]> entries) throws IOException {
+            for (Iterator<Resource> children = assetFolder.listChildren(); children.hasNext();) {
+                Resource assetFolderChild = children.next();
+                if (assetFolderChild.isResourceType(DamConstants.NT_DAM_ASSET)) {
+                    renderAsset(assetFolderChild, entries);
+                } else {
+                    renderAssets(assetFolderChild, entries);
+                }
+            }
+        }
+
+        private void renderAsset(Resource resource, BiConsumer<String, byte[]> entries) throws IOException {
+            Asset asset = resource.adaptTo(Asset.class);
+            if (asset != null && damAssetTypes.contains(asset.getMimeType())) {
+                render(asset.getPath(), stream -> writeAsset(asset, stream, request), entries);
+            }
+        }
+
+        private void render(String path, Entry entry, BiConsumer<String, byte[]> entries) throws IOException {
+            buffer.reset();
+            try {
+                XMLStreamWriter stream = outputFactory.createXMLStreamWriter(buffer, encoding);
+                // the fragments are written into a urlset declaring the namespace
+                stream.setDefaultNamespace(NS);
+                entry.write(stream);
+                stream.flush();
+                stream.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            }
+            if (buffer.size() > 0) {
+                entries.accept(path, buffer.toByteArray());
+            }
+        }
+    }
+
 }
@@ -202,6 +202,8 @@ public class StatusServlet extends SlingAllMethodsServlet {
         json.addProperty("mem", MessageFormat.format("{0,number,#%}", ttrs.getMemoryUsage()));
         json.addProperty("maxCpu", MessageFormat.format("{0,number,#%}", ttrs.getMaxCpu()));
         json.addProperty("maxMem", MessageFormat.format("{0,number,#%}", ttrs.getMaxHeap()));
+        json.addProperty("concurrencyLimit", ttrs.getConcurrencyLimit());
+        json.addProperty("concurrencyLimitReason", ttrs.getConcurrencyLimitReason());
         return json;
     }
 }
@@ -35,6 +35,7 @@ public final class WorkflowRemovalConfig {
     private final long olderThanMillis;
     private int batchSize = 1000;
     private int maxDurationInMins = 0;
+    private int parallelism = 1;
 
     /**
      * Config for workflow removal instances that match the parameter criteria.
@@ -94,4 +95,17 @@ public final class WorkflowRemovalConfig {
     public final void setMaxDurationInMins(int maxDurationInMins) {
         this.maxDurationInMins = maxDurationInMins;
     }
+
+    public final int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Removes the workflow instance folders in parallel, each with its own resource resolver.
+     *
+     * @param parallelism number of folders removed at the same time; 1 removes them one after the other
+     */
+    public final void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
 }
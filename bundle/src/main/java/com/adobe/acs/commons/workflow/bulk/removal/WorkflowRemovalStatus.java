@@ -18,11 +18,15 @@
 
 package com.adobe.acs.commons.workflow.bulk.removal;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.apache.sling.api.resource.ResourceResolver;
 
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public final class WorkflowRemovalStatus {
 
@@ -35,6 +39,9 @@ public final class WorkflowRemovalStatus {
     private static final String KEY_REMOVED_COUNT = "removedCount";
     private static final String KEY_RUNNING = "running";
     private static final String KEY_STARTED_AT = "startedAt";
+    private static final String KEY_PARTITIONS = "partitions";
+    private static final String KEY_PATH = "path";
+    private static final String KEY_THROUGHPUT = "throughput";
 
     private static final String DATE_FORMAT = "yyyy/MM/dd 'at' hh:mm:ss a z";
     private static final long MS_IN_SECOND = 1000L;
@@ -47,7 +54,7 @@ public final class WorkflowRemovalStatus {
     private Calendar forceQuitAt;
     private int checked = 0;
     private int removed = 0;
-
+    private final List<Partition> partitions = new CopyOnWriteArrayList<>();
 
     public WorkflowRemovalStatus(ResourceResolver resourceResolver) {
         this.running = true;
@@ -139,6 +146,25 @@ public final class WorkflowRemovalStatus {
         return sdf.format(forceQuitAt.getTime());
     }
 
+    /**
+     * Records a workflow instance folder removed in parallel with others.
+     *
+     * @param path the path of the folder
+     * @param checkedInPartition the number of workflow instances checked in the folder
+     * @param removedInPartition the number of workflow instances removed from the folder
+     * @param durationInMs the time taken for the folder
+     */
+    public final void addPartition(String path, int checkedInPartition, int removedInPartition, long durationInMs) {
+        this.partitions.add(new Partition(path, checkedInPartition, removedInPartition, durationInMs));
+    }
+
+    /**
+     * @return the workflow instance folders removed in parallel so far, empty if the removal is not partitioned
+     */
+    public final List<Partition> getPartitions() {
+        return Collections.unmodifiableList(partitions);
+    }
+
     private long getDuration(Calendar start, Calendar end) {
         if (start == null || end == null || end.before(start)) {
             return 0;
@@ -172,6 +198,60 @@ public final class WorkflowRemovalStatus {
             json.addProperty(KEY_DURATION, getDuration(this.startedAt, Calendar.getInstance()));
         }
 
+        if (!partitions.isEmpty()) {
+            final JsonArray partitionsJson = new JsonArray();
+            for (Partition partition : partitions) {
+                final JsonObject partitionJson = new JsonObject();
+                partitionJson.addProperty(KEY_PATH, partition.getPath());
+                partitionJson.addProperty(KEY_CHECKED_COUNT, partition.getChecked());
+                partitionJson.addProperty(KEY_REMOVED_COUNT, partition.getRemoved());
+                partitionJson.addProperty(KEY_DURATION, partition.getDurationInMs());
+                partitionJson.addProperty(KEY_THROUGHPUT, partition.getThroughput());
+                partitionsJson.add(partitionJson);
+            }
+            json.add(KEY_PARTITIONS, partitionsJson);
+        }
+
         return json;
     }
+
+    /**
+     * Removal statistics of a single workflow instance folder.
+     */
+    public static final class Partition {
+        private final String path;
+        private final int checked;
+        private final int removed;
+        private final long durationInMs;
+
+        Partition(String path, int checked, int removed, long durationInMs) {
+            this.path = path;
+            this.checked = checked;
+            this.removed = removed;
+            this.durationInMs = durationInMs;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getChecked() {
+            return checked;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public long getDurationInMs() {
+            return durationInMs;
+        }
+
+        /**
+         * @return the removed workflow instances per second
+         */
+        public double getThroughput() {
+            return durationInMs > 0 ? removed * (double) MS_IN_SECOND / durationInMs : removed;
+        }
+    }
 }
@@ -18,6 +18,7 @@
 
 package com.adobe.acs.commons.workflow.bulk.removal.impl;
 
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import com.adobe.acs.commons.workflow.bulk.removal.WorkflowInstanceRemover;
 import com.adobe.acs.commons.workflow.bulk.removal.WorkflowRemovalConfig;
 import com.adobe.acs.commons.workflow.bulk.removal.WorkflowRemovalException;
@@ -36,8 +37,11 @@ import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.jackrabbit.JcrConstants;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -57,7 +61,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
@@ -109,6 +117,9 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
     @Reference
     private WorkflowService workflowService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC)
+    private volatile ThrottledTaskRunner throttledTaskRunner;
+
     /**
      * {@inheritDoc}
      */
@@ -240,6 +251,11 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
             end = start + maxDurationInMs;
         }
 
+        final ThrottledTaskRunner taskRunner = this.throttledTaskRunner;
+        if (workflowRemovalConfig.getParallelism() > 1 && taskRunner != null) {
+            return removeWorkflowInstancesInPartitions(resourceResolver, workflowRemovalConfig, taskRunner, start, end);
+        }
+
         try {
             this.start(resourceResolver);
 
@@ -256,11 +272,7 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
 
                     for (final Resource instance : folder.getChildren()) {
 
-                        if (this.forceQuit.get()) {
-                            throw new WorkflowRemovalForceQuitException();
-                        } else if (end > 0 && System.currentTimeMillis() >= end) {
-                            throw new WorkflowRemovalMaxDurationExceededException();
-                        }
+                        checkContinue(end);
 
                         final ValueMap properties = instance.getValueMap();
 
@@ -274,92 +286,31 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
 
                         checkedCount++;
 
-                        final String instanceStatus = getStatus(instance);
-                        final String model = properties.get(PN_MODEL_ID, String.class);
-                        final Calendar startTime = properties.get(PN_START_TIME, properties.get(PN_STARTED_AT, Calendar.class));
-                        final String payload = properties.get(PAYLOAD_PATH, String.class);
-                        final long startTimeDelta = start - workflowRemovalConfig.getOlderThanMillis();
-                        final Collection<String> statuses = workflowRemovalConfig.getStatuses();
-                        final Collection<String> modelIds = workflowRemovalConfig.getModelIds();
-                        final Calendar olderThan = workflowRemovalConfig.getOlderThan();
-                        final long olderThanMillis = workflowRemovalConfig.getOlderThanMillis();
-                        final Collection<Pattern> payloads = workflowRemovalConfig.getPayloads();
-                        final int batchSize = workflowRemovalConfig.getBatchSize();
-
-                        if (StringUtils.isBlank(payload)) {
-                            log.warn("Unable to find payload for Workflow instance [ {} ]", instance.getPath());
-                            remaining++;
-                            continue;
-                        } else if (CollectionUtils.isNotEmpty(statuses) && !statuses.contains(instanceStatus)) {
-                            log.trace("Workflow instance [ {} ] has non-matching status of [ {} ]", instance.getPath(), instanceStatus);
-                            remaining++;
-                            continue;
-                        } else if (CollectionUtils.isNotEmpty(modelIds) && !modelIds.contains(model)) {
-                            log.trace("Workflow instance [ {} ] has non-matching model of [ {} ]", instance.getPath(), model);
-                            remaining++;
-                            continue;
-                        } else if (olderThan != null && startTime != null && startTime.after(olderThan)) {
-                            log.trace("Workflow instance [ {} ] has non-matching start time of [ {} ]", instance.getPath(),
-                                    startTime);
-                            remaining++;
-                            continue;
-                        } else if (olderThanMillis > -1 && startTime != null && startTimeDelta < startTime.getTimeInMillis()) {
-                            log.trace("Workflow instance [ {} ] has non-matching start time delta of [ {} ]ms", instance.getPath(),
-                                    olderThanMillis);
+                        if (!isRemovable(instance, properties, workflowRemovalConfig, start)) {
                             remaining++;
                             continue;
-                        } else {
-
-                            if (CollectionUtils.isNotEmpty(payloads)) {
-                                // Only evaluate payload patterns if they are provided
-
-                                boolean match = false;
-
-                                if (StringUtils.isNotEmpty(payload)) {
-                                    for (final Pattern pattern : payloads) {
-                                        if (payload.matches(pattern.pattern())) {
-                                            // payload matches a pattern
-                                            match = true;
-                                            break;
-                                        }
-                                    }
-
-                                    if (!match) {
-                                        // Not a match; skip to next workflow instance
-                                        log.trace("Workflow instance [ {} ] has non-matching payload path [ {} ]",
-                                                instance.getPath(), payload);
-                                        remaining++;
-                                        continue;
-                                    }
-                                }
-                            }
-
-                            // Only remove matching
+                        }
 
-                            try {
-                                instance.adaptTo(Node.class).remove();
-                                log.debug("Removed workflow instance at [ {} ]", instance.getPath());
+                        // Only remove matching
+                        try {
+                            instance.adaptTo(Node.class).remove();
+                            log.debug("Removed workflow instance at [ {} ]", instance.getPath());
 
-                                workflowRemovedCount++;
-                                count++;
-                            } catch (RepositoryException e) {
-                                log.error("Could not remove workflow instance at [ {} ]. Continuing...",
-                                        instance.getPath(), e);
-                            }
+                            workflowRemovedCount++;
+                            count++;
+                        } catch (RepositoryException e) {
+                            log.error("Could not remove workflow instance at [ {} ]. Continuing...",
+                                    instance.getPath(), e);
+                        }
 
-                            if (count % batchSize == 0) {
-                                this.batchComplete(resourceResolver, checkedCount, workflowRemovedCount);
+                        if (count % workflowRemovalConfig.getBatchSize() == 0) {
+                            this.batchComplete(resourceResolver, checkedCount, workflowRemovedCount);
 
-                                log.info("Removed a running total of [ {} ] workflow instances", count);
-                            }
+                            log.info("Removed a running total of [ {} ] workflow instances", count);
                         }
                     }
 
-                    if (remaining == 0
-                            && isWorkflowDatedFolder(folder)
-                            && !StringUtils.startsWith(folder.getName(), new SimpleDateFormat(WORKFLOW_FOLDER_FORMAT).format(new Date()))) {
-                        // Dont remove folders w items and dont remove any of "today's" folders
-                        // MUST match the YYYY-MM-DD(.*) pattern; do not try to remove root folders
+                    if (remaining == 0 && isRemovableFolder(folder)) {
                         try {
                             folder.adaptTo(Node.class).remove();
                             log.debug("Removed empty workflow folder node [ {} ]", folder.getPath());
@@ -412,6 +363,129 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
         return count;
     }
 
+    /**
+     * Removes each workflow instance folder on its own resource resolver, running up to the configured parallelism
+     * of folders at the same time through the ThrottledTaskRunner.
+     */
+    private int removeWorkflowInstancesInPartitions(final ResourceResolver resourceResolver,
+                                                    final WorkflowRemovalConfig workflowRemovalConfig,
+                                                    final ThrottledTaskRunner taskRunner,
+                                                    final long start, final long end)
+            throws PersistenceException, WorkflowRemovalException, InterruptedException, WorkflowRemovalForceQuitException {
+
+        this.start(resourceResolver);
+
+        final List<String> partitions = new ArrayList<>();
+        for (Resource containerFolder : this.getWorkflowInstanceFolders(resourceResolver)) {
+            for (Resource folder : this.getSortedAndFilteredFolders(containerFolder)) {
+                partitions.add(folder.getPath());
+            }
+        }
+
+        log.info("Removing workflow instances from [ {} ] folders, [ {} ] at a time",
+                partitions.size(), workflowRemovalConfig.getParallelism());
+
+        final PartitionedRemoval removal = new PartitionedRemoval(resourceResolver, workflowRemovalConfig, start, end);
+        final Exception failure = removal.run(taskRunner, partitions);
+
+        if (failure == null || failure instanceof WorkflowRemovalMaxDurationExceededException) {
+            if (failure != null) {
+                log.warn("Workflow removal exceeded max duration of [ {} ] minutes.",
+                        workflowRemovalConfig.getMaxDurationInMins());
+            }
+            this.complete(resourceResolver, removal.checked.get(), removal.removed.get());
+        } else if (failure instanceof WorkflowRemovalForceQuitException) {
+            log.warn("Workflow removal was force quit. The removal state is unknown.");
+            this.internalForceQuit();
+            throw (WorkflowRemovalForceQuitException) failure;
+        } else {
+            this.forceQuit.set(false);
+            log.error("Error with Workflow Removal", failure);
+            this.error();
+            if (failure instanceof PersistenceException) {
+                throw (PersistenceException) failure;
+            } else if (failure instanceof InterruptedException) {
+                throw (InterruptedException) failure;
+            } else if (failure instanceof WorkflowRemovalException) {
+                throw (WorkflowRemovalException) failure;
+            }
+            throw new WorkflowRemovalException("Workflow removal failed", failure);
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("Workflow Removal Process Finished! "
+                            + "Removed a total of [ {} ] workflow instances from [ {} ] folders in [ {} ] ms",
+                    removal.removed.get(),
+                    partitions.size(),
+                    System.currentTimeMillis() - start);
+        }
+
+        return removal.removed.get();
+    }
+
+    private boolean isRemovable(final Resource instance, final ValueMap properties,
+                                final WorkflowRemovalConfig workflowRemovalConfig, final long start) {
+        final String instanceStatus = getStatus(instance);
+        final String model = properties.get(PN_MODEL_ID, String.class);
+        final Calendar startTime = properties.get(PN_START_TIME, properties.get(PN_STARTED_AT, Calendar.class));
+        final String payload = properties.get(PAYLOAD_PATH, String.class);
+        final long startTimeDelta = start - workflowRemovalConfig.getOlderThanMillis();
+        final Collection<String> statuses = workflowRemovalConfig.getStatuses();
+        final Collection<String> modelIds = workflowRemovalConfig.getModelIds();
+        final Calendar olderThan = workflowRemovalConfig.getOlderThan();
+        final long olderThanMillis = workflowRemovalConfig.getOlderThanMillis();
+        final Collection<Pattern> payloads = workflowRemovalConfig.getPayloads();
+
+        if (StringUtils.isBlank(payload)) {
+            log.warn("Unable to find payload for Workflow instance [ {} ]", instance.getPath());
+            return false;
+        } else if (CollectionUtils.isNotEmpty(statuses) && !statuses.contains(instanceStatus)) {
+            log.trace("Workflow instance [ {} ] has non-matching status of [ {} ]", instance.getPath(), instanceStatus);
+            return false;
+        } else if (CollectionUtils.isNotEmpty(modelIds) && !modelIds.contains(model)) {
+            log.trace("Workflow instance [ {} ] has non-matching model of [ {} ]", instance.getPath(), model);
+            return false;
+        } else if (olderThan != null && startTime != null && startTime.after(olderThan)) {
+            log.trace("Workflow instance [ {} ] has non-matching start time of [ {} ]", instance.getPath(),
+                    startTime);
+            return false;
+        } else if (olderThanMillis > -1 && startTime != null && startTimeDelta < startTime.getTimeInMillis()) {
+            log.trace("Workflow instance [ {} ] has non-matching start time delta of [ {} ]ms", instance.getPath(),
+                    olderThanMillis);
+            return false;
+        } else if (CollectionUtils.isNotEmpty(payloads)) {
+            // Only evaluate payload patterns if they are provided
+            for (final Pattern pattern : payloads) {
+                if (payload.matches(pattern.pattern())) {
+                    // payload matches a pattern
+                    return true;
+                }
+            }
+
+            // Not a match; skip to next workflow instance
+            log.trace("Workflow instance [ {} ] has non-matching payload path [ {} ]",
+                    instance.getPath(), payload);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isRemovableFolder(final Resource folder) {
+        // Dont remove any of "today's" folders
+        // MUST match the YYYY-MM-DD(.*) pattern; do not try to remove root folders
+        return isWorkflowDatedFolder(folder)
+                && !StringUtils.startsWith(folder.getName(), new SimpleDateFormat(WORKFLOW_FOLDER_FORMAT).format(new Date()));
+    }
+
+    private void checkContinue(final long end) throws WorkflowRemovalForceQuitException,
+            WorkflowRemovalMaxDurationExceededException {
+        if (this.forceQuit.get()) {
+            throw new WorkflowRemovalForceQuitException();
+        } else if (end > 0 && System.currentTimeMillis() >= end) {
+            throw new WorkflowRemovalMaxDurationExceededException();
+        }
+    }
+
     private Collection<Resource> getSortedAndFilteredFolders(Resource folderResource) {
         final Collection<Resource> sortedCollection = new TreeSet(new WorkflowInstanceFolderComparator());
         for (Resource folder : folderResource.getChildren()) {
@@ -574,4 +648,154 @@ public final class WorkflowInstanceRemoverImpl implements WorkflowInstanceRemove
     protected void reset(Map<String, Object> config) {
         this.forceQuit.set(false);
     }
+
+    /**
+     * State shared by the folders of a partitioned removal.
+     */
+    private final class PartitionedRemoval {
+        private final ResourceResolver resourceResolver;
+        private final WorkflowRemovalConfig workflowRemovalConfig;
+        private final long start;
+        private final long end;
+        private final Semaphore permits;
+        private final AtomicInteger checked = new AtomicInteger();
+        private final AtomicInteger removed = new AtomicInteger();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        PartitionedRemoval(final ResourceResolver resourceResolver, final WorkflowRemovalConfig workflowRemovalConfig,
+                           final long start, final long end) {
+            this.resourceResolver = resourceResolver;
+            this.workflowRemovalConfig = workflowRemovalConfig;
+            this.start = start;
+            this.end = end;
+            this.permits = new Semaphore(workflowRemovalConfig.getParallelism());
+        }
+
+        /**
+         * @return the first failure of a folder, null if all folders were processed
+         */
+        @SuppressWarnings("squid:S2142")
+        Exception run(final ThrottledTaskRunner taskRunner, final List<String> partitions) throws InterruptedException {
+            final List<CompletableFuture<Void>> partitionsDone = new ArrayList<>();
+            for (final String path : partitions) {
+                permits.acquire();
+                if (failure.get() != null) {
+                    permits.release();
+                    break;
+                }
+                final CompletableFuture<Void> partitionDone = new CompletableFuture<>();
+                partitionsDone.add(partitionDone);
+                taskRunner.scheduleWork(() -> {
+                    try {
+                        removePartition(path);
+                    } catch (InterruptedException e) {
+                        failure.compareAndSet(null, e);
+                        Thread.currentThread().interrupt();
+                    } catch (Exception e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        permits.release();
+                        partitionDone.complete(null);
+                    }
+                });
+            }
+            try {
+                CompletableFuture.allOf(partitionsDone.toArray(new CompletableFuture[0])).get();
+            } catch (ExecutionException e) {
+                // the futures are only ever completed normally
+                failure.compareAndSet(null, e);
+            }
+            return failure.get();
+        }
+
+        @SuppressWarnings("squid:S3776")
+        private void removePartition(final String folderPath) throws Exception {
+            final long partitionStart = System.currentTimeMillis();
+            int partitionChecked = 0;
+            int partitionRemoved = 0;
+            int partitionSaved = 0;
+
+            try (ResourceResolver partitionResolver = resourceResolver.clone(null)) {
+                final Resource folder = partitionResolver.getResource(folderPath);
+                if (folder == null) {
+                    return;
+                }
+                log.debug("Checking [ {} ] for workflow instances to remove", folderPath);
+
+                final List<String> instances = new ArrayList<>();
+                int remaining = 0;
+                for (final Resource instance : folder.getChildren()) {
+                    checkPartitionContinue();
+                    final ValueMap properties = instance.getValueMap();
+                    if (!StringUtils.equals(NT_CQ_WORKFLOW, properties.get(JcrConstants.JCR_PRIMARYTYPE, String.class))) {
+                        // Only process cq:Workflow's
+                        remaining++;
+                    } else if (isRemovable(instance, properties, workflowRemovalConfig, start)) {
+                        partitionChecked++;
+                        instances.add(instance.getPath());
+                    } else {
+                        partitionChecked++;
+                        remaining++;
+                    }
+                }
+                updateStatus(checked.addAndGet(partitionChecked), removed.get());
+
+                if (remaining == 0 && isRemovableFolder(folder)) {
+                    // Every instance qualifies, so remove the folder as a whole instead of instance by instance
+                    folder.adaptTo(Node.class).remove();
+                    partitionRemoved = instances.size();
+                    log.debug("Removed workflow folder [ {} ] with [ {} ] workflow instances", folderPath, partitionRemoved);
+                } else {
+                    try {
+                        for (final String path : instances) {
+                            checkPartitionContinue();
+                            try {
+                                partitionResolver.getResource(path).adaptTo(Node.class).remove();
+                                log.debug("Removed workflow instance at [ {} ]", path);
+                                partitionRemoved++;
+                            } catch (RepositoryException e) {
+                                log.error("Could not remove workflow instance at [ {} ]. Continuing...", path, e);
+                            }
+
+                            if (partitionRemoved > partitionSaved
+                                    && partitionRemoved % workflowRemovalConfig.getBatchSize() == 0) {
+                                save(partitionResolver);
+                                updateStatus(checked.get(), removed.addAndGet(partitionRemoved - partitionSaved));
+                                partitionSaved = partitionRemoved;
+                            }
+                        }
+                    } catch (WorkflowRemovalMaxDurationExceededException e) {
+                        // Keep what was removed so far
+                        save(partitionResolver);
+                        removed.addAndGet(partitionRemoved - partitionSaved);
+                        throw e;
+                    }
+                }
+
+                save(partitionResolver);
+                updateStatus(checked.get(), removed.addAndGet(partitionRemoved - partitionSaved));
+            } catch (LoginException e) {
+                throw new WorkflowRemovalException("Could not open a resource resolver for " + folderPath, e);
+            } finally {
+                WorkflowInstanceRemoverImpl.this.status.get().addPartition(folderPath, partitionChecked,
+                        partitionRemoved, System.currentTimeMillis() - partitionStart);
+            }
+        }
+
+        private void checkPartitionContinue() throws WorkflowRemovalException, WorkflowRemovalForceQuitException,
+                WorkflowRemovalMaxDurationExceededException {
+            checkContinue(end);
+            if (failure.get() != null) {
+                throw new WorkflowRemovalException("Workflow removal stopped after a failure in another folder");
+            }
+        }
+
+        private void updateStatus(final int checkedCount, final int removedCount) {
+            final WorkflowRemovalStatus removalStatus = WorkflowInstanceRemoverImpl.this.status.get();
+            synchronized (removalStatus) {
+                removalStatus.setChecked(Math.max(removalStatus.getChecked(), checkedCount));
+                removalStatus.setRemoved(Math.max(removalStatus.getRemoved(), removedCount));
+            }
+        }
+    }
 }
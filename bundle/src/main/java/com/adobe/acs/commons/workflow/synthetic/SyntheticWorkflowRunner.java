@@ -23,6 +23,7 @@ import com.day.cq.workflow.WorkflowException;
 import com.day.cq.workflow.WorkflowService;
 import org.apache.sling.api.resource.ResourceResolver;
 
+import java.util.List;
 import java.util.Map;
 
 @ProviderType
@@ -66,6 +67,23 @@ public interface SyntheticWorkflowRunner extends WorkflowService {
                  boolean autoSaveAfterEachWorkflowProcess,
                  boolean autoSaveAtEnd) throws WorkflowException;
 
+    /**
+     * Execute the provided Synthetic Workflow Model against each payload in turn, sharing the workflow sessions and
+     * workflow process metadata between the payloads.
+     *
+     * @param resourceResolver                 the resourceResolver object that provides access to the JCR for WF operations
+     * @param payloadPaths                     the paths to execute the workflow against, in order
+     * @param syntheticWorkflowModel           the Synthetic Workflow Model to execute
+     * @param autoSaveAfterEachWorkflowProcess persist changes to JCR after each Workflow Process completes
+     * @param autoSaveAtEnd                    persist changes to JCR after all Workflow Process complete for a payload
+     * @throws WorkflowException if the execution failed for a payload; the remaining payloads are not processed
+     */
+    void executeBatch(ResourceResolver resourceResolver,
+                      List<String> payloadPaths,
+                      SyntheticWorkflowModel syntheticWorkflowModel,
+                      boolean autoSaveAfterEachWorkflowProcess,
+                      boolean autoSaveAtEnd) throws WorkflowException;
+
     /**
      * Generates the SyntheticWorkflowModel that represents the AEM Workflow Model to execute in the context of Synthetic Workflow.
      *
@@ -0,0 +1,61 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.workflow.synthetic.impl;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates the proxies of a synthetic workflow interface through the constructor of their proxy class, which is looked
+ * up once instead of on every Proxy.newProxyInstance call.
+ *
+ * @param <T> the proxied workflow interface
+ */
+final class SyntheticProxyFactory<T> {
+
+    private final Class<T> type;
+
+    private final Constructor<?> constructor;
+
+    /**
+     * @param type the proxied workflow interface
+     * @param wrapperType the marker interface of the proxies, whose class loader defines the proxy class
+     */
+    SyntheticProxyFactory(final Class<T> type, final Class<?> wrapperType) {
+        this.type = type;
+        final Object prototype = Proxy.newProxyInstance(wrapperType.getClassLoader(), new Class[] { type, wrapperType },
+                (proxy, method, args) -> null);
+        try {
+            this.constructor = prototype.getClass().getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Could not find the proxy constructor of " + type.getName(), e);
+        }
+    }
+
+    T newProxy(final InvocationHandler handler) {
+        try {
+            return type.cast(constructor.newInstance(handler));
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("Could not create a proxy of " + type.getName(), e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Could not create a proxy of " + type.getName(), e.getCause());
+        }
+    }
+}
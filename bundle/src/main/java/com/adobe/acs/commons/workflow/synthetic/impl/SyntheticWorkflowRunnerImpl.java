@@ -54,7 +54,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
-import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -97,6 +96,17 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
 
     private static final int MAX_RESTART_COUNT = 3;
 
+    private static final SyntheticProxyFactory<WorkItem> CQ_WORK_ITEMS =
+            new SyntheticProxyFactory<>(WorkItem.class, WrappedSyntheticWorkItem.class);
+
+    private static final SyntheticProxyFactory<com.adobe.granite.workflow.exec.WorkItem> GRANITE_WORK_ITEMS =
+            new SyntheticProxyFactory<>(com.adobe.granite.workflow.exec.WorkItem.class,
+                    com.adobe.acs.commons.workflow.synthetic.granite.WrappedSyntheticWorkItem.class);
+
+    private static final SyntheticProxyFactory<com.adobe.granite.workflow.WorkflowSession> GRANITE_WORKFLOW_SESSIONS =
+            new SyntheticProxyFactory<>(com.adobe.granite.workflow.WorkflowSession.class,
+                    WrappedSyntheticWorkflowSession.class);
+
     private Map<String, SyntheticWorkflowProcess> workflowProcessesByLabel = new ConcurrentHashMap<String, SyntheticWorkflowProcess>();
 
     private Map<String, SyntheticWorkflowProcess> workflowProcessesByProcessName =
@@ -137,6 +147,50 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
                         List<SyntheticWorkflowStep> workflowSteps,
                         boolean autoSaveAfterEachWorkflowProcess,
                         boolean autoSaveAtEnd) throws WorkflowException {
+        execute(new Execution(resourceResolver.adaptTo(Session.class), workflowSteps), payloadPath,
+                autoSaveAfterEachWorkflowProcess, autoSaveAtEnd);
+    }
+
+    /**
+     * Executes the workflow steps on each payload in turn, sharing the workflow sessions, workflow processes and
+     * their metadata maps between the payloads.
+     *
+     * @param resourceResolver the resource resolver to execute the steps with
+     * @param payloadPaths the paths of the payloads
+     * @param workflowSteps the workflow steps to execute on each payload
+     * @param autoSaveAfterEachWorkflowProcess true to save after each workflow process
+     * @param autoSaveAtEnd true to save after each payload
+     * @throws WorkflowException if the execution failed for a payload; the remaining payloads are not processed
+     */
+    public void executeBatch(ResourceResolver resourceResolver,
+                             List<String> payloadPaths,
+                             List<SyntheticWorkflowStep> workflowSteps,
+                             boolean autoSaveAfterEachWorkflowProcess,
+                             boolean autoSaveAtEnd) throws WorkflowException {
+        final Execution execution = new Execution(resourceResolver.adaptTo(Session.class), workflowSteps);
+        for (final String payloadPath : payloadPaths) {
+            execute(execution, payloadPath, autoSaveAfterEachWorkflowProcess, autoSaveAtEnd);
+        }
+    }
+
+    @Override
+    public final void executeBatch(final ResourceResolver resourceResolver,
+                                   final List<String> payloadPaths,
+                                   final SyntheticWorkflowModel syntheticWorkflowModel,
+                                   final boolean autoSaveAfterEachWorkflowProcess,
+                                   final boolean autoSaveAtEnd) throws WorkflowException {
+        final List<SyntheticWorkflowStep> workflowSteps = convertToSyntheticWorkflowSteps(
+                syntheticWorkflowModel.getWorkflowProcessNames(),
+                WorkflowProcessIdType.PROCESS_NAME,
+                syntheticWorkflowModel.getSyntheticWorkflowModelData());
+
+        executeBatch(resourceResolver, payloadPaths, workflowSteps, autoSaveAfterEachWorkflowProcess, autoSaveAtEnd);
+    }
+
+    private void execute(final Execution execution,
+                         final String payloadPath,
+                         final boolean autoSaveAfterEachWorkflowProcess,
+                         final boolean autoSaveAtEnd) throws WorkflowException {
         final long start = System.currentTimeMillis();
 
         int count = 0;
@@ -144,8 +198,7 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
             count++;
 
             try {
-                run(resourceResolver, payloadPath, workflowSteps,
-                        autoSaveAfterEachWorkflowProcess, autoSaveAtEnd);
+                run(execution, payloadPath, autoSaveAfterEachWorkflowProcess, autoSaveAtEnd);
                 if (log.isInfoEnabled()) {
                     long duration = System.currentTimeMillis() - start;
                     log.info("Synthetic workflow execution of payload [ {} ] completed in [ {} ] ms",
@@ -176,10 +229,6 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
                               final boolean autoSaveAfterEachWorkflowProcess,
                               final boolean autoSaveAtEnd) throws WorkflowException {
 
-        if (processArgs == null) {
-            processArgs = new HashMap<String, Map<String, Object>>();
-        }
-
         List<SyntheticWorkflowStep> workflowSteps = convertToSyntheticWorkflowSteps(workflowProcessIds, workflowProcessIdType, processArgs);
 
         execute(resourceResolver, payloadPath, workflowSteps, autoSaveAfterEachWorkflowProcess, autoSaveAtEnd);
@@ -205,13 +254,12 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
     }
 
     @SuppressWarnings({"squid:S3776", "squid:S1163", "squid:S1143"})
-    private void run(final ResourceResolver resourceResolver,
+    private void run(final Execution execution,
                      final String payloadPath,
-                     final List<SyntheticWorkflowStep> workflowSteps,
                      final boolean autoSaveAfterEachWorkflowProcess,
                      final boolean autoSaveAtEnd) throws WorkflowException {
 
-        final Session session = resourceResolver.adaptTo(Session.class);
+        final Session session = execution.session;
 
         // Create the WorkflowData obj; This will persist through all WF Process Steps
         // This must be remained defined once to it can be shared by reference across CQ and Granite SyntheticWorkflow isntances
@@ -226,25 +274,20 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
 
         boolean terminated = false;
 
-        for (final SyntheticWorkflowStep workflowStep : workflowSteps) {
-            SyntheticWorkflowProcess workflowProcess;
-
-            if (WorkflowProcessIdType.PROCESS_LABEL.equals(workflowStep.getIdType())) {
-                workflowProcess = this.workflowProcessesByLabel.get(workflowStep.getId());
-            } else {
-                workflowProcess = this.workflowProcessesByProcessName.get(workflowStep.getId());
-            }
+        for (final ResolvedStep resolvedStep : execution.steps) {
+            final SyntheticWorkflowStep workflowStep = resolvedStep.workflowStep;
+            final SyntheticWorkflowProcess workflowProcess = resolvedStep.workflowProcess;
 
             if (workflowProcess != null) {
                 final long start = System.currentTimeMillis();
 
                 try {
-                    final SyntheticMetaDataMap workflowProcessMetaDataMap = new SyntheticMetaDataMap(workflowStep.getMetadataMap());
+                    final SyntheticMetaDataMap workflowProcessMetaDataMap = resolvedStep.metaDataMap;
 
                     if (SyntheticWorkflowProcess.Type.GRANITE.equals(workflowProcess.getWorkflowType())) {
-                        runGraniteWorkflowProcess(session, graniteWorkflow, workflowProcessMetaDataMap, workflowProcess);
+                        runGraniteWorkflowProcess(execution.graniteWorkflowSession, graniteWorkflow, workflowProcessMetaDataMap, workflowProcess);
                     } else if (SyntheticWorkflowProcess.Type.CQ.equals(workflowProcess.getWorkflowType())) {
-                        runCqWorkflowProcess(session, cqWorkflow, workflowProcessMetaDataMap, workflowProcess);
+                        runCqWorkflowProcess(execution.cqWorkflowSession, cqWorkflow, workflowProcessMetaDataMap, workflowProcess);
                     } else {
                         log.warn("Workflow process step is of an unknown type [ {} ]. Skipping.", workflowProcess.getWorkflowType());
                     }
@@ -303,12 +346,10 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
     }
 
 
-    private void runCqWorkflowProcess(Session session,
+    private void runCqWorkflowProcess(WorkflowSession workflowSession,
                                       SyntheticWorkflow workflow,
                                       SyntheticMetaDataMap workflowProcessMetaDataMap,
                                       SyntheticWorkflowProcess workflowProcess) throws WorkflowException {
-        final WorkflowSession workflowSession = this.getCqWorkflowSession(session);
-
         // Each Workflow Process Step gets its own workItem whose life starts and ends w the WF Process
         final SyntheticWorkItem workItem = SyntheticWorkItem.createSyntheticWorkItem(workflow.getWorkflowData());
 
@@ -318,7 +359,7 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
 
         // Execute the Workflow Process
         try {
-            WorkItem wrappedWorkItem = (WorkItem) Proxy.newProxyInstance(WrappedSyntheticWorkItem.class.getClassLoader(), new Class[] { WorkItem.class, WrappedSyntheticWorkItem.class  }, workItem);
+            WorkItem wrappedWorkItem = CQ_WORK_ITEMS.newProxy(workItem);
             workItem.setWorkflow(wrappedWorkItem, workflow);
             workflowProcess.getCqWorkflowProcess().execute(wrappedWorkItem, workflowSession, workflowProcessMetaDataMap);
             workItem.setTimeEnded(new Date());
@@ -333,12 +374,10 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
         }
     }
 
-    private void runGraniteWorkflowProcess(Session session,
+    private void runGraniteWorkflowProcess(com.adobe.granite.workflow.WorkflowSession workflowSession,
                                            com.adobe.acs.commons.workflow.synthetic.impl.granite.SyntheticWorkflow workflow,
                                            SyntheticMetaDataMap workflowProcessMetaDataMap,
                                            SyntheticWorkflowProcess workflowProcess) throws com.adobe.granite.workflow.WorkflowException {
-       final com.adobe.acs.commons.workflow.synthetic.impl.granite.SyntheticWorkflowSession syntheticWorkflowSession = this.getGraniteWorkflowSession(session);
-
         // Each Workflow Process Step gets its own workItem whose life starts and ends w the WF Process
         final com.adobe.acs.commons.workflow.synthetic.impl.granite.SyntheticWorkItem workItem =
                 com.adobe.acs.commons.workflow.synthetic.impl.granite.SyntheticWorkItem.createSyntheticWorkItem(workflow.getWorkflowData());
@@ -348,8 +387,7 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
                 workflow.getWorkflowData().getPayload());
         // Execute the Workflow Process
         try {
-            com.adobe.granite.workflow.WorkflowSession workflowSession = (com.adobe.granite.workflow.WorkflowSession) Proxy.newProxyInstance(WrappedSyntheticWorkflowSession.class.getClassLoader(), new Class[] { com.adobe.granite.workflow.WorkflowSession.class, WrappedSyntheticWorkflowSession.class  }, syntheticWorkflowSession);
-            com.adobe.granite.workflow.exec.WorkItem wrappedWorkItem = (com.adobe.granite.workflow.exec.WorkItem) Proxy.newProxyInstance(com.adobe.acs.commons.workflow.synthetic.granite.WrappedSyntheticWorkItem.class.getClassLoader(), new Class[] { com.adobe.granite.workflow.exec.WorkItem.class, com.adobe.acs.commons.workflow.synthetic.granite.WrappedSyntheticWorkItem.class  }, workItem);
+            com.adobe.granite.workflow.exec.WorkItem wrappedWorkItem = GRANITE_WORK_ITEMS.newProxy(workItem);
             workItem.setWorkflow(wrappedWorkItem, workflow);
             workflowProcess.getGraniteWorkflowProcess().execute(wrappedWorkItem, workflowSession, workflowProcessMetaDataMap);
             workItem.setTimeEnded(new Date());
@@ -377,8 +415,11 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
                                                                         Map<String, Map<String, Object>> processArgs) {
         final List<SyntheticWorkflowStep> workflowSteps = new ArrayList<>();
 
+        final Map<String, Map<String, Object>> args = processArgs == null
+                ? new HashMap<String, Map<String, Object>>() : processArgs;
+
         for (String workflowProcessId : workflowProcessIds) {
-            workflowSteps.add(getSyntheticWorkflowStep(workflowProcessId, idType, processArgs.get(workflowProcessId)));
+            workflowSteps.add(getSyntheticWorkflowStep(workflowProcessId, idType, args.get(workflowProcessId)));
         }
 
         return workflowSteps;
@@ -500,6 +541,53 @@ public class SyntheticWorkflowRunnerImpl implements SyntheticWorkflowRunner {
     }
 
 
+    /**
+     * The sessions and the workflow processes of an execution, shared by all of its payloads.
+     */
+    private final class Execution {
+        private final Session session;
+
+        private final WorkflowSession cqWorkflowSession;
+
+        private final com.adobe.granite.workflow.WorkflowSession graniteWorkflowSession;
+
+        private final List<ResolvedStep> steps = new ArrayList<>();
+
+        Execution(final Session session, final List<SyntheticWorkflowStep> workflowSteps) {
+            this.session = session;
+            this.cqWorkflowSession = getCqWorkflowSession(session);
+            this.graniteWorkflowSession = GRANITE_WORKFLOW_SESSIONS.newProxy(getGraniteWorkflowSession(session));
+
+            for (final SyntheticWorkflowStep workflowStep : workflowSteps) {
+                final SyntheticWorkflowProcess workflowProcess;
+                if (WorkflowProcessIdType.PROCESS_LABEL.equals(workflowStep.getIdType())) {
+                    workflowProcess = workflowProcessesByLabel.get(workflowStep.getId());
+                } else {
+                    workflowProcess = workflowProcessesByProcessName.get(workflowStep.getId());
+                }
+                steps.add(new ResolvedStep(workflowStep, workflowProcess));
+            }
+        }
+    }
+
+    /**
+     * A workflow step with its workflow process, null if it is not available, and its metadata map.
+     */
+    private static final class ResolvedStep {
+        private final SyntheticWorkflowStep workflowStep;
+
+        private final SyntheticWorkflowProcess workflowProcess;
+
+        private final SyntheticMetaDataMap metaDataMap;
+
+        ResolvedStep(final SyntheticWorkflowStep workflowStep, final SyntheticWorkflowProcess workflowProcess) {
+            this.workflowStep = workflowStep;
+            this.workflowProcess = workflowProcess;
+            // wraps the metadata of the step, as a map created for each payload did before
+            this.metaDataMap = new SyntheticMetaDataMap(workflowStep.getMetadataMap());
+        }
+    }
+
     protected final void bindCqWorkflowProcesses(final WorkflowProcess service, final Map<Object, Object> props) {
         bindSyntheticWorkflowProcesses(new SyntheticWorkflowProcess(service), props);
     }
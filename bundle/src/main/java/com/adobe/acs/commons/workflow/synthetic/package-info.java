@@ -19,5 +19,5 @@
 /**
  * Synthetic AEM Workflow APIs.
  */
-@org.osgi.annotation.versioning.Version("3.0.0")
+@org.osgi.annotation.versioning.Version("3.1.0")
 package com.adobe.acs.commons.workflow.synthetic;
\ No newline at end of file
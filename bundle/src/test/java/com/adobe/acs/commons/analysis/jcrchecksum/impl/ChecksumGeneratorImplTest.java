@@ -604,4 +604,42 @@ public class ChecksumGeneratorImplTest {
         assertFalse(checksumGenerator.isExcludedSubTree(session.getNode("/content/parent1/child"), opts));
         assertTrue(checksumGenerator.isExcludedSubTree(session.getNode("/content/parent2/child"), opts));
     }
+
+    @Test
+    public void testMerkleMatchesDepthFirst() throws IOException, RepositoryException {
+        final Node page = setupPage1();
+        final Node asset = setupAsset1();
+
+        CustomChecksumGeneratorOptions options = new CustomChecksumGeneratorOptions();
+        options.addIncludedNodeTypes(new DefaultChecksumGeneratorOptions().getIncludedNodeTypes());
+        options.addExcludedProperties(new String[]{ "jcr:lastModified" });
+
+        Map<String, String> expected = checksumGenerator.generateChecksums(session, "/content", options);
+        options.setMerkle(true);
+        Map<String, String> actual = new LinkedHashMap<>();
+        checksumGenerator.generateChecksums(session, "/content", options, actual::put);
+
+        assertEquals(expected, actual);
+        assertTrue(actual.containsKey(page.getPath()));
+        assertTrue(actual.containsKey(asset.getPath()));
+    }
+
+    @Test
+    public void testMerkleUsesAssetFingerprint() throws IOException, RepositoryException {
+        final Node asset = setupAsset1();
+        asset.getNode("renditions/original/jcr:content")
+                .setProperty("jcr:data", ValueFactoryImpl.getInstance().createBinary(new ByteArrayInputStream("original".getBytes())));
+        asset.getNode("metadata").setProperty("dam:sha1", DigestUtils.sha1Hex("original"));
+
+        CustomChecksumGeneratorOptions options = new CustomChecksumGeneratorOptions();
+        options.addIncludedNodeTypes(new String[]{ "dam:AssetContent" });
+
+        String expected = checksumGenerator.generateChecksums(session, "/content/dam", options).get(asset.getPath());
+        options.setMerkle(true);
+        assertEquals(expected, checksumGenerator.generateChecksums(session, "/content/dam", options).get(asset.getPath()));
+
+        // the original is not read if the asset has a fingerprint
+        asset.getNode("metadata").setProperty("dam:sha1", DigestUtils.sha1Hex("outdated"));
+        assertFalse(expected.equals(checksumGenerator.generateChecksums(session, "/content/dam", options).get(asset.getPath())));
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.ccvar.util;
+
+import com.adobe.acs.commons.ccvar.TransformAction;
+import com.adobe.acs.commons.ccvar.impl.UrlEncodeAction;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ContentVariableReplacementUtilTest {
+
+    private static final Function<String, TransformAction> ACTIONS =
+            key -> key.endsWith("!url") ? new UrlEncodeAction() : null;
+
+    private final Map<String, Object> replacements = new HashMap<>();
+
+    {
+        replacements.put("page_properties.jcr:title", "Arctic <Surfing>");
+        replacements.put("inherited_page_properties.property", "test space");
+    }
+
+    @Test
+    public void testReplaceAll() {
+        assertEquals("Title: Arctic &lt;Surfing&gt;, again Arctic &lt;Surfing&gt;, test+space (((unknown.key)))",
+                ContentVariableReplacementUtil.replaceAll(
+                        "Title: ((page_properties.jcr:title)), again ((page_properties.jcr:title)), "
+                                + "((inherited_page_properties.property!url)) (((unknown.key)))",
+                        replacements, ACTIONS));
+    }
+
+    @Test
+    public void testReplaceAllMatchesKeys() {
+        String input = "((a.b.c)) (((page_properties.jcr:title))) ((page_properties.jcr:title!)) ((.x)) ((x.)) "
+                + "((page_properties.jcr:title ((inherited_page_properties.property))";
+        for (String key : ContentVariableReplacementUtil.getKeys(input)) {
+            replacements.put(key, "[" + key + "]");
+        }
+
+        assertEquals("((a.b.c)) ([page_properties.jcr:title]) [page_properties.jcr:title] ((.x)) ((x.)) "
+                        + "((page_properties.jcr:title [inherited_page_properties.property]",
+                ContentVariableReplacementUtil.replaceAll(input, replacements, key -> null));
+        assertEquals(Arrays.asList("page_properties.jcr:title", "page_properties.jcr:title!",
+                "inherited_page_properties.property"), ContentVariableReplacementUtil.getKeys(input));
+    }
+
+    @Test
+    public void testReplaceAllInCharacters() {
+        char[] ch = "<p>((page_properties.jcr:title))</p>".toCharArray();
+
+        assertEquals("Arctic &lt;Surfing&gt;",
+                ContentVariableReplacementUtil.replaceAll(ch, 3, 29, replacements, ACTIONS).toString());
+        assertNull(ContentVariableReplacementUtil.replaceAll(ch, 4, 28, replacements, ACTIONS));
+    }
+
+    @Test
+    public void testReplaceAllWithoutPlaceholders() {
+        String input = "no (placeholders) here";
+
+        assertSame(input, ContentVariableReplacementUtil.replaceAll(input, replacements, ACTIONS));
+        assertNull(ContentVariableReplacementUtil.replaceAll((String) null, replacements, ACTIONS));
+    }
+}
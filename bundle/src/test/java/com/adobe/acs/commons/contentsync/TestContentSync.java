@@ -47,6 +47,7 @@ import javax.json.Json;
 import javax.json.JsonObject;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -61,6 +62,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
@@ -423,4 +425,80 @@ public class TestContentSync {
         assertEquals("FAQs", vm.get("jcr:title"));
         assertEquals(true, vm.get("jcr:isCheckedOut"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testPipeline() throws Exception {
+        context.build().resource("/content/wknd", "jcr:primaryType", "cq:Page");
+        JsonObject object = Json.createReader(getClass().getResourceAsStream("/contentsync/ordered-folder.json")).readObject();
+        doReturn(object).when(remoteInstance).getJson(any(URI.class));
+
+        List<CatalogItem> items = new ArrayList<>();
+        for (String name : Arrays.asList("one", "two", "three")) {
+            items.add(new CatalogItem(Json.createObjectBuilder()
+                    .add("path", "/content/wknd/" + name)
+                    .add("exportUri", "/content/wknd/" + name + ".json")
+                    .add("jcr:primaryType", "sling:OrderedFolder")
+                    .build()));
+        }
+        List<String> imported = new ArrayList<>();
+        ContentSyncPipeline pipeline = new ContentSyncPipeline(remoteInstance, context.resourceResolver(), contentSync, reader, 2);
+        ContentSyncPipeline.Statistics stats = pipeline.run(items, new ContentSyncPipeline.Listener() {
+            @Override
+            public void afterImport(CatalogItem item) {
+                imported.add(item.getPath());
+            }
+        });
+
+        // imported in catalog order, although fetched concurrently
+        assertEquals(Arrays.asList("/content/wknd/one", "/content/wknd/two", "/content/wknd/three"), imported);
+        assertFalse(context.resourceResolver().adaptTo(Session.class).hasPendingChanges());
+        assertEquals("Wknd Fragments", context.resourceResolver().getResource("/content/wknd/three").getValueMap().get("jcr:title"));
+        assertEquals(3, stats.getCount(ContentSyncPipeline.Phase.FETCH));
+        assertEquals(3, stats.getCount(ContentSyncPipeline.Phase.IMPORT));
+        assertEquals(0, stats.getCount(ContentSyncPipeline.Phase.BINARIES));
+        assertEquals(2, stats.getCount(ContentSyncPipeline.Phase.SAVE));
+    }
+
+    @Test
+    public void testPipelineSavesBeforeCreatingVersion() throws Exception {
+        context.build().resource("/content/wknd", "jcr:primaryType", "cq:Page");
+        context.build().resource("/content/wknd/two", "jcr:primaryType", "sling:OrderedFolder");
+        context.resourceResolver().commit();
+        JsonObject object = Json.createReader(getClass().getResourceAsStream("/contentsync/ordered-folder.json")).readObject();
+        doReturn(object).when(remoteInstance).getJson(any(URI.class));
+
+        List<CatalogItem> items = new ArrayList<>();
+        for (String name : Arrays.asList("one", "two", "three")) {
+            items.add(new CatalogItem(Json.createObjectBuilder()
+                    .add("path", "/content/wknd/" + name)
+                    .add("exportUri", "/content/wknd/" + name + ".json")
+                    .add("jcr:primaryType", "sling:OrderedFolder")
+                    .build()));
+        }
+        Session session = context.resourceResolver().adaptTo(Session.class);
+        List<String> versioned = new ArrayList<>();
+        ContentSyncPipeline pipeline = new ContentSyncPipeline(remoteInstance, context.resourceResolver(), contentSync, reader, 3);
+        ContentSyncPipeline.Statistics stats = pipeline.run(items, new ContentSyncPipeline.Listener() {
+            @Override
+            public boolean isSaveRequired(CatalogItem item) {
+                // versions are created of existing items only, like in the content sync UI
+                return context.resourceResolver().getResource(item.getPath()) != null;
+            }
+
+            @Override
+            public void beforeImport(CatalogItem item, List<String> binaryProperties) throws Exception {
+                if (context.resourceResolver().getResource(item.getPath()) != null) {
+                    // creating a revision saves the session, it must not persist a part of a batch
+                    assertFalse(session.hasPendingChanges());
+                    versioned.add(item.getPath());
+                }
+            }
+        });
+
+        assertEquals(Arrays.asList("/content/wknd/two"), versioned);
+        assertFalse(session.hasPendingChanges());
+        assertEquals(3, stats.getCount(ContentSyncPipeline.Phase.IMPORT));
+        // the first item is saved before the version of the second is created, the others at the end
+        assertEquals(2, stats.getCount(ContentSyncPipeline.Phase.SAVE));
+    }
+}
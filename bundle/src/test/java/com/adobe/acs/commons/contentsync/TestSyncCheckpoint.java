@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * ACS AEM Commons Bundle
+ * %%
+ * Copyright (C) 2013 - 2022 Adobe
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.adobe.acs.commons.contentsync;
+
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestSyncCheckpoint {
+    @Rule
+    public AemContext context = new AemContext(ResourceResolverType.RESOURCEPROVIDER_MOCK);
+
+    @Test
+    public void testResumeInterruptedSync() throws Exception {
+        ResourceResolver resourceResolver = context.resourceResolver();
+        SyncCheckpoint checkpoint = SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/wknd");
+        assertEquals(0L, checkpoint.getWatermark());
+        assertFalse(checkpoint.isResuming());
+
+        checkpoint.start(100L);
+        checkpoint.addFinished(Arrays.asList("/content/wknd/one", "/content/wknd/two"));
+        checkpoint.addFinished(Collections.singletonList("/content/wknd/three"));
+        resourceResolver.commit();
+
+        // the sync was interrupted, the next one resumes it
+        checkpoint = SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/wknd");
+        assertTrue(checkpoint.isResuming());
+        assertEquals(0L, checkpoint.getWatermark());
+        assertEquals(new HashSet<>(Arrays.asList("/content/wknd/one", "/content/wknd/two", "/content/wknd/three")),
+                checkpoint.getFinishedPaths());
+
+        // the watermark of the interrupted sync is kept
+        checkpoint.start(200L);
+        checkpoint.complete();
+
+        checkpoint = SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/wknd");
+        assertFalse(checkpoint.isResuming());
+        assertEquals(100L, checkpoint.getWatermark());
+        assertTrue(checkpoint.getFinishedPaths().isEmpty());
+    }
+
+    @Test
+    public void testCheckpointPerHostAndPath() throws Exception {
+        ResourceResolver resourceResolver = context.resourceResolver();
+        SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/wknd").start(100L);
+        SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/wknd").complete();
+
+        assertEquals(100L, SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/wknd").getWatermark());
+        assertEquals(0L, SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4503", "/content/wknd").getWatermark());
+        assertEquals(0L, SyncCheckpoint.getOrCreate(resourceResolver, "http://localhost:4502", "/content/dam").getWatermark());
+    }
+}
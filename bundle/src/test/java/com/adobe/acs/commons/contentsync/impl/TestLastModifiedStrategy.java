@@ -48,9 +48,13 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 public class TestLastModifiedStrategy {
 
@@ -246,4 +250,38 @@ public class TestLastModifiedStrategy {
         assertEquals(1, items.size());
     }
 
+
+    @Test
+    public void testInvalidSinceReturnsAllModified() {
+        LastModifiedStrategy strategy = spy((LastModifiedStrategy) updateStrategy);
+        doReturn(Collections.singletonList("/content/wknd/en")).when(strategy).getModifiedPaths(any(Resource.class), anyLong());
+        sync("root", "/content/wknd",
+                "since", "yesterday");
+
+        List<CatalogItem> items = strategy.getItems(context.request());
+        assertEquals(1, items.size());
+        verify(strategy).getModifiedPaths(any(Resource.class), eq(0L));
+        assertTrue(strategy.isIncremental(context.request()));
+    }
+
+    @Test
+    public void testNotIncrementalWithoutSince() {
+        sync("root", "/content/wknd");
+        assertFalse(updateStrategy.isIncremental(context.request()));
+
+        context.request().addRequestParameter("since", "1000");
+        context.request().addRequestParameter("recursive", "false");
+        // a non-recursive catalog lists the root regardless of its modification time
+        assertFalse(updateStrategy.isIncremental(context.request()));
+    }
+
+    @Test
+    public void testGetItemPath() {
+        assertEquals("/content/wknd/page", LastModifiedStrategy.getItemPath("/content/wknd/page/jcr:content"));
+        assertEquals("/content/wknd/page", LastModifiedStrategy.getItemPath("/content/wknd/page/jcr:content/root/image"));
+        assertEquals("/content/dam/asset.jpg",
+                LastModifiedStrategy.getItemPath("/content/dam/asset.jpg/jcr:content/renditions/original/jcr:content"));
+        assertEquals("/content/wknd/folder", LastModifiedStrategy.getItemPath("/content/wknd/folder"));
+        assertEquals("/content/wknd/jcr:contents", LastModifiedStrategy.getItemPath("/content/wknd/jcr:contents"));
+    }
 }
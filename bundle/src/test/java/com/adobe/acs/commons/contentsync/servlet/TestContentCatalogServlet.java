@@ -40,9 +40,11 @@ import java.util.List;
 import static javax.servlet.http.HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 public class TestContentCatalogServlet {
@@ -94,6 +96,35 @@ public class TestContentCatalogServlet {
         assertEquals(0, resources.size());
     }
 
+    @Test
+    public void testWatermark() throws IOException {
+        long now = System.currentTimeMillis();
+        MockSlingHttpServletRequest request = context.request();
+        request.addRequestParameter("root", "/content/wknd");
+        MockSlingHttpServletResponse response = context.response();
+        servlet.doGet(request, response);
+
+        JsonObject jsonResponse = Json.createReader(new StringReader(response.getOutputAsString())).readObject();
+        long watermark = jsonResponse.getJsonNumber("watermark").longValue();
+        // overlaps with the changes saved just before the catalog was built
+        assertTrue(watermark >= now - ContentCatalogServlet.WATERMARK_OVERLAP);
+        assertTrue(watermark < now);
+        assertFalse(jsonResponse.getBoolean("incremental"));
+    }
+
+    @Test
+    public void testIncremental() throws IOException {
+        MockSlingHttpServletRequest request = context.request();
+        request.addRequestParameter("root", "/content/wknd");
+        request.addRequestParameter("since", "1000");
+        doReturn(true).when(updateStrategy).isIncremental(request);
+        MockSlingHttpServletResponse response = context.response();
+        servlet.doGet(request, response);
+
+        JsonObject jsonResponse = Json.createReader(new StringReader(response.getOutputAsString())).readObject();
+        assertTrue(jsonResponse.getBoolean("incremental"));
+    }
+
     @Test
     public void testPageTree() throws IOException {
         doAnswer(invocation -> {
@@ -19,23 +19,30 @@ package com.adobe.acs.commons.data;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.sling.api.request.RequestParameter;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * Various basic tests of the spreadsheet utility class
@@ -166,6 +173,103 @@ public class SpreadsheetTest {
         assertEquals(testDate, values.get("date-val").toPropertyValue());
     }
 
+    @Test
+    public void testStreamDataRows() throws IOException {
+        List<Map<String, CompositeVariant>> expected = new Spreadsheet(true, new ByteArrayInputStream(workbookData.toByteArray()))
+                .buildSpreadsheet().getDataRowsAsCompositeVariants();
+        Spreadsheet instance = new Spreadsheet(true, new ByteArrayInputStream(workbookData.toByteArray()));
+        List<Map<String, CompositeVariant>> result;
+        try (Stream<Map<String, CompositeVariant>> rows = instance.streamDataRows()) {
+            result = rows.collect(Collectors.toList());
+        }
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).keySet(), result.get(i).keySet());
+            for (String column : expected.get(i).keySet()) {
+                assertEquals("Row " + i + " column " + column, expected.get(i).get(column).getValues(),
+                        result.get(i).get(column).getValues());
+            }
+        }
+        assertEquals(6, instance.getRowCount());
+        assertTrue("Streamed rows are not retained", instance.getDataRowsAsCompositeVariants().isEmpty());
+    }
+
+    @Test
+    public void testStreamDataRowsFromCsv() throws IOException {
+        String csv = "\uFEFFpath,Title,int-val@integer,list@string[;]\n"
+                + "/test/a1,\"A-1, quoted\",42,one;two\n"
+                + ",,,\n"
+                + "/test/a2,A-2,,\n";
+        Spreadsheet instance = new Spreadsheet(true, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "path");
+        List<Map<String, CompositeVariant>> result;
+        try (Stream<Map<String, CompositeVariant>> rows = instance.streamDataRows()) {
+            result = rows.collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList("path", "title", "int-val", "list"), instance.getHeaderRow());
+        assertEquals(2, result.size());
+        assertEquals("/test/a1", result.get(0).get("path").toString());
+        assertEquals("A-1, quoted", result.get(0).get("title").toString());
+        assertEquals((Integer) 42, result.get(0).get("int-val").toPropertyValue());
+        assertArrayEquals(new String[]{"one", "two"}, (Object[]) result.get(0).get("list").toPropertyValue());
+        assertEquals(3L, (long) instance.getRowNum(result.get(1)));
+        assertNull(result.get(1).get("int-val"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamDataRowsRejectsBinaryFile() throws IOException {
+        byte[] legacyExcel = {(byte) 0xD0, (byte) 0xCF, 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, 0x1A, (byte) 0xE1, 0x00, 0x00};
+        new Spreadsheet(true, new ByteArrayInputStream(legacyExcel)).streamDataRows();
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamDataRowsRejectsUnknownExtension() throws IOException {
+        RequestParameter file = mock(RequestParameter.class);
+        when(file.getFileName()).thenReturn("data.json");
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream("{\"path\": \"/test\"}".getBytes(StandardCharsets.UTF_8)));
+        new Spreadsheet(true, file).streamDataRows();
+    }
+
+    @Test
+    public void testStreamDataRowsFromCsvFile() throws IOException {
+        RequestParameter file = mock(RequestParameter.class);
+        when(file.getFileName()).thenReturn("data.CSV");
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream("path\n/test/a1\n".getBytes(StandardCharsets.UTF_8)));
+        Spreadsheet instance = new Spreadsheet(true, file);
+        try (Stream<Map<String, CompositeVariant>> rows = instance.streamDataRows()) {
+            assertEquals(1, rows.count());
+        }
+    }
+
+    @Test
+    public void testStreamDataRowsFromCsvFileAfterUploadIsClosed() throws IOException {
+        // like a request scoped upload, which is gone once the request has been processed
+        InputStream upload = new FilterInputStream(new ByteArrayInputStream(
+                "path\n/test/a1\n/test/a2\n".getBytes(StandardCharsets.UTF_8))) {
+            private boolean closed;
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (closed) {
+                    throw new IOException("Stream closed");
+                }
+                return super.read(b, off, len);
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+            }
+        };
+        RequestParameter file = mock(RequestParameter.class);
+        when(file.getFileName()).thenReturn("data.csv");
+        when(file.getInputStream()).thenReturn(upload);
+        Spreadsheet instance = new Spreadsheet(true, file);
+        try (Stream<Map<String, CompositeVariant>> rows = instance.streamDataRows()) {
+            upload.close();
+            assertEquals(2, rows.count());
+        }
+    }
+
     @Test
     public void testSheetTypesAsStrings() {
         assertEquals(2, dataTypesSheet.getRowCount());
@@ -17,10 +17,12 @@
  */
 package com.adobe.acs.commons.etag.impl;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,6 +37,8 @@ import org.apache.http.HttpHeaders;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.request.RequestProgressTracker;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
 import org.apache.sling.api.servlets.HttpConstants;
 import org.junit.Assert;
 import org.junit.Before;
@@ -45,6 +49,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import com.adobe.acs.commons.util.BufferedSlingHttpServletResponse;
+import com.adobe.acs.commons.util.ServletOutputStreamWrapper;
 
 @RunWith(MockitoJUnitRunner.class)
 public class EtagMessageDigestServletFilterTest {
@@ -202,4 +207,64 @@ public class EtagMessageDigestServletFilterTest {
         Mockito.verify(mockResponse).setStatus(304);
         
     }
+
+    @Test
+    public void testDoFilterWithStreamingDigest() throws IOException, ServletException {
+        Mockito.when(configuration.enabled()).thenReturn(true);
+        Mockito.when(configuration.streamingDigest()).thenReturn(true);
+        Mockito.when(configuration.enabledForOutputStream()).thenReturn(true);
+        // spool most of the response to a temp file
+        Mockito.when(configuration.spoolThreshold()).thenReturn(10);
+        ByteArrayOutputStream responseOutput = new ByteArrayOutputStream();
+        Mockito.when(mockResponse.getOutputStream()).thenReturn(new ServletOutputStreamWrapper(responseOutput));
+        Mockito.when(mockRequest.getMethod()).thenReturn(HttpConstants.METHOD_GET);
+
+        filter.doFilter(mockRequest, mockResponse, (request, response) -> {
+            response.getOutputStream().print(EXAMPLE_TEXT.substring(0, 5));
+            response.getOutputStream().print(EXAMPLE_TEXT.substring(5));
+        });
+
+        Mockito.verify(mockResponse).setHeader(HttpConstants.HEADER_ETAG, "\"9e107d9d372bb6826bd81d3542a419d6\"");
+        Assert.assertEquals(EXAMPLE_TEXT, new String(responseOutput.toByteArray(), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testDoFilterSkipsRenderingForRememberedDigest() throws IOException, ServletException {
+        Mockito.when(configuration.enabled()).thenReturn(true);
+        Mockito.when(configuration.digestCacheSize()).thenReturn(10);
+        Mockito.when(configuration.digestCacheTtl()).thenReturn(60L);
+        filter.activate(configuration);
+        Resource resource = Mockito.mock(Resource.class);
+        ResourceMetadata metadata = new ResourceMetadata();
+        metadata.setModificationTime(1000L);
+        Mockito.when(resource.getResourceMetadata()).thenReturn(metadata);
+        Mockito.when(mockRequest.getResource()).thenReturn(resource);
+        Mockito.when(mockRequest.getRequestURI()).thenReturn("/content/page.html");
+        Mockito.when(mockRequest.getMethod()).thenReturn(HttpConstants.METHOD_GET);
+        Mockito.when(mockResponse.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        Mockito.when(mockResponse.getStatus()).thenReturn(200);
+        FilterChain chain = Mockito.mock(FilterChain.class);
+        Mockito.doAnswer(invocation -> {
+            invocation.getArgument(1, ServletResponse.class).getWriter().write(EXAMPLE_TEXT);
+            return null;
+        }).when(chain).doFilter(Mockito.any(), Mockito.any());
+
+        filter.doFilter(mockRequest, mockResponse, chain);
+        Mockito.verify(chain).doFilter(Mockito.any(), Mockito.any());
+
+        Vector<String> ifNoneMatchETags = new Vector<>();
+        ifNoneMatchETags.add("\"9e107d9d372bb6826bd81d3542a419d6\"");
+        Mockito.when(mockRequest.getHeaders(HttpHeaders.IF_NONE_MATCH)).thenReturn(ifNoneMatchETags.elements());
+        filter.doFilter(mockRequest, mockResponse, chain);
+
+        // not rendered again
+        Mockito.verify(chain).doFilter(Mockito.any(), Mockito.any());
+        Mockito.verify(mockResponse).setStatus(304);
+        Mockito.verify(mockResponse, Mockito.times(2)).setHeader(HttpConstants.HEADER_ETAG, "\"9e107d9d372bb6826bd81d3542a419d6\"");
+
+        // a modified resource is rendered again
+        metadata.setModificationTime(2000L);
+        filter.doFilter(mockRequest, mockResponse, chain);
+        Mockito.verify(chain, Mockito.times(2)).doFilter(Mockito.any(), Mockito.any());
+    }
 }
@@ -23,6 +23,7 @@ import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import com.adobe.acs.commons.mcp.form.AbstractResourceImpl;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,13 @@ import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import javax.jcr.Node;
+import javax.jcr.NodeIterator;
+import javax.jcr.Session;
+import javax.jcr.Workspace;
+import javax.jcr.query.Query;
+import javax.jcr.query.QueryManager;
+import javax.jcr.query.QueryResult;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
@@ -266,4 +274,52 @@ public class ActionManagerTest {
       inOrder.verify(rr, times(2)).close();   // We expect one call for the one background resolver opened, and one for the base resolver.
       inOrder.verifyNoMoreInteractions();
     }
+
+    @Test
+    public void streamQueryResultsTest() throws Exception {
+        final int resultCount = 25;
+        final ResourceResolver rr = getFreshMockResolver();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < resultCount; i++) {
+            Node node = mock(Node.class);
+            when(node.getPath()).thenReturn("/content/node" + i);
+            nodes.add(node);
+        }
+        Iterator<Node> nodeIterator = nodes.iterator();
+        NodeIterator results = mock(NodeIterator.class);
+        when(results.hasNext()).then(i -> nodeIterator.hasNext());
+        when(results.nextNode()).then(i -> nodeIterator.next());
+        Session session = mock(Session.class, RETURNS_DEEP_STUBS);
+        when(session.getWorkspace().getQueryManager().createQuery("query", "JCR-SQL2").execute().getNodes()).thenReturn(results);
+        when(rr.adaptTo(Session.class)).thenReturn(session);
+
+        Queue<Runnable> taskQueue = new LinkedList<>();
+        ThrottledTaskRunner runner = mock(ThrottledTaskRunner.class);
+        when(runner.getMaxThreads()).thenReturn(1);
+        Answer<Void> answer = i -> {
+            Runnable r = i.getArgument(0);
+            taskQueue.add(r);
+            return null;
+        };
+        doAnswer(answer).when(runner).scheduleWork(any(Runnable.class), any(CancelHandler.class), anyInt());
+        doAnswer(answer).when(runner).scheduleWork(any(Runnable.class), anyInt());
+
+        ActionManager manager = new ActionManagerImpl("test", runner, rr, 1);
+        List<String> processed = new ArrayList<>();
+        manager.streamQueryResults("query", "JCR-SQL2", 4, (r, path) -> processed.add(path),
+                (r, path) -> !path.endsWith("node3"));
+        assertFalse("results are read after the query was started", manager.isComplete());
+
+        int maxQueued = 0;
+        while (!taskQueue.isEmpty()) {
+            maxQueued = Math.max(maxQueued, taskQueue.size());
+            taskQueue.remove().run();
+        }
+        // two batches and the producer at most
+        assertTrue(maxQueued <= 3);
+        assertEquals(resultCount - 1, processed.size());
+        assertEquals(resultCount, manager.getAddedCount());
+        assertEquals(resultCount, manager.getCompletedCount());
+        assertTrue(manager.isComplete());
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.fam.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveConcurrencyLimitTest {
+
+    @Test
+    public void testOverloadBacksOffAndRecovers() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8);
+        assertEquals(8, limit.getLimit());
+
+        completeRound(limit, 50);
+        assertTrue(limit.adjust("CPU 90% above 75%"));
+        assertEquals(6, limit.getLimit());
+        assertEquals("CPU 90% above 75%", limit.getReason());
+
+        completeRound(limit, 50);
+        assertTrue(limit.adjust(null));
+        assertEquals(7, limit.getLimit());
+
+        completeRound(limit, 50);
+        assertTrue(limit.adjust(null));
+        completeRound(limit, 50);
+        assertFalse("never above the maximum", limit.adjust(null));
+        assertEquals(8, limit.getLimit());
+    }
+
+    @Test
+    public void testLatencyIncreaseBacksOff() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4);
+        completeRound(limit, 100);
+        assertFalse(limit.adjust(null));
+
+        completeRound(limit, 500);
+        assertTrue(limit.adjust(null));
+        assertEquals(3, limit.getLimit());
+        assertTrue(limit.getReason().startsWith("Task latency 500ms above baseline"));
+
+        // small absolute increases of fast tasks are noise
+        AdaptiveConcurrencyLimit fast = new AdaptiveConcurrencyLimit(4);
+        completeRound(fast, 1);
+        fast.adjust(null);
+        completeRound(fast, 5);
+        assertFalse(fast.adjust(null));
+        assertEquals(4, fast.getLimit());
+    }
+
+    @Test
+    public void testNeverBelowOne() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2);
+        completeRound(limit, 10);
+        assertTrue(limit.adjust("Heap usage 90% above 85%"));
+        assertEquals(1, limit.getLimit());
+        completeRound(limit, 10);
+        assertFalse(limit.adjust("Heap usage 90% above 85%"));
+        assertEquals(1, limit.getLimit());
+    }
+
+    @Test
+    public void testRoundIsAdjustedOnce() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2);
+        assertFalse(limit.sample(10));
+        assertTrue(limit.sample(10));
+        assertTrue(limit.adjust("CPU 90% above 75%"));
+        assertFalse("round already adjusted by another thread", limit.adjust("CPU 90% above 75%"));
+    }
+
+    private static void completeRound(AdaptiveConcurrencyLimit limit, long latency) {
+        while (!limit.sample(latency)) {
+            // sample until the round is complete
+        }
+    }
+}
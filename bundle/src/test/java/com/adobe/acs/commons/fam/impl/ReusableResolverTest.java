@@ -0,0 +1,166 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.fam.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.adobe.acs.commons.fam.Failure;
+import com.adobe.acs.commons.functions.CheckedConsumer;
+
+public class ReusableResolverTest {
+
+    private static final String BAD_ITEM = "/content/bad";
+
+    private final List<String> changes = new ArrayList<>();
+    private final List<String> committed = new ArrayList<>();
+    private final List<String> reported = new ArrayList<>();
+    private ResourceResolver rr;
+
+    @Before
+    public void setUp() throws PersistenceException {
+        // a resolver which fails to commit any batch containing the bad item
+        rr = mock(ResourceResolver.class);
+        when(rr.isLive()).thenReturn(true);
+        when(rr.hasChanges()).then(i -> !changes.isEmpty());
+        doAnswer(i -> {
+            if (changes.contains(BAD_ITEM)) {
+                throw new PersistenceException("Conflict");
+            }
+            committed.addAll(changes);
+            changes.clear();
+            return null;
+        }).when(rr).commit();
+        doAnswer(i -> {
+            changes.clear();
+            return null;
+        }).when(rr).revert();
+    }
+
+    private void process(ReusableResolver resolver, String item) throws Exception {
+        CheckedConsumer<ResourceResolver> action = r -> {
+            changes.add(item);
+            assertTrue(ReusableResolver.deferUntilCommit(() -> reported.add(item)));
+        };
+        resolver.setCurrentItem(item);
+        resolver.setCurrentAction(action);
+        action.accept(rr);
+        resolver.free();
+    }
+
+    @Test
+    public void testFailingBatchIsBisected() throws Exception {
+        AdaptiveSaveInterval saveInterval = new AdaptiveSaveInterval(1);
+        saveInterval.setMaxInterval(100);
+        ReusableResolver resolver = new ReusableResolver(rr, saveInterval);
+        List<String> items = Arrays.asList("/content/a", "/content/b", "/content/c", BAD_ITEM, "/content/d",
+                "/content/e", "/content/f", "/content/g");
+        List<String> failed = new ArrayList<>();
+        for (String item : items) {
+            try {
+                process(resolver, item);
+            } catch (PersistenceException e) {
+                resolver.getFailures().stream().map(Failure::getNodePath).forEach(failed::add);
+            }
+        }
+        resolver.commit();
+        assertEquals(Arrays.asList(BAD_ITEM), failed);
+        assertEquals(items.stream().filter(item -> !BAD_ITEM.equals(item)).collect(Collectors.toList()), committed);
+        assertTrue(saveInterval.getFailedCommitCount() > 0);
+    }
+
+    @Test
+    public void testReportsOnlyCommittedItemsOnce() throws Exception {
+        AdaptiveSaveInterval saveInterval = new AdaptiveSaveInterval(4);
+        saveInterval.setMaxInterval(4);
+        ReusableResolver resolver = new ReusableResolver(rr, saveInterval);
+        process(resolver, "/content/a");
+        process(resolver, BAD_ITEM);
+        process(resolver, "/content/b");
+        assertTrue(reported.isEmpty());
+        try {
+            process(resolver, "/content/c");
+            fail("The bad item can't be committed");
+        } catch (PersistenceException e) {
+            assertEquals(1, resolver.getFailures().size());
+        }
+        // the actions run again while isolating the bad item report only once
+        assertEquals(Arrays.asList("/content/a", "/content/b", "/content/c"), reported);
+        process(resolver, "/content/d");
+        resolver.commit();
+        assertEquals(Arrays.asList("/content/a", "/content/b", "/content/c", "/content/d"), reported);
+        assertEquals(committed, reported);
+        assertFalse(ReusableResolver.deferUntilCommit(() -> reported.add("/content/none")));
+    }
+
+    @Test
+    public void testFixedIntervalFailsWholeBatch() throws Exception {
+        ReusableResolver resolver = new ReusableResolver(rr, 4);
+        process(resolver, "/content/a");
+        process(resolver, BAD_ITEM);
+        process(resolver, "/content/b");
+        try {
+            process(resolver, "/content/c");
+            fail("The bad item can't be committed");
+        } catch (PersistenceException e) {
+            assertEquals(4, resolver.getFailures().size());
+        }
+        assertTrue(committed.isEmpty());
+        assertTrue(reported.isEmpty());
+        assertEquals(4, resolver.getSaveInterval());
+    }
+
+    @Test
+    public void testIntervalFollowsCommitLatency() {
+        AdaptiveSaveInterval saveInterval = new AdaptiveSaveInterval(1);
+        saveInterval.setMaxInterval(8);
+        long fast = TimeUnit.MILLISECONDS.toNanos(AdaptiveSaveInterval.FAST_COMMIT_MILLIS - 1);
+        long slow = TimeUnit.MILLISECONDS.toNanos(AdaptiveSaveInterval.SLOW_COMMIT_MILLIS + 1);
+        saveInterval.committed(1, fast);
+        saveInterval.committed(2, fast);
+        assertEquals(4, saveInterval.getInterval());
+        // a partial batch flushed at the end says nothing about larger batches
+        saveInterval.committed(1, fast);
+        assertEquals(4, saveInterval.getInterval());
+        saveInterval.committed(4, fast);
+        saveInterval.committed(8, fast);
+        assertEquals(8, saveInterval.getInterval());
+        saveInterval.committed(8, slow);
+        assertEquals(4, saveInterval.getInterval());
+        saveInterval.failed(fast);
+        assertEquals(2, saveInterval.getInterval());
+        assertEquals(6, saveInterval.getCommitCount());
+        assertEquals(1, saveInterval.getFailedCommitCount());
+    }
+}
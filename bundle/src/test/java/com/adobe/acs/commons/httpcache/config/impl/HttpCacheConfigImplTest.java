@@ -24,6 +24,7 @@ import com.adobe.acs.commons.httpcache.keys.CacheKey;
 import com.adobe.acs.commons.httpcache.keys.CacheKeyFactory;
 import io.wcm.testing.mock.aem.junit.AemContext;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.junit.Before;
 import org.junit.Rule;
@@ -43,6 +44,9 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -221,6 +225,31 @@ public class HttpCacheConfigImplTest {
 
     }
 
+    @Test
+    public void test_build_cachekey_once_per_request() throws HttpCacheKeyCreationException {
+        activateWithDefaultValues(Collections.emptyMap());
+        Map<String, Object> attributes = new HashMap<>();
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+        Resource page = mock(Resource.class);
+        Resource component = mock(Resource.class);
+        when(request.getResource()).thenReturn(page);
+
+        CacheKey pageKey = mock(CacheKey.class);
+        CacheKey componentKey = mock(CacheKey.class);
+        when(extension.build(request, systemUnderTest)).thenReturn(pageKey, componentKey);
+
+        assertSame(pageKey, systemUnderTest.buildCacheKey(request));
+        assertSame(pageKey, systemUnderTest.buildCacheKey(request));
+        verify(extension, times(1)).build(request, systemUnderTest);
+
+        // an include of another resource in the same request
+        when(request.getResource()).thenReturn(component);
+        assertSame(componentKey, systemUnderTest.buildCacheKey(request));
+        verify(extension, times(2)).build(request, systemUnderTest);
+    }
+
     @Test
     public void test_build_cachekey() throws HttpCacheKeyCreationException {
 
@@ -19,15 +19,21 @@ package com.adobe.acs.commons.httpcache.config.impl.keys;
 
 import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
 import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class KeyValueCacheKeyTest {
@@ -64,4 +70,29 @@ public class KeyValueCacheKeyTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void test_precomputed_hash_is_compatible() {
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        Resource resource = mock(Resource.class);
+        when(request.getRequestURI()).thenReturn("/content/acs-commons/en/homepage.html");
+        when(request.getResource()).thenReturn(resource);
+        when(resource.getPath()).thenReturn("/content/acs-commons/en/homepage");
+
+        KeyValueCacheKey first = new KeyValueCacheKey(request, cacheConfig, "synthetic", TESTMAP, Collections.singletonMap("SomeValue", "Value1"));
+        KeyValueCacheKey same = new KeyValueCacheKey(request, cacheConfig, "synthetic", TESTMAP, Collections.singletonMap("SomeValue", "Value1"));
+        KeyValueCacheKey other = new KeyValueCacheKey(request, cacheConfig, "synthetic", TESTMAP, Collections.singletonMap("SomeValue", "Value2"));
+
+        assertEquals(first, same);
+        assertEquals(first.hashCode(), same.hashCode());
+        assertNotEquals(first, other);
+        // entries persisted in the buckets of the JCR cache store are found by the hash code of their key
+        assertEquals(new HashCodeBuilder(17, 37)
+                .append(first.getUri())
+                .append("synthetic")
+                .append(first.getAuthenticationRequirement()).toHashCode(), first.hashCode());
+
+        KeyValueCacheKey unserialized = SerializationUtils.deserialize(SerializationUtils.serialize(first));
+        assertEquals(first.hashCode(), unserialized.hashCode());
+    }
+
+}
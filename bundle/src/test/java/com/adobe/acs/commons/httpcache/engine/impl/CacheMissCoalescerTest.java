@@ -0,0 +1,103 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.engine.impl;
+
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CacheMissCoalescerTest {
+
+    private final CacheKey key = mock(CacheKey.class);
+
+    @Test
+    public void test_followers_wait_for_the_leader() throws Exception {
+        CacheMissCoalescer systemUnderTest = new CacheMissCoalescer(10000);
+        SlingHttpServletRequest leader = mockRequest();
+
+        assertTrue(systemUnderTest.join(leader, key));
+
+        CompletableFuture<Boolean> follower = CompletableFuture.supplyAsync(() -> {
+            try {
+                return systemUnderTest.join(mockRequest(), key);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse("follower waits while the leader renders", follower.isDone());
+
+        systemUnderTest.takeLead(leader, key).release();
+
+        assertFalse("follower does not lead", follower.get(5, TimeUnit.SECONDS));
+        assertEquals(0, systemUnderTest.size());
+        assertNull(systemUnderTest.takeLead(leader, key));
+    }
+
+    @Test
+    public void test_abandoned_lead_is_taken_over() throws Exception {
+        CacheMissCoalescer systemUnderTest = new CacheMissCoalescer(50);
+
+        assertTrue(systemUnderTest.join(mockRequest(), key));
+        // waits for the timeout
+        assertFalse(systemUnderTest.join(mockRequest(), key));
+        Thread.sleep(10);
+        assertTrue(systemUnderTest.join(mockRequest(), key));
+    }
+
+    @Test
+    public void test_release_removes_the_lead() throws Exception {
+        CacheMissCoalescer systemUnderTest = new CacheMissCoalescer(10000);
+        SlingHttpServletRequest leader = mockRequest();
+
+        assertTrue(systemUnderTest.join(leader, key));
+        assertEquals(1, systemUnderTest.size());
+
+        // releasing a key the request does not lead is a no-op
+        systemUnderTest.release(mockRequest(), key);
+        assertEquals(1, systemUnderTest.size());
+
+        systemUnderTest.release(leader, key);
+        assertEquals(0, systemUnderTest.size());
+        assertTrue("the next miss leads right away", systemUnderTest.join(mockRequest(), key));
+    }
+
+    private static SlingHttpServletRequest mockRequest() {
+        final Map<String, Object> attributes = new HashMap<>();
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        when(request.getAttribute(anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(request).setAttribute(anyString(), any());
+        return request;
+    }
+}
@@ -46,6 +46,9 @@ import org.mockito.junit.MockitoRule;
 import org.mockito.stubbing.Answer;
 
 import javax.management.NotCompliantMBeanException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -57,6 +60,7 @@ import java.util.List;
 import java.util.Arrays;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static com.adobe.acs.commons.httpcache.engine.impl.HttpCacheEngineImpl.PROP_GLOBAL_RESPONSE_COOKIE_EXCLUSIONS;
 import static com.adobe.acs.commons.httpcache.engine.impl.HttpCacheEngineImpl.PROP_GLOBAL_RESPONSE_HEADER_EXCLUSIONS;
@@ -131,6 +135,26 @@ public class HttpCacheEngineImplTest {
         systemUnderTest.deactivate(emptyMap());
     }
 
+    @Test
+    public void test_discarded_response_releases_the_single_flight_lead() throws HttpCacheException {
+        systemUnderTest.activate(Collections.singletonMap(HttpCacheEngineImpl.PROP_SINGLE_FLIGHT_TIMEOUT, 60000L));
+        SlingHttpServletRequest leader = new MockSlingHttpServletRequest("/content/acs-commons/home", "", "html", "", "");
+        SlingHttpServletRequest follower = new MockSlingHttpServletRequest("/content/acs-commons/home", "", "html", "", "");
+        CacheKey mockedCacheKey = mock(CacheKey.class);
+        when(memCacheConfig.buildCacheKey(any(SlingHttpServletRequest.class))).thenReturn(mockedCacheKey);
+        when(memCacheStore.contains(mockedCacheKey)).thenReturn(false);
+
+        assertFalse(systemUnderTest.isCacheHit(leader, memCacheConfig));
+        // the rendering failed, e.g. the filter chain threw
+        systemUnderTest.discardResponse(leader, new MockSlingHttpServletResponse(), memCacheConfig);
+
+        long start = System.currentTimeMillis();
+        // the follower takes over the lead instead of waiting for the timeout
+        assertFalse(systemUnderTest.isCacheHit(follower, memCacheConfig));
+        assertTrue(System.currentTimeMillis() - start < 30000L);
+        systemUnderTest.discardResponse(follower, new MockSlingHttpServletResponse(), memCacheConfig);
+    }
+
     @Test
     public void test_get_cache_config() throws HttpCacheException {
         SlingHttpServletRequest request = new MockSlingHttpServletRequest("/content/acs-commons/home", "my-selector", "html", "", "");
@@ -300,4 +324,88 @@ public class HttpCacheEngineImplTest {
         assertEquals("rendered-html", cachedHTML);
     }
 
+    @Test
+    public void test_stale_entry_is_revalidated_by_one_request() throws HttpCacheException {
+        SlingHttpServletRequest first = new MockSlingHttpServletRequest("/content/acs-commons/home", "my-selector", "html", "", "");
+        SlingHttpServletRequest second = new MockSlingHttpServletRequest("/content/acs-commons/home", "my-selector", "html", "", "");
+
+        CacheKey mockedCacheKey = mock(CacheKey.class);
+        CacheContent staleContent = mock(CacheContent.class);
+        when(staleContent.isStale()).thenReturn(true);
+        when(memCacheConfig.getSoftExpiry()).thenReturn(1000L);
+        when(memCacheConfig.buildCacheKey(any(SlingHttpServletRequest.class))).thenReturn(mockedCacheKey);
+        when(memCacheStore.getIfPresent(mockedCacheKey)).thenReturn(staleContent);
+
+        assertFalse("first request renders a fresh entry", systemUnderTest.isCacheHit(first, memCacheConfig));
+        assertTrue("second request gets the stale entry", systemUnderTest.isCacheHit(second, memCacheConfig));
+        verify(memCacheStore, never()).contains(mockedCacheKey);
+    }
+
+    @Test
+    public void test_deliver_encoded_cache_content() throws HttpCacheException, IOException {
+        byte[] html = IOUtils.toByteArray(getClass().getResourceAsStream("cachecontent.html"));
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(html);
+        }
+        CacheKey mockedCacheKey = mock(CacheKey.class);
+        when(jcrCacheConfig.buildCacheKey(any(SlingHttpServletRequest.class))).thenReturn(mockedCacheKey);
+        when(jcrCacheStore.getIfPresent(mockedCacheKey)).thenAnswer(invocation -> {
+            CacheContent content = new CacheContent(200, "utf-8", "text/html", new HashMap<>(), null,
+                    HttpCacheServletResponseWrapper.ResponseWriteMethod.OUTPUTSTREAM);
+            content.setEncodedInputDataStream(CacheContent.CONTENT_ENCODING_GZIP, new ByteArrayInputStream(gzipped.toByteArray()));
+            return content;
+        });
+
+        // client accepting gzip gets the compressed bytes as they are
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.enumeration(Arrays.asList("deflate, gzip;q=0.8")));
+        SlingHttpServletResponse response = mock(SlingHttpServletResponse.class);
+        ByteArrayOutputStream delivered = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                delivered.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                // not used
+            }
+        });
+
+        assertTrue(systemUnderTest.deliverCacheContent(request, response, jcrCacheConfig));
+        assertArrayEquals(gzipped.toByteArray(), delivered.toByteArray());
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).addHeader("Vary", "Accept-Encoding");
+
+        // other clients get them decompressed
+        SlingHttpServletRequest plainRequest = new MockSlingHttpServletRequest("/content/acs-commons/home", "my-selector", "html", "", "");
+        StringResponseWrapper plainResponse = new StringResponseWrapper(new MockSlingHttpServletResponse());
+
+        assertTrue(systemUnderTest.deliverCacheContent(plainRequest, plainResponse, jcrCacheConfig));
+        assertEquals(new String(html, StandardCharsets.UTF_8), plainResponse.getString());
+    }
+
+    @Test
+    public void test_accepts_encoding() {
+        assertTrue(acceptsEncoding("gzip, deflate, br"));
+        assertTrue(acceptsEncoding("GZIP;q=0.5"));
+        assertTrue(acceptsEncoding("*"));
+        assertFalse(acceptsEncoding("deflate, br"));
+        assertFalse(acceptsEncoding("gzip;q=0"));
+        assertFalse(acceptsEncoding("gzip;q=0.0, *"));
+        assertFalse(acceptsEncoding("*;q=0"));
+    }
+
+    private static boolean acceptsEncoding(String acceptEncoding) {
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        when(request.getHeaders("Accept-Encoding")).thenReturn(Collections.enumeration(Collections.singletonList(acceptEncoding)));
+        return HttpCacheEngineImpl.acceptsEncoding(request, "gzip");
+    }
 }
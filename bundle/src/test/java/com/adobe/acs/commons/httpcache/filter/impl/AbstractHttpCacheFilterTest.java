@@ -0,0 +1,127 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.filter.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.HttpCacheEngine;
+import com.adobe.acs.commons.httpcache.engine.HttpCacheServletResponseWrapper;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AbstractHttpCacheFilterTest {
+
+    private final AbstractHttpCacheFilter filter = new AbstractHttpCacheFilter() {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    private HttpCacheEngine cacheEngine;
+    private HttpCacheConfig cacheConfig;
+    private SlingHttpServletRequest request;
+    private SlingHttpServletResponse response;
+    private HttpCacheServletResponseWrapper wrapper;
+    private FilterChain chain;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheEngine = mock(HttpCacheEngine.class);
+        cacheConfig = mock(HttpCacheConfig.class);
+        request = mock(SlingHttpServletRequest.class);
+        response = mock(SlingHttpServletResponse.class);
+        wrapper = mock(HttpCacheServletResponseWrapper.class);
+        chain = mock(FilterChain.class);
+
+        when(cacheEngine.getCacheConfig(request, HttpCacheConfig.FilterScope.REQUEST)).thenReturn(cacheConfig);
+        when(cacheEngine.isRequestCacheable(request, cacheConfig)).thenReturn(true);
+        // a miss, the request leads the rendering of the entry
+        when(cacheEngine.isCacheHit(request, cacheConfig)).thenReturn(false);
+        when(cacheEngine.wrapResponse(request, response, cacheConfig)).thenReturn(wrapper);
+    }
+
+    @Test
+    public void test_cache_miss_is_handed_over_to_the_cache_engine() throws Exception {
+        filter.doFilter(request, response, chain, cacheEngine, HttpCacheConfig.FilterScope.REQUEST);
+
+        verify(chain).doFilter(request, wrapper);
+        verify(cacheEngine).cacheResponse(request, wrapper, cacheConfig);
+        verify(cacheEngine, never()).discardResponse(any(), any(), any());
+    }
+
+    @Test
+    public void test_failing_chain_releases_the_cache_miss() throws Exception {
+        doThrow(new ServletException("failed")).when(chain).doFilter(request, wrapper);
+
+        try {
+            filter.doFilter(request, response, chain, cacheEngine, HttpCacheConfig.FilterScope.REQUEST);
+            fail("The chain failed");
+        } catch (ServletException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        verify(cacheEngine).discardResponse(request, wrapper, cacheConfig);
+        verify(cacheEngine, never()).cacheResponse(any(), any(), any());
+    }
+
+    @Test
+    public void test_failing_wrap_releases_the_cache_miss() throws Exception {
+        when(cacheEngine.wrapResponse(request, response, cacheConfig))
+                .thenThrow(new HttpCacheDataStreamException("failed"));
+
+        filter.doFilter(request, response, chain, cacheEngine, HttpCacheConfig.FilterScope.REQUEST);
+
+        // the request is still rendered, but not cached
+        verify(chain).doFilter(request, response);
+        verify(cacheEngine, never()).cacheResponse(any(), any(), any());
+        verify(cacheEngine).discardResponse(request, response, cacheConfig);
+    }
+
+    @Test
+    public void test_failing_wrap_with_runtime_exception_releases_the_cache_miss() throws Exception {
+        when(cacheEngine.wrapResponse(request, response, cacheConfig)).thenThrow(new IllegalStateException("failed"));
+
+        try {
+            filter.doFilter(request, response, chain, cacheEngine, HttpCacheConfig.FilterScope.REQUEST);
+            fail("Wrapping the response failed");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+
+        verify(chain, never()).doFilter(any(), any());
+        verify(cacheEngine).discardResponse(request, response, cacheConfig);
+    }
+}
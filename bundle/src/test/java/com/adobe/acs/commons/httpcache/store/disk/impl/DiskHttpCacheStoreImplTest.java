@@ -0,0 +1,203 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.store.disk.impl;
+
+import com.adobe.acs.commons.httpcache.config.HttpCacheConfig;
+import com.adobe.acs.commons.httpcache.engine.CacheContent;
+import com.adobe.acs.commons.httpcache.exception.HttpCacheDataStreamException;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import com.adobe.acs.commons.httpcache.store.TempSink;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.osgi.service.component.ComponentContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Hashtable;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DiskHttpCacheStoreImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private DiskHttpCacheStoreImpl systemUnderTest;
+    private File directory;
+
+    @Before
+    public void init() throws Exception {
+        directory = folder.newFolder("cache");
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put("httpcache.cachestore.diskcache.directory", directory.getAbsolutePath());
+        properties.put("httpcache.cachestore.diskcache.maxsize", 1L);
+        properties.put("httpcache.cachestore.diskcache.segmentsize", 1L);
+        properties.put("httpcache.cachestore.diskcache.spillthreshold", 1L);
+
+        ComponentContext context = mock(ComponentContext.class);
+        when(context.getProperties()).thenReturn(properties);
+
+        systemUnderTest = new DiskHttpCacheStoreImpl();
+        systemUnderTest.activate(context);
+    }
+
+    @After
+    public void tearDown() {
+        systemUnderTest.deactivate();
+    }
+
+    @Test
+    public void test_put() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        putContent(key, IOUtils.toInputStream("<html>cached</html>", StandardCharsets.UTF_8));
+
+        assertTrue("contains entry we just put in", systemUnderTest.contains(key));
+        assertEquals(1, systemUnderTest.size());
+
+        CacheContent retrievedContent = systemUnderTest.getIfPresent(key);
+        assertEquals(200, retrievedContent.getStatus());
+        assertEquals("text/html", retrievedContent.getContentType());
+        assertEquals("<html>cached</html>",
+                IOUtils.toString(retrievedContent.getInputDataStream(), StandardCharsets.UTF_8));
+        assertEquals(1, systemUnderTest.getSegmentCount());
+    }
+
+    @Test
+    public void test_remove() throws Exception {
+        CacheKey key = mock(CacheKey.class);
+        putContent(key, IOUtils.toInputStream("<html>cached</html>", StandardCharsets.UTF_8));
+
+        CacheKey secondKey = mock(CacheKey.class);
+        when(key.isInvalidatedBy(secondKey)).thenReturn(true);
+
+        systemUnderTest.invalidate(secondKey);
+
+        assertFalse("doesn't contain entry we just removed", systemUnderTest.contains(key));
+        assertNull(systemUnderTest.getIfPresent(key));
+    }
+
+    @Test
+    public void test_remove_by_cacheconfig() throws Exception {
+        HttpCacheConfig config = mock(HttpCacheConfig.class);
+        CacheKey key = mock(CacheKey.class);
+        putContent(key, IOUtils.toInputStream("<html>cached</html>", StandardCharsets.UTF_8));
+        when(config.knows(key)).thenReturn(true);
+
+        systemUnderTest.invalidate(config);
+
+        assertFalse("doesn't contain entry we just removed", systemUnderTest.contains(key));
+    }
+
+    @Test
+    public void test_temp_sink_spills_to_disk() throws Exception {
+        byte[] body = new byte[4096];
+        Arrays.fill(body, (byte) 'a');
+
+        TempSink sink = systemUnderTest.createTempSink();
+        try (OutputStream out = sink.createOutputStream()) {
+            out.write(body);
+        }
+        assertEquals(body.length, sink.length());
+
+        CacheKey key = mock(CacheKey.class);
+        putContent(key, sink.createInputStream());
+
+        try (InputStream in = systemUnderTest.getIfPresent(key).getInputDataStream()) {
+            assertArrayEquals(body, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void test_segments_are_reclaimed() throws Exception {
+        byte[] body = new byte[64 * 1024];
+        CacheKey[] keys = new CacheKey[48];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = mock(CacheKey.class);
+            putContent(keys[i], new ByteArrayInputStream(body));
+        }
+
+        // the index never exceeds the maximum size and the segments on disk follow along
+        assertTrue(systemUnderTest.size() <= 16);
+        assertTrue(systemUnderTest.getSegmentCount() <= 3);
+        assertTrue(systemUnderTest.contains(keys[keys.length - 1]));
+
+        systemUnderTest.invalidateAll();
+        assertEquals(0, systemUnderTest.size());
+    }
+
+    @Test
+    public void test_reclaimed_segment_keeps_serving_open_streams() throws Exception {
+        byte[] body = new byte[64 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        CacheKey first = mock(CacheKey.class);
+        putContent(first, new ByteArrayInputStream(body));
+
+        try (InputStream in = systemUnderTest.getIfPresent(first).getInputDataStream()) {
+            byte[] head = new byte[1024];
+            assertEquals(head.length, in.read(head));
+
+            // drop the segment of the entry being read
+            for (int i = 0; i < 48; i++) {
+                putContent(mock(CacheKey.class), new ByteArrayInputStream(new byte[64 * 1024]));
+            }
+            assertFalse(systemUnderTest.contains(first));
+
+            byte[] tail = IOUtils.toByteArray(in);
+            assertArrayEquals(Arrays.copyOfRange(body, 0, head.length), head);
+            assertArrayEquals(Arrays.copyOfRange(body, head.length, body.length), tail);
+        }
+        String[] segmentFiles = new File(directory, "segments").list();
+        assertEquals(systemUnderTest.getSegmentCount(), segmentFiles.length);
+    }
+
+    @Test
+    public void test_discarded_temp_sink_deletes_spill_file() throws Exception {
+        TempSink sink = systemUnderTest.createTempSink();
+        OutputStream out = sink.createOutputStream();
+        out.write(new byte[4096]);
+        File tempDirectory = new File(directory, "tmp");
+        assertEquals(1, tempDirectory.list().length);
+
+        sink.discard();
+        assertEquals(0, tempDirectory.list().length);
+    }
+
+    private void putContent(CacheKey key, InputStream in) throws HttpCacheDataStreamException {
+        CacheContent content = mock(CacheContent.class);
+        when(content.getInputDataStream()).thenReturn(in);
+        when(content.getStatus()).thenReturn(200);
+        when(content.getContentType()).thenReturn("text/html");
+        systemUnderTest.put(key, content);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.httpcache.store.mem.impl;
+
+import com.adobe.acs.commons.httpcache.keys.AbstractCacheKey;
+import com.adobe.acs.commons.httpcache.keys.CacheKey;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CacheKeyPathIndexTest {
+
+    private final Set<CacheKey> cached = new HashSet<>();
+    private CacheKeyPathIndex systemUnderTest;
+
+    @Before
+    public void init() {
+        systemUnderTest = new CacheKeyPathIndex(cached::contains);
+    }
+
+    @Test
+    public void test_only_keys_of_the_path_are_evaluated() {
+        for (int i = 0; i < 100; i++) {
+            put(new PathKey("/content/site/page-" + i, "/content/site/page-" + i + ".html"));
+        }
+        put(new PathKey("/content/site/page-1", "/content/site/page-1.print.html"));
+
+        Collection<CacheKey> invalidated = systemUnderTest.getInvalidatedKeys(new PathKey("/content/site/page-1", "/content/site/page-1/jcr:content"));
+
+        assertEquals(2, invalidated.size());
+        assertTrue(invalidated.contains(new PathKey("/content/site/page-1", "/content/site/page-1.html")));
+        assertTrue(invalidated.contains(new PathKey("/content/site/page-1", "/content/site/page-1.print.html")));
+    }
+
+    @Test
+    public void test_custom_keys_are_always_evaluated() {
+        PathKey invalidationKey = new PathKey("/content/site/page", "/content/site/page.html");
+        CacheKey custom = mock(CacheKey.class);
+        when(custom.isInvalidatedBy(invalidationKey)).thenReturn(true);
+        CacheKey other = mock(CacheKey.class);
+        put(custom);
+        put(other);
+
+        Collection<CacheKey> invalidated = systemUnderTest.getInvalidatedKeys(invalidationKey);
+
+        assertEquals(1, invalidated.size());
+        assertTrue(invalidated.contains(custom));
+        verify(other).isInvalidatedBy(invalidationKey);
+    }
+
+    @Test
+    public void test_remove() {
+        PathKey key = new PathKey("/content/site/page", "/content/site/page.html");
+        CacheKey custom = mock(CacheKey.class);
+        put(key);
+        put(custom);
+        assertEquals(2, systemUnderTest.size());
+
+        // a removal notification for a key that has been put again in the meantime is ignored
+        systemUnderTest.remove(key);
+        assertEquals(2, systemUnderTest.size());
+
+        cached.clear();
+        systemUnderTest.remove(key);
+        systemUnderTest.remove(custom);
+        assertEquals(0, systemUnderTest.size());
+        assertTrue(systemUnderTest.getInvalidatedKeys(key).isEmpty());
+        verify(custom, never()).isInvalidatedBy(key);
+    }
+
+    private void put(CacheKey key) {
+        cached.add(key);
+        systemUnderTest.add(key);
+    }
+
+    private static class PathKey extends AbstractCacheKey implements CacheKey {
+        PathKey(String hierarchyResourcePath, String uri) {
+            this.hierarchyResourcePath = hierarchyResourcePath;
+            this.uri = uri;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return super.equals(o) && Objects.equals(uri, ((PathKey) o).uri);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(uri);
+        }
+
+        @Override
+        public String toString() {
+            return uri;
+        }
+    }
+}
@@ -40,9 +40,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -84,6 +87,41 @@ public class MemHttpCacheStoreImplTest {
     }
 
 
+    @Test
+    public void test_put_compressed() throws HttpCacheDataStreamException, IOException {
+        properties.put("httpcache.cachestore.memcache.compress", true);
+        systemUnderTest.activate(properties);
+
+        CacheKey key = mock(CacheKey.class);
+        CacheContent content = mock(CacheContent.class);
+        when(content.getInputDataStream()).thenReturn(getClass().getResourceAsStream("cachecontent.html"));
+        systemUnderTest.put(key, content);
+
+        byte[] expected = IOUtils.toByteArray(getClass().getResourceAsStream("cachecontent.html"));
+        MemCachePersistenceObject cacheObject = systemUnderTest.getCache().getIfPresent(key);
+        assertEquals(CacheContent.CONTENT_ENCODING_GZIP, cacheObject.getContentEncoding());
+        assertTrue("stored compressed", cacheObject.getBytes().length < expected.length);
+
+        CacheContent retrievedContent = systemUnderTest.getIfPresent(key);
+        assertEquals(CacheContent.CONTENT_ENCODING_GZIP, retrievedContent.getContentEncoding());
+        assertArrayEquals(expected, IOUtils.toByteArray(new GZIPInputStream(retrievedContent.getEncodedInputDataStream())));
+        assertArrayEquals(expected, IOUtils.toByteArray(systemUnderTest.getIfPresent(key).getInputDataStream()));
+    }
+
+    @Test
+    public void test_put_compressed_skips_encoded_response() throws HttpCacheDataStreamException {
+        properties.put("httpcache.cachestore.memcache.compress", true);
+        systemUnderTest.activate(properties);
+
+        CacheKey key = mock(CacheKey.class);
+        CacheContent content = mock(CacheContent.class);
+        when(content.getHeaders()).thenReturn(Collections.singletonMap("Content-Encoding", Collections.singletonList("br")));
+        when(content.getInputDataStream()).thenReturn(getClass().getResourceAsStream("cachecontent.html"));
+        systemUnderTest.put(key, content);
+
+        assertNull(systemUnderTest.getIfPresent(key).getContentEncoding());
+    }
+
     @Test
     public void test_remove() throws HttpCacheDataStreamException {
         CacheKey key = mock(CacheKey.class);
@@ -25,11 +25,15 @@ import com.adobe.acs.commons.fam.impl.ThrottledTaskRunnerImpl;
 import com.adobe.acs.commons.mcp.ControlledProcessManager;
 import com.adobe.acs.commons.mcp.impl.ControlledProcessManagerImpl;
 import com.adobe.acs.commons.mcp.impl.ProcessInstanceImpl;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Calendar;
 import javax.jcr.RepositoryException;
 import javax.management.NotCompliantMBeanException;
+import junitx.util.PrivateAccessor;
+import org.apache.sling.api.request.RequestParameter;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -48,6 +52,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
@@ -161,4 +166,31 @@ public class DataImporterTest {
         assertEquals("relative property path 2", rr.getResource("/tmp/node2/foo/bar").getValueMap().get("test", String.class));
     }
 
+    @Test
+    public void assertCreatedNodesFromStreamedFile() throws Throwable {
+        RequestParameter importFile = mock(RequestParameter.class);
+        when(importFile.getFileName()).thenReturn("data-importer.xlsx");
+        when(importFile.getInputStream()).thenReturn(
+                DataImporterTest.class.getResourceAsStream("/com/adobe/acs/commons/mcp/impl/processes/data-importer.xlsx"));
+        PrivateAccessor.setField(importer, "importFile", importFile);
+        importer.data = null;
+
+        importer.buildProcess(process, rr);
+        assertEquals("Import data-importer.xlsx", process.getInfo().getDescription());
+        process.run(rr);
+        assertNotNull("Node1 wasn't created", rr.getResource("/tmp/node1"));
+        assertNotNull("Node2 wasn't created", rr.getResource("/tmp/node2"));
+        assertEquals("relative property path 1", rr.getResource("/tmp/node1/foo/bar").getValueMap().get("test", String.class));
+    }
+
+    @Test(expected = RepositoryException.class)
+    public void assertUnsupportedFileIsRejected() throws Throwable {
+        RequestParameter importFile = mock(RequestParameter.class);
+        when(importFile.getFileName()).thenReturn("data-importer.pdf");
+        when(importFile.getInputStream()).thenReturn(new ByteArrayInputStream("%PDF-1.4".getBytes(StandardCharsets.UTF_8)));
+        PrivateAccessor.setField(importer, "importFile", importFile);
+        importer.data = null;
+
+        importer.buildProcess(process, rr);
+    }
 }
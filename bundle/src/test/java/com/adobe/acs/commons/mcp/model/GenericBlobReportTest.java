@@ -25,10 +25,13 @@ import static org.junit.Assert.assertThat;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -43,6 +46,7 @@ import org.hamcrest.Matchers;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.adobe.acs.commons.mcp.model.impl.BlobReportWriter;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -140,6 +144,34 @@ public class GenericBlobReportTest {
         assertThat(rows.get(1), notNullValue());
     }
 
+    @Test
+    public void testWriterAndStreamRows() throws Exception {
+        try (BlobReportWriter writer = new BlobReportWriter("myName", Arrays.asList("column1", "column2"))) {
+            for (int i = 0; i < 2500; i++) {
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("column1", "row-" + i);
+                row.put("column2", i % 2 == 0 ? i : null);
+                writer.appendRow(row);
+            }
+            assertThat(writer.getRowCount(), equalTo(2500));
+            writer.persist(context.resourceResolver(), REPORT_PATH);
+        }
+
+        Resource reportResource = context.resourceResolver().getResource(REPORT_PATH);
+        assertThat(reportResource.getResourceType(), equalTo(GenericBlobReport.BLOB_REPORT_RESOURCE_TYPE));
+        GenericBlobReport report = context.getService(ModelFactory.class).createModel(reportResource,
+                GenericBlobReport.class);
+        assertThat(report.getName(), equalTo("myName"));
+        try (Stream<ValueMap> rows = report.streamRows()) {
+            List<ValueMap> first = rows.limit(3).collect(Collectors.toList());
+            assertThat(first.get(0).get("column1", String.class), equalTo("row-0"));
+            assertThat(first.get(0).get("column2", String.class), equalTo("0"));
+            assertThat(first.get(1).get("column1", String.class), equalTo("row-1"));
+            assertThat(first.get(1).containsKey("column2"), is(false));
+        }
+        assertThat(report.getRows().size(), equalTo(2500));
+    }
+
     // A container to ease the production of the JSON
     public class ReportRecord {
 
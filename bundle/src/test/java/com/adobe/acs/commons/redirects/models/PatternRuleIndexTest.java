@@ -0,0 +1,116 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.redirects.models;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.adobe.acs.commons.redirects.models.PatternRuleIndex.literalPrefix;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class PatternRuleIndexTest {
+
+    @Test
+    public void testLiteralPrefix() {
+        assertEquals("/content/we-retail/", literalPrefix(Pattern.compile("/content/we-retail/(.*)")));
+        assertEquals("/content/we-retail/", literalPrefix(Pattern.compile("^/content/we-retail/(.*)")));
+        assertEquals("/content/page.", literalPrefix(Pattern.compile("/content/page\\.(html|json)")));
+        assertEquals("/content/page", literalPrefix(Pattern.compile("/content/pages?/(.*)")));
+        assertEquals("/content/pages", literalPrefix(Pattern.compile("/content/pages+/(.*)")));
+        assertEquals("/content/", literalPrefix(Pattern.compile("/content/\\d+/(.*)")));
+        assertEquals("", literalPrefix(Pattern.compile("/content/a/(.*)|/content/b/(.*)")));
+        assertEquals("/content/", literalPrefix(Pattern.compile("/content/(a|b)/(.*)")));
+        assertEquals("/content/", literalPrefix(Pattern.compile("/content/[a|b]/(.*)")));
+        assertEquals("", literalPrefix(Pattern.compile("(?i)/content/(.*)")));
+        assertEquals("", literalPrefix(Pattern.compile("/content/(.*)", Pattern.COMMENTS)));
+    }
+
+    @Test
+    public void testCandidatesKeepDefinitionOrder() {
+        Map<Pattern, RedirectRule> rules = new LinkedHashMap<>();
+        RedirectRule broad = addRule(rules, "/content/(.*)", false, false);
+        RedirectRule other = addRule(rules, "/etc/(.*)", false, false);
+        RedirectRule narrow = addRule(rules, "/content/we-retail/(.*)", false, false);
+        RedirectRule any = addRule(rules, "(.*)/old", false, false);
+
+        PatternRuleIndex index = new PatternRuleIndex(rules, "");
+        BitSet candidates = index.candidates("/content/we-retail/en", "/content/we-retail/en.html");
+
+        assertEquals(3, candidates.cardinality());
+        assertEquals(broad, index.getRule(candidates.nextSetBit(0)));
+        assertFalse(candidates.get(1));
+        assertEquals(narrow, index.getRule(2));
+        assertTrue(candidates.get(2));
+        assertEquals(any, index.getRule(3));
+        assertTrue(candidates.get(3));
+        assertEquals(other, index.getRule(1));
+    }
+
+    @Test
+    public void testCaseInsensitiveAndRequestUriRules() {
+        Map<Pattern, RedirectRule> rules = new LinkedHashMap<>();
+        addRule(rules, "/Content/Old/(.*)", true, false);
+        addRule(rules, "/content/(.*)\\.html/suffix", false, true);
+
+        PatternRuleIndex index = new PatternRuleIndex(rules, "");
+
+        BitSet candidates = index.candidates("/CONTENT/old/page", "/etc/page.html");
+        assertTrue(candidates.get(0));
+        assertFalse(candidates.get(1));
+
+        candidates = index.candidates("/etc/page", "/content/page.html/suffix");
+        assertFalse(candidates.get(0));
+        assertTrue(candidates.get(1));
+    }
+
+    @Test
+    public void testContextPrefix() {
+        Map<Pattern, RedirectRule> rules = new LinkedHashMap<>();
+        addRule(rules, "/old/(.*)", false, false);
+        addRule(rules, "/content/site/new/(.*)", false, false);
+
+        PatternRuleIndex index = new PatternRuleIndex(rules, "/content/site");
+        assertEquals("/content/site/old/(.*)", index.getPattern(0).pattern());
+        assertEquals("/content/site/new/(.*)", index.getPattern(1).pattern());
+
+        // path without the context prefix is looked up with the prefix prepended
+        BitSet candidates = index.candidates("/old/page", "/old/page.html");
+        assertTrue(candidates.get(0));
+        assertFalse(candidates.get(1));
+
+        candidates = index.candidates("/content/site/new/page", "/content/site/new/page.html");
+        assertFalse(candidates.get(0));
+        assertTrue(candidates.get(1));
+    }
+
+    private static RedirectRule addRule(Map<Pattern, RedirectRule> rules, String regex, boolean nc, boolean evaluateURI) {
+        RedirectRule rule = mock(RedirectRule.class);
+        doReturn(nc).when(rule).isCaseInsensitive();
+        doReturn(evaluateURI).when(rule).getEvaluateURI();
+        rules.put(RedirectRule.toRegex(regex, nc), rule);
+        return rule;
+    }
+}
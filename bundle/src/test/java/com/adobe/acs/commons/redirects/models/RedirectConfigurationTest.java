@@ -17,23 +17,48 @@
  */
 package com.adobe.acs.commons.redirects.models;
 
+import com.adobe.acs.commons.redirects.RedirectResourceBuilder;
 import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Rule;
 import org.junit.Test;
 
 import static com.adobe.acs.commons.redirects.models.RedirectConfiguration.determinePathToEvaluate;
+import static com.adobe.acs.commons.redirects.models.RedirectConfiguration.foldCase;
 import static com.adobe.acs.commons.redirects.models.RedirectConfiguration.normalizePath;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 
 public class RedirectConfigurationTest {
 
+    @Rule
+    public SlingContext context = new SlingContext(ResourceResolverType.RESOURCERESOLVER_MOCK);
+
     @Test
     public void testNormalizePath(){
         assertEquals("/content/we-retail/en", normalizePath("/content/we-retail/en"));
         assertEquals("/content/we-retail/en", normalizePath("/content/we-retail/en.html"));
         assertEquals("/content/dam/we-retail/en.html", normalizePath("/content/dam/we-retail/en.html"));
         assertEquals("/content/dam/we-retail/en.pdf", normalizePath("/content/dam/we-retail/en.pdf"));
+        assertEquals("/content/we-retail/en", normalizePath("/content/we-retail/en.html?a=b"));
+        assertEquals("/content/we-retail/en.html/suffix", normalizePath("/content/we-retail/en.html/suffix.html"));
+        assertEquals("/content/we-retail/en.htmlx", normalizePath("/content/we-retail/en.htmlx"));
+        assertEquals("/content/we-retail/en.json", normalizePath("/content/we-retail/en.json"));
+    }
+
+    @Test
+    public void testFoldCase(){
+        String path = "/content/we-retail/en";
+        assertSame(path, foldCase(path));
+        assertEquals(path, foldCase("/Content/WE-Retail/EN"));
+        assertEquals(0, String.CASE_INSENSITIVE_ORDER.compare(foldCase("/CONTENT/\u00c4\u00d6\u00dc"), "/content/\u00e4\u00f6\u00fc"));
     }
 
     @Test
@@ -47,4 +72,78 @@ public class RedirectConfigurationTest {
         assertEquals(resourcePath, determinePathToEvaluate(resourcePath, false, mockRequest));
         assertEquals(expectedURI, determinePathToEvaluate(resourcePath, true, mockRequest));
     }
+
+    @Test
+    public void testRepeatedMissIsCached() throws PersistenceException {
+        new RedirectResourceBuilder(context)
+                .setSource("/content/we-retail/en/one")
+                .setTarget("/content/we-retail/en/two")
+                .setStatusCode(302)
+                .build();
+        new RedirectResourceBuilder(context)
+                .setSource("/content/we-retail/(.*)/old")
+                .setTarget("/content/we-retail/$1/new")
+                .setStatusCode(302)
+                .build();
+        Resource configResource = context.resourceResolver().getResource(RedirectResourceBuilder.DEFAULT_CONF_PATH);
+        RedirectConfiguration configuration = new RedirectConfiguration(configResource, "settings/redirects");
+
+        assertNull(configuration.match("/content/we-retail/en/missing"));
+        assertEquals(1, configuration.getMissCount());
+        assertNull(configuration.match("/content/we-retail/en/missing.html"));
+        assertEquals(1, configuration.getMissCount());
+
+        // matches are not remembered as misses
+        assertNotNull(configuration.match("/content/we-retail/en/one"));
+        assertNotNull(configuration.match("/content/we-retail/en/old"));
+        assertEquals(1, configuration.getMissCount());
+    }
+
+    @Test
+    public void testMissKeyIncludesContextPrefixAndRequestURI() throws PersistenceException {
+        new RedirectResourceBuilder(context)
+                .setSource("/content/we-retail/en/one.html/suffix.html")
+                .setTarget("/content/we-retail/en/two")
+                .setStatusCode(302)
+                .setEvaluateURI(true)
+                .build();
+        Resource configResource = context.resourceResolver().getResource(RedirectResourceBuilder.DEFAULT_CONF_PATH);
+        RedirectConfiguration configuration = new RedirectConfiguration(configResource, "settings/redirects");
+
+        assertNull(configuration.match("/content/we-retail/en/one", "", null));
+        assertNull(configuration.match("/content/we-retail/en/one", "/content/we-retail", null));
+        assertEquals(2, configuration.getMissCount());
+
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        doReturn("/content/we-retail/en/one.html/other.html").when(request).getRequestURI();
+        assertNull(configuration.match("/content/we-retail/en/one", "", request));
+        assertEquals(3, configuration.getMissCount());
+
+        // a previous miss for the same path must not hide a match on a different request URI
+        doReturn("/content/we-retail/en/one.html/suffix.html").when(request).getRequestURI();
+        assertNotNull(configuration.match("/content/we-retail/en/one", "", request));
+        assertEquals(3, configuration.getMissCount());
+    }
+
+    @Test
+    public void testMissCacheIsDroppedOnRebuild() throws PersistenceException {
+        new RedirectResourceBuilder(context)
+                .setSource("/content/we-retail/en/one")
+                .setTarget("/content/we-retail/en/two")
+                .setStatusCode(302)
+                .build();
+        Resource configResource = context.resourceResolver().getResource(RedirectResourceBuilder.DEFAULT_CONF_PATH);
+        RedirectConfiguration configuration = new RedirectConfiguration(configResource, "settings/redirects");
+        assertNull(configuration.match("/content/we-retail/en/three"));
+        assertEquals(1, configuration.getMissCount());
+
+        new RedirectResourceBuilder(context)
+                .setSource("/content/we-retail/en/three")
+                .setTarget("/content/we-retail/en/four")
+                .setStatusCode(302)
+                .build();
+        RedirectConfiguration rebuilt = new RedirectConfiguration(configResource, "settings/redirects");
+        assertEquals(0, rebuilt.getMissCount());
+        assertNotNull(rebuilt.match("/content/we-retail/en/three"));
+    }
 }
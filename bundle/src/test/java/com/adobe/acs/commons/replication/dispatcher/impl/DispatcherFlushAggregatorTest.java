@@ -0,0 +1,152 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.adobe.acs.commons.replication.dispatcher.impl;
+
+import com.adobe.acs.commons.replication.dispatcher.DispatcherFlushFilter;
+import com.adobe.acs.commons.replication.dispatcher.DispatcherFlusher;
+import com.day.cq.replication.Agent;
+import com.day.cq.replication.ReplicationActionType;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.scheduler.ScheduleOptions;
+import org.apache.sling.commons.scheduler.Scheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class DispatcherFlushAggregatorTest {
+    private static final DispatcherFlushFilter HIERARCHICAL =
+            new DispatcherFlushRulesImpl.DispatcherFlushRulesFilter(DispatcherFlushFilter.FlushType.Hierarchical);
+    private static final DispatcherFlushFilter RESOURCE_ONLY =
+            new DispatcherFlushRulesImpl.DispatcherFlushRulesFilter(DispatcherFlushFilter.FlushType.ResourceOnly);
+
+    private DispatcherFlusher dispatcherFlusher;
+    private ResourceResolver resourceResolver;
+    private Scheduler scheduler;
+    private ResourceResolverFactory resourceResolverFactory;
+    private DispatcherFlushAggregator aggregator;
+
+    @Before
+    public void setUp() throws Exception {
+        dispatcherFlusher = mock(DispatcherFlusher.class);
+        when(dispatcherFlusher.getAgents(any())).thenReturn(new Agent[] { mock(Agent.class) });
+
+        resourceResolver = mock(ResourceResolver.class);
+        resourceResolverFactory = mock(ResourceResolverFactory.class);
+        when(resourceResolverFactory.getServiceResourceResolver(any())).thenReturn(resourceResolver);
+
+        scheduler = mock(Scheduler.class);
+        when(scheduler.AT(any(Date.class))).thenReturn(mock(ScheduleOptions.class));
+        when(scheduler.schedule(any(), any(ScheduleOptions.class))).thenReturn(true);
+
+        aggregator = new DispatcherFlushAggregator(dispatcherFlusher, resourceResolverFactory, scheduler, 500L,
+                "test", true);
+    }
+
+    @Test
+    public void testCoalesce() {
+        final LinkedHashSet<String> paths = new LinkedHashSet<>(Arrays.asList(
+                "/content/site/en/page", "/content/site-b", "/content/site", "/content/site/en", "/content/other"));
+
+        assertArrayEquals(new String[] { "/content/site-b", "/content/site", "/content/other" },
+                DispatcherFlushAggregator.coalesce(paths, true));
+        assertArrayEquals(paths.toArray(new String[0]), DispatcherFlushAggregator.coalesce(paths, false));
+    }
+
+    @Test
+    public void testFlushAggregated() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en/page-" + i);
+            aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en");
+            aggregator.add(ReplicationActionType.ACTIVATE, RESOURCE_ONLY, "/content/site/en/nav");
+        }
+        aggregator.add(ReplicationActionType.DELETE, HIERARCHICAL, "/content/site/en/page-0");
+
+        final ArgumentCaptor<Runnable> job = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(1)).schedule(job.capture(), any(ScheduleOptions.class));
+        verifyNoInteractions(resourceResolver);
+
+        job.getValue().run();
+
+        verify(dispatcherFlusher).flush(eq(resourceResolver), eq(ReplicationActionType.ACTIVATE), eq(false),
+                eq(HIERARCHICAL), eq("/content/site/en"));
+        verify(dispatcherFlusher).flush(eq(resourceResolver), eq(ReplicationActionType.ACTIVATE), eq(false),
+                eq(RESOURCE_ONLY), eq("/content/site/en/nav"));
+        verify(dispatcherFlusher).flush(eq(resourceResolver), eq(ReplicationActionType.DELETE), eq(false),
+                eq(HIERARCHICAL), eq("/content/site/en/page-0"));
+        verify(resourceResolver).close();
+
+        assertEquals(301, aggregator.getRequestedCount());
+        assertEquals(298, aggregator.getSavedCount());
+
+        // the next path starts a new window
+        aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en");
+        verify(scheduler, times(2)).schedule(any(), any(ScheduleOptions.class));
+    }
+
+    @Test
+    public void testFlushKeepsDescendantsByDefault() throws Exception {
+        aggregator = new DispatcherFlushAggregator(dispatcherFlusher, resourceResolverFactory, scheduler, 500L,
+                "test", false);
+        aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en/page");
+        aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en");
+        aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en/page");
+
+        aggregator.flush();
+
+        verify(dispatcherFlusher).flush(eq(resourceResolver), eq(ReplicationActionType.ACTIVATE), eq(false),
+                eq(HIERARCHICAL), eq("/content/site/en/page"), eq("/content/site/en"));
+        assertEquals(3, aggregator.getRequestedCount());
+        assertEquals(1, aggregator.getSavedCount());
+    }
+
+    @Test
+    public void testCloseUnschedulesAndFlushes() throws Exception {
+        aggregator.add(ReplicationActionType.ACTIVATE, HIERARCHICAL, "/content/site/en");
+
+        aggregator.close();
+
+        verify(scheduler).unschedule("test");
+        verify(dispatcherFlusher).flush(eq(resourceResolver), eq(ReplicationActionType.ACTIVATE), eq(false),
+                eq(HIERARCHICAL), eq("/content/site/en"));
+    }
+
+    @Test
+    public void testFlushWithoutPendingPaths() {
+        aggregator.flush();
+
+        verify(dispatcherFlusher, times(0)).getAgents(any());
+        verifyNoMoreInteractions(dispatcherFlusher);
+    }
+}
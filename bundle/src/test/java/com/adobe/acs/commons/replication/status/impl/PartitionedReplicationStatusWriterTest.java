@@ -0,0 +1,132 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.replication.status.impl;
+
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
+import com.adobe.acs.commons.replication.status.ReplicationStatusManager;
+import com.day.cq.replication.ReplicationStatus;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PartitionedReplicationStatusWriterTest {
+    private final Calendar replicatedAt = Calendar.getInstance();
+
+    private ReplicationStatusManager replicationStatusManager;
+    private ResourceResolver resourceResolver;
+    private List<String> paths;
+    private List<Resource> resources;
+    private PartitionedReplicationStatusWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        replicationStatusManager = mock(ReplicationStatusManager.class);
+        resourceResolver = mock(ResourceResolver.class);
+        when(resourceResolver.clone(null)).thenReturn(resourceResolver);
+
+        paths = new ArrayList<>();
+        resources = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            final String path = "/content/page-" + i + "/jcr:content";
+            final Resource resource = mock(Resource.class);
+            when(resource.getPath()).thenReturn(path);
+            when(resource.adaptTo(Node.class)).thenReturn(mock(Node.class));
+            when(resourceResolver.getResource(path)).thenReturn(resource);
+            paths.add(path);
+            resources.add(resource);
+        }
+
+        writer = new PartitionedReplicationStatusWriter(replicationStatusManager, resource -> resource != null,
+                Collections.emptySet(), "admin", replicatedAt);
+    }
+
+    @Test
+    public void testWriteInPartitions() throws Exception {
+        writer.write(resourceResolver, paths, 2, null, 1, null);
+
+        verify(replicationStatusManager).setReplicationStatus(eq(resourceResolver), eq(Collections.emptySet()),
+                eq("admin"), eq(replicatedAt), eq(ReplicationStatusManager.Status.ACTIVATED),
+                eq(resources.get(0)), eq(resources.get(1)));
+        verify(replicationStatusManager).setReplicationStatus(eq(resourceResolver), eq(Collections.emptySet()),
+                eq("admin"), eq(replicatedAt), eq(ReplicationStatusManager.Status.ACTIVATED),
+                eq(resources.get(2)), eq(resources.get(3)));
+        verify(replicationStatusManager).setReplicationStatus(eq(resourceResolver), eq(Collections.emptySet()),
+                eq("admin"), eq(replicatedAt), eq(ReplicationStatusManager.Status.ACTIVATED),
+                eq(resources.get(4)));
+        assertEquals(5, writer.getUpdatedCount());
+    }
+
+    @Test
+    public void testWriteInParallelPartitions() throws Exception {
+        final ThrottledTaskRunner taskRunner = mock(ThrottledTaskRunner.class);
+        doAnswer((Answer<Void>) invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(taskRunner).scheduleWork(any(Runnable.class));
+
+        writer.write(resourceResolver, paths, 2, null, 2, taskRunner);
+
+        verify(taskRunner, times(3)).scheduleWork(any(Runnable.class));
+        verify(resourceResolver, times(3)).clone(null);
+        verify(resourceResolver, times(3)).close();
+        assertEquals(5, writer.getUpdatedCount());
+    }
+
+    @Test
+    public void testSkipCurrentReplicationStatus() throws Exception {
+        final Node node = resources.get(1).adaptTo(Node.class);
+        when(node.isNodeType(ReplicationStatus.NODE_TYPE)).thenReturn(true);
+        when(node.hasProperty(anyString())).thenReturn(true);
+        final Property lastReplicated = mock(Property.class);
+        when(lastReplicated.getDate()).thenReturn((Calendar) replicatedAt.clone());
+        when(node.getProperty(ReplicationStatus.NODE_PROPERTY_LAST_REPLICATED)).thenReturn(lastReplicated);
+        final Property lastReplicatedBy = mock(Property.class);
+        when(lastReplicatedBy.getString()).thenReturn("admin");
+        when(node.getProperty(ReplicationStatus.NODE_PROPERTY_LAST_REPLICATED_BY)).thenReturn(lastReplicatedBy);
+        final Property lastReplicationAction = mock(Property.class);
+        when(lastReplicationAction.getString()).thenReturn("Activate");
+        when(node.getProperty(ReplicationStatus.NODE_PROPERTY_LAST_REPLICATION_ACTION)).thenReturn(lastReplicationAction);
+
+        writer.write(resourceResolver, paths, 10, null, 1, null);
+
+        verify(replicationStatusManager).setReplicationStatus(eq(resourceResolver), eq(Collections.emptySet()),
+                eq("admin"), eq(replicatedAt), eq(ReplicationStatusManager.Status.ACTIVATED),
+                eq(resources.get(0)), eq(resources.get(2)), eq(resources.get(3)), eq(resources.get(4)));
+        assertEquals(4, writer.getUpdatedCount());
+        assertEquals(1, writer.getCurrentCount());
+    }
+}
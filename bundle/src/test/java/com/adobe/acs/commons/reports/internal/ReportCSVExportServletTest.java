@@ -0,0 +1,176 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.reports.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.StreamSupport;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.injectorspecific.Self;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.adobe.acs.commons.fam.ActionManager;
+import com.adobe.acs.commons.fam.ActionManagerFactory;
+import com.adobe.acs.commons.functions.CheckedConsumer;
+import com.adobe.acs.commons.reports.api.ReportExecutor;
+import com.adobe.acs.commons.reports.api.ResultsPage;
+import com.adobe.acs.commons.reports.models.PathReportCellCSVExporter;
+import com.adobe.acs.commons.reports.models.ReportRunner;
+import com.day.cq.dam.api.Asset;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.wcm.testing.mock.aem.junit.AemContext;
+
+public class ReportCSVExportServletTest {
+
+    @Rule
+    public final AemContext context = new AemContext();
+
+    private ReportCSVExportServlet servlet;
+
+    @Before
+    public void setUp() throws Exception {
+        DynamicClassLoaderManager classLoaderManager = mock(DynamicClassLoaderManager.class);
+        when(classLoaderManager.getDynamicClassLoader()).thenReturn(getClass().getClassLoader());
+        context.registerService(DynamicClassLoaderManager.class, classLoaderManager);
+        context.registerInjectActivateService(new DelimiterConfiguration());
+
+        // run the background export right away
+        ActionManager actionManager = mock(ActionManager.class);
+        doAnswer(invocation -> {
+            invocation.<CheckedConsumer<ResourceResolver>>getArgument(0).accept(context.resourceResolver());
+            return null;
+        }).when(actionManager).deferredWithResolver(any());
+        ActionManagerFactory actionManagerFactory = mock(ActionManagerFactory.class);
+        when(actionManagerFactory.createTaskManager(anyString(), any(), anyInt())).thenReturn(actionManager);
+        context.registerService(ActionManagerFactory.class, actionManagerFactory);
+
+        context.addModelsForClasses(ChildrenReportExecutor.class, PathReportCellCSVExporter.class);
+        servlet = context.registerInjectActivateService(new ReportCSVExportServlet());
+
+        context.create().resource("/content/data");
+        context.create().resource("/content/data/item1");
+        context.create().resource("/content/data/item2");
+        context.create().resource(ReportCSVExportServlet.EXPORT_FOLDER);
+        context.create().resource("/content/report", "jcr:title", "My Report");
+        context.create().resource("/content/report/columns/path",
+                "exporter", PathReportCellCSVExporter.class.getName(), "heading", "Path");
+        context.create().resource("/content/report/config/children",
+                ReportRunner.PN_EXECUTOR, ChildrenReportExecutor.class.getName(), "path", "/content/data");
+    }
+
+    @Test
+    public void testBackgroundExport() throws Exception {
+        context.currentResource("/content/report");
+        context.request().setMethod("POST");
+
+        servlet.doPost(context.request(), context.response());
+
+        assertEquals(HttpServletResponse.SC_ACCEPTED, context.response().getStatus());
+        JsonObject json = new JsonParser().parse(context.response().getOutputAsString()).getAsJsonObject();
+        String assetPath = json.get("path").getAsString();
+        assertTrue(assetPath.startsWith(ReportCSVExportServlet.EXPORT_FOLDER + "/"));
+        assertTrue(assetPath.endsWith(".csv"));
+
+        Resource assetResource = context.resourceResolver().getResource(assetPath);
+        assertNotNull(assetResource);
+        Asset asset = assetResource.adaptTo(Asset.class);
+        assertNotNull(asset);
+        String csv;
+        try (InputStream is = asset.getOriginal().getStream()) {
+            csv = IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+        assertTrue(csv.contains("Path"));
+        assertTrue(csv.contains("/content/data/item1"));
+        assertTrue(csv.contains("/content/data/item2"));
+    }
+
+    @Test
+    public void testBackgroundExportWithoutConfiguration() throws Exception {
+        context.currentResource(context.create().resource("/content/empty-report"));
+        context.request().setMethod("POST");
+
+        servlet.doPost(context.request(), context.response());
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, context.response().getStatus());
+    }
+
+    /**
+     * Reports the children of the configured path.
+     */
+    @Model(adaptables = SlingHttpServletRequest.class)
+    public static class ChildrenReportExecutor implements ReportExecutor {
+
+        @Self
+        private SlingHttpServletRequest request;
+
+        private Resource config;
+
+        @Override
+        public String getDetails() {
+            return null;
+        }
+
+        @Override
+        public String getParameters() {
+            return null;
+        }
+
+        @Override
+        public ResultsPage getAllResults() {
+            Resource parent = request.getResourceResolver().getResource(config.getValueMap().get("path", String.class));
+            return new ResultsPage(StreamSupport.stream(parent.getChildren().spliterator(), false), 10, -1, -1);
+        }
+
+        @Override
+        public ResultsPage getResults() {
+            return getAllResults();
+        }
+
+        @Override
+        public void setConfiguration(Resource config) {
+            this.config = config;
+        }
+
+        @Override
+        public void setPage(int page) {
+            // all results are reported
+        }
+    }
+}
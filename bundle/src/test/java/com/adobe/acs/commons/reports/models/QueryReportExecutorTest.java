@@ -20,8 +20,13 @@ package com.adobe.acs.commons.reports.models;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
@@ -74,6 +79,7 @@ public class QueryReportExecutorTest {
     private final String language;
 
     private QueryBuilder queryBuilder;
+    private Query query;
 
     public QueryReportExecutorTest(String statement, String language) {
         this.statement = statement;
@@ -107,7 +113,9 @@ public class QueryReportExecutorTest {
             }).collect(Collectors.toList());
         });
 
-        Query query = mock(Query.class);
+        when(result.getResources()).then(inv -> resources.iterator());
+
+        query = mock(Query.class);
         when(query.getResult()).thenReturn(result);
         when(queryBuilder.createQuery(any(), any())).thenReturn(query);
 
@@ -136,6 +144,30 @@ public class QueryReportExecutorTest {
         assertEquals(2, results.getResultSize());
     }
 
+    @Test
+    public void supportsAllResults() throws ReportException {
+        QueryReportExecutor executor = new QueryReportExecutor(context.request(), queryBuilder);
+        executor.setConfiguration(
+                createConfig(1, statement, language));
+
+        List<String> paths = executor.getAllResults().getResults().map(r -> ((Resource) r).getPath())
+                .sorted().collect(Collectors.toList());
+        assertEquals(Arrays.asList("/test/item1", "/test/item2"), paths);
+    }
+
+    @Test
+    public void executesQueryBuilderOnceForAllResults() throws ReportException {
+        assumeTrue("queryBuilder".equals(language));
+        QueryReportExecutor executor = new QueryReportExecutor(context.request(), queryBuilder);
+        executor.setConfiguration(
+                createConfig(1, statement, language));
+
+        assertEquals(2, executor.getAllResults().getResults().count());
+        verify(query).setHitsPerPage(0);
+        verify(query, never()).setStart(anyLong());
+        verify(query, times(1)).getResult();
+    }
+
     @Test
     public void supportsDetails() throws ReportException {
         QueryReportExecutor executor = new QueryReportExecutor(context.request(), queryBuilder);
@@ -0,0 +1,147 @@
+/*
+ * ACS AEM Commons
+ *
+ * Copyright (C) 2013 - 2023 Adobe
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.adobe.acs.commons.throttling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SlidingWindowThrottlingStateTest {
+
+    private static final int CONSTANT_LOAD_SIZE = 10;
+
+    Clock clock;
+
+    Instant startTime;
+
+    @Before
+    public void setup() {
+        clock = Mockito.mock(Clock.class);
+        // start at the beginning of a second to get exact delays
+        startTime = Instant.ofEpochSecond(Instant.now().getEpochSecond());
+        Mockito.when(clock.instant()).thenReturn(startTime);
+    }
+
+    @Test
+    public void simpleThrottlingTestWithConstantLoad() {
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> CONSTANT_LOAD_SIZE);
+        for (int i = 0; i < CONSTANT_LOAD_SIZE; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        ThrottlingDecision decision = s.evaluateThrottling();
+        assertEquals(ThrottlingDecision.State.THROTTLE, decision.getState());
+        assertEquals(60 * 1000, decision.getDelay());
+
+        // when the time iterates by 59 seconds throttling should still be active
+        Instant delay1 = startTime.plusSeconds(59);
+        Mockito.when(clock.instant()).thenReturn(delay1);
+        decision = s.evaluateThrottling();
+        assertEquals(ThrottlingDecision.State.THROTTLE, decision.getState());
+        assertEquals(1 * 1000, decision.getDelay());
+
+        // when another 2 seconds pass, 10 new requests should run un-throttled
+        Mockito.when(clock.instant()).thenReturn(delay1.plusSeconds(2));
+        for (int i = 0; i < CONSTANT_LOAD_SIZE; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void throttlingWithSlidingWindow() {
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> CONSTANT_LOAD_SIZE);
+        for (int i = 0; i < 5; i++) {
+            s.evaluateThrottling();
+        }
+        Instant time2 = startTime.plusSeconds(30);
+        Mockito.when(clock.instant()).thenReturn(time2);
+        for (int i = 5; i < CONSTANT_LOAD_SIZE; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+
+        // the first 5 requests expire, the latter 5 not yet
+        Mockito.when(clock.instant()).thenReturn(startTime.plusSeconds(60));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        }
+        ThrottlingDecision decision = s.evaluateThrottling();
+        assertEquals(ThrottlingDecision.State.THROTTLE, decision.getState());
+        assertEquals(30 * 1000, decision.getDelay());
+    }
+
+    @Test
+    public void throttlingFollowsLoadEstimator() {
+        AtomicInteger load = new AtomicInteger(CONSTANT_LOAD_SIZE);
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, load::get);
+        for (int i = 0; i < 5; i++) {
+            s.evaluateThrottling();
+        }
+        load.set(5);
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+        load.set(0);
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+        load.set(6);
+        assertEquals(ThrottlingDecision.State.NOTHROTTLE, s.evaluateThrottling().getState());
+        assertEquals(ThrottlingDecision.State.THROTTLE, s.evaluateThrottling().getState());
+    }
+
+    @Test
+    public void concurrentRequestsNeverExceedLimit() throws Exception {
+        int limit = 1000;
+        int threads = 8;
+        SlidingWindowThrottlingState s = new SlidingWindowThrottlingState(clock, () -> limit);
+        AtomicInteger passed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < limit; i++) {
+                        if (s.evaluateThrottling().getState() == ThrottlingDecision.State.NOTHROTTLE) {
+                            passed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(limit, passed.get());
+    }
+}
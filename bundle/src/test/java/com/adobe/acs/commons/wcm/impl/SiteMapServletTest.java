@@ -19,7 +19,10 @@ package com.adobe.acs.commons.wcm.impl;
 
 import com.day.cq.commons.Externalizer;
 import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.apache.sling.testing.mock.sling.servlet.MockRequestPathInfo;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
 import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
 import org.junit.Before;
@@ -91,6 +94,103 @@ public class SiteMapServletTest {
         assertThat(output, hasXPath("(//ns:loc)[3]/text()", equalTo("http://test.com/content/geometrixx/en/about.html")).withNamespaceContext(NS));
     }
 
+    @Test
+    public void testCachedShards() throws Exception {
+        servlet.activate(new HashMap<String, Object>() {{
+                put("externalizer.domain", "external");
+                put("cache.enabled", true);
+                put("cache.shard.size", 2);
+            }
+        });
+
+        MockSlingHttpServletResponse index = get("sitemap");
+        assertNotNull(index.getHeader("Last-Modified"));
+        String output = index.getOutputAsString();
+        assertThat(output, hasXPath("count(//ns:sitemap)", equalTo("2")).withNamespaceContext(NS));
+        assertThat(output, hasXPath("(//ns:sitemap/ns:loc)[1]/text()", equalTo("http://test.com/content/geometrixx/en.sitemap.1.xml")).withNamespaceContext(NS));
+        assertThat(output, hasXPath("(//ns:sitemap/ns:loc)[2]/text()", equalTo("http://test.com/content/geometrixx/en.sitemap.2.xml")).withNamespaceContext(NS));
+
+        output = get("sitemap.1").getOutputAsString();
+        assertThat(output, hasXPath("count(//ns:url)", equalTo("2")).withNamespaceContext(NS));
+        assertThat(output, hasXPath("(//ns:loc)[1]/text()", equalTo("http://test.com/content/geometrixx/en.html")).withNamespaceContext(NS));
+        assertThat(output, hasXPath("(//ns:loc)[2]/text()", equalTo("http://test.com/content/geometrixx/en/about.html")).withNamespaceContext(NS));
+
+        output = get("sitemap.2").getOutputAsString();
+        assertThat(output, hasXPath("(//ns:loc)[1]/text()", equalTo("http://test.com/content/geometrixx/en/events.html")).withNamespaceContext(NS));
+
+        assertEquals(404, get("sitemap.3").getStatus());
+
+        // removed pages are dropped from the cached site map
+        context.resourceResolver().delete(context.resourceResolver().getResource("/content/geometrixx/en/about"));
+        context.resourceResolver().commit();
+        servlet.onChange(Collections.singletonList(new ResourceChange(ChangeType.REMOVED, "/content/geometrixx/en/about", false, null, null, null)));
+
+        output = get("sitemap").getOutputAsString();
+        assertThat(output, hasXPath("count(//ns:url)", equalTo("2")).withNamespaceContext(NS));
+        assertThat(output, hasXPath("(//ns:loc)[2]/text()", equalTo("http://test.com/content/geometrixx/en/events.html")).withNamespaceContext(NS));
+    }
+
+    @Test
+    public void testCachedNotModified() throws Exception {
+        servlet.activate(new HashMap<String, Object>() {{
+                put("externalizer.domain", "external");
+                put("cache.enabled", true);
+            }
+        });
+
+        MockSlingHttpServletResponse first = get("sitemap");
+        assertEquals(200, first.getStatus());
+
+        request = newRequest("sitemap");
+        request.addDateHeader("If-Modified-Since", System.currentTimeMillis());
+        response = new MockSlingHttpServletResponse();
+        servlet.doGet(request, response);
+        assertEquals(304, response.getStatus());
+        assertEquals("", response.getOutputAsString());
+
+        request = newRequest("sitemap");
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        response = new MockSlingHttpServletResponse();
+        servlet.doGet(request, response);
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void testAuthenticatedRequestIsNotCached() throws Exception {
+        servlet.activate(new HashMap<String, Object>() {{
+                put("externalizer.domain", "external");
+                put("cache.enabled", true);
+            }
+        });
+
+        request = newRequest("sitemap");
+        request.setAuthType("BASIC");
+        response = new MockSlingHttpServletResponse();
+        servlet.doGet(request, response);
+        assertNull(response.getHeader("Last-Modified"));
+        assertThat(response.getOutputAsString(), hasXPath("count(//ns:url)", equalTo("3")).withNamespaceContext(NS));
+
+        assertNotNull(get("sitemap").getHeader("Last-Modified"));
+    }
+
+    private MockSlingHttpServletResponse get(String selectors) throws Exception {
+        MockSlingHttpServletResponse result = new MockSlingHttpServletResponse();
+        servlet.doGet(newRequest(selectors), result);
+        return result;
+    }
+
+    private MockSlingHttpServletRequest newRequest(String selectors) {
+        MockSlingHttpServletRequest result = new MockSlingHttpServletRequest(context.resourceResolver(), context.bundleContext()) {
+            @Override
+            public String getResponseContentType() {
+                return "text/xml";
+            }
+        };
+        result.setResource(context.resourceResolver().getResource("/content/geometrixx/en"));
+        ((MockRequestPathInfo) result.getRequestPathInfo()).setSelectorString(selectors);
+        return result;
+    }
+
     @Test
     public void testExtensionlessPages() throws Exception {
         servlet.activate(new HashMap<String, Object>() {{
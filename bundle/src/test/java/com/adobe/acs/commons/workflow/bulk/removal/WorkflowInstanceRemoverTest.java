@@ -18,10 +18,14 @@
 package com.adobe.acs.commons.workflow.bulk.removal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
+import com.adobe.acs.commons.fam.ThrottledTaskRunner;
 import com.adobe.acs.commons.workflow.bulk.removal.impl.WorkflowInstanceRemoverImpl;
 import com.adobe.granite.workflow.WorkflowSession;
 import com.adobe.granite.workflow.exec.WorkItem;
@@ -56,6 +60,9 @@ public class WorkflowInstanceRemoverTest {
     @Mock
     WorkflowService workflowService;
 
+    @Mock
+    ThrottledTaskRunner throttledTaskRunner;
+
     @Before
     public void setUp() throws Exception {
         ctx.load().json(getClass().getResourceAsStream("WorkflowInstanceRemoverTest.json"), "/var/workflow/instances");
@@ -70,6 +77,7 @@ public class WorkflowInstanceRemoverTest {
 
         ctx.registerService(JobManager.class, jobManager);
         ctx.registerService(WorkflowService.class, workflowService);
+        ctx.registerService(ThrottledTaskRunner.class, throttledTaskRunner);
         ctx.registerInjectActivateService(new WorkflowInstanceRemoverImpl());
     }
 
@@ -169,4 +177,57 @@ public class WorkflowInstanceRemoverTest {
         assertEquals("All workflows should have been checked",3, workflowInstanceRemover.getStatus().getChecked());
         assertEquals("Only workflows with specified modelID should be deleted", 2, workflowInstanceRemover.getStatus().getRemoved());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void removeWholeFolderInPartitions() throws Exception {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(throttledTaskRunner).scheduleWork(any(Runnable.class));
+
+        Collection<String> statuses = new ArrayList<>();
+        statuses.add("COMPLETED");
+        statuses.add("ABORTED");
+        statuses.add("RUNNING");
+
+        WorkflowRemovalConfig workflowRemovalConfig = new WorkflowRemovalConfig(null, statuses, null, null, -1);
+        workflowRemovalConfig.setParallelism(2);
+
+        WorkflowInstanceRemover workflowInstanceRemover = ctx.getService(WorkflowInstanceRemover.class);
+        int removed = workflowInstanceRemover.removeWorkflowInstances(ctx.resourceResolver(), workflowRemovalConfig);
+
+        assertEquals(3, removed);
+        assertEquals(3, workflowInstanceRemover.getStatus().getChecked());
+        assertEquals(3, workflowInstanceRemover.getStatus().getRemoved());
+        assertEquals(1, workflowInstanceRemover.getStatus().getPartitions().size());
+        assertEquals("/var/workflow/instances/server0/2021-05-06", workflowInstanceRemover.getStatus().getPartitions().get(0).getPath());
+        assertNull("The folder should be removed as a whole", ctx.resourceResolver().getResource("/var/workflow/instances/server0/2021-05-06"));
+    }
+
+    @Test
+    public void removeMatchingInPartitions() throws Exception {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(throttledTaskRunner).scheduleWork(any(Runnable.class));
+
+        Collection<String> statuses = new ArrayList<>();
+        statuses.add("COMPLETED");
+
+        WorkflowRemovalConfig workflowRemovalConfig = new WorkflowRemovalConfig(null, statuses, null, null, -1);
+        workflowRemovalConfig.setBatchSize(1);
+        workflowRemovalConfig.setParallelism(2);
+
+        WorkflowInstanceRemover workflowInstanceRemover = ctx.getService(WorkflowInstanceRemover.class);
+        workflowInstanceRemover.removeWorkflowInstances(ctx.resourceResolver(), workflowRemovalConfig);
+
+        WorkflowRemovalStatus status = workflowInstanceRemover.getStatus();
+        assertEquals(3, status.getChecked());
+        assertEquals(1, status.getRemoved());
+        assertEquals(3, status.getPartitions().get(0).getChecked());
+        assertEquals(1, status.getPartitions().get(0).getRemoved());
+        assertNotNull(status.getJSON().get("partitions"));
+        assertNotNull(ctx.resourceResolver().getResource("/var/workflow/instances/server0/2021-05-06/test-workflow_1"));
+        assertNull(ctx.resourceResolver().getResource("/var/workflow/instances/server0/2021-05-06/test-workflow_3"));
+    }
+}
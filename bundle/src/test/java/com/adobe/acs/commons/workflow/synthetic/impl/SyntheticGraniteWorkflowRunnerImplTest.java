@@ -31,21 +31,27 @@ import com.adobe.acs.commons.workflow.synthetic.impl.granitetestprocesses.WfData
 
 import com.adobe.granite.workflow.WorkflowSession;
 import com.adobe.granite.workflow.exec.WorkItem;
+import com.adobe.granite.workflow.exec.WorkflowProcess;
 import com.adobe.granite.workflow.metadata.MetaDataMap;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import javax.jcr.Session;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -258,4 +264,31 @@ public class SyntheticGraniteWorkflowRunnerImplTest {
                 false,
                 false);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExecuteBatch() throws Exception {
+        WorkflowProcess workflowProcess = mock(WorkflowProcess.class);
+
+        Map<Object, Object> map = new HashMap<Object, Object>();
+        map.put("process.label", "batch");
+        swr.bindGraniteWorkflowProcesses(workflowProcess, map);
+
+        workflowSteps.add(swr.getSyntheticWorkflowStep("batch",
+                SyntheticWorkflowRunner.WorkflowProcessIdType.PROCESS_LABEL));
+
+        swr.executeBatch(resourceResolver,
+                Arrays.asList("/content/one", "/content/two"),
+                workflowSteps, false, false);
+
+        ArgumentCaptor<WorkItem> workItems = ArgumentCaptor.forClass(WorkItem.class);
+        ArgumentCaptor<WorkflowSession> workflowSessions = ArgumentCaptor.forClass(WorkflowSession.class);
+        ArgumentCaptor<MetaDataMap> metaDataMaps = ArgumentCaptor.forClass(MetaDataMap.class);
+        verify(workflowProcess, times(2)).execute(workItems.capture(), workflowSessions.capture(),
+                metaDataMaps.capture());
+
+        assertEquals("/content/one", workItems.getAllValues().get(0).getWorkflowData().getPayload());
+        assertEquals("/content/two", workItems.getAllValues().get(1).getWorkflowData().getPayload());
+        assertSame(workflowSessions.getAllValues().get(0), workflowSessions.getAllValues().get(1));
+        assertSame(metaDataMaps.getAllValues().get(0), metaDataMaps.getAllValues().get(1));
+    }
+}
@@ -23,6 +23,7 @@
     java.util.Arrays,
     java.util.ArrayList,
     java.util.Collection,
+    java.util.Collections,
     java.util.Set,
     java.util.LinkedHashSet,
     java.util.stream.Collectors,
@@ -71,6 +72,7 @@
 	boolean createVersion = request.getParameter("createVersion") != null;
 	boolean delete = request.getParameter("delete") != null;
     boolean recursive = request.getParameter("recursive") != null;
+    boolean sinceLastSync = request.getParameter("sinceLastSync") != null;
 
     ValueMap generalSettings = ConfigurationUtils.getSettingsResource(resourceResolver).getValueMap();
 
@@ -97,12 +99,23 @@
         ContentSync contentSync = new ContentSync(remoteInstance, resourceResolver, importer);
         ContentCatalog contentCatalog = new ContentCatalog(remoteInstance, catalogServlet);
 
-        println(printWriter, "building catalog from " + contentCatalog.getFetchURI(root, strategyPid, recursive) );
+        SyncCheckpoint checkpoint = sinceLastSync ? SyncCheckpoint.getOrCreate(resourceResolver, hostConfig.getHost(), root) : null;
+        long since = checkpoint != null ? checkpoint.getWatermark() : 0L;
+
+        println(printWriter, "building catalog from " + contentCatalog.getFetchURI(root, strategyPid, recursive, since) );
         out.flush();
         List<CatalogItem> catalog;
-        List<CatalogItem> remoteItems = contentCatalog.fetch(root, strategyPid, recursive);
         long t0 = System.currentTimeMillis();
+        List<CatalogItem> remoteItems = contentCatalog.fetch(root, strategyPid, recursive, since);
         println(printWriter, remoteItems.size() + " resource"+(remoteItems.size() == 1 ? "" : "s")+" fetched in " + (System.currentTimeMillis() - t0) + " ms");
+        Set<String> finishedPaths = Collections.emptySet();
+        if(checkpoint != null && !dryRun){
+            if(checkpoint.isResuming()){
+                finishedPaths = checkpoint.getFinishedPaths();
+                println(printWriter, "resuming an interrupted sync, skipping " + finishedPaths.size() + " resources synced already");
+            }
+            checkpoint.start(contentCatalog.getWatermark());
+        }
         if(incremental){
             catalog = contentCatalog.getDelta(remoteItems, resourceResolver, updateStrategy);
             println(printWriter, catalog.size() + " resource"+(catalog.size() == 1 ? "" : "s")+" modified");
@@ -112,35 +125,58 @@
 
         long count = 0;
         t0 = System.currentTimeMillis();
-        long t00 = System.currentTimeMillis();
         List<String> updatedResources = new ArrayList<>();
 
         // the list of updated resources having child nodes to ensure ordering after update
         Set<String> sortedNodes = new LinkedHashSet<>();
 
+        List<CatalogItem> items = new ArrayList<>();
         for (CatalogItem item : catalog) {
             String path = item.getPath();
+            if(finishedPaths.contains(path)){
+                continue;
+            }
             String customExporter = item.getCustomExporter();
             if(customExporter != null){
                 error(out, "\t" + path + " has a custom json exporter (" + customExporter + ") and cannot be imported");
                 continue;
             }
 
-
             Resource targetResource = resourceResolver.getResource(path);
 
             boolean modified = updateStrategy.isModified(item, targetResource);
 
             if(targetResource == null || modified || !incremental) {
-                println(printWriter, ++count + "\t" + path);
-                String msg = updateStrategy.getMessage(item, targetResource);
-                println(printWriter, "\t" + msg);
-                if(!dryRun) {
-                    String reqPath = item.getContentUri() ;
-                    JsonObject json = remoteInstance.getJson(reqPath);
+                if(dryRun) {
+                    println(printWriter, ++count + "\t" + path);
+                    println(printWriter, "\t" + updateStrategy.getMessage(item, targetResource));
+                } else {
+                    items.add(item);
+                }
+            }
+        }
+
+        if(!dryRun && !items.isEmpty()) {
+            int saveBatchSize = generalSettings.get(ConfigurationUtils.SAVE_BATCH_SIZE_KEY, 10);
+            println(printWriter, "fetching with " + remoteInstance.getMaxConnections() + " concurrent requests, saving every " + saveBatchSize + " resources");
+            ContentSyncPipeline pipeline = new ContentSyncPipeline(remoteInstance, resourceResolver, contentSync, contentReader, saveBatchSize);
+            final long syncStart = t0;
+            final int total = items.size();
+            final long[] lastEta = {System.currentTimeMillis()};
+            final JspWriter jspOut = out;
+            pipeline.run(items, new ContentSyncPipeline.Listener() {
+                @Override
+                public boolean isSaveRequired(CatalogItem item) {
+                    // creating a revision saves the session, so save the pending items of the batch first
+                    return createVersion && resourceResolver.getResource(item.getPath()) != null;
+                }
 
-                    List<String> binaryProperties = contentReader.collectBinaryProperties(json);
-                    JsonObject sanitizedJson = contentReader.sanitize(json);
+                @Override
+                public void beforeImport(CatalogItem item, List<String> binaryProperties) throws Exception {
+                    String path = item.getPath();
+                    Resource targetResource = resourceResolver.getResource(path);
+                    println(printWriter, (updatedResources.size() + 1) + "\t" + path);
+                    println(printWriter, "\t" + updateStrategy.getMessage(item, targetResource));
 
                     if(targetResource != null && createVersion) {
                         String revisionId = contentSync.createVersion(targetResource);
@@ -153,47 +189,49 @@
                     }
 
                     println(printWriter, "\timporting data");
-                    contentSync.importData(item, sanitizedJson);
-
                     if(!binaryProperties.isEmpty()){
                         println(printWriter, "\tcopying " + binaryProperties.size() + " binary propert" + (binaryProperties.size() > 1 ? "ies" : "y"));
-                        boolean contentResource = item.hasContentResource();
-                        String basePath = path + (contentResource ? "/jcr:content" : "");
-                        List<String> propertyPaths = binaryProperties.stream().map(p -> basePath + p).collect(Collectors.toList());
-                        contentSync.copyBinaries(propertyPaths);
                     }
+                }
 
-			        String parentPath = ResourceUtil.getParent(path);
-                    if(parentPath.startsWith(root)){
-                        sortedNodes.add(parentPath);
+                @Override
+                public void beforeSave(List<CatalogItem> items) throws Exception {
+                    if(checkpoint != null){
+                        checkpoint.addFinished(items.stream().map(CatalogItem::getPath).collect(Collectors.toList()));
                     }
+                }
 
-                    if(observationData != null){
-                        session.getWorkspace().getObservationManager().setUserData(observationData);
+                @Override
+                public void afterImport(CatalogItem item) throws Exception {
+                    String path = item.getPath();
+                    String parentPath = ResourceUtil.getParent(path);
+                    if(parentPath.startsWith(root)){
+                        sortedNodes.add(parentPath);
                     }
-
-                    session.save();
+                    updatedResources.add(path);
 
                     // print ETA every 5 seconds
-                    if(System.currentTimeMillis() - t00 > 5000L){
-                        long remainingCycles = catalog.size() - count;
-                        long pace = (System.currentTimeMillis()-t0)/count;
-                        long estimatedTime = remainingCycles * pace ;
-                        String pct = String.format("%.0f", count*100./catalog.size());
+                    if(System.currentTimeMillis() - lastEta[0] > 5000L){
+                        long done = updatedResources.size();
+                        long pace = (System.currentTimeMillis() - syncStart) / done;
+                        long estimatedTime = (total - done) * pace;
+                        String pct = String.format("%.0f", done * 100. / total);
                         String eta = DurationFormatUtils.formatDurationWords(estimatedTime, true, true);
-                        String etaMsg = pct +"%, ETA: " + eta;
-                        t00 = System.currentTimeMillis();
-                        println(printWriter, etaMsg);
+                        lastEta[0] = System.currentTimeMillis();
+                        println(printWriter, pct + "%, ETA: " + eta);
                     }
-
-                    updatedResources.add(path);
-
-                    out.flush();
+                    jspOut.flush();
                 }
-            }
+            });
+            count = updatedResources.size();
+            println(printWriter, "");
+            println(printWriter, pipeline.getStatistics().toString());
         }
 
-        if(delete){
+        if(delete && contentCatalog.isIncremental()){
+            println(printWriter, "");
+            println(printWriter, "skipping deletion, the catalog contains only resources modified since the last sync");
+        } else if(delete){
             Collection<String> remotePaths = remoteItems.stream().map(c -> c.getPath()).collect(Collectors.toList());
             Collection<String> localPaths = updateStrategy.getItems(slingRequest).stream().map(c -> c.getPath()).collect(Collectors.toList());
             localPaths.removeAll(remotePaths);
@@ -231,6 +269,9 @@
             contentSync.runWorkflows(workflowModel, updatedResources);
 	        println(printWriter, "started " + updatedResources.size() + " workflows, in " + (System.currentTimeMillis() - t1) + " ms");
         }
+        if(checkpoint != null && !dryRun){
+            checkpoint.complete();
+        }
         if(!dryRun){
             ConfigurationUtils.persistAuditLog(resourceResolver, root, count, tempWriter.toString());
         }